@@ -45,3 +45,17 @@ float Perspective::getVFov() const {
     const auto degrees {radToDeg(this->vFov_)};
     return degrees;
 }
+
+float Perspective::getFieldOfView() const {
+    return getHFov();
+}
+
+// Keeps the aspect ratio by scaling the vertical field of view by the same amount.
+void Perspective::setFieldOfView(const float fieldOfView) {
+    if (fieldOfView <= 0.0F) {
+        return;
+    }
+    const auto hFov {degToRad(fieldOfView)};
+    this->vFov_ *= hFov / this->hFov_;
+    this->hFov_ = hFov;
+}
@@ -36,6 +36,10 @@ namespace Components {
         float getHFov() const;
 
         float getVFov() const;
+
+        float getFieldOfView() const final;
+
+        void setFieldOfView(float fieldOfView) final;
     };
 }//namespace Components
 
@@ -26,10 +26,6 @@ AreaLight::AreaLight(
     return position;
 }
 
-void AreaLight::resetSampling() {
-    this->samplerPointLight_->resetSampling();
-}
-
 Intersection AreaLight::intersect(Intersection intersection, const Ray &ray) {
     const auto lastDist {intersection.length_};
     intersection = this->triangle_.intersect(intersection, ray);
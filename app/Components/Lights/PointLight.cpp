@@ -14,9 +14,6 @@ PointLight::PointLight(const Material &radiance, const ::glm::vec3 &position) :
     return this->position_;
 }
 
-void PointLight::resetSampling() {
-}
-
 Intersection PointLight::intersect(Intersection intersection, const Ray &/*ray*/) {
     return intersection;
 }
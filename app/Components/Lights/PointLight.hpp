@@ -26,8 +26,6 @@ namespace Components {
 
         ::glm::vec3 getPosition() final;
 
-        void resetSampling() final;
-
         ::MobileRT::Intersection intersect(
             ::MobileRT::Intersection intersection,
             const ::MobileRT::Ray &ray) final;
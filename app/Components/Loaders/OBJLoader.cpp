@@ -1,10 +1,13 @@
 #include "Components/Loaders/OBJLoader.hpp"
 #include "Components/Lights/AreaLight.hpp"
 #include "MobileRT/Texture.hpp"
+#include <array>
 #include <boost/assert.hpp>
 #include <cstring>
 #include <fstream>
 #include <map>
+#include <set>
+#include <sstream>
 #include <utility>
 
 using ::Components::AreaLight;
@@ -14,10 +17,69 @@ using ::MobileRT::Scene;
 using ::MobileRT::Texture;
 using ::MobileRT::Triangle;
 using ::MobileRT::Sampler;
+using ::MobileRT::SceneSize;
+using ::MobileRT::ProgressListener;
+
+namespace {
+    /**
+     * A stream buffer which reads a file in chunks and reports how much of it was already read.
+     * <br>
+     * If the ProgressListener asks to cancel, it stops reading as if the file ended.
+     */
+    class ProgressStreamBuffer final : public ::std::streambuf {
+    private:
+        ::std::streambuf *const source_ {};
+        const ProgressListener &progressListener_;
+        ::std::streamsize size_ {};
+        ::std::streamsize bytesRead_ {};
+        ::std::array<char, 64 * 1024> buffer_ {};
+
+    public:
+        explicit ProgressStreamBuffer(::std::streambuf *const source, const ProgressListener &progressListener) :
+            source_ {source},
+            progressListener_ {progressListener} {
+            this->size_ = this->source_->pubseekoff(0, ::std::ios_base::end, ::std::ios_base::in);
+            this->source_->pubseekpos(0, ::std::ios_base::in);
+        }
+
+    protected:
+        int_type underflow() final {
+            if (gptr() < egptr()) {
+                return traits_type::to_int_type(*gptr());
+            }
+            const auto progress {this->size_ > 0 ? static_cast<float> (this->bytesRead_) / this->size_ : 0.0F};
+            if (!this->progressListener_(progress)) {
+                LOG("Parsing cancelled");
+                return traits_type::eof();
+            }
+            const auto count {this->source_->sgetn(this->buffer_.data(), this->buffer_.size())};
+            if (count <= 0) {
+                return traits_type::eof();
+            }
+            this->bytesRead_ += count;
+            setg(this->buffer_.data(), this->buffer_.data(), this->buffer_.data() + count);
+            return traits_type::to_int_type(*gptr());
+        }
+    };
+}//namespace
 
 OBJLoader::OBJLoader(::std::string objFilePath, ::std::string matFilePath) :
+    OBJLoader {::std::move(objFilePath), ::std::move(matFilePath), ProgressListener {}} {
+}
+
+/**
+ * The constructor which parses the OBJ file while reporting its progress.
+ * <br>
+ * The parsing stops as soon as the ProgressListener asks to cancel, and then the loader is not processed.
+ *
+ * @param objFilePath      The path to the OBJ file.
+ * @param matFilePath      The path to the MTL file.
+ * @param progressListener The listener of the progress of the parsing and of the filling of the scene.
+ */
+OBJLoader::OBJLoader(::std::string objFilePath, ::std::string matFilePath, ProgressListener progressListener) :
     objFilePath_ {::std::move(objFilePath)},
     mtlFilePath_ {::std::move(matFilePath)} {
+    this->progressListener_ = ::std::move(progressListener);
 
     ::std::ifstream objStream {this->objFilePath_};
     objStream.exceptions(
@@ -38,12 +100,16 @@ OBJLoader::OBJLoader(::std::string objFilePath, ::std::string matFilePath) :
     LOG("Error (errno): ", ::std::strerror(errno));
     errno = 0;
 
+    ProgressStreamBuffer progressStreamBuffer {objStream.rdbuf(), this->progressListener_};
+    ::std::istream progressStream {&progressStreamBuffer};
+    ::std::istream *const objStreamPtr {this->progressListener_? &progressStream : &objStream};
     const auto ret {
             ::tinyobj::LoadObj(
                     &this->attrib_, &this->shapes_, &this->materials_,
-                    &warnings, &errors, &objStream, matStreamReaderPtr, true, true
+                    &warnings, &errors, objStreamPtr, matStreamReaderPtr, true, true
             )
     };
+    const auto cancelled {!reportProgress(1.0F)};
 
     if (errno) {
         LOG("Error (errno): ", ::std::strerror(errno));
@@ -58,7 +124,7 @@ OBJLoader::OBJLoader(::std::string objFilePath, ::std::string matFilePath) :
         LOG("Warning: ", warnings);
     }
 
-    if (ret) {
+    if (ret && !cancelled) {
         this->numberTriangles_ = 0;
         for (const auto &shape : this->shapes_) {
             for (const auto numFaceVertice : shape.mesh.num_face_vertices) {
@@ -80,11 +146,16 @@ bool OBJLoader::fillScene(Scene *const scene,
     const ::std::string delimiter {"/"};
     const ::std::string filePath {this->objFilePath_.substr(0, this->objFilePath_.find_last_of(delimiter)) + "/"};
     ::std::map<::std::string, Texture> textures {};
+    const auto numberTriangles {static_cast<float> (::std::max(this->numberTriangles_, 1))};
 
     for (const auto &shape : this->shapes_) {
         // Loop over faces(polygon)
         ::std::size_t indexOffset {};
         for (::std::size_t face {}; face < shape.mesh.num_face_vertices.size(); ++face) {
+            if (face % 4096 == 0 && !reportProgress(scene->triangles_.size() / numberTriangles)) {
+                LOG("Filling the scene cancelled");
+                return false;
+            }
             const auto it {shape.mesh.num_face_vertices.cbegin() + static_cast<::std::int32_t> (face)};
             const ::std::size_t faceVertices {*it};
 
@@ -364,3 +435,68 @@ OBJLoader::~OBJLoader() {
 
     LOG("OBJLOADER DELETED");
 }
+
+/**
+ * Estimates the size of the scene in an OBJ file without parsing it.
+ * <br>
+ * It only counts the vertex attributes and the faces in the OBJ file and reads the header of the textures in the
+ * MTL file, so it is much faster than loading the scene and doesn't allocate memory for its geometry.
+ *
+ * @param objFilePath The path to the OBJ file.
+ * @param matFilePath The path to the MTL file.
+ * @return The size of the scene.
+ */
+SceneSize OBJLoader::estimateSize(const ::std::string &objFilePath, const ::std::string &matFilePath) {
+    SceneSize sceneSize {};
+    ::std::ifstream objStream {objFilePath};
+    ::std::string line {};
+    while (::std::getline(objStream, line)) {
+        if (line.size() < 2) {
+            continue;
+        }
+        if (line[0] == 'v') {
+            if (line[1] == ' ') {
+                sceneSize.attributes_ += 3;
+            } else if (line[1] == 'n' && line.size() > 2 && line[2] == ' ') {
+                sceneSize.attributes_ += 3;
+            } else if (line[1] == 't' && line.size() > 2 && line[2] == ' ') {
+                sceneSize.attributes_ += 2;
+            }
+        } else if (line[0] == 'f' && line[1] == ' ') {
+            ::std::istringstream face {line.substr(2)};
+            ::std::string vertex {};
+            ::std::int64_t numVertices {};
+            while (face >> vertex) {
+                ++numVertices;
+            }
+            if (numVertices >= 3) {
+                sceneSize.triangles_ += numVertices - 2;
+                sceneSize.indices_ += (numVertices - 2) * 3;
+            }
+        }
+    }
+
+    const ::std::string delimiter {"/"};
+    const ::std::string filePath {objFilePath.substr(0, objFilePath.find_last_of(delimiter)) + "/"};
+    ::std::set<::std::string> textures {};
+    ::std::ifstream matStream {matFilePath};
+    while (::std::getline(matStream, line)) {
+        const auto start {line.find_first_not_of(" \t")};
+        if (start == ::std::string::npos || line.compare(start, 7, "map_Kd ") != 0) {
+            continue;
+        }
+        const auto texStart {line.find_first_not_of(" \t", start + 7)};
+        const auto texEnd {line.find_last_not_of(" \t\r")};
+        if (texStart == ::std::string::npos || texEnd < texStart) {
+            continue;
+        }
+        const auto texPath {line.substr(texStart, texEnd - texStart + 1)};
+        if (textures.insert(texPath).second) {
+            const auto texturePath {filePath + texPath};
+            sceneSize.textureBytes_ += Texture::estimateSize(texturePath.c_str());
+        }
+    }
+    LOG("ESTIMATED TRIANGLES = ", sceneSize.triangles_);
+    LOG("ESTIMATED TEXTURES = ", sceneSize.textureBytes_, " bytes");
+    return sceneSize;
+}
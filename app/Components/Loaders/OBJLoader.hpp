@@ -1,6 +1,7 @@
 #ifndef COMPONENTS_LOADERS_OBJLOADER_HPP
 #define COMPONENTS_LOADERS_OBJLOADER_HPP
 
+#include "MobileRT/MemoryBudget.hpp"
 #include "MobileRT/ObjectLoader.hpp"
 #include "MobileRT/Sampler.hpp"
 #define TINYOBJLOADER_IMPLEMENTATION
@@ -20,6 +21,9 @@ namespace Components {
 
         explicit OBJLoader(::std::string objFilePath, ::std::string matFilePath);
 
+        explicit OBJLoader(::std::string objFilePath, ::std::string matFilePath,
+                           ::MobileRT::ProgressListener progressListener);
+
         OBJLoader(const OBJLoader &objLoader) = delete;
 
         OBJLoader(OBJLoader &&objLoader) noexcept = delete;
@@ -32,6 +36,8 @@ namespace Components {
 
         bool fillScene(::MobileRT::Scene *scene,
                        ::std::function<::std::unique_ptr<::MobileRT::Sampler>()> lambda) final;
+
+        static ::MobileRT::SceneSize estimateSize(const ::std::string &objFilePath, const ::std::string &matFilePath);
     };
 }//namespace Components
 
@@ -6,6 +6,6 @@ Constant::Constant(const float value) :
     value_ {value} {
 }
 
-float Constant::getSample(const ::std::uint32_t /*sample*/) {
+float Constant::getSample(const ::MobileRT::SampleKey &/*key*/) {
     return this->value_;
 }
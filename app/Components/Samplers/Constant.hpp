@@ -23,7 +23,7 @@ namespace Components {
 
         Constant &operator=(Constant &&constant) noexcept = delete;
 
-        float getSample(::std::uint32_t sample) final;
+        float getSample(const ::MobileRT::SampleKey &key) final;
     };
 }//namespace Components
 
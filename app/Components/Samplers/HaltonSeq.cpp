@@ -1,18 +1,33 @@
 #include "Components/Samplers/HaltonSeq.hpp"
+#include <array>
+#include <cmath>
 
 using ::Components::HaltonSeq;
+using ::MobileRT::Sampler;
+using ::MobileRT::SampleKey;
 
-HaltonSeq::HaltonSeq(const ::std::uint32_t width, const ::std::uint32_t height,
-                     const ::std::uint32_t samples) :
-    Sampler {width, height, samples} {
+namespace {
+    /**
+     * The bases of the Halton sequence, one prime number per dimension.
+     */
+    const ::std::array<::std::uint32_t, 16> Bases {{2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53}};
+}//namespace
+
+HaltonSeq::HaltonSeq(const ::std::uint32_t samples) :
+    Sampler {samples} {
 }
 
-float HaltonSeq::getSample(const ::std::uint32_t sample) {
-    const auto current {this->sample_.fetch_add(1, ::std::memory_order_relaxed)};
-    if (current >= (this->domainSize_ * (sample + 1))) {
-        this->sample_.fetch_sub(1, ::std::memory_order_relaxed);
-        return 1.0F;
-    }
-    const auto res {::MobileRT::haltonSequence(current - (sample * this->domainSize_), 2)};
-    return res;
+/**
+ * Calculates the Halton sequence of the sample in the base of the dimension, shifted by a random offset of the
+ * pixel and the dimension (a Cranley-Patterson rotation), so neighbouring pixels don't share the same pattern.
+ *
+ * @param key The key of the random number.
+ * @return A random value between 0 and 1.
+ */
+float HaltonSeq::getSample(const SampleKey &key) {
+    const auto base {Bases[key.dimension_ % Bases.size()]};
+    auto rotationKey {key};
+    rotationKey.sample_ = 0;
+    const auto res {::MobileRT::haltonSequence(key.sample_, base) + Sampler::toFloat(Sampler::hash(rotationKey))};
+    return res - ::std::floor(res);
 }
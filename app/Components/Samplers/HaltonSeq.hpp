@@ -10,7 +10,7 @@ namespace Components {
     public:
         explicit HaltonSeq() = default;
 
-        explicit HaltonSeq(::std::uint32_t width, ::std::uint32_t height, ::std::uint32_t samples);
+        explicit HaltonSeq(::std::uint32_t samples);
 
         HaltonSeq(const HaltonSeq &haltonSeq) = delete;
 
@@ -22,7 +22,7 @@ namespace Components {
 
         HaltonSeq &operator=(HaltonSeq &&haltonSeq) noexcept = delete;
 
-        float getSample(::std::uint32_t sample) final;
+        float getSample(const ::MobileRT::SampleKey &key) final;
     };
 }//namespace Components
 
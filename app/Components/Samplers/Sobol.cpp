@@ -0,0 +1,83 @@
+#include "Components/Samplers/Sobol.hpp"
+
+using ::Components::Sobol;
+using ::MobileRT::Sampler;
+using ::MobileRT::SampleKey;
+
+/**
+ * Calculates a random number of the Owen-scrambled Sobol sequence.
+ * <br>
+ * The dimensions are taken in pairs, the first one of each pair from the first dimension of the Sobol sequence and
+ * the second one from the second dimension, so the two random numbers of a pixel jitter, a direction or a point in
+ * a light are well stratified in 2D. The order of the samples of each pair is shuffled and each dimension is
+ * scrambled with seeds from the pixel, so the pixels and the pairs are not correlated (Burley 2020, "Practical
+ * Hash-based Owen Scrambling").
+ *
+ * @param key The key of the random number.
+ * @return A random value between 0 and 1.
+ */
+float Sobol::getSample(const SampleKey &key) {
+    auto shuffleKey {key};
+    shuffleKey.sample_ = ~0U;
+    shuffleKey.dimension_ = key.dimension_ / 2U;
+    auto scrambleKey {key};
+    scrambleKey.sample_ = 0;
+    const auto index {owenScramble(key.sample_, Sampler::hash(shuffleKey))};
+    const auto sobol {getSobol(index, key.dimension_ % 2U)};
+    return Sampler::toFloat(owenScramble(sobol, Sampler::hash(scrambleKey)));
+}
+
+/**
+ * Helper method which reverses the order of the bits of a number.
+ *
+ * @param value The number.
+ * @return The number with the bits reversed.
+ */
+::std::uint32_t Sobol::reverseBits(::std::uint32_t value) {
+    value = ((value >> 1U) & 0x55555555U) | ((value & 0x55555555U) << 1U);
+    value = ((value >> 2U) & 0x33333333U) | ((value & 0x33333333U) << 2U);
+    value = ((value >> 4U) & 0x0F0F0F0FU) | ((value & 0x0F0F0F0FU) << 4U);
+    value = ((value >> 8U) & 0x00FF00FFU) | ((value & 0x00FF00FFU) << 8U);
+    return (value >> 16U) | (value << 16U);
+}
+
+/**
+ * Helper method which applies a nested uniform (Owen) scramble to a number in [0, 1] in fixed point, which keeps
+ * the stratification of the sequence.
+ * <br>
+ * It uses the hash-based permutation of Laine and Karras with the constants of Vegdahl, on the bits reversed so
+ * each bit only depends on the more significant ones.
+ *
+ * @param value The number, as a 0.32 fixed point fraction.
+ * @param seed  The seed of the scramble.
+ * @return The scrambled number.
+ */
+::std::uint32_t Sobol::owenScramble(::std::uint32_t value, const ::std::uint32_t seed) {
+    value = reverseBits(value);
+    value ^= value * 0x3D20ADEAU;
+    value += seed;
+    value *= (seed >> 16U) | 1U;
+    value ^= value * 0x05526C56U;
+    value ^= value * 0x53A22864U;
+    return reverseBits(value);
+}
+
+/**
+ * Helper method which calculates an element of one of the first two dimensions of the Sobol sequence.
+ *
+ * @param index     The index of the element.
+ * @param dimension The dimension, 0 or 1.
+ * @return The element, as a 0.32 fixed point fraction.
+ */
+::std::uint32_t Sobol::getSobol(::std::uint32_t index, const ::std::uint32_t dimension) {
+    if (dimension == 0) {
+        return reverseBits(index);
+    }
+    ::std::uint32_t res {};
+    for (auto direction {1U << 31U}; index != 0; index >>= 1U, direction ^= direction >> 1U) {
+        if ((index & 1U) != 0) {
+            res ^= direction;
+        }
+    }
+    return res;
+}
@@ -0,0 +1,32 @@
+#ifndef COMPONENTS_SAMPLERS_SOBOL_HPP
+#define COMPONENTS_SAMPLERS_SOBOL_HPP
+
+#include "MobileRT/Sampler.hpp"
+
+namespace Components {
+    class Sobol final : public ::MobileRT::Sampler {
+    private:
+        static ::std::uint32_t reverseBits(::std::uint32_t value);
+
+        static ::std::uint32_t owenScramble(::std::uint32_t value, ::std::uint32_t seed);
+
+        static ::std::uint32_t getSobol(::std::uint32_t index, ::std::uint32_t dimension);
+
+    public:
+        explicit Sobol() = default;
+
+        Sobol(const Sobol &sobol) = delete;
+
+        Sobol(Sobol &&sobol) noexcept = delete;
+
+        ~Sobol() final = default;
+
+        Sobol &operator=(const Sobol &sobol) = delete;
+
+        Sobol &operator=(Sobol &&sobol) noexcept = delete;
+
+        float getSample(const ::MobileRT::SampleKey &key) final;
+    };
+}//namespace Components
+
+#endif //COMPONENTS_SAMPLERS_SOBOL_HPP
@@ -13,8 +13,7 @@ namespace {
             const auto index {static_cast<::std::uint32_t> (::std::distance(values.begin(), it))};
             *it = ::MobileRT::haltonSequence(index, 2);
         }
-        static ::std::random_device randomDevice {};
-        static ::std::mt19937 generator {randomDevice()};
+        static ::std::mt19937 generator {};
         ::std::shuffle(values.begin(), values.end(), generator);
         return true;
     }
@@ -25,15 +24,13 @@ StaticHaltonSeq::StaticHaltonSeq() {
     static_cast<void> (unused);
 }
 
-StaticHaltonSeq::StaticHaltonSeq(const ::std::uint32_t width, const ::std::uint32_t height,
-                                 const ::std::uint32_t samples) :
-    Sampler {width, height, samples} {
+StaticHaltonSeq::StaticHaltonSeq(const ::std::uint32_t samples) :
+    Sampler {samples} {
     static auto unused{fillThings()};
     static_cast<void> (unused);
 }
 
-float StaticHaltonSeq::getSample(const ::std::uint32_t /*sample*/) {
-    const auto current {this->sample_.fetch_add(1, ::std::memory_order_relaxed)};
-    const auto it {values.begin() + (current & mask)};
+float StaticHaltonSeq::getSample(const ::MobileRT::SampleKey &key) {
+    const auto it {values.begin() + (::MobileRT::Sampler::hash(key) & mask)};
     return *it;
 }
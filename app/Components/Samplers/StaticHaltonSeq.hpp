@@ -10,7 +10,7 @@ namespace Components {
     public:
         explicit StaticHaltonSeq();
 
-        explicit StaticHaltonSeq(::std::uint32_t width, ::std::uint32_t height, ::std::uint32_t samples);
+        explicit StaticHaltonSeq(::std::uint32_t samples);
 
         StaticHaltonSeq(const StaticHaltonSeq &random) = delete;
 
@@ -22,7 +22,7 @@ namespace Components {
 
         StaticHaltonSeq &operator=(StaticHaltonSeq &&random) noexcept = delete;
 
-        float getSample(::std::uint32_t sample) final;
+        float getSample(const ::MobileRT::SampleKey &key) final;
     };
 }//namespace Components
 
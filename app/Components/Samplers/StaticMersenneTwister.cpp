@@ -10,8 +10,7 @@ namespace {
 
     bool fillThings() {
         static ::std::uniform_real_distribution<float> uniformDist {0.0F, 1.0F};
-        static ::std::random_device randomDevice {};
-        static ::std::mt19937 generator {randomDevice()};
+        static ::std::mt19937 generator {};
         ::std::generate(values.begin(), values.end(), []() {return uniformDist(generator);});
         return true;
     }
@@ -22,8 +21,7 @@ StaticMersenneTwister::StaticMersenneTwister() {
     static_cast<void> (unused);
 }
 
-float StaticMersenneTwister::getSample(const ::std::uint32_t /*sample*/) {
-    const auto current {this->sample_.fetch_add(1, ::std::memory_order_relaxed)};
-    const auto it {values.begin() + (current & mask)};
+float StaticMersenneTwister::getSample(const ::MobileRT::SampleKey &key) {
+    const auto it {values.begin() + (::MobileRT::Sampler::hash(key) & mask)};
     return *it;
 }
@@ -19,7 +19,7 @@ namespace Components {
 
         StaticMersenneTwister &operator=(StaticMersenneTwister &&random) noexcept = delete;
 
-        float getSample(::std::uint32_t sample) final;
+        float getSample(const ::MobileRT::SampleKey &key) final;
     };
 }//namespace Components
 
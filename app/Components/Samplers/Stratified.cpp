@@ -1,18 +1,24 @@
 #include "Components/Samplers/Stratified.hpp"
 
 using ::Components::Stratified;
+using ::MobileRT::Sampler;
+using ::MobileRT::SampleKey;
 
-Stratified::Stratified(const ::std::uint32_t width, const ::std::uint32_t height,
-                       const ::std::uint32_t samples) :
-    Sampler {width, height, samples} {
+Stratified::Stratified(const ::std::uint32_t samples) :
+    Sampler {samples} {
 }
 
-float Stratified::getSample(const ::std::uint32_t sample) {
-    const auto current {this->sample_.fetch_add(1, ::std::memory_order_relaxed)};
-    if (current >= (this->domainSize_ * (sample + 1))) {
-        this->sample_.fetch_sub(1, ::std::memory_order_relaxed);
-        return 1.0F;
-    }
-    const auto res {static_cast<float> (current - (sample * this->domainSize_)) / this->domainSize_};
+/**
+ * Calculates a random number in one of the strata in which [0, 1] is split, one per sample per pixel.
+ * The samples of a pixel go through the strata in a random order for each pixel and dimension.
+ *
+ * @param key The key of the random number.
+ * @return A random value between 0 and 1.
+ */
+float Stratified::getSample(const SampleKey &key) {
+    auto orderKey {key};
+    orderKey.sample_ = 0;
+    const auto stratum {(key.sample_ + Sampler::hash(orderKey)) % this->samples_};
+    const auto res {(static_cast<float> (stratum) + Sampler::toFloat(Sampler::hash(key))) / this->samples_};
     return res;
 }
@@ -8,7 +8,7 @@ namespace Components {
     public:
         explicit Stratified() = default;
 
-        explicit Stratified(::std::uint32_t width, ::std::uint32_t height, ::std::uint32_t samples);
+        explicit Stratified(::std::uint32_t samples);
 
         Stratified(const Stratified &stratified) = delete;
 
@@ -20,7 +20,7 @@ namespace Components {
 
         Stratified &operator=(Stratified &&stratified) noexcept = delete;
 
-        float getSample(::std::uint32_t sample) final;
+        float getSample(const ::MobileRT::SampleKey &key) final;
     };
 }//namespace Components
 
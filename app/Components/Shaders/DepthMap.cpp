@@ -5,8 +5,9 @@ using ::MobileRT::Intersection;
 using ::MobileRT::Ray;
 using ::MobileRT::Scene;
 
-DepthMap::DepthMap(Scene scene, const ::glm::vec3 &maxPoint, const Accelerator accelerator) :
-    Shader {::std::move(scene), 0, accelerator},
+DepthMap::DepthMap(Scene scene, const ::glm::vec3 &maxPoint, const Accelerator accelerator,
+                   const ::std::function<bool()> &isCancelled) :
+    Shader {::std::move(scene), 0, accelerator, isCancelled},
     maxPoint_ {maxPoint} {
 }
 
@@ -20,7 +20,8 @@ namespace Components {
         explicit DepthMap(
             ::MobileRT::Scene scene,
             const ::glm::vec3 &maxPoint,
-            ::MobileRT::Shader::Accelerator accelerator);
+            ::MobileRT::Shader::Accelerator accelerator,
+            const ::std::function<bool()> &isCancelled = {});
 
         DepthMap(const DepthMap &depthMap) = delete;
 
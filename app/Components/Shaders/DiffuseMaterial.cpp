@@ -5,8 +5,9 @@ using ::MobileRT::Intersection;
 using ::MobileRT::Ray;
 using ::MobileRT::Scene;
 
-DiffuseMaterial::DiffuseMaterial(Scene scene, const Accelerator accelerator) :
-    Shader {::std::move(scene), 0, accelerator} {
+DiffuseMaterial::DiffuseMaterial(Scene scene, const Accelerator accelerator,
+                                 const ::std::function<bool()> &isCancelled) :
+    Shader {::std::move(scene), 0, accelerator, isCancelled} {
 }
 
 bool DiffuseMaterial::shade(::glm::vec3 *const rgb, const Intersection &intersection, const Ray &/*ray*/) {
@@ -15,7 +15,8 @@ namespace Components {
     public:
         explicit DiffuseMaterial () = delete;
 
-        explicit DiffuseMaterial(::MobileRT::Scene scene, ::MobileRT::Shader::Accelerator accelerator);
+        explicit DiffuseMaterial(::MobileRT::Scene scene, ::MobileRT::Shader::Accelerator accelerator,
+                                 const ::std::function<bool()> &isCancelled = {});
 
         DiffuseMaterial(const DiffuseMaterial &diffuseMaterial) = delete;
 
@@ -6,8 +6,9 @@ using ::MobileRT::Intersection;
 using ::MobileRT::Ray;
 using ::MobileRT::Scene;
 
-NoShadows::NoShadows(Scene scene, const ::std::int32_t samplesLight, const Accelerator accelerator) :
-    Shader {::std::move(scene), samplesLight, accelerator} {
+NoShadows::NoShadows(Scene scene, const ::std::int32_t samplesLight, const Accelerator accelerator,
+                     const ::std::function<bool()> &isCancelled) :
+    Shader {::std::move(scene), samplesLight, accelerator, isCancelled} {
 }
 
 bool NoShadows::shade(::glm::vec3 *const rgb, const Intersection &intersection, const Ray &/*ray*/) {
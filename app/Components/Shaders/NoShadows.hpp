@@ -18,7 +18,8 @@ namespace Components {
         explicit NoShadows(
             ::MobileRT::Scene scene,
             ::std::int32_t samplesLight,
-            ::MobileRT::Shader::Accelerator accelerator);
+            ::MobileRT::Shader::Accelerator accelerator,
+            const ::std::function<bool()> &isCancelled = {});
 
         NoShadows(const NoShadows &noShadows) = delete;
 
@@ -12,8 +12,9 @@ using ::MobileRT::RayDepthMax;
 PathTracer::PathTracer(Scene scene,
                        ::std::unique_ptr<Sampler> samplerRussianRoulette,
                        const ::std::int32_t samplesLight,
-                       const Accelerator accelerator) :
-    Shader {::std::move(scene), samplesLight, accelerator},
+                       const Accelerator accelerator,
+                       const ::std::function<bool()> &isCancelled) :
+    Shader {::std::move(scene), samplesLight, accelerator, isCancelled},
     samplerRussianRoulette_ {::std::move(samplerRussianRoulette)} {
     LOG("samplesLight = ", this->samplesLight_);
 }
@@ -141,8 +142,3 @@ bool PathTracer::shade(::glm::vec3 *const rgb, const Intersection &intersection,
     *rgb += LiT;
     return intersectedLight;
 }
-
-void PathTracer::resetSampling() {
-    Shader::resetSampling();
-    this->samplerRussianRoulette_->resetSampling();
-}
@@ -23,7 +23,8 @@ namespace Components {
 
         explicit PathTracer(::MobileRT::Scene scene,
                             ::std::unique_ptr<::MobileRT::Sampler> samplerRussianRoulette,
-                            ::std::int32_t samplesLight, Accelerator accelerator);
+                            ::std::int32_t samplesLight, Accelerator accelerator,
+                            const ::std::function<bool()> &isCancelled = {});
 
         PathTracer(const PathTracer &pathTracer) = delete;
 
@@ -34,8 +35,6 @@ namespace Components {
         PathTracer &operator=(const PathTracer &pathTracer) = delete;
 
         PathTracer &operator=(PathTracer &&pathTracer) noexcept = delete;
-
-        void resetSampling() final;
     };
 }//namespace Components
 
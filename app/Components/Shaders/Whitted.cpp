@@ -1,13 +1,18 @@
 #include "Components/Shaders/Whitted.hpp"
+#include <array>
+#include <vector>
 
 using ::Components::Whitted;
 using ::MobileRT::Intersection;
 using ::MobileRT::Ray;
+using ::MobileRT::RayPacket;
+using ::MobileRT::PacketSize;
 using ::MobileRT::Scene;
 using ::MobileRT::RayDepthMax;
 
-Whitted::Whitted(Scene scene, const ::std::int32_t samplesLight, Accelerator accelerator) :
-    Shader {::std::move(scene), samplesLight, accelerator} {
+Whitted::Whitted(Scene scene, const ::std::int32_t samplesLight, Accelerator accelerator,
+                 const ::std::function<bool()> &isCancelled) :
+    Shader {::std::move(scene), samplesLight, accelerator, isCancelled} {
 }
 
 bool Whitted::shade(::glm::vec3 *const rgb, const Intersection &intersection, const Ray &ray) {
@@ -38,6 +43,11 @@ bool Whitted::shade(::glm::vec3 *const rgb, const Intersection &intersection, co
         const auto sizeLights {this->lights_.size()};
         if (sizeLights > 0) {
             const auto samplesLight {this->samplesLight_};
+            // the shadow rays all start at the intersection, so they are traced in packets
+            ::std::vector<Ray> shadowRays {};
+            shadowRays.reserve(static_cast<::std::uint32_t> (::std::min(samplesLight, PacketSize)));
+            ::std::array<Intersection, PacketSize> lightIntersections {};
+            ::std::array<::glm::vec3, PacketSize> radiances {};
             for (::std::int32_t i {}; i < samplesLight; ++i) {
                 const auto chosenLight {getLightIndex()};
                 auto &light {*this->lights_[chosenLight]};
@@ -50,14 +60,25 @@ bool Whitted::shade(::glm::vec3 *const rgb, const Intersection &intersection, co
                 const auto cosNl {::glm::dot(shadingNormal, vectorToLight)};
                 if (cosNl > 0.0F) {
                     //shadow ray - orig=intersection, dir=light
-                    const Ray &shadowRay {vectorToLight, intersection.point_, rayDepth + 1, intersection.primitive_};
-                    Intersection lightIntersection {distanceToLight};
-                    //intersection between shadow ray and the closest primitive
-                    //if there are no primitives between intersection and the light
-                    if (!shadowTrace(lightIntersection, shadowRay)) {
-                        //rgb += kD * radLight * cosNl;
-                        *rgb += light.radiance_.Le_ * cosNl;
+                    const auto lane {shadowRays.size()};
+                    shadowRays.emplace_back(vectorToLight, intersection.point_, rayDepth + 1, intersection.primitive_);
+                    lightIntersections[lane] = Intersection {distanceToLight};
+                    //rgb += kD * radLight * cosNl;
+                    radiances[lane] = light.radiance_.Le_ * cosNl;
+                }
+                const auto packetFull {shadowRays.size() == static_cast<::std::uint32_t> (PacketSize)};
+                const auto lastSample {i == samplesLight - 1};
+                if (packetFull || (lastSample && !shadowRays.empty())) {
+                    const RayPacket packet {shadowRays};
+                    //intersection between shadow rays and the closest primitives
+                    const auto occluded {shadowTrace(&lightIntersections, packet)};
+                    for (::std::uint32_t lane {}; lane < shadowRays.size(); ++lane) {
+                        //if there are no primitives between intersection and the light
+                        if ((occluded & (1U << lane)) == 0) {
+                            *rgb += radiances[lane];
+                        }
                     }
+                    shadowRays.clear();
                 }
             }
             *rgb *= kD;
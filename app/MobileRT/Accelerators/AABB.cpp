@@ -2,7 +2,9 @@
 #include "MobileRT/Utils.hpp"
 
 using ::MobileRT::AABB;
-using ::MobileRT::Ray;
+using ::MobileRT::RayLengthMax;
+using ::MobileRT::RayPacket;
+using ::MobileRT::PacketSize;
 
 /**
  * Constructor.
@@ -16,31 +18,68 @@ AABB::AABB(const ::glm::vec3 &pointMin, const ::glm::vec3 &pointMax) :
 }
 
 /**
- * Checks if a ray intersects this AABB.
+ * Calculates the distance from the origin of a ray to the point where it enters this AABB.
+ * <br>
+ * The inverse of the direction of the ray is received instead of the ray itself, so it is only calculated once per
+ * traversal of an acceleration structure.
  *
- * @param ray A casted ray.
- * @return Whether the ray intersected this AABB.
+ * @param origin       The origin of the ray.
+ * @param invDirection The inverse of the direction of the ray.
+ * @param maxDist      The distance to the current intersection of the ray.
+ * @return The distance to the entry point, or RayLengthMax if the ray misses this AABB or only enters it farther
+ * than the current intersection.
  */
-bool AABB::intersect(const Ray &ray) const {
-    const auto invDirX {1.0F / ray.direction_[0]};
-    const auto rayOrgX {ray.origin_[0]};
-    const auto t1X {(this->pointMin_[0] - rayOrgX) * invDirX};
-    const auto t2X {(this->pointMax_[0] - rayOrgX) * invDirX};
-    auto tMin {::std::min(t1X, t2X)};
-    auto tMax {::std::max(t1X, t2X)};
+float AABB::getEntryDistance(const ::glm::vec3 &origin, const ::glm::vec3 &invDirection, const float maxDist) const {
+    const auto t1 {(this->pointMin_ - origin) * invDirection};
+    const auto t2 {(this->pointMax_ - origin) * invDirection};
+    const auto tNear {::glm::min(t1, t2)};
+    const auto tFar {::glm::max(t1, t2)};
+    const auto tMin {::std::max(::std::max(tNear[0], tNear[1]), ::std::max(tNear[2], 0.0F))};
+    const auto tMax {::std::min(::std::min(tFar[0], tFar[1]), ::std::min(tFar[2], maxDist))};
 
-    for (auto axis {1}; axis < 3; ++axis) {
-        const auto invDir {1.0F / ray.direction_[axis]};
-        const auto rayOrg {ray.origin_[axis]};
-        const auto t1 {(this->pointMin_[axis] - rayOrg) * invDir};
-        const auto t2 {(this->pointMax_[axis] - rayOrg) * invDir};
+    const auto intersected {tMax >= tMin};
+    return intersected ? tMin : RayLengthMax;
+}
 
-        tMin = ::std::max(tMin, ::std::min(t1, t2));
-        tMax = ::std::min(tMax, ::std::max(t1, t2));
+/**
+ * Checks which rays of a packet intersect this AABB.
+ * <br>
+ * It is the same slab test as for a single ray, but the innermost loops go through the lanes of the packet, so
+ * the compiler can use the SIMD units (NEON or SSE) to test all the rays at once. The rays whose entry point is
+ * farther than their current intersection are also discarded.
+ *
+ * @param packet  A packet of casted rays.
+ * @param mask    The mask of the lanes of the packet to test.
+ * @param maxDist The distance to the current intersection of each ray.
+ * @return The mask of the lanes whose ray intersected this AABB.
+ */
+::std::uint32_t AABB::intersect(const RayPacket &packet, const ::std::uint32_t mask,
+                                const ::std::array<float, PacketSize> &maxDist) const {
+    ::std::array<float, PacketSize> tMin {};
+    ::std::array<float, PacketSize> tMax {};
+    for (::std::uint32_t lane {}; lane < PacketSize; ++lane) {
+        tMin[lane] = 0.0F;
+        tMax[lane] = maxDist[lane];
+    }
+
+    for (auto axis {0}; axis < 3; ++axis) {
+        const auto &origins {packet.origins_[static_cast<::std::uint32_t> (axis)]};
+        const auto &invDirections {packet.invDirections_[static_cast<::std::uint32_t> (axis)]};
+        const auto pointMin {this->pointMin_[axis]};
+        const auto pointMax {this->pointMax_[axis]};
+        for (::std::uint32_t lane {}; lane < PacketSize; ++lane) {
+            const auto t1 {(pointMin - origins[lane]) * invDirections[lane]};
+            const auto t2 {(pointMax - origins[lane]) * invDirections[lane]};
+            tMin[lane] = ::std::max(tMin[lane], ::std::min(t1, t2));
+            tMax[lane] = ::std::min(tMax[lane], ::std::max(t1, t2));
+        }
     }
 
-    const auto intersected {tMax >= ::std::max(tMin, 0.0F)};
-    return intersected;
+    ::std::uint32_t hits {};
+    for (::std::uint32_t lane {}; lane < PacketSize; ++lane) {
+        hits |= static_cast<::std::uint32_t> (tMax[lane] >= tMin[lane]) << lane;
+    }
+    return hits & mask;
 }
 
 /**
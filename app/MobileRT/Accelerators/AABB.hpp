@@ -4,6 +4,8 @@
 #include "MobileRT/Intersection.hpp"
 #include "MobileRT/Material.hpp"
 #include "MobileRT/Ray.hpp"
+#include "MobileRT/RayPacket.hpp"
+#include <array>
 #include <glm/glm.hpp>
 #include <vector>
 
@@ -37,7 +39,10 @@ namespace MobileRT {
 
         ::glm::vec3 getCentroid() const;
 
-        bool intersect(const Ray &ray) const;
+        float getEntryDistance(const ::glm::vec3 &origin, const ::glm::vec3 &invDirection, float maxDist) const;
+
+        ::std::uint32_t intersect(const RayPacket &packet, ::std::uint32_t mask,
+                                  const ::std::array<float, PacketSize> &maxDist) const;
     };
 
     AABB surroundingBox(const AABB &box1, const AABB &box2);
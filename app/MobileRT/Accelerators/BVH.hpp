@@ -3,15 +3,22 @@
 
 #include "MobileRT/Accelerators/AABB.hpp"
 #include "MobileRT/Intersection.hpp"
+#include "MobileRT/RayPacket.hpp"
 #include "MobileRT/Scene.hpp"
+#include "MobileRT/ThreadPool.hpp"
 #include <algorithm>
 #include <array>
+#include <atomic>
+#include <functional>
 #include <glm/glm.hpp>
 #include <random>
 #include <vector>
 
 namespace MobileRT {
 
+    template<typename T>
+    class BVH4;
+
     /**
      * A class which represents the Bounding Volume Hierarchy acceleration structure.
      *
@@ -19,9 +26,22 @@ namespace MobileRT {
      */
     template<typename T>
     class BVH final {
+        friend class BVH4<T>;
+
         private:
             static const ::std::int32_t maxLeafSize {2};
 
+            /**
+             * The number of bins, along the largest axis of the centroids of a node, where the SAH split is searched.
+             */
+            static const ::std::int32_t numBins {16};
+
+            /**
+             * The minimum number of primitives of a node for it to be binned by all the threads and for its children
+             * to be built in parallel.
+             */
+            static const ::std::int32_t parallelBuildSize {16384};
+
             /**
              * An auxiliary node used for the construction of the BVH.
              * It is used to order all the AABBs by the position of the centroid.
@@ -46,8 +66,47 @@ namespace MobileRT {
                 }
             };
 
+            /**
+             * An auxiliary bin used for the construction of the BVH.
+             * It bounds the boxes and the centroids of a set of build nodes.
+             */
+            struct Bin {
+                AABB box_ {::glm::vec3 {RayLengthMax}, ::glm::vec3 {-RayLengthMax}};
+                AABB centroidBox_ {::glm::vec3 {RayLengthMax}, ::glm::vec3 {-RayLengthMax}};
+                ::std::int32_t numPrimitives_ {};
+
+                /**
+                 * Adds a build node to this bin.
+                 *
+                 * @param node The build node.
+                 */
+                void add(const BuildNode &node) {
+                    this->box_.pointMin_ = ::glm::min(this->box_.pointMin_, node.box_.pointMin_);
+                    this->box_.pointMax_ = ::glm::max(this->box_.pointMax_, node.box_.pointMax_);
+                    this->centroidBox_.pointMin_ = ::glm::min(this->centroidBox_.pointMin_, node.centroid_);
+                    this->centroidBox_.pointMax_ = ::glm::max(this->centroidBox_.pointMax_, node.centroid_);
+                    ++this->numPrimitives_;
+                }
+
+                /**
+                 * Adds all the build nodes of another bin to this bin.
+                 *
+                 * @param bin The other bin.
+                 */
+                void add(const Bin &bin) {
+                    this->box_.pointMin_ = ::glm::min(this->box_.pointMin_, bin.box_.pointMin_);
+                    this->box_.pointMax_ = ::glm::max(this->box_.pointMax_, bin.box_.pointMax_);
+                    this->centroidBox_.pointMin_ = ::glm::min(this->centroidBox_.pointMin_, bin.centroidBox_.pointMin_);
+                    this->centroidBox_.pointMax_ = ::glm::max(this->centroidBox_.pointMax_, bin.centroidBox_.pointMax_);
+                    this->numPrimitives_ += bin.numPrimitives_;
+                }
+            };
+
             /**
              * A node of the BVH vector.
+             * <br>
+             * It takes 32 bytes, so 2 nodes fit in a cache line and the 2 children of a node, which are always
+             * next to each other, can be read together.
              */
             struct BVHNode {
                 AABB box_ {};
@@ -55,25 +114,40 @@ namespace MobileRT {
                 ::std::int32_t numPrimitives_ {};
             };
 
+            static_assert(sizeof(BVHNode) == 32, "A BVH node must take half a cache line.");
+
         private:
             ::std::vector<BVHNode> boxes_ {};
             ::std::vector<T> primitives_ {};
 
         private:
-            void build(::std::vector<T> &&primitives);
+            void build(::std::vector<T> &&primitives, const ::std::function<bool()> &isCancelled);
+
+            void buildNode(::std::vector<BuildNode> *buildNodes, ::std::atomic<::std::int32_t> *numNodes,
+                           ::std::int32_t nodeIndex, ::std::int32_t begin, ::std::int32_t end, const Bin &bounds,
+                           const ::std::function<bool()> &isCancelled);
 
-            Intersection intersect(Intersection intersection, const Ray &ray, bool shadowTrace = false);
+            Intersection intersect(Intersection intersection, const Ray &ray, bool shadowTrace = false,
+                                   ::std::int32_t rootIndex = 0);
 
-            template<typename Iterator>
-            ::std::int32_t getSplitIndexSah(Iterator itBegin, Iterator itEnd);
+            void intersect(::std::array<Intersection, PacketSize> *intersections, const RayPacket &packet,
+                           bool shadowTrace);
 
-            template<typename Iterator>
-            AABB getSurroundingBox(Iterator itBegin, Iterator itEnd);
+            static Bin getBounds(const ::std::vector<BuildNode> &buildNodes, ::std::int32_t begin, ::std::int32_t end);
+
+            static ::std::array<Bin, numBins> getBins(const ::std::vector<BuildNode> &buildNodes, ::std::int32_t begin,
+                                                      ::std::int32_t end, const Bin &bounds, ::std::int32_t axis,
+                                                      ::std::int32_t binCount);
+
+            static ::std::int32_t getBinIndex(const BuildNode &node, const Bin &bounds, ::std::int32_t axis,
+                                              ::std::int32_t binCount);
+
+            static ::std::int32_t getNumChunks(::std::int32_t numPrimitives);
 
         public:
             explicit BVH() = default;
 
-            explicit BVH(::std::vector<T> &&primitives);
+            explicit BVH(::std::vector<T> &&primitives, const ::std::function<bool()> &isCancelled = {});
 
             BVH(const BVH &bvh) = delete;
 
@@ -89,7 +163,15 @@ namespace MobileRT {
 
             Intersection shadowTrace(Intersection intersection, const Ray &ray);
 
+            void trace(::std::array<Intersection, PacketSize> *intersections, const RayPacket &packet);
+
+            void shadowTrace(::std::array<Intersection, PacketSize> *intersections, const RayPacket &packet);
+
             const ::std::vector<T>& getPrimitives() const;
+
+            ::std::vector<T>& getPrimitives();
+
+            ::std::int64_t getSize() const;
     };
 
 
@@ -98,10 +180,12 @@ namespace MobileRT {
      * The constructor.
      *
      * @tparam T The type of the primitives.
-     * @param primitives The vector containing all the primitives to store in the BVH.
+     * @param primitives  The vector containing all the primitives to store in the BVH.
+     * @param isCancelled A predicate which tells whether the construction was cancelled, in which case the BVH is
+     *                    left empty.
      */
     template<typename T>
-    BVH<T>::BVH(::std::vector<T> &&primitives) {
+    BVH<T>::BVH(::std::vector<T> &&primitives, const ::std::function<bool()> &isCancelled) {
         if (primitives.empty()) {
             BVHNode bvhNode {};
             this->boxes_.emplace_back(bvhNode);
@@ -111,7 +195,7 @@ namespace MobileRT {
         const auto numPrimitives {(primitives.size())};
         const auto maxNodes {numPrimitives * 2 - 1};
         this->boxes_.resize(maxNodes);
-        build(::std::move(primitives));
+        build(::std::move(primitives), isCancelled);
     }
 
     /**
@@ -130,124 +214,57 @@ namespace MobileRT {
 
     /**
      * A helper method which builds the BVH structure.
+     * <br>
+     * The boxes of the primitives are computed by all the threads of the ThreadPool, which are idle while the scene
+     * is loaded, and then the tree is built from the root with the binned SAH.
+     * If the construction is cancelled meanwhile, the nodes not built yet are skipped and the BVH is left empty.
      *
      * @tparam T The type of the primitives.
-     * @param primitives A vector containing all the primitives to store in the BVH.
+     * @param primitives  A vector containing all the primitives to store in the BVH.
+     * @param isCancelled A predicate which tells whether the construction was cancelled.
      */
     template<typename T>
-    void BVH<T>::build(::std::vector<T> &&primitives) {
-        ::std::int32_t currentBoxIndex {};
-        ::std::int32_t beginBoxIndex {};
+    void BVH<T>::build(::std::vector<T> &&primitives, const ::std::function<bool()> &isCancelled) {
         const auto primitivesSize {primitives.size()};
-        ::std::int32_t endBoxIndex {static_cast<::std::int32_t> (primitivesSize)};
-        ::std::int32_t maxNodeIndex {};
-
-        ::std::array<::std::int32_t, SizeOfStack> stackBoxIndex {};
-        ::std::array<::std::int32_t, SizeOfStack> stackBoxBegin {};
-        ::std::array<::std::int32_t, SizeOfStack> stackBoxEnd {};
-
-        auto itStackBoxIndex {stackBoxIndex.begin()};
-        ::std::advance(itStackBoxIndex, 1);
-
-        auto itStackBoxBegin {stackBoxBegin.begin()};
-        ::std::advance(itStackBoxBegin, 1);
-
-        auto itStackBoxEnd {stackBoxEnd.begin()};
-        ::std::advance(itStackBoxEnd, 1);
-
-        const auto itStackBoxIndexBegin {stackBoxIndex.cbegin()};
+        const auto numPrimitives {static_cast<::std::int32_t> (primitivesSize)};
+        const auto numChunks {getNumChunks(numPrimitives)};
 
         ::std::vector<BuildNode> buildNodes {};
         buildNodes.reserve(primitivesSize);
         for (::std::uint32_t i {}; i < primitivesSize; ++i) {
-            const auto &primitive {primitives [i]};
-            auto &&box {primitive.getAABB()};
-            BuildNode &&node {::std::move(box), static_cast<::std::int32_t> (i)};
-            buildNodes.emplace_back(::std::move(node));
+            buildNodes.emplace_back(AABB {}, static_cast<::std::int32_t> (i));
         }
-
-        do {
-            const auto &currentBox {this->boxes_.begin() + currentBoxIndex};
-            const auto boxPrimitivesSize {endBoxIndex - beginBoxIndex};
-            const auto itBegin {buildNodes.begin() + beginBoxIndex};
-
-            const auto itEnd {buildNodes.begin() + endBoxIndex};
-            const auto surroundingBox {getSurroundingBox(itBegin, itEnd)};
-            const auto maxDist {surroundingBox.pointMax_ - surroundingBox.pointMin_};
-            const auto maxAxis {
-                    maxDist[0] >= maxDist[1] && maxDist[0] >= maxDist[2]
-                    ? 0
-                    : maxDist[1] >= maxDist[0] && maxDist[1] >= maxDist[2]
-                      ? 1
-                      : 2
-            };
-
-//            ::std::sort(itBegin, itEnd,
-//                [&](const BuildNode &node1, const BuildNode &node2) {
-//                    return node1.centroid_[maxAxis] < node2.centroid_[maxAxis];
-//                }
-//            );
-
-            const auto numBuckets {10};
-            const auto step {maxDist / static_cast<float> (numBuckets)};
-            const auto stepAxis {step[maxAxis]};
-            const auto &startBox {surroundingBox.pointMin_[maxAxis]};
-            const auto bucket1 {startBox + stepAxis};
-            auto itBucket {::std::partition(itBegin, itEnd,
-                             [&](const BuildNode &node) {
-                                 return node.centroid_[maxAxis] < bucket1;
-                             }
-            )};
-            for (::std::int32_t i = 2; i < numBuckets; ++i) {
-                const auto bucket {startBox + stepAxis * i};
-                itBucket = ::std::partition(itBucket, itEnd,
-                        [&](const BuildNode &node) {
-                            return node.centroid_[maxAxis] < bucket;
-                        }
-                );
+        ThreadPool::getInstance().parallelFor(numChunks, [&](const ::std::int32_t chunk) {
+            const auto begin {static_cast<::std::uint32_t> (numPrimitives * chunk / numChunks)};
+            const auto end {static_cast<::std::uint32_t> (numPrimitives * (chunk + 1) / numChunks)};
+            for (auto i {begin}; i < end; ++i) {
+                BuildNode node {primitives[i].getAABB(), static_cast<::std::int32_t> (i)};
+                buildNodes[i] = ::std::move(node);
             }
-
-            currentBox->box_ = itBegin->box_;
-            ::std::vector<AABB> boxes {currentBox->box_};
-            boxes.reserve(static_cast<::std::uint32_t> (boxPrimitivesSize));
-            for (::std::int32_t i = beginBoxIndex + 1; i < endBoxIndex; ++i) {
-                const AABB &newBox {buildNodes[static_cast<::std::uint32_t> (i)].box_};
-                currentBox->box_ = ::MobileRT::surroundingBox(newBox, currentBox->box_);
-                boxes.emplace_back(newBox);
-            }
-
-            if (boxPrimitivesSize <= maxLeafSize) {
-                currentBox->indexOffset_ = beginBoxIndex;
-                currentBox->numPrimitives_ = boxPrimitivesSize;
-
-                ::std::advance(itStackBoxIndex, -1); // pop
-                currentBoxIndex = *itStackBoxIndex;
-                ::std::advance(itStackBoxBegin, -1); // pop
-                beginBoxIndex = *itStackBoxBegin;
-                ::std::advance(itStackBoxEnd, -1); // pop
-                endBoxIndex = *itStackBoxEnd;
-            } else {
-                const auto left {maxNodeIndex + 1};
-                const auto right {left + 1};
-                const auto splitIndex {getSplitIndexSah(boxes.begin(), boxes.end())};
-
-                currentBox->indexOffset_ = left;
-                maxNodeIndex = ::std::max(right, maxNodeIndex);
-
-                *itStackBoxIndex = right;
-                ::std::advance(itStackBoxIndex, 1); // push
-                *itStackBoxBegin = beginBoxIndex + splitIndex;
-                ::std::advance(itStackBoxBegin, 1); // push
-                *itStackBoxEnd = endBoxIndex;
-                ::std::advance(itStackBoxEnd, 1); // push
-
-                currentBoxIndex = left;
-                endBoxIndex = beginBoxIndex + splitIndex;
+        });
+
+        ::std::atomic<::std::int32_t> numNodes {1};
+        // Once cancelled, the construction stays cancelled even if the predicate changes afterwards.
+        ::std::atomic<bool> cancelled {false};
+        const ::std::function<bool()> isBuildCancelled {
+            [&]() {
+                if (!cancelled.load(::std::memory_order_relaxed) && isCancelled && isCancelled()) {
+                    cancelled.store(true, ::std::memory_order_relaxed);
+                }
+                return cancelled.load(::std::memory_order_relaxed);
             }
-        } while(itStackBoxIndex > itStackBoxIndexBegin);
+        };
+        buildNode(
+            &buildNodes, &numNodes, 0, 0, numPrimitives, getBounds(buildNodes, 0, numPrimitives), isBuildCancelled
+        );
+        if (cancelled) {
+            LOG("BVH construction cancelled");
+            ::std::vector<BVHNode> (1).swap(this->boxes_);
+            return;
+        }
 
-        LOG("maxNodeId = ", maxNodeIndex);
-        this->boxes_.erase (this->boxes_.begin() + maxNodeIndex + 1, this->boxes_.end());
+        LOG("maxNodeId = ", numNodes - 1);
+        this->boxes_.erase (this->boxes_.begin() + numNodes, this->boxes_.end());
         this->boxes_.shrink_to_fit();
         ::std::vector<BVHNode> {this->boxes_}.swap(this->boxes_);
 
@@ -259,6 +276,109 @@ namespace MobileRT {
         }
     }
 
+    /**
+     * A helper method which builds a node of the BVH and all its descendants.
+     * <br>
+     * The centroids of the primitives are put into bins along the largest axis of their bounds, and the node is split
+     * between the two bins with the lowest surface area heuristic cost, so the primitives are only partitioned once.
+     * The children of the big nodes are built in parallel and their indexes are taken from a shared counter, so the
+     * two children of a node are always next to each other.
+     *
+     * @tparam T The type of the primitives.
+     * @param buildNodes  The build nodes of all the primitives.
+     * @param numNodes    The number of nodes of the BVH already used.
+     * @param nodeIndex   The index of the node to build.
+     * @param begin       The index of the first build node of the node.
+     * @param end         The index after the last build node of the node.
+     * @param bounds      The bounds of the build nodes of the node.
+     * @param isCancelled A predicate which tells whether the construction was cancelled, checked before splitting
+     *                    each node, so the rest of its subtree is skipped.
+     */
+    template<typename T>
+    void BVH<T>::buildNode(::std::vector<BuildNode> *const buildNodes, ::std::atomic<::std::int32_t> *const numNodes,
+                           const ::std::int32_t nodeIndex, const ::std::int32_t begin, const ::std::int32_t end,
+                           const Bin &bounds, const ::std::function<bool()> &isCancelled) {
+        auto &node {this->boxes_[static_cast<::std::uint32_t> (nodeIndex)]};
+        node.box_ = bounds.box_;
+        const auto numPrimitives {end - begin};
+        if (numPrimitives <= maxLeafSize || isCancelled()) {
+            node.indexOffset_ = begin;
+            node.numPrimitives_ = numPrimitives;
+            return;
+        }
+
+        const auto extent {bounds.centroidBox_.pointMax_ - bounds.centroidBox_.pointMin_};
+        const auto axis {extent[0] >= extent[1] && extent[0] >= extent[2] ? 0 : extent[1] >= extent[2] ? 1 : 2};
+        const auto itBegin {buildNodes->begin() + begin};
+        const auto itEnd {buildNodes->begin() + end};
+        // The small nodes, which are most of the BVH, don't need as many bins to find a good split.
+        const auto binCount {numPrimitives < numBins ? numPrimitives : numBins};
+        const auto binCountUnsigned {static_cast<::std::uint32_t> (binCount)};
+        auto splitBin {0};
+        ::std::array<Bin, 2> children {};
+        if (extent[axis] > 0.0F) {
+            const auto bins {getBins(*buildNodes, begin, end, bounds, axis, binCount)};
+            ::std::array<Bin, numBins> lefts {};
+            lefts[0] = bins[0];
+            for (::std::uint32_t i {1}; i < binCountUnsigned; ++i) {
+                lefts[i] = lefts[i - 1];
+                lefts[i].add(bins[i]);
+            }
+            Bin right {};
+            auto minCost {RayLengthMax};
+            for (auto i {binCountUnsigned - 1}; i > 0; --i) {
+                right.add(bins[i]);
+                const auto &left {lefts[i - 1]};
+                if (left.numPrimitives_ == 0 || right.numPrimitives_ == 0) {
+                    continue;
+                }
+                const auto leftCost {left.numPrimitives_ * left.box_.getSurfaceArea()};
+                const auto cost {leftCost + right.numPrimitives_ * right.box_.getSurfaceArea()};
+                if (cost < minCost) {
+                    minCost = cost;
+                    splitBin = static_cast<::std::int32_t> (i);
+                    children = {{left, right}};
+                }
+            }
+        }
+
+        auto split {begin + numPrimitives / 2};
+        if (splitBin > 0) {
+            const auto itSplit {::std::partition(itBegin, itEnd, [&](const BuildNode &buildNode) {
+                return getBinIndex(buildNode, bounds, axis, binCount) < splitBin;
+            })};
+            split = static_cast<::std::int32_t> (itSplit - buildNodes->begin());
+        } else {
+            // All the centroids are in the same bin, so the primitives are split by their median.
+            ::std::nth_element(itBegin, buildNodes->begin() + split, itEnd,
+                [&](const BuildNode &node1, const BuildNode &node2) {
+                    return node1.centroid_[axis] < node2.centroid_[axis];
+                }
+            );
+            children[0] = getBounds(*buildNodes, begin, split);
+            children[1] = getBounds(*buildNodes, split, end);
+        }
+
+        const auto left {numNodes->fetch_add(2)};
+        node.indexOffset_ = left;
+        node.numPrimitives_ = 0;
+        const auto buildChild {
+            [&](const ::std::int32_t child) {
+                if (child == 0) {
+                    buildNode(buildNodes, numNodes, left, begin, split, children[0], isCancelled);
+                } else {
+                    buildNode(buildNodes, numNodes, left + 1, split, end, children[1], isCancelled);
+                }
+            }
+        };
+        if (numPrimitives >= parallelBuildSize) {
+            ThreadPool::getInstance().parallelFor(2, buildChild);
+        } else {
+            buildChild(0);
+            buildChild(1);
+        }
+    }
+
     /**
      * This method casts a ray into the geometry and calculates the nearest intersection point from the origin of the
      * ray.
@@ -290,38 +410,71 @@ namespace MobileRT {
         return intersection;
     }
 
+    /**
+     * This method casts a packet of rays into the geometry and calculates the nearest intersection point of each
+     * ray.
+     *
+     * @tparam T The type of the primitives.
+     * @param intersections The current intersections of the rays with previous primitives, updated with the new ones.
+     * @param packet        The packet of rays to be casted.
+     */
+    template<typename T>
+    void BVH<T>::trace(::std::array<Intersection, PacketSize> *const intersections, const RayPacket &packet) {
+        intersect(intersections, packet, false);
+    }
+
+    /**
+     * This method casts a packet of rays into the geometry and calculates a random intersection point of each ray.
+     * The intersection points themselves are not important, the important is to determine which rays intersect
+     * some primitive in the scene.
+     *
+     * @tparam T The type of the primitives.
+     * @param intersections The current intersections of the rays with previous primitives, updated with the new ones.
+     * @param packet        The packet of rays to be casted.
+     */
+    template<typename T>
+    void BVH<T>::shadowTrace(::std::array<Intersection, PacketSize> *const intersections, const RayPacket &packet) {
+        intersect(intersections, packet, true);
+    }
+
     /**
      * Helper method which calculates the intersection point from the origin of the ray.
      * <br>
      * This method supports two modes:<br>
      *  - trace the ray until finding the nearest intersection point from the origin of the ray<br>
      *  - trace the ray until finding any intersection point from the origin of the ray<br>
+     * <br>
+     * The children of a node are visited from the nearest to the farthest, by the distance where the ray enters
+     * their boxes, and the nodes that the ray only enters farther than the current intersection are skipped, even
+     * after they were pushed into the stack.
      *
      * @tparam T The type of the primitives.
      * @param intersection The previous intersection point of the ray (used to update its data in case it is found a
      * nearest intersection point.
      * @param ray          The casted ray.
      * @param shadowTrace  Whether it shouldn't find the nearest intersection point.
+     * @param rootIndex    The index of the node where the traversal starts.
      * @return The intersection point of the ray in the scene.
      */
     template<typename T>
-    Intersection BVH<T>::intersect(Intersection intersection, const Ray &ray, const bool shadowTrace) {
+    Intersection BVH<T>::intersect(Intersection intersection, const Ray &ray, const bool shadowTrace,
+                                   const ::std::int32_t rootIndex) {
         if(this->primitives_.empty()) {
             return intersection;
         }
-        ::std::int32_t boxIndex {};
-        ::std::array<::std::int32_t, SizeOfStack> stackBoxIndex {};
-
-        const auto beginBoxIndex {stackBoxIndex.cbegin()};
-        auto itStackBoxIndex {stackBoxIndex.begin()};
-        ::std::advance(itStackBoxIndex, 1);
-
+        const auto &origin {ray.origin_};
+        const ::glm::vec3 invDirection {1.0F / ray.direction_};
         const auto itBoxes {this->boxes_.begin()};
         const auto itPrimitives {this->primitives_.begin()};
-        do {
-            const auto &node {*(itBoxes + boxIndex)};
-            if (node.box_.intersect(ray)) {
 
+        ::std::array<::std::int32_t, SizeOfStack> stackBoxIndex {};
+        ::std::array<float, SizeOfStack> stackDistance {};
+        ::std::int32_t stackSize {};
+        ::std::int32_t boxIndex {rootIndex};
+        auto distance {(itBoxes + boxIndex)->box_.getEntryDistance(origin, invDirection, intersection.length_)};
+        while (true) {
+            const auto &node {*(itBoxes + boxIndex)};
+            if (distance < intersection.length_) {
                 const auto numberPrimitives {node.numPrimitives_};
                 if (numberPrimitives > 0) {
                     for (::std::int32_t i {}; i < numberPrimitives; ++i) {
@@ -332,110 +485,230 @@ namespace MobileRT {
                             return intersection;
                         }
                     }
-                    ::std::advance(itStackBoxIndex, -1); // pop
-                    boxIndex = *itStackBoxIndex;
                 } else {
                     const auto left {node.indexOffset_};
                     const auto right {node.indexOffset_ + 1};
                     const auto &childLeft {*(itBoxes + left)};
                     const auto &childRight {*(itBoxes + right)};
 
-                    const auto traverseLeft {childLeft.box_.intersect(ray)};
-                    const auto traverseRight {childRight.box_.intersect(ray)};
-
-                    if (!traverseLeft && !traverseRight) {
-                        ::std::advance(itStackBoxIndex, -1); // pop
-                        boxIndex = *itStackBoxIndex;
-                    } else {
-                        boxIndex = (traverseLeft) ? left : right;
-                        if (traverseLeft && traverseRight) {
-                            *itStackBoxIndex = right;
-                            ::std::advance(itStackBoxIndex, 1); // push
-                        }
+                    const auto distanceLeft {
+                        childLeft.box_.getEntryDistance(origin, invDirection, intersection.length_)
+                    };
+                    const auto distanceRight {
+                        childRight.box_.getEntryDistance(origin, invDirection, intersection.length_)
+                    };
+                    const auto nearestIsLeft {distanceLeft <= distanceRight};
+                    const auto farthest {nearestIsLeft ? right : left};
+                    const auto farthestDistance {nearestIsLeft ? distanceRight : distanceLeft};
+                    if (farthestDistance < RayLengthMax) {
+                        stackBoxIndex[static_cast<::std::uint32_t> (stackSize)] = farthest;
+                        stackDistance[static_cast<::std::uint32_t> (stackSize)] = farthestDistance;
+                        ++stackSize; // push
                     }
+                    boxIndex = nearestIsLeft ? left : right;
+                    distance = nearestIsLeft ? distanceLeft : distanceRight;
+                    continue;
                 }
-
-            } else {
-                ::std::advance(itStackBoxIndex, -1); // pop
-                boxIndex = *itStackBoxIndex;
             }
 
-        } while (itStackBoxIndex > beginBoxIndex);
-        return intersection;
+            if (stackSize == 0) {
+                return intersection;
+            }
+            --stackSize; // pop
+            boxIndex = stackBoxIndex[static_cast<::std::uint32_t> (stackSize)];
+            distance = stackDistance[static_cast<::std::uint32_t> (stackSize)];
+        }
     }
 
     /**
-     * Gets the index to where the vector of boxes should be split.
+     * Helper method which calculates the intersection points of a packet of rays.
+     * <br>
+     * The packet goes down the tree together, with a mask of the rays that intersected each node, so every node is
+     * loaded once for all of them and its box is tested with SIMD instructions. When only one ray of the packet is
+     * left in a subtree, the packet diverged and that ray continues on its own with the single ray traversal.
+     * <br>
+     * In shadow mode, each ray leaves the packet as soon as it intersects any primitive.
      *
-     * @tparam Iterator The type of the iterator of the AABBs.
-     * @param itBegin   The iterator of the first box in the vector.
-     * @param itEnd     The iterator of the last box in the vector.
-     * @return The index where the vector of boxes should be split.
+     * @tparam T The type of the primitives.
+     * @param intersections The previous intersections of the rays, updated with the new ones.
+     * @param packet        The casted packet of rays.
+     * @param shadowTrace   Whether it shouldn't find the nearest intersection points.
      */
     template<typename T>
-    template<typename Iterator>
-    ::std::int32_t BVH<T>::getSplitIndexSah(const Iterator itBegin, const Iterator itEnd) {
-        const auto numberBoxes {itEnd - itBegin};
-        const auto itBoxes {itBegin};
-        const auto numBoxes {numberBoxes - 1};
-        const auto sizeUnsigned {static_cast<::std::uint32_t> (numBoxes)};
-
-        ::std::vector<float> leftArea (sizeUnsigned);
-        auto leftBox {*itBoxes};
-        const auto itLeftArea {leftArea.begin()};
-        *itLeftArea = leftBox.getSurfaceArea();
-        for (auto i {1}; i < numBoxes; ++i) {
-            leftBox = surroundingBox(leftBox, *(itBoxes + i));
-            *(itLeftArea + i) = leftBox.getSurfaceArea();
+    void BVH<T>::intersect(::std::array<Intersection, PacketSize> *const intersections, const RayPacket &packet,
+                           const bool shadowTrace) {
+        if (this->primitives_.empty()) {
+            return;
         }
+        ::std::array<::std::int32_t, SizeOfStack> stackBoxIndex {};
+        ::std::array<::std::uint32_t, SizeOfStack> stackMask {};
+        ::std::uint32_t stackSize {};
+        ::std::int32_t boxIndex {};
+        auto activeMask {packet.mask_};
+        auto mask {activeMask};
+        ::std::array<float, PacketSize> lastDist {};
 
-        ::std::vector<float> rightArea (sizeUnsigned);
-        auto rightBox {*(itBoxes + numBoxes)};
-        const auto itRightArea {rightArea.begin()};
-        *(itRightArea + numBoxes - 1) = rightBox.getSurfaceArea();
-        for (auto i {numBoxes - 2}; i >= 0; --i) {
-            rightBox = surroundingBox(rightBox, *(itBoxes + i + 1));
-            *(itRightArea + i) = rightBox.getSurfaceArea();
-        }
+        const auto itBoxes {this->boxes_.begin()};
+        const auto itPrimitives {this->primitives_.begin()};
+        while (true) {
+            const auto &node {*(itBoxes + boxIndex)};
+            for (::std::uint32_t lane {}; lane < PacketSize; ++lane) {
+                lastDist[lane] = (*intersections)[lane].length_;
+            }
+            mask = node.box_.intersect(packet, mask & activeMask, lastDist);
 
-        auto splitIndex {1};
-        auto minSah {*(itLeftArea) + numBoxes * *(itRightArea)};
-        for (auto i {1}; i < numBoxes; ++i) {
-            const auto nextSplit {i + 1};
-            const auto numBoxesLeft {nextSplit};
-            const auto numBoxesRight {numberBoxes - numBoxesLeft};
-            const auto areaLeft {*(itLeftArea + i)};
-            const auto areaRight {*(itRightArea + i)};
-            const auto leftSah {numBoxesLeft * areaLeft};
-            const auto rightSah {numBoxesRight * areaRight};
-            const auto sah {leftSah + rightSah};
-            if (sah < minSah) {
-                splitIndex = nextSplit;
-                minSah = sah;
+            if (mask != 0 && (mask & (mask - 1U)) == 0 && node.numPrimitives_ == 0) {
+                // Only one ray left in this subtree, so it continues alone.
+                ::std::uint32_t lane {};
+                while ((mask & (1U << lane)) == 0) {
+                    ++lane;
+                }
+                auto &intersection {(*intersections)[lane]};
+                intersection = intersect(intersection, packet.getRay(static_cast<::std::int32_t> (lane)),
+                                         shadowTrace, boxIndex);
+                if (shadowTrace && intersection.length_ < lastDist[lane]) {
+                    activeMask &= ~mask;
+                }
+            } else if (mask != 0 && node.numPrimitives_ > 0) {
+                for (::std::int32_t i {}; i < node.numPrimitives_; ++i) {
+                    const auto &primitive {*(itPrimitives + node.indexOffset_ + i)};
+                    primitive.intersect(intersections, packet, mask);
+                    if (shadowTrace) {
+                        for (::std::uint32_t lane {}; lane < PacketSize; ++lane) {
+                            if ((*intersections)[lane].length_ < lastDist[lane]) {
+                                activeMask &= ~(1U << lane);
+                            }
+                        }
+                        mask &= activeMask;
+                    }
+                }
+            } else if (mask != 0) {
+                stackBoxIndex[stackSize] = node.indexOffset_ + 1;
+                stackMask[stackSize] = mask;
+                ++stackSize; // push
+                boxIndex = node.indexOffset_;
+                continue;
             }
+
+            if (stackSize == 0 || activeMask == 0) {
+                return;
+            }
+            --stackSize; // pop
+            boxIndex = stackBoxIndex[stackSize];
+            mask = stackMask[stackSize];
         }
-        return splitIndex;
     }
 
     /**
-     * Calculates a surrounding box of all the build nodes vector received via arguments.
+     * Calculates the bounds of the build nodes between two indexes.
      *
-     * @tparam Iterator The type of the iterator of the BuildNodes.
-     * @param itBegin The iterator of the first node in the vector.
-     * @param itEnd   The iterator of the last node in the vector.
-     * @return A box surrounding all the boxes of the nodes.
+     * @tparam T The type of the primitives.
+     * @param buildNodes The build nodes of all the primitives.
+     * @param begin      The index of the first build node.
+     * @param end        The index after the last build node.
+     * @return The bounds of the build nodes.
      */
     template<typename T>
-    template<typename Iterator>
-    AABB BVH<T>::getSurroundingBox(const Iterator itBegin, const Iterator itEnd) {
-        AABB maxBox {itBegin->box_.pointMin_, itBegin->box_.pointMax_};
+    typename BVH<T>::Bin BVH<T>::getBounds(const ::std::vector<BuildNode> &buildNodes, const ::std::int32_t begin,
+                                           const ::std::int32_t end) {
+        const auto addNodes {
+            [&](Bin *const bin, const ::std::int32_t first, const ::std::int32_t last) {
+                for (auto i {first}; i < last; ++i) {
+                    bin->add(buildNodes[static_cast<::std::uint32_t> (i)]);
+                }
+            }
+        };
+        Bin bounds {};
+        const auto numChunks {getNumChunks(end - begin)};
+        if (numChunks == 1) {
+            addNodes(&bounds, begin, end);
+            return bounds;
+        }
+        ::std::vector<Bin> chunks (static_cast<::std::uint32_t> (numChunks));
+        ThreadPool::getInstance().parallelFor(numChunks, [&](const ::std::int32_t chunk) {
+            const auto chunkBegin {begin + (end - begin) * chunk / numChunks};
+            const auto chunkEnd {begin + (end - begin) * (chunk + 1) / numChunks};
+            addNodes(&chunks[static_cast<::std::uint32_t> (chunk)], chunkBegin, chunkEnd);
+        });
+        for (const auto &bin : chunks) {
+            bounds.add(bin);
+        }
+        return bounds;
+    }
 
-        for (auto it {itBegin + 1}; it < itEnd; ::std::advance(it, 1)) {
-            const auto &box {it->box_};
-            maxBox = surroundingBox(maxBox, box);
+    /**
+     * Puts the build nodes between two indexes into bins, by the position of their centroids along an axis.
+     *
+     * @tparam T The type of the primitives.
+     * @param buildNodes The build nodes of all the primitives.
+     * @param begin      The index of the first build node.
+     * @param end        The index after the last build node.
+     * @param bounds     The bounds of the build nodes of the node being split.
+     * @param axis       The axis along which the bins are placed.
+     * @param binCount   The number of bins used.
+     * @return The bins.
+     */
+    template<typename T>
+    ::std::array<typename BVH<T>::Bin, BVH<T>::numBins> BVH<T>::getBins(
+        const ::std::vector<BuildNode> &buildNodes, const ::std::int32_t begin, const ::std::int32_t end,
+        const Bin &bounds, const ::std::int32_t axis, const ::std::int32_t binCount) {
+        const auto addNodes {
+            [&](::std::array<Bin, numBins> *const bins, const ::std::int32_t first, const ::std::int32_t last) {
+                for (auto i {first}; i < last; ++i) {
+                    const auto &node {buildNodes[static_cast<::std::uint32_t> (i)]};
+                    (*bins)[static_cast<::std::uint32_t> (getBinIndex(node, bounds, axis, binCount))].add(node);
+                }
+            }
+        };
+        ::std::array<Bin, numBins> bins {};
+        const auto numChunks {getNumChunks(end - begin)};
+        if (numChunks == 1) {
+            addNodes(&bins, begin, end);
+            return bins;
         }
+        ::std::vector<::std::array<Bin, numBins>> chunks (static_cast<::std::uint32_t> (numChunks));
+        ThreadPool::getInstance().parallelFor(numChunks, [&](const ::std::int32_t chunk) {
+            const auto chunkBegin {begin + (end - begin) * chunk / numChunks};
+            const auto chunkEnd {begin + (end - begin) * (chunk + 1) / numChunks};
+            addNodes(&chunks[static_cast<::std::uint32_t> (chunk)], chunkBegin, chunkEnd);
+        });
+        for (const auto &chunk : chunks) {
+            for (::std::uint32_t i {}; i < static_cast<::std::uint32_t> (binCount); ++i) {
+                bins[i].add(chunk[i]);
+            }
+        }
+        return bins;
+    }
 
-        return maxBox;
+    /**
+     * Gets the index of the bin where the centroid of a build node falls.
+     *
+     * @tparam T The type of the primitives.
+     * @param node     The build node.
+     * @param bounds   The bounds of the build nodes of the node being split.
+     * @param axis     The axis along which the bins are placed.
+     * @param binCount The number of bins used.
+     * @return The index of the bin.
+     */
+    template<typename T>
+    ::std::int32_t BVH<T>::getBinIndex(const BuildNode &node, const Bin &bounds, const ::std::int32_t axis,
+                                       const ::std::int32_t binCount) {
+        const auto min {bounds.centroidBox_.pointMin_[axis]};
+        const auto extent {bounds.centroidBox_.pointMax_[axis] - min};
+        const auto index {static_cast<::std::int32_t> ((node.centroid_[axis] - min) / extent * binCount)};
+        return ::glm::clamp(index, 0, binCount - 1);
+    }
+
+    /**
+     * Gets the number of chunks in which a node is split to be processed by the threads of the ThreadPool.
+     *
+     * @tparam T The type of the primitives.
+     * @param numPrimitives The number of primitives of the node.
+     * @return The number of chunks.
+     */
+    template<typename T>
+    ::std::int32_t BVH<T>::getNumChunks(const ::std::int32_t numPrimitives) {
+        return numPrimitives >= parallelBuildSize ? ThreadPool::getInstance().getNumThreads() : 1;
     }
 
     /**
@@ -449,6 +722,31 @@ namespace MobileRT {
         return this->primitives_;
     }
 
+    /**
+     * Gets the primitives, in the order of the leaves, so they can be replaced by others with the same bounding
+     * boxes.
+     *
+     * @tparam T The type of the primitives.
+     * @return The primitives.
+     */
+    template<typename T>
+    ::std::vector<T>& BVH<T>::getPrimitives() {
+        return this->primitives_;
+    }
+
+    /**
+     * Gets the size, in bytes, of the nodes and the primitives of the BVH.
+     *
+     * @tparam T The type of the primitives.
+     * @return The size of the BVH.
+     */
+    template<typename T>
+    ::std::int64_t BVH<T>::getSize() const {
+        return static_cast<::std::int64_t> (
+            this->boxes_.capacity() * sizeof(BVHNode) + this->primitives_.capacity() * sizeof(T)
+        );
+    }
+
 
 }//namespace MobileRT
 
@@ -0,0 +1,651 @@
+#ifndef MOBILERT_ACCELERATORS_BVH4_HPP
+#define MOBILERT_ACCELERATORS_BVH4_HPP
+
+#include "MobileRT/Accelerators/BVH.hpp"
+#include "MobileRT/Intersection.hpp"
+#include "MobileRT/Ray.hpp"
+#include "MobileRT/Shapes/Primitive.hpp"
+#include <array>
+#include <boost/assert.hpp>
+#include <cmath>
+#include <functional>
+#include <limits>
+#include <glm/glm.hpp>
+#include <vector>
+
+namespace MobileRT {
+
+    /**
+     * A class which represents a Bounding Volume Hierarchy where every node has up to 4 children.
+     * <br>
+     * It is built by collapsing the binary BVH, so it has about half the depth. The boxes of the children of a node
+     * are stored as a structure of arrays, one array per axis with one lane per child, so a ray is tested against
+     * all of them at once with the SIMD units of the CPU (NEON or SSE).
+     * <br>
+     * The boxes of the children are quantized to 8 bits per coordinate, relative to the box of their parent, so a
+     * node only takes 32 bytes and two of them fit in a cache line.
+     * <br>
+     * The vertices of the triangles are also copied into a tightly packed array, in the order of the leaves, so the
+     * traversal tests them without loading the normals and the texture coordinates of the triangles. Only the
+     * nearest triangle hit by the ray is loaded, to calculate its intersection point.
+     *
+     * @tparam T The type of the primitives.
+     */
+    template<typename T>
+    class BVH4 final {
+        private:
+            static const ::std::int32_t numChildren {4};
+
+            /**
+             * The size, in bytes, of a node.
+             */
+            static const ::std::int32_t nodeSize {32};
+
+            /**
+             * The largest quantized coordinate of the boxes of the children.
+             */
+            static const ::std::int32_t quantizedMax {255};
+
+            /**
+             * The number of bits with the kind of each child of a node.
+             */
+            static const ::std::int32_t childKindBits {2};
+
+            static const ::std::uint32_t childKindMask {3};
+
+            /**
+             * The kind of an empty child. A child node is of the kind 1 and a leaf with n primitives of the kind
+             * n + 1.
+             */
+            static const ::std::uint32_t childEmpty {0};
+
+            static const ::std::uint32_t childNode {1};
+
+            /**
+             * The number of vertices packed per primitive: the first vertex of the triangle and the edges from it to
+             * the other two.
+             */
+            static const ::std::int32_t verticesPerPrimitive {3};
+
+            /**
+             * The frame where the boxes of the children of a node are quantized.
+             * <br>
+             * A coordinate of the box of a child is the origin of the frame plus its quantized value times the scale
+             * of the frame in that axis. The frame of a node is calculated from its own decoded box, the same way
+             * while building and traversing the BVH4, so it isn't stored in the node.
+             */
+            struct Frame {
+                ::std::array<float, 3> origin_ {};
+                ::std::array<float, 3> scale_ {};
+            };
+
+            /**
+             * A node of the BVH4 vector.
+             * <br>
+             * The children of a node which are also nodes are consecutive in the vector, starting at the index in
+             * the upper 24 bits of its children, and the primitives of the children which are leaves are consecutive
+             * too, starting at the index of its first primitive. The lower 8 bits of its children have the kind of
+             * each child.
+             */
+            struct alignas(nodeSize) BVH4Node {
+                ::std::array<::std::array<::std::uint8_t, numChildren>, 3> pointsMin_ {};
+                ::std::array<::std::array<::std::uint8_t, numChildren>, 3> pointsMax_ {};
+                ::std::int32_t firstPrimitive_ {};
+                ::std::uint32_t children_ {};
+            };
+
+            static_assert(sizeof(BVH4Node) == nodeSize, "A BVH4 node must take 32 bytes.");
+            static_assert(BVH<T>::maxLeafSize + 1 <= static_cast<::std::int32_t> (childKindMask),
+                          "The number of primitives of a leaf must fit in the kind of a child.");
+
+        private:
+            ::std::vector<BVH4Node> nodes_ {};
+            ::std::vector<T> primitives_ {};
+            ::std::vector<::glm::vec3> vertices_ {};
+            Frame rootFrame_ {};
+
+        private:
+            void collapse(BVH<T> *bvh, const ::std::function<bool()> &isCancelled);
+
+            void packVertices();
+
+            static void setFrame(Frame *frame, ::std::uint32_t axis, float pointMin, float pointMax);
+
+            static Frame getChildFrame(const Frame &frame, const BVH4Node &node, ::std::uint32_t child);
+
+            static void quantize(BVH4Node *node, const Frame &frame, const ::std::vector<AABB> &boxes);
+
+            static const Triangle *getTriangle(const Triangle &triangle);
+
+            static const Triangle *getTriangle(const Sphere &sphere);
+
+            static const Triangle *getTriangle(const Primitive &primitive);
+
+            Intersection intersect(Intersection intersection, const Ray &ray, bool shadowTrace);
+
+        public:
+            explicit BVH4() = default;
+
+            explicit BVH4(::std::vector<T> &&primitives, const ::std::function<bool()> &isCancelled = {});
+
+            BVH4(const BVH4 &bvh) = delete;
+
+            BVH4(BVH4 &&bvh) noexcept = default;
+
+            ~BVH4() = default;
+
+            BVH4 &operator=(const BVH4 &bvh) = delete;
+
+            BVH4 &operator=(BVH4 &&bvh) noexcept = default;
+
+            Intersection trace(Intersection intersection, const Ray &ray);
+
+            Intersection shadowTrace(Intersection intersection, const Ray &ray);
+
+            const ::std::vector<T>& getPrimitives() const;
+
+            ::std::vector<T>& getPrimitives();
+
+            ::std::int64_t getSize() const;
+    };
+
+
+
+    /**
+     * The constructor.
+     *
+     * @tparam T The type of the primitives.
+     * @param primitives  The vector containing all the primitives to store in the BVH4.
+     * @param isCancelled A predicate which tells whether the construction was cancelled, in which case the BVH4 is
+     *                    left empty.
+     */
+    template<typename T>
+    BVH4<T>::BVH4(::std::vector<T> &&primitives, const ::std::function<bool()> &isCancelled) {
+        if (primitives.empty()) {
+            return;
+        }
+        BVH<T> bvh {::std::move(primitives), isCancelled};
+        if (bvh.primitives_.empty()) {
+            return;
+        }
+        LOG("Collapsing BVH into a BVH4");
+        collapse(&bvh, isCancelled);
+        if (this->nodes_.empty()) {
+            LOG("BVH4 construction cancelled");
+            return;
+        }
+        packVertices();
+        LOG("BVH4 nodes = ", this->nodes_.size());
+    }
+
+    /**
+     * A helper method which builds the nodes of the BVH4 from the nodes of a binary BVH.
+     * <br>
+     * The children of each node are taken from its binary descendants: starting from its two children, the child
+     * node with the largest surface area is replaced by its own two children until there are 4 children or only
+     * leaves are left.
+     * <br>
+     * The primitives are moved from the binary BVH in the order of the leaves of the BVH4, so the leaves of each node
+     * reference consecutive primitives. If the construction is cancelled meanwhile, the nodes and the primitives are
+     * discarded.
+     *
+     * @tparam T The type of the primitives.
+     * @param bvh         The binary BVH with the same primitives.
+     * @param isCancelled A predicate which tells whether the construction was cancelled.
+     */
+    template<typename T>
+    void BVH4<T>::collapse(BVH<T> *const bvh, const ::std::function<bool()> &isCancelled) {
+        const auto &boxes {bvh->boxes_};
+        const auto isLeaf {
+            [&](const ::std::int32_t index) {
+                return boxes[static_cast<::std::uint32_t> (index)].numPrimitives_ > 0;
+            }
+        };
+
+        for (::std::uint32_t axis {}; axis < 3; ++axis) {
+            const auto &rootBox {boxes.front().box_};
+            const auto axisIndex {static_cast<::std::int32_t> (axis)};
+            setFrame(&this->rootFrame_, axis, rootBox.pointMin_[axisIndex], rootBox.pointMax_[axisIndex]);
+        }
+        this->primitives_.reserve(bvh->primitives_.size());
+
+        ::std::vector<::std::int32_t> stackBinaryIndex {0};
+        ::std::vector<::std::int32_t> stackNodeIndex {0};
+        ::std::vector<Frame> stackFrame {this->rootFrame_};
+        this->nodes_.emplace_back();
+        while (!stackBinaryIndex.empty()) {
+            if (isCancelled && isCancelled()) {
+                ::std::vector<BVH4Node> {}.swap(this->nodes_);
+                ::std::vector<T> {}.swap(this->primitives_);
+                return;
+            }
+            const auto binaryIndex {stackBinaryIndex.back()};
+            const auto nodeIndex {static_cast<::std::uint32_t> (stackNodeIndex.back())};
+            const auto frame {stackFrame.back()};
+            stackBinaryIndex.pop_back();
+            stackNodeIndex.pop_back();
+            stackFrame.pop_back();
+
+            ::std::vector<::std::int32_t> children {binaryIndex};
+            if (!isLeaf(binaryIndex)) {
+                const auto left {boxes[static_cast<::std::uint32_t> (binaryIndex)].indexOffset_};
+                children = {left, left + 1};
+            }
+            while (children.size() < static_cast<::std::uint32_t> (numChildren)) {
+                auto largest {children.end()};
+                auto largestArea {-1.0F};
+                for (auto it {children.begin()}; it < children.end(); ::std::advance(it, 1)) {
+                    const auto area {boxes[static_cast<::std::uint32_t> (*it)].box_.getSurfaceArea()};
+                    if (!isLeaf(*it) && area > largestArea) {
+                        largest = it;
+                        largestArea = area;
+                    }
+                }
+                if (largest == children.end()) {
+                    break;
+                }
+                const auto left {boxes[static_cast<::std::uint32_t> (*largest)].indexOffset_};
+                *largest = left;
+                children.emplace_back(left + 1);
+            }
+
+            const auto firstChild {static_cast<::std::uint32_t> (this->nodes_.size())};
+            BOOST_ASSERT_MSG(firstChild < (1U << 24U), "The index of a BVH4 node must fit in 24 bits.");
+            BVH4Node node {};
+            node.firstPrimitive_ = static_cast<::std::int32_t> (this->primitives_.size());
+            node.children_ = firstChild << 8U;
+            ::std::vector<AABB> childBoxes {};
+            ::std::vector<::std::int32_t> childNodes {};
+            for (::std::uint32_t child {}; child < children.size(); ++child) {
+                const auto &binaryNode {boxes[static_cast<::std::uint32_t> (children[child])]};
+                childBoxes.emplace_back(binaryNode.box_);
+                auto kind {childNode};
+                if (binaryNode.numPrimitives_ > 0) {
+                    kind = static_cast<::std::uint32_t> (binaryNode.numPrimitives_) + 1;
+                    const auto first {static_cast<::std::uint32_t> (binaryNode.indexOffset_)};
+                    for (auto i {first}; i < first + static_cast<::std::uint32_t> (binaryNode.numPrimitives_); ++i) {
+                        this->primitives_.emplace_back(::std::move(bvh->primitives_[i]));
+                    }
+                } else {
+                    childNodes.emplace_back(static_cast<::std::int32_t> (child));
+                }
+                node.children_ |= kind << (child * static_cast<::std::uint32_t> (childKindBits));
+            }
+            quantize(&node, frame, childBoxes);
+
+            for (const auto child : childNodes) {
+                stackBinaryIndex.emplace_back(children[static_cast<::std::uint32_t> (child)]);
+                stackNodeIndex.emplace_back(static_cast<::std::int32_t> (this->nodes_.size()));
+                stackFrame.emplace_back(getChildFrame(frame, node, static_cast<::std::uint32_t> (child)));
+                this->nodes_.emplace_back();
+            }
+            this->nodes_[nodeIndex] = node;
+        }
+        this->nodes_.shrink_to_fit();
+    }
+
+    /**
+     * A helper method which copies the vertices of the triangles into a tightly packed array, in the same order as
+     * the primitives.
+     * <br>
+     * Every primitive takes the first vertex of its triangle and the edges from it to the other two, which are the
+     * values used by the intersection test. The primitives which aren't triangles keep them at 0 and if none of the
+     * primitives is a triangle, the array is left empty.
+     *
+     * @tparam T The type of the primitives.
+     */
+    template<typename T>
+    void BVH4<T>::packVertices() {
+        for (::std::uint32_t i {}; i < this->primitives_.size(); ++i) {
+            const auto *const triangle {getTriangle(this->primitives_[i])};
+            if (triangle == nullptr) {
+                continue;
+            }
+            if (this->vertices_.empty()) {
+                this->vertices_.resize(this->primitives_.size() * static_cast<::std::uint32_t> (verticesPerPrimitive));
+            }
+            const auto vertex {i * static_cast<::std::uint32_t> (verticesPerPrimitive)};
+            this->vertices_[vertex] = triangle->pointA_;
+            this->vertices_[vertex + 1] = triangle->AB_;
+            this->vertices_[vertex + 2] = triangle->AC_;
+        }
+    }
+
+    /**
+     * A helper method which calculates the frame of a box in an axis.
+     * <br>
+     * The frame covers the box with a margin of one quantum on each side, so the boxes of the children can be
+     * rounded outwards even when they touch the box. The scale is never smaller than a fraction of the magnitude of
+     * the coordinates, so the decoded coordinates stay larger than the rounding errors of the float operations.
+     *
+     * @tparam T The type of the primitives.
+     * @param frame    The frame.
+     * @param axis     The axis.
+     * @param pointMin The minimum of the box in the axis.
+     * @param pointMax The maximum of the box in the axis.
+     */
+    template<typename T>
+    void BVH4<T>::setFrame(Frame *const frame, const ::std::uint32_t axis, const float pointMin,
+                           const float pointMax) {
+        const auto magnitude {::std::max(::std::abs(pointMin), ::std::abs(pointMax))};
+        const auto minScale {::std::max(magnitude * (1.0F / 65536.0F), ::std::numeric_limits<float>::min())};
+        const auto scale {::std::max((pointMax - pointMin) / static_cast<float> (quantizedMax - 2), minScale)};
+        frame->origin_[axis] = pointMin - scale;
+        frame->scale_[axis] = scale;
+    }
+
+    /**
+     * A helper method which calculates the frame of a child node from its decoded box.
+     *
+     * @tparam T The type of the primitives.
+     * @param frame The frame of the node.
+     * @param node  The node.
+     * @param child The index of the child in the node.
+     * @return The frame of the child.
+     */
+    template<typename T>
+    typename BVH4<T>::Frame BVH4<T>::getChildFrame(const Frame &frame, const BVH4Node &node,
+                                                   const ::std::uint32_t child) {
+        Frame childFrame {};
+        for (::std::uint32_t axis {}; axis < 3; ++axis) {
+            const auto origin {frame.origin_[axis]};
+            const auto scale {frame.scale_[axis]};
+            const auto pointMin {origin + static_cast<float> (node.pointsMin_[axis][child]) * scale};
+            const auto pointMax {origin + static_cast<float> (node.pointsMax_[axis][child]) * scale};
+            setFrame(&childFrame, axis, pointMin, pointMax);
+        }
+        return childFrame;
+    }
+
+    /**
+     * A helper method which quantizes the boxes of the children of a node.
+     * <br>
+     * The minimums are rounded down and the maximums rounded up, with one more quantum, so the rounding of the float
+     * operations which decode them can't make them smaller than the real ones. The empty children keep their
+     * quantized boxes at 0, as they are skipped by their kind.
+     *
+     * @tparam T The type of the primitives.
+     * @param node  The node, with the children in the same order as their boxes.
+     * @param frame The frame of the node, which covers the boxes.
+     * @param boxes The boxes of the children which are not empty.
+     */
+    template<typename T>
+    void BVH4<T>::quantize(BVH4Node *const node, const Frame &frame, const ::std::vector<AABB> &boxes) {
+        for (::std::uint32_t axis {}; axis < 3; ++axis) {
+            const auto axisIndex {static_cast<::std::int32_t> (axis)};
+            const auto origin {frame.origin_[axis]};
+            const auto scale {frame.scale_[axis]};
+            for (::std::uint32_t child {}; child < boxes.size(); ++child) {
+                const auto boxMin {boxes[child].pointMin_[axisIndex]};
+                const auto boxMax {boxes[child].pointMax_[axisIndex]};
+                const auto lastValue {static_cast<::std::int32_t> (quantizedMax)};
+                const auto childMin {static_cast<::std::int32_t> (::std::floor((boxMin - origin) / scale)) - 1};
+                const auto childMax {static_cast<::std::int32_t> (::std::ceil((boxMax - origin) / scale)) + 1};
+                node->pointsMin_[axis][child] = static_cast<::std::uint8_t> (::glm::clamp(childMin, 0, lastValue));
+                node->pointsMax_[axis][child] = static_cast<::std::uint8_t> (::glm::clamp(childMax, 0, lastValue));
+            }
+        }
+    }
+
+    /**
+     * A helper method which gets the triangle of a primitive.
+     *
+     * @tparam T The type of the primitives.
+     * @param triangle The primitive.
+     * @return The triangle.
+     */
+    template<typename T>
+    const Triangle *BVH4<T>::getTriangle(const Triangle &triangle) {
+        return &triangle;
+    }
+
+    /**
+     * A helper method which gets the triangle of a primitive.
+     *
+     * @tparam T The type of the primitives.
+     * @param sphere The primitive.
+     * @return nullptr, as a sphere is not a triangle.
+     */
+    template<typename T>
+    const Triangle *BVH4<T>::getTriangle(const Sphere &sphere) {
+        static_cast<void> (sphere);
+        return nullptr;
+    }
+
+    /**
+     * A helper method which gets the triangle of a primitive.
+     *
+     * @tparam T The type of the primitives.
+     * @param primitive The primitive.
+     * @return The referenced triangle or nullptr if the primitive is not a triangle.
+     */
+    template<typename T>
+    const Triangle *BVH4<T>::getTriangle(const Primitive &primitive) {
+        return primitive.getTriangle();
+    }
+
+    /**
+     * This method casts a ray into the geometry and calculates the nearest intersection point from the origin of the
+     * ray.
+     *
+     * @tparam T The type of the primitives.
+     * @param intersection The current intersection of the ray with previous primitives.
+     * @param ray          The ray to be casted.
+     * @return The intersection of the ray with the geometry.
+     */
+    template<typename T>
+    Intersection BVH4<T>::trace(Intersection intersection, const Ray &ray) {
+        intersection = intersect(intersection, ray, false);
+        return intersection;
+    }
+
+    /**
+     * This method casts a ray into the geometry and calculates a random intersection point.
+     * The intersection point itself is not important, the important is to determine if the ray intersects some
+     * primitive in the scene or not.
+     *
+     * @tparam T The type of the primitives.
+     * @param intersection The current intersection of the ray with previous primitives.
+     * @param ray          The ray to be casted.
+     * @return The intersection of the ray with the geometry.
+     */
+    template<typename T>
+    Intersection BVH4<T>::shadowTrace(Intersection intersection, const Ray &ray) {
+        intersection = intersect(intersection, ray, true);
+        return intersection;
+    }
+
+    /**
+     * Helper method which calculates the intersection point from the origin of the ray.
+     * <br>
+     * The slab test of the boxes of the 4 children of a node is done with the innermost loops going through the
+     * children, so the compiler can use the SIMD units to test all of them at once. The quantized boxes are decoded
+     * in the same loops. The children whose entry point is farther than the current intersection are also
+     * discarded.
+     * <br>
+     * The child nodes are pushed into the stack from the farthest to the nearest, so they are visited front to back,
+     * and they are skipped when popped if the ray only enters them farther than the intersection found meanwhile.
+     * <br>
+     * The triangles are tested against their packed vertices and only the nearest one hit gets its intersection
+     * point calculated, at the end. The other primitives are intersected directly.
+     *
+     * @tparam T The type of the primitives.
+     * @param intersection The previous intersection point of the ray.
+     * @param ray          The casted ray.
+     * @param shadowTrace  Whether it shouldn't find the nearest intersection point.
+     * @return The intersection point of the ray in the scene.
+     */
+    template<typename T>
+    Intersection BVH4<T>::intersect(Intersection intersection, const Ray &ray, const bool shadowTrace) {
+        if (this->primitives_.empty()) {
+            return intersection;
+        }
+        ::std::array<float, 3> origin {};
+        ::std::array<float, 3> invDirection {};
+        for (::std::uint32_t axis {}; axis < 3; ++axis) {
+            origin[axis] = ray.origin_[static_cast<::std::int32_t> (axis)];
+            invDirection[axis] = 1.0F / ray.direction_[static_cast<::std::int32_t> (axis)];
+        }
+
+        // The nearest triangle hit, whose intersection point is only calculated at the end.
+        const T *nearestTriangle {nullptr};
+        auto nearest {intersection.length_};
+        const auto getIntersection {
+            [&]() {
+                return nearestTriangle == nullptr ? intersection : nearestTriangle->intersect(intersection, ray);
+            }
+        };
+
+        ::std::array<::std::int32_t, SizeOfStack> stackNodeIndex {};
+        ::std::array<float, SizeOfStack> stackDistance {};
+        ::std::array<Frame, SizeOfStack> stackFrame {};
+        ::std::int32_t stackSize {};
+        ::std::int32_t nodeIndex {};
+        auto frame {this->rootFrame_};
+        while (true) {
+            const auto &node {this->nodes_[static_cast<::std::uint32_t> (nodeIndex)]};
+            const auto firstChildIndex {stackSize};
+            ::std::array<float, numChildren> tMin {};
+            ::std::array<float, numChildren> tMax {};
+            for (::std::uint32_t child {}; child < numChildren; ++child) {
+                tMin[child] = 0.0F;
+                tMax[child] = nearest;
+            }
+            for (::std::uint32_t axis {}; axis < 3; ++axis) {
+                const auto &pointsMin {node.pointsMin_[axis]};
+                const auto &pointsMax {node.pointsMax_[axis]};
+                const auto frameOrigin {frame.origin_[axis]};
+                const auto frameScale {frame.scale_[axis]};
+                for (::std::uint32_t child {}; child < numChildren; ++child) {
+                    const auto pointMin {frameOrigin + static_cast<float> (pointsMin[child]) * frameScale};
+                    const auto pointMax {frameOrigin + static_cast<float> (pointsMax[child]) * frameScale};
+                    const auto t1 {(pointMin - origin[axis]) * invDirection[axis]};
+                    const auto t2 {(pointMax - origin[axis]) * invDirection[axis]};
+                    tMin[child] = ::std::max(tMin[child], ::std::min(t1, t2));
+                    tMax[child] = ::std::min(tMax[child], ::std::max(t1, t2));
+                }
+            }
+
+            auto childNodeIndex {static_cast<::std::int32_t> (node.children_ >> 8U)};
+            auto primitiveIndex {node.firstPrimitive_};
+            for (::std::uint32_t child {}; child < numChildren; ++child) {
+                const auto kind {
+                    (node.children_ >> (child * static_cast<::std::uint32_t> (childKindBits))) & childKindMask
+                };
+                if (kind == childEmpty) {
+                    continue;
+                }
+                if (kind == childNode) {
+                    const auto index {childNodeIndex};
+                    ++childNodeIndex;
+                    if (tMax[child] < tMin[child]) {
+                        continue;
+                    }
+                    // Insertion sort of the children of this node in the stack, with the nearest on the top.
+                    auto position {stackSize};
+                    while (position > firstChildIndex &&
+                           stackDistance[static_cast<::std::uint32_t> (position - 1)] < tMin[child]) {
+                        stackNodeIndex[static_cast<::std::uint32_t> (position)] =
+                            stackNodeIndex[static_cast<::std::uint32_t> (position - 1)];
+                        stackDistance[static_cast<::std::uint32_t> (position)] =
+                            stackDistance[static_cast<::std::uint32_t> (position - 1)];
+                        stackFrame[static_cast<::std::uint32_t> (position)] =
+                            stackFrame[static_cast<::std::uint32_t> (position - 1)];
+                        --position;
+                    }
+                    stackNodeIndex[static_cast<::std::uint32_t> (position)] = index;
+                    stackDistance[static_cast<::std::uint32_t> (position)] = tMin[child];
+                    stackFrame[static_cast<::std::uint32_t> (position)] = getChildFrame(frame, node, child);
+                    ++stackSize;
+                    continue;
+                }
+                const auto firstPrimitive {primitiveIndex};
+                primitiveIndex += static_cast<::std::int32_t> (kind) - 1;
+                if (tMax[child] < tMin[child]) {
+                    continue;
+                }
+                for (auto i {firstPrimitive}; i < primitiveIndex; ++i) {
+                    const auto &primitive {this->primitives_[static_cast<::std::uint32_t> (i)]};
+                    const auto *const triangle {getTriangle(primitive)};
+                    if (triangle == nullptr) {
+                        auto hit {primitive.intersect(Intersection {nearest}, ray)};
+                        if (hit.length_ < nearest) {
+                            intersection = ::std::move(hit);
+                            nearest = intersection.length_;
+                            nearestTriangle = nullptr;
+                            if (shadowTrace) {
+                                return intersection;
+                            }
+                        }
+                        continue;
+                    }
+                    if (ray.primitive_ == triangle) {
+                        continue;
+                    }
+                    const auto vertex {static_cast<::std::uint32_t> (i * verticesPerPrimitive)};
+                    ::glm::vec2 barycentric {};
+                    const auto distance {
+                        Triangle::intersect(this->vertices_[vertex], this->vertices_[vertex + 1],
+                                            this->vertices_[vertex + 2], ray, &barycentric)
+                    };
+                    if (distance < nearest) {
+                        nearest = distance;
+                        nearestTriangle = &primitive;
+                        if (shadowTrace) {
+                            return getIntersection();
+                        }
+                    }
+                }
+            }
+
+            do {
+                if (stackSize == 0) {
+                    return getIntersection();
+                }
+                --stackSize;
+            } while (stackDistance[static_cast<::std::uint32_t> (stackSize)] >= nearest);
+            nodeIndex = stackNodeIndex[static_cast<::std::uint32_t> (stackSize)];
+            frame = stackFrame[static_cast<::std::uint32_t> (stackSize)];
+        }
+    }
+
+    /**
+     * Gets the primitives.
+     *
+     * @tparam T The type of the primitives.
+     * @return The primitives.
+     */
+    template<typename T>
+    const ::std::vector<T>& BVH4<T>::getPrimitives() const {
+        return this->primitives_;
+    }
+
+    /**
+     * Gets the primitives, in the order of the leaves, so they can be replaced by others with the same bounding
+     * boxes.
+     *
+     * @tparam T The type of the primitives.
+     * @return The primitives.
+     */
+    template<typename T>
+    ::std::vector<T>& BVH4<T>::getPrimitives() {
+        return this->primitives_;
+    }
+
+    /**
+     * Gets the size, in bytes, of the nodes, the primitives and the packed vertices of the BVH4.
+     *
+     * @tparam T The type of the primitives.
+     * @return The size of the BVH4.
+     */
+    template<typename T>
+    ::std::int64_t BVH4<T>::getSize() const {
+        return static_cast<::std::int64_t> (
+            this->nodes_.capacity() * sizeof(BVH4Node) + this->primitives_.capacity() * sizeof(T) +
+            this->vertices_.capacity() * sizeof(::glm::vec3)
+        );
+    }
+
+}//namespace MobileRT
+
+#endif //MOBILERT_ACCELERATORS_BVH4_HPP
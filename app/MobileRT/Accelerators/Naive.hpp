@@ -3,6 +3,8 @@
 
 #include "MobileRT/Intersection.hpp"
 #include "MobileRT/Ray.hpp"
+#include "MobileRT/RayPacket.hpp"
+#include <array>
 #include <vector>
 
 namespace MobileRT {
@@ -43,6 +45,10 @@ namespace MobileRT {
 
             Intersection shadowTrace(Intersection intersection, const Ray &ray);
 
+            void trace(::std::array<Intersection, PacketSize> *intersections, const RayPacket &packet);
+
+            void shadowTrace(::std::array<Intersection, PacketSize> *intersections, const RayPacket &packet);
+
             const ::std::vector<T>& getPrimitives() const;
     };
 
@@ -126,6 +132,35 @@ namespace MobileRT {
         return intersection;
     }
 
+    /**
+     * This method casts a packet of rays into the geometry and calculates the nearest intersection point of each
+     * ray.
+     *
+     * @tparam T The type of the primitives.
+     * @param intersections The current intersections of the rays with previous primitives, updated with the new ones.
+     * @param packet        The packet of rays to be casted.
+     */
+    template<typename T>
+    void Naive<T>::trace(::std::array<Intersection, PacketSize> *const intersections, const RayPacket &packet) {
+        for (const auto &primitive : this->primitives_) {
+            primitive.intersect(intersections, packet, packet.mask_);
+        }
+    }
+
+    /**
+     * This method casts a packet of rays into the geometry and determines which rays intersect some primitive.
+     * <br>
+     * All the primitives are tested anyway, so it is the same as finding the nearest intersection points.
+     *
+     * @tparam T The type of the primitives.
+     * @param intersections The current intersections of the rays with previous primitives, updated with the new ones.
+     * @param packet        The packet of rays to be casted.
+     */
+    template<typename T>
+    void Naive<T>::shadowTrace(::std::array<Intersection, PacketSize> *const intersections, const RayPacket &packet) {
+        trace(intersections, packet);
+    }
+
     /**
      * Gets the primitives.
      *
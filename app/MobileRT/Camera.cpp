@@ -3,6 +3,7 @@
 
 using ::MobileRT::AABB;
 using ::MobileRT::Camera;
+using ::MobileRT::CameraView;
 
 /**
  * The constructor.
@@ -70,3 +71,50 @@ AABB Camera::getAABB() const {
     const AABB &res {min, max};
     return res;
 }
+
+/**
+ * Gets the horizontal field of view of the camera.
+ *
+ * @return The horizontal field of view, in degrees, or 0 if the camera doesn't have one.
+ */
+float Camera::getFieldOfView() const {
+    return 0.0F;
+}
+
+/**
+ * Sets the horizontal field of view of the camera.
+ * It does nothing if the camera doesn't have one.
+ *
+ * @param fieldOfView The horizontal field of view, in degrees.
+ */
+void Camera::setFieldOfView(const float fieldOfView) {
+    static_cast<void> (fieldOfView);
+}
+
+/**
+ * Gets the current pose and field of view of the camera.
+ *
+ * @return The view of the camera.
+ */
+CameraView Camera::getView() const {
+    CameraView view {};
+    view.position_ = this->position_;
+    view.direction_ = this->direction_;
+    view.up_ = this->up_;
+    view.fieldOfView_ = getFieldOfView();
+    return view;
+}
+
+/**
+ * Moves the camera to a new pose and field of view.
+ * The vectors are orthonormalized the same way as in the constructor.
+ *
+ * @param view The new view of the camera.
+ */
+void Camera::setView(const CameraView &view) {
+    this->position_ = view.position_;
+    this->direction_ = ::glm::normalize(view.direction_);
+    this->right_ = ::glm::cross(view.up_, this->direction_);
+    this->up_ = ::glm::cross(this->direction_, this->right_);
+    setFieldOfView(view.fieldOfView_);
+}
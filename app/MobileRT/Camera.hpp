@@ -10,6 +10,16 @@
 
 namespace MobileRT {
 
+    /**
+     * The pose and field of view of a camera, used to move it without building a new one.
+     */
+    struct CameraView {
+        ::glm::vec3 position_ {};
+        ::glm::vec3 direction_ {};
+        ::glm::vec3 up_ {};
+        float fieldOfView_ {};
+    };
+
     /**
      * A class which represents a camera in the scene.
      */
@@ -53,6 +63,14 @@ namespace MobileRT {
                                 float deviationV) const = 0;
 
         virtual AABB getAABB() const;
+
+        virtual float getFieldOfView() const;
+
+        virtual void setFieldOfView(float fieldOfView);
+
+        CameraView getView() const;
+
+        void setView(const CameraView &view);
     };
 }//namespace MobileRT
 
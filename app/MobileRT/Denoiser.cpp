@@ -0,0 +1,227 @@
+#include "MobileRT/Denoiser.hpp"
+#include "MobileRT/ThreadPool.hpp"
+#include <algorithm>
+#include <array>
+#include <cmath>
+#include <utility>
+
+using ::MobileRT::Aov;
+using ::MobileRT::Denoiser;
+using ::MobileRT::ThreadPool;
+
+namespace {
+    /**
+     * The number of passes of the filter. The pass i reads the pixels 2^i apart, so 5 passes cover a 61x61 window.
+     */
+    const ::std::int32_t NumIterations {5};
+
+    /**
+     * The weights of the B3 spline kernel of the filter, from the left (or top) tap to the right (or bottom) one.
+     */
+    const ::std::array<float, 5> KernelWeights {{1.0F / 16.0F, 1.0F / 4.0F, 3.0F / 8.0F, 1.0F / 4.0F, 1.0F / 16.0F}};
+
+    /**
+     * How much the colors of two pixels may differ in the first pass before the filter stops mixing them.
+     * It is halved in every pass, as the noise left gets smaller.
+     */
+    const float ColorPhi {1.0F};
+
+    /**
+     * The exponent of the cosine of the angle between the normals of two pixels, so the filter doesn't blur across
+     * the edges of the geometry.
+     */
+    const float NormalPower {64.0F};
+
+    /**
+     * How much the depths of two pixels may differ, relative to the depth of the center pixel and to the distance
+     * between them in pixels, before the filter stops mixing them.
+     */
+    const float DepthPhi {0.05F};
+
+    /**
+     * How much the albedos of two pixels may differ before the filter stops mixing them, so the edges of the
+     * textures stay sharp.
+     */
+    const float AlbedoPhi {0.1F};
+
+    /**
+     * The value added to the albedo before the color is divided by it, so dark materials don't divide by zero.
+     */
+    const float AlbedoEpsilon {0.01F};
+}//namespace
+
+/**
+ * The constructor.
+ *
+ * @param width  The width of the image.
+ * @param height The height of the image.
+ */
+Denoiser::Denoiser(const ::std::int32_t width, const ::std::int32_t height) :
+        width_ {width},
+        height_ {height},
+        albedo_ (static_cast<::std::uint32_t> (width * height)),
+        normal_ (static_cast<::std::uint32_t> (width * height)),
+        depth_ (static_cast<::std::uint32_t> (width * height)),
+        color_ (static_cast<::std::uint32_t> (width * height)),
+        filtered_ (static_cast<::std::uint32_t> (width * height)) {
+}
+
+/**
+ * Clears the AOVs accumulated, so a new frame can be rendered.
+ */
+void Denoiser::reset() {
+    ::std::fill(this->albedo_.begin(), this->albedo_.end(), ::glm::vec3 {});
+    ::std::fill(this->normal_.begin(), this->normal_.end(), ::glm::vec3 {});
+    ::std::fill(this->depth_.begin(), this->depth_.end(), 0.0F);
+}
+
+/**
+ * Accumulates the AOVs of a sample of a pixel.
+ * <br>
+ * It is called by the rendering threads, and each pixel must only be written by the thread rendering its tile.
+ *
+ * @param pixelIndex The index of the pixel.
+ * @param aov        The AOVs of the primary ray of the sample.
+ */
+void Denoiser::addSample(const ::std::uint32_t pixelIndex, const Aov &aov) {
+    this->albedo_[pixelIndex] += aov.albedo_;
+    this->normal_[pixelIndex] += aov.normal_;
+    this->depth_[pixelIndex] += aov.depth_;
+}
+
+/**
+ * Denoises the image rendered.
+ * <br>
+ * The color is averaged and divided by the albedo first, so the filter only blurs the lighting and the textures
+ * are multiplied back afterwards. Then, every pass of the edge-avoiding à-trous wavelet filter blurs each pixel
+ * with its neighbours with the B3 spline kernel, weighted by how similar their colors, normals, depths and
+ * albedos are. Each pass doubles the distance between the pixels read, so a wide window is filtered with few
+ * reads per pixel.
+ * <br>
+ * The AOVs accumulated are averaged in place, so no more samples should be added until the next reset.
+ *
+ * @param accumulation The sum of the colors of the samples of every pixel.
+ * @param sampleCounts The number of samples of every pixel.
+ * @param numThreads   The number of threads to use.
+ */
+void Denoiser::denoise(const ::std::vector<::glm::vec3> &accumulation,
+                       const ::std::vector<::std::int32_t> &sampleCounts, const ::std::int32_t numThreads) {
+    auto &threadPool {ThreadPool::getInstance()};
+    threadPool.parallelFor(numThreads, [&](const ::std::int32_t tid) {
+        for (auto row {tid}; row < this->height_; row += numThreads) {
+            normalizeFeatures(accumulation, sampleCounts, row);
+        }
+    });
+    for (::std::int32_t iteration {}; iteration < NumIterations; ++iteration) {
+        const auto step {1 << iteration};
+        threadPool.parallelFor(numThreads, [&](const ::std::int32_t tid) {
+            for (auto row {tid}; row < this->height_; row += numThreads) {
+                filterRow(row, step);
+            }
+        });
+        ::std::swap(this->color_, this->filtered_);
+    }
+    threadPool.parallelFor(numThreads, [&](const ::std::int32_t tid) {
+        for (auto row {tid}; row < this->height_; row += numThreads) {
+            modulateRow(row);
+        }
+    });
+}
+
+/**
+ * Gets the denoised color of a pixel, which is only valid after {@link Denoiser#denoise} is called.
+ *
+ * @param pixelIndex The index of the pixel.
+ * @return The denoised color.
+ */
+const ::glm::vec3 &Denoiser::getColor(const ::std::uint32_t pixelIndex) const {
+    return this->color_[pixelIndex];
+}
+
+/**
+ * Helper method which averages the color and the AOVs of the pixels of a row and divides the color by the albedo.
+ * <br>
+ * The color is clamped to [0, 1] like it is in the bitmap, so the few very bright samples don't spread around.
+ *
+ * @param accumulation The sum of the colors of the samples of every pixel.
+ * @param sampleCounts The number of samples of every pixel.
+ * @param row          The row of pixels.
+ */
+void Denoiser::normalizeFeatures(const ::std::vector<::glm::vec3> &accumulation,
+                                 const ::std::vector<::std::int32_t> &sampleCounts, const ::std::int32_t row) {
+    for (::std::int32_t x {}; x < this->width_; ++x) {
+        const auto pixelIndex {static_cast<::std::uint32_t> (row * this->width_ + x)};
+        const auto numSamples {static_cast<float> (::std::max(sampleCounts[pixelIndex], 1))};
+        auto &albedo {this->albedo_[pixelIndex]};
+        auto &normal {this->normal_[pixelIndex]};
+        albedo /= numSamples;
+        this->depth_[pixelIndex] /= numSamples;
+        if (::glm::dot(normal, normal) > 0.0F) {
+            normal = ::glm::normalize(normal);
+        }
+        const auto color {::glm::clamp(accumulation[pixelIndex] / numSamples, 0.0F, 1.0F)};
+        this->color_[pixelIndex] = color / (albedo + AlbedoEpsilon);
+    }
+}
+
+/**
+ * Helper method which filters the pixels of a row with one pass of the edge-avoiding à-trous wavelet filter.
+ *
+ * @param row  The row of pixels.
+ * @param step The distance, in pixels, between the taps of the kernel.
+ */
+void Denoiser::filterRow(const ::std::int32_t row, const ::std::int32_t step) {
+    const auto colorPhi {ColorPhi / static_cast<float> (step)};
+    const auto radius {static_cast<::std::int32_t> (KernelWeights.size() / 2)};
+    for (::std::int32_t x {}; x < this->width_; ++x) {
+        const auto pixelIndex {static_cast<::std::uint32_t> (row * this->width_ + x)};
+        const auto &color {this->color_[pixelIndex]};
+        const auto &normal {this->normal_[pixelIndex]};
+        const auto &albedo {this->albedo_[pixelIndex]};
+        const auto depth {this->depth_[pixelIndex]};
+        const auto depthPhi {DepthPhi * ::std::max(depth, Epsilon)};
+        ::glm::vec3 sumColors {};
+        auto sumWeights {0.0F};
+        for (auto j {-radius}; j <= radius; ++j) {
+            const auto y {::glm::clamp(row + j * step, 0, this->height_ - 1)};
+            const auto kernelY {KernelWeights[static_cast<::std::uint32_t> (j + radius)]};
+            for (auto i {-radius}; i <= radius; ++i) {
+                const auto sampleX {::glm::clamp(x + i * step, 0, this->width_ - 1)};
+                const auto sampleIndex {static_cast<::std::uint32_t> (y * this->width_ + sampleX)};
+                const auto &sampleColor {this->color_[sampleIndex]};
+                const auto &sampleNormal {this->normal_[sampleIndex]};
+                const auto colorDiff {color - sampleColor};
+                const auto albedoDiff {albedo - this->albedo_[sampleIndex]};
+                const auto depthDiff {::std::fabs(depth - this->depth_[sampleIndex])};
+                const auto distance {static_cast<float> (::std::max(::std::abs(i), ::std::abs(j)) * step)};
+                const auto normalWeight {
+                    normal == sampleNormal ? 1.0F : ::std::pow(::std::max(::glm::dot(normal, sampleNormal), 0.0F),
+                                                               NormalPower)
+                };
+                const auto weight {
+                    kernelY * KernelWeights[static_cast<::std::uint32_t> (i + radius)] * normalWeight *
+                    ::std::exp(
+                        -::glm::dot(colorDiff, colorDiff) / colorPhi
+                        - ::glm::dot(albedoDiff, albedoDiff) / AlbedoPhi
+                        - depthDiff / (depthPhi * ::std::max(distance, 1.0F))
+                    )
+                };
+                sumColors += sampleColor * weight;
+                sumWeights += weight;
+            }
+        }
+        this->filtered_[pixelIndex] = sumColors / sumWeights;
+    }
+}
+
+/**
+ * Helper method which multiplies the filtered colors of the pixels of a row back by their albedo.
+ *
+ * @param row The row of pixels.
+ */
+void Denoiser::modulateRow(const ::std::int32_t row) {
+    for (::std::int32_t x {}; x < this->width_; ++x) {
+        const auto pixelIndex {static_cast<::std::uint32_t> (row * this->width_ + x)};
+        this->color_[pixelIndex] *= this->albedo_[pixelIndex] + AlbedoEpsilon;
+    }
+}
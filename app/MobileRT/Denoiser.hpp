@@ -0,0 +1,68 @@
+#ifndef MOBILERT_DENOISER_HPP
+#define MOBILERT_DENOISER_HPP
+
+#include "MobileRT/Utils.hpp"
+#include <glm/glm.hpp>
+#include <vector>
+
+namespace MobileRT {
+    /**
+     * The auxiliary data (AOVs) of the first intersection of a primary ray, which guide the denoiser.
+     */
+    struct Aov {
+        ::glm::vec3 albedo_ {};
+        ::glm::vec3 normal_ {};
+        float depth_ {};
+    };
+
+    /**
+     * A class which removes the noise of a rendered image with an edge-avoiding à-trous wavelet filter.
+     * <br>
+     * It accumulates the albedo, normal and depth of the primary rays of every pixel alongside the color, and uses
+     * them to stop the filter from blurring across the edges of the geometry and of the textures.
+     */
+    class Denoiser final {
+    private:
+        const ::std::int32_t width_ {};
+        const ::std::int32_t height_ {};
+        ::std::vector<::glm::vec3> albedo_ {};
+        ::std::vector<::glm::vec3> normal_ {};
+        ::std::vector<float> depth_ {};
+        ::std::vector<::glm::vec3> color_ {};
+        ::std::vector<::glm::vec3> filtered_ {};
+
+    private:
+        void normalizeFeatures(const ::std::vector<::glm::vec3> &accumulation,
+                               const ::std::vector<::std::int32_t> &sampleCounts, ::std::int32_t row);
+
+        void filterRow(::std::int32_t row, ::std::int32_t step);
+
+        void modulateRow(::std::int32_t row);
+
+    public:
+        explicit Denoiser () = delete;
+
+        explicit Denoiser(::std::int32_t width, ::std::int32_t height);
+
+        Denoiser(const Denoiser &denoiser) = delete;
+
+        Denoiser(Denoiser &&denoiser) noexcept = delete;
+
+        ~Denoiser() = default;
+
+        Denoiser &operator=(const Denoiser &denoiser) = delete;
+
+        Denoiser &operator=(Denoiser &&denoiser) noexcept = delete;
+
+        void reset();
+
+        void addSample(::std::uint32_t pixelIndex, const Aov &aov);
+
+        void denoise(const ::std::vector<::glm::vec3> &accumulation, const ::std::vector<::std::int32_t> &sampleCounts,
+                     ::std::int32_t numThreads);
+
+        const ::glm::vec3 &getColor(::std::uint32_t pixelIndex) const;
+    };
+}//namespace MobileRT
+
+#endif //MOBILERT_DENOISER_HPP
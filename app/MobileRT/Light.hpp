@@ -37,11 +37,6 @@ namespace MobileRT {
          */
         virtual ::glm::vec3 getPosition() = 0;
 
-        /**
-         * Resets the sampling counter.
-         */
-        virtual void resetSampling() = 0;
-
         /**
          * Determines if a ray intersects this light or not and calculates the intersection point.
          *
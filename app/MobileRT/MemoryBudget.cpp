@@ -0,0 +1,255 @@
+#include "MobileRT/MemoryBudget.hpp"
+#include <algorithm>
+
+using ::MobileRT::MemoryBudget;
+using ::MobileRT::SceneSize;
+using ::MobileRT::Shader;
+
+namespace {
+    /**
+     * The size, in bytes, of a node of the BVH.
+     */
+    const ::std::int64_t BvhNodeSize {static_cast<::std::int64_t> (sizeof(::MobileRT::AABB)) + 8};
+
+    /**
+     * The size, in bytes, of the reference to a sphere or a triangle stored in the leaves of the BVHs.
+     */
+    const ::std::int64_t PrimitiveSize {static_cast<::std::int64_t> (sizeof(::MobileRT::Primitive))};
+
+    /**
+     * The size, in bytes, of a node of the BVH4, with the quantized boxes of its 4 children and the indices of their
+     * nodes and primitives.
+     */
+    const ::std::int64_t Bvh4NodeSize {32};
+
+    /**
+     * The size, in bytes, of the vertices of a triangle packed in the BVH4.
+     */
+    const ::std::int64_t PackedTriangleSize {static_cast<::std::int64_t> (3 * sizeof(::glm::vec3))};
+
+    /**
+     * The size, in bytes, of an auxiliary node used during the construction of the BVH.
+     */
+    const ::std::int64_t BvhBuildNodeSize {
+        static_cast<::std::int64_t> (sizeof(::MobileRT::AABB) + sizeof(::glm::vec3)) + 4
+    };
+
+    /**
+     * The number of cells of the regular grid in each axis.
+     */
+    const ::std::int64_t GridSize {32};
+
+    /**
+     * The average number of cells of the regular grid that a primitive overlaps.
+     */
+    const ::std::int64_t CellsPerPrimitive {4};
+
+    /**
+     * The size, in bytes, of an index of a vertex of a face in an OBJ file after being parsed.
+     */
+    const ::std::int64_t IndexSize {12};
+}//namespace
+
+::std::atomic<::std::int64_t> MemoryBudget::allocated_ {};
+
+/**
+ * Estimates the memory needed to parse the geometry files of a scene.
+ * <br>
+ * This memory is only needed while the scene is being loaded.
+ *
+ * @param sceneSize The size of the scene.
+ * @return The number of bytes needed.
+ */
+::std::int64_t MemoryBudget::estimateLoader(const SceneSize &sceneSize) {
+    const auto attributes {sceneSize.attributes_ * static_cast<::std::int64_t> (sizeof(float))};
+    const auto indices {sceneSize.indices_ * IndexSize};
+    const auto faces {sceneSize.triangles_ * static_cast<::std::int64_t> (sizeof(::std::int32_t) + 1)};
+    return attributes + indices + faces;
+}
+
+/**
+ * Estimates the memory needed by the primitives of a scene.
+ *
+ * @param sceneSize The size of the scene.
+ * @return The number of bytes needed.
+ */
+::std::int64_t MemoryBudget::estimatePrimitives(const SceneSize &sceneSize) {
+    const auto triangles {sceneSize.triangles_ * static_cast<::std::int64_t> (sizeof(Triangle))};
+    const auto spheres {sceneSize.spheres_ * static_cast<::std::int64_t> (sizeof(Sphere))};
+    const auto planes {sceneSize.planes_ * static_cast<::std::int64_t> (sizeof(Plane))};
+    return triangles + spheres + planes;
+}
+
+/**
+ * Estimates the memory needed by the acceleration structures of a scene, besides its primitives.
+ *
+ * @param sceneSize   The size of the scene.
+ * @param accelerator The acceleration structure.
+ * @return The number of bytes needed.
+ */
+::std::int64_t MemoryBudget::estimateAccelerator(const SceneSize &sceneSize, const Shader::Accelerator accelerator) {
+    const auto numPrimitives {sceneSize.triangles_ + sceneSize.spheres_ + sceneSize.planes_};
+    switch (accelerator) {
+        case Shader::Accelerator::ACC_REGULAR_GRID: {
+            const auto cells {GridSize * GridSize * GridSize * 3};
+            const auto cellsSize {cells * static_cast<::std::int64_t> (sizeof(::std::vector<void*>))};
+            const auto pointersSize {
+                numPrimitives * CellsPerPrimitive * static_cast<::std::int64_t> (sizeof(void*))
+            };
+            return cellsSize + pointersSize;
+        }
+
+        case Shader::Accelerator::ACC_BVH: {
+            return 2 * numPrimitives * BvhNodeSize + numPrimitives * PrimitiveSize;
+        }
+
+        case Shader::Accelerator::ACC_BVH4: {
+            // Every node of the BVH4 replaces about 3 nodes of the binary BVH.
+            return 2 * numPrimitives * Bvh4NodeSize / 3 + numPrimitives * (PrimitiveSize + PackedTriangleSize);
+        }
+
+        default:
+            return 0;
+    }
+}
+
+/**
+ * Estimates the memory only needed while the acceleration structures of a scene are being built.
+ *
+ * @param sceneSize   The size of the scene.
+ * @param accelerator The acceleration structure.
+ * @return The number of bytes needed.
+ */
+::std::int64_t MemoryBudget::estimateAcceleratorBuild(const SceneSize &sceneSize,
+                                                      const Shader::Accelerator accelerator) {
+    if (accelerator != Shader::Accelerator::ACC_BVH && accelerator != Shader::Accelerator::ACC_BVH4) {
+        return 0;
+    }
+    const auto numPrimitives {sceneSize.triangles_ + sceneSize.spheres_ + sceneSize.planes_};
+    const auto buildNodes {numPrimitives * BvhBuildNodeSize};
+    // The BVH4 is collapsed from a binary BVH, which is kept until the BVH4 is built.
+    const auto binaryNodes {
+        accelerator == Shader::Accelerator::ACC_BVH4 ? estimateAccelerator(sceneSize, Shader::Accelerator::ACC_BVH) : 0
+    };
+    // The references to the primitives are copied into a new vector with the order of the leaves.
+    const auto build {buildNodes + binaryNodes + numPrimitives * PrimitiveSize};
+    // Afterwards, the spheres and the triangles are copied into the order of the leaves too.
+    return ::std::max(build, estimatePrimitives(sceneSize));
+}
+
+/**
+ * Estimates the memory needed by a loaded scene, which is kept while it is being rendered.
+ *
+ * @param sceneSize   The size of the scene.
+ * @param accelerator The acceleration structure.
+ * @return The number of bytes needed.
+ */
+::std::int64_t MemoryBudget::estimateScene(const SceneSize &sceneSize, const Shader::Accelerator accelerator) {
+    return estimatePrimitives(sceneSize) + estimateAccelerator(sceneSize, accelerator) + sceneSize.textureBytes_;
+}
+
+/**
+ * Estimates the memory needed by the framebuffer where the rendered scene is resolved to be shown.
+ *
+ * @param width  The width of the image.
+ * @param height The height of the image.
+ * @return The number of bytes needed.
+ */
+::std::int64_t MemoryBudget::estimateFramebuffers(const ::std::int32_t width, const ::std::int32_t height) {
+    return static_cast<::std::int64_t> (width) * height * static_cast<::std::int64_t> (sizeof(::std::int32_t));
+}
+
+/**
+ * Estimates the memory needed by the renderer to accumulate the samples of every pixel, which is a float color,
+ * a number of samples and, for the adaptive sampling, the sum of the squared luminances per pixel.
+ *
+ * @param width  The width of the image.
+ * @param height The height of the image.
+ * @return The number of bytes needed.
+ */
+::std::int64_t MemoryBudget::estimateAccumulation(const ::std::int32_t width, const ::std::int32_t height) {
+    const auto bytesPixel {static_cast<::std::int64_t> (sizeof(::glm::vec3) + sizeof(::std::int32_t) + sizeof(float))};
+    return static_cast<::std::int64_t> (width) * height * bytesPixel;
+}
+
+/**
+ * Estimates the memory needed by the denoiser, which is the albedo, normal and depth accumulated per pixel and two
+ * float colors to filter the image.
+ *
+ * @param width  The width of the image.
+ * @param height The height of the image.
+ * @return The number of bytes needed.
+ */
+::std::int64_t MemoryBudget::estimateDenoiser(const ::std::int32_t width, const ::std::int32_t height) {
+    const auto bytesPixel {static_cast<::std::int64_t> (4 * sizeof(::glm::vec3) + sizeof(float))};
+    return static_cast<::std::int64_t> (width) * height * bytesPixel;
+}
+
+/**
+ * Estimates the memory needed by the arrays used to rasterize a preview of the scene, which are the vertices and
+ * the colors of all the triangles.
+ *
+ * @param sceneSize The size of the scene.
+ * @return The number of bytes needed.
+ */
+::std::int64_t MemoryBudget::estimateRasterArrays(const SceneSize &sceneSize) {
+    return 2 * sceneSize.triangles_ * 3 * 4 * static_cast<::std::int64_t> (sizeof(float));
+}
+
+/**
+ * Estimates the peak of memory needed to load and render a scene.
+ * <br>
+ * The geometry files are parsed while the primitives are created, the acceleration structures are built after the
+ * parsed data is freed, and only then the framebuffers and the arrays to rasterize the scene are allocated.
+ *
+ * @param sceneSize   The size of the scene.
+ * @param accelerator The acceleration structure.
+ * @param width       The width of the image.
+ * @param height      The height of the image.
+ * @param denoise     Whether the rendered image is denoised.
+ * @return The number of bytes needed.
+ */
+::std::int64_t MemoryBudget::estimate(const SceneSize &sceneSize, const Shader::Accelerator accelerator,
+                                      const ::std::int32_t width, const ::std::int32_t height, const bool denoise) {
+    const auto primitives {estimatePrimitives(sceneSize) + sceneSize.textureBytes_};
+    const auto loading {estimateLoader(sceneSize) + primitives};
+    const auto building {
+        primitives + estimateAccelerator(sceneSize, accelerator) + estimateAcceleratorBuild(sceneSize, accelerator)
+    };
+    const auto rendering {
+        estimateScene(sceneSize, accelerator) + estimateAccumulation(width, height) +
+        estimateFramebuffers(width, height) + estimateRasterArrays(sceneSize) +
+        (denoise ? estimateDenoiser(width, height) : 0)
+    };
+    return ::std::max(::std::max(loading, building), rendering);
+}
+
+/**
+ * Registers a native allocation.
+ *
+ * @param bytes The number of bytes allocated, which can be an estimate.
+ */
+void MemoryBudget::allocate(const ::std::int64_t bytes) {
+    allocated_.fetch_add(bytes, ::std::memory_order_relaxed);
+}
+
+/**
+ * Registers that a native allocation was freed.
+ *
+ * @param bytes The same number of bytes used to register the allocation.
+ */
+void MemoryBudget::free(const ::std::int64_t bytes) {
+    allocated_.fetch_sub(bytes, ::std::memory_order_relaxed);
+}
+
+/**
+ * Gets the number of bytes of all the registered native allocations that are still alive.
+ * <br>
+ * As the allocations are registered with estimates, this is an estimate of the memory used by the Ray Tracer
+ * engine.
+ *
+ * @return The estimated number of bytes allocated.
+ */
+::std::int64_t MemoryBudget::getAllocated() {
+    return allocated_.load(::std::memory_order_relaxed);
+}
@@ -0,0 +1,66 @@
+#ifndef MOBILERT_MEMORYBUDGET_HPP
+#define MOBILERT_MEMORYBUDGET_HPP
+
+#include "MobileRT/Shader.hpp"
+#include <atomic>
+#include <cstdint>
+
+namespace MobileRT {
+    /**
+     * The size of a scene, which is all that is needed to estimate how much memory the Ray Tracer engine needs to
+     * load and render it.
+     */
+    struct SceneSize {
+        ::std::int64_t attributes_ {};
+        ::std::int64_t indices_ {};
+        ::std::int64_t triangles_ {};
+        ::std::int64_t spheres_ {};
+        ::std::int64_t planes_ {};
+        ::std::int64_t textureBytes_ {};
+    };
+
+    /**
+     * A class which estimates the memory needed by the Ray Tracer engine before loading a scene and keeps track of
+     * the biggest native allocations that are alive.
+     * <br>
+     * The tracked allocations are estimates too: the scene and the framebuffers are registered with the same
+     * estimates used before loading them, and not with the real capacities of their containers.
+     */
+    class MemoryBudget final {
+    private:
+        static ::std::atomic<::std::int64_t> allocated_;
+
+    private:
+        static ::std::int64_t estimateLoader(const SceneSize &sceneSize);
+
+        static ::std::int64_t estimatePrimitives(const SceneSize &sceneSize);
+
+        static ::std::int64_t estimateAccelerator(const SceneSize &sceneSize, Shader::Accelerator accelerator);
+
+        static ::std::int64_t estimateAcceleratorBuild(const SceneSize &sceneSize, Shader::Accelerator accelerator);
+
+    public:
+        explicit MemoryBudget() = delete;
+
+        static ::std::int64_t estimateScene(const SceneSize &sceneSize, Shader::Accelerator accelerator);
+
+        static ::std::int64_t estimateFramebuffers(::std::int32_t width, ::std::int32_t height);
+
+        static ::std::int64_t estimateAccumulation(::std::int32_t width, ::std::int32_t height);
+
+        static ::std::int64_t estimateDenoiser(::std::int32_t width, ::std::int32_t height);
+
+        static ::std::int64_t estimateRasterArrays(const SceneSize &sceneSize);
+
+        static ::std::int64_t estimate(const SceneSize &sceneSize, Shader::Accelerator accelerator,
+                                       ::std::int32_t width, ::std::int32_t height, bool denoise);
+
+        static void allocate(::std::int64_t bytes);
+
+        static void free(::std::int64_t bytes);
+
+        static ::std::int64_t getAllocated();
+    };
+}//namespace MobileRT
+
+#endif //MOBILERT_MEMORYBUDGET_HPP
@@ -11,6 +11,16 @@ bool ObjectLoader::isProcessed() const {
     return this->isProcessed_;
 }
 
+/**
+ * Reports the progress of the loading of the scene geometry to the ProgressListener, if there is one.
+ *
+ * @param progress The progress, between 0 and 1.
+ * @return Whether the loading should continue or be cancelled.
+ */
+bool ObjectLoader::reportProgress(const float progress) const {
+    return !this->progressListener_ || this->progressListener_(progress);
+}
+
 /**
  * The destructor.
  */
@@ -9,6 +9,12 @@
 #include <string>
 
 namespace MobileRT {
+    /**
+     * A function which receives the progress of a long operation, between 0 and 1, and returns whether the
+     * operation should continue or be cancelled.
+     */
+    using ProgressListener = ::std::function<bool(float)>;
+
     /**
      * A class which loads a scene from a file and fills the scene with the loaded geometry.
      */
@@ -16,6 +22,10 @@ namespace MobileRT {
     protected:
         bool isProcessed_ {false};
         ::std::int32_t numberTriangles_ {-1};
+        ProgressListener progressListener_ {};
+
+    protected:
+        bool reportProgress(float progress) const;
 
     public:
         explicit ObjectLoader() = default;
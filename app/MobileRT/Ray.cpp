@@ -1,22 +1,8 @@
 #include "MobileRT/Ray.hpp"
-#include <atomic>
 #include <boost/assert.hpp>
 
 using ::MobileRT::Ray;
 
-namespace {
-    /**
-     * A helper counter.
-     *
-     * @return The new value of the counter.
-     */
-    ::std::int32_t getId() {
-        static ::std::atomic<::std::int32_t> counter {};
-        const auto currentId {counter.fetch_add(1, ::std::memory_order_relaxed)};
-        return currentId;
-    }
-}//namespace
-
 /**
  * The constructor.
  *
@@ -30,7 +16,6 @@ Ray::Ray(const ::glm::vec3 &dir, const ::glm::vec3 &origin,
     origin_ {origin},
     direction_ {dir},
     depth_ {depth},
-    id_ {getId()},
     primitive_ {primitive} {
         BOOST_ASSERT_MSG(!::glm::all(::glm::isnan(this->direction_)), "direction can't be NaN.");
         BOOST_ASSERT_MSG(!::glm::all(::glm::isinf(this->direction_)), "direction can't be infinite.");
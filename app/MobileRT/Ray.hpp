@@ -15,7 +15,6 @@ namespace MobileRT {
         const ::glm::vec3 origin_ {0};
         const ::glm::vec3 direction_  {0};
         const ::std::int32_t depth_{-1};
-        const ::std::int32_t id_ {-1};
         const void *const primitive_ {nullptr};
 
     public:
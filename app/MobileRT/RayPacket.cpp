@@ -0,0 +1,60 @@
+#include "MobileRT/RayPacket.hpp"
+#include <boost/assert.hpp>
+
+using ::MobileRT::Ray;
+using ::MobileRT::RayPacket;
+
+/**
+ * The constructor.
+ * <br>
+ * The lanes without a ray repeat the first ray, so the intersection tests don't need to check which lanes are
+ * valid, and are left out of the mask of the packet.
+ *
+ * @param rays The rays of the packet, up to PacketSize.
+ */
+RayPacket::RayPacket(const ::std::vector<Ray> &rays) :
+    rays_ {rays.data()},
+    numRays_ {static_cast<::std::int32_t> (rays.size())},
+    mask_ {(1U << rays.size()) - 1U} {
+    BOOST_ASSERT_MSG(!rays.empty(), "packet can't be empty.");
+    BOOST_ASSERT_MSG(rays.size() <= static_cast<::std::uint32_t> (PacketSize), "packet can't have too many rays.");
+    const auto numRays {static_cast<::std::uint32_t> (this->numRays_)};
+    for (::std::uint32_t lane {}; lane < PacketSize; ++lane) {
+        const auto &ray {lane < numRays ? this->rays_[lane] : this->rays_[0]};
+        for (auto axis {0}; axis < 3; ++axis) {
+            const auto index {static_cast<::std::uint32_t> (axis)};
+            this->origins_[index][lane] = ray.origin_[axis];
+            this->directions_[index][lane] = ray.direction_[axis];
+            this->invDirections_[index][lane] = 1.0F / ray.direction_[axis];
+        }
+    }
+    for (::std::uint32_t axis {}; axis < 3; ++axis) {
+        const auto &directions {this->directions_[axis]};
+        const auto positive {directions[0] >= 0.0F};
+        for (::std::uint32_t lane {1}; lane < numRays; ++lane) {
+            this->coherent_ = this->coherent_ && (directions[lane] >= 0.0F) == positive;
+        }
+    }
+}
+
+/**
+ * Checks whether the rays in the packet are coherent, i.e., if their directions have the same signs in every axis.
+ * <br>
+ * Coherent rays visit mostly the same nodes of an acceleration structure, so it pays off to trace them together.
+ * Otherwise, they should be traced one at a time.
+ *
+ * @return Whether the rays are coherent.
+ */
+bool RayPacket::isCoherent() const {
+    return this->coherent_;
+}
+
+/**
+ * Gets one of the rays in the packet.
+ *
+ * @param lane The lane of the ray.
+ * @return The ray.
+ */
+const Ray &RayPacket::getRay(const ::std::int32_t lane) const {
+    return this->rays_[lane];
+}
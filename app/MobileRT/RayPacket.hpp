@@ -0,0 +1,49 @@
+#ifndef MOBILERT_RAYPACKET_HPP
+#define MOBILERT_RAYPACKET_HPP
+
+#include "MobileRT/Ray.hpp"
+#include "MobileRT/Utils.hpp"
+#include <array>
+#include <vector>
+
+namespace MobileRT {
+    /**
+     * A class which represents a packet of rays traced together through the scene.
+     * <br>
+     * The origins and directions of the rays are stored as a structure of arrays, one array per axis with one lane
+     * per ray, so the intersection tests can process all the rays at once with the SIMD units of the CPU.
+     */
+    class RayPacket final {
+    public:
+        ::std::array<::std::array<float, PacketSize>, 3> origins_ {};
+        ::std::array<::std::array<float, PacketSize>, 3> directions_ {};
+        ::std::array<::std::array<float, PacketSize>, 3> invDirections_ {};
+        const Ray *const rays_ {nullptr};
+        const ::std::int32_t numRays_ {};
+        const ::std::uint32_t mask_ {};
+
+    private:
+        bool coherent_ {true};
+
+    public:
+        explicit RayPacket () = delete;
+
+        explicit RayPacket(const ::std::vector<Ray> &rays);
+
+        RayPacket(const RayPacket &packet) = delete;
+
+        RayPacket(RayPacket &&packet) noexcept = delete;
+
+        ~RayPacket() = default;
+
+        RayPacket &operator=(const RayPacket &packet) = delete;
+
+        RayPacket &operator=(RayPacket &&packet) noexcept = delete;
+
+        bool isCoherent() const;
+
+        const Ray &getRay(::std::int32_t lane) const;
+    };
+}//namespace MobileRT
+
+#endif //MOBILERT_RAYPACKET_HPP
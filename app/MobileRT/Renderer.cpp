@@ -1,12 +1,54 @@
 #include "MobileRT/Renderer.hpp"
-#include <thread>
-#include <vector>
+#include "MobileRT/ThreadPool.hpp"
+#include <bitset>
 
+using ::MobileRT::Aov;
+using ::MobileRT::Denoiser;
 using ::MobileRT::Renderer;
 using ::MobileRT::NumberOfTiles;
+using ::MobileRT::PacketSize;
+using ::MobileRT::Ray;
+using ::MobileRT::RayPacket;
+using ::MobileRT::Sampler;
+using ::MobileRT::SampleKey;
+using ::MobileRT::ThreadPool;
+using ::MobileRT::Tile;
+using ::MobileRT::CameraView;
 
 namespace {
-    ::std::array<float, NumberOfTiles> values {};
+    /**
+     * The minimum number of samples per pixel of a tile before checking if it converged, so the estimate of the
+     * error is meaningful.
+     */
+    const ::std::int32_t AdaptiveMinSamples {4};
+
+    /**
+     * How many times the number of samples per pixel a noisy tile can get from the budget left by the tiles that
+     * converged.
+     */
+    const ::std::int32_t AdaptiveMaxSamplesFactor {4};
+
+    /**
+     * The weights of the RGB channels to compute the luminance of a color.
+     */
+    const ::glm::vec3 LuminanceWeights {0.2126F, 0.7152F, 0.0722F};
+
+    /**
+     * The sizes, in pixels, of the blocks rendered with one ray in each pass of the preview, from the coarsest to
+     * the finest.
+     */
+    const ::std::array<::std::int32_t, 3> PreviewScales {{8, 4, 2}};
+
+    /**
+     * Helper method which gets the size of the blocks of a pass of the preview.
+     *
+     * @param pass The pass, which is negative for the passes of the preview and -1 for the last one.
+     * @return The width and height, in pixels, of the blocks rendered with one ray.
+     */
+    ::std::int32_t getPreviewScale(const ::std::int32_t pass) {
+        const auto numScales {static_cast<::std::int32_t> (PreviewScales.size())};
+        return PreviewScales[static_cast<::std::uint32_t> (numScales + pass)];
+    }
 }//namespace
 
 /**
@@ -18,119 +60,614 @@ namespace {
  * @param width        The width of the image to render.
  * @param height       The height of the image to render.
  * @param samplesPixel The number of samples per pixel.
+ * @param targetError  The relative error below which a tile stops being sampled or 0 to render all the samples
+ *                     per pixel in every tile.
  */
 Renderer::Renderer(::std::unique_ptr<Shader> shader,
                    ::std::unique_ptr<Camera> camera,
                    ::std::unique_ptr<Sampler> samplerPixel,
                    const ::std::int32_t width, const ::std::int32_t height,
-                   const ::std::int32_t samplesPixel) :
+                   const ::std::int32_t samplesPixel, const float targetError) :
         camera_ {::std::move(camera)},
         shader_ {::std::move(shader)},
         samplerPixel_ {::std::move(samplerPixel)},
-        blockSizeX_ {width / static_cast<::std::int32_t> (::std::sqrt(NumberOfTiles))},
-        blockSizeY_ {height / static_cast<::std::int32_t> (::std::sqrt(NumberOfTiles))},
         sample_ {},
         width_ {width},
         height_ {height},
-        domainSize_ {(width / blockSizeX_) * (height / blockSizeY_)},
-        resolution_ {width * height},
-        samplesPixel_ {samplesPixel} {
-    fillArray(&values);
+        samplesPixel_ {samplesPixel},
+        targetError_ {targetError},
+        scheduler_ {width, height, DefaultTileSize},
+        accumulation_ (static_cast<::std::uint32_t> (width * height)),
+        sampleCounts_ (static_cast<::std::uint32_t> (width * height)),
+        luminanceSquared_ (targetError > 0.0F ? static_cast<::std::uint32_t> (width * height) : 0U) {
 }
 
 /**
- * Starts the rendering process of the scene into a bitmap.
+ * Starts the rendering process of the scene.
+ * <br>
+ * The scene is rendered by the worker threads of the engine's ThreadPool together with the calling thread.
+ * The tiles are handed out by a TileScheduler, so each thread renders a compact region of the image.
+ * <br>
+ * In progressive mode, one sample per pixel is rendered in the whole image before the next one starts, so a
+ * noisy preview appears quickly. Otherwise, every tile gets all its samples before the thread moves on, which
+ * keeps the same part of the scene in the caches.
+ * <br>
+ * The samples are accumulated in a float buffer, so they don't lose precision. If a bitmap is given, every tile
+ * is resolved into it as soon as it is rendered, otherwise the bitmap should be resolved with the
+ * {@link Renderer#resolve} method when it is read.
+ * <br>
+ * If a target error was given, the tiles whose error falls below it stop being sampled, and the samples they
+ * didn't need are spent on the noisy tiles rendered after them instead.
+ * <br>
+ * If the preview is enabled, a few coarse passes are rendered first, so the whole image appears quickly.
+ * <br>
+ * If the denoiser is enabled, the image is denoised when the frame is complete.
+ * <br>
+ * If the camera is moved with {@link Renderer#setCameraView} meanwhile, the frame starts again from the new view.
  *
- * @param bitmap     The bitmap where the rendered scene should be put.
+ * @param bitmap     The bitmap where the rendered scene should be put or nullptr.
  * @param numThreads The number of threads to use during the rendering process.
  */
 void Renderer::renderFrame(::std::int32_t *const bitmap, const ::std::int32_t numThreads) {
     LOG("numThreads = ", numThreads);
     LOG("Resolution = ", this->width_, "x", this->height_);
 
+    this->stopped_ = false;
+    this->restart_ = false;
+    this->frameStarted_ = false;
+    this->deadline_ = ::std::chrono::steady_clock::time_point::max();
+    while (!renderPasses(bitmap, numThreads)) {
+        LOG("RESTARTING FRAME");
+    }
+
+    LOG("FINISH");
+}
+
+/**
+ * Renders the scene for at most a time budget, resuming the frame left unfinished by the previous call.
+ * <br>
+ * The threads stop between two samples of a tile when the time runs out, so the call returns shortly after the
+ * budget, with every pixel holding the average of the samples it got so far. The next call continues the same
+ * pass from the tiles left and from the next sample of the tiles interrupted, so no work is lost. Once the frame
+ * is complete, it isn't rendered again until the camera moves.
+ * <br>
+ * This lets the caller keep a steady frame rate while the camera moves and use the idle frames to refine the
+ * image.
+ *
+ * @param bitmap     The bitmap where the rendered scene should be put or nullptr.
+ * @param numThreads The number of threads to use during the rendering process.
+ * @param budget     The time available to render.
+ * @return Whether the frame is complete or the rendering process was stopped.
+ */
+bool Renderer::renderFrame(::std::int32_t *const bitmap, const ::std::int32_t numThreads,
+                           const ::std::chrono::milliseconds budget) {
+    this->deadline_ = ::std::chrono::steady_clock::now() + budget;
+    return renderPasses(bitmap, numThreads);
+}
+
+/**
+ * Resolves the accumulated samples of some tiles into a bitmap.
+ * <br>
+ * It averages the samples of each pixel, or takes the denoised color once the frame is complete, and converts the
+ * color to the ARGB format. It can be called while the scene is being rendered, but the tiles being rendered at
+ * the same time are skipped, as they are marked as changed again when they are finished.
+ *
+ * @param bitmap The bitmap where the tiles should be put.
+ * @param tiles  The mask of the tiles to resolve, as given by the {@link Renderer#takeDirtyTiles} method.
+ */
+void Renderer::resolve(::std::int32_t *const bitmap,
+                       const ::std::array<::std::uint32_t, NumberOfTiles / 32> &tiles) const {
+    for (::std::int32_t tile {}; tile < NumberOfTiles; ++tile) {
+        const auto index {static_cast<::std::uint32_t> (tile)};
+        if ((tiles[index / 32] & (1U << (index % 32))) == 0) {
+            continue;
+        }
+        auto &state {this->tileStates_[index]};
+        ::std::int32_t idle {};
+        // The acquire pairs with the release of the threads which finished rendering the tile.
+        if (state.compare_exchange_strong(idle, -1, ::std::memory_order_acquire, ::std::memory_order_relaxed)) {
+            resolveTile(bitmap, getDisplayTile(tile));
+            state.store(0, ::std::memory_order_release);
+        }
+    }
+}
+
+/**
+ * Stops the rendering process.
+ * The tiles being rendered are finished, but no other tile is started.
+ */
+void Renderer::stopRender() {
+    this->stopped_ = true;
+    this->running_ = false;
+}
+
+/**
+ * Sets whether a preview of the scene should be rendered before the full resolution samples.
+ * <br>
+ * The preview renders the image at 1/8, then 1/4 and then 1/2 of the resolution, each ray filling a block of
+ * pixels, so a coarse image of the whole scene shows up in a fraction of the time of a full pass. The preview is
+ * only shown until each pixel gets its first sample, so it doesn't bias the final image. It should not be
+ * called while the scene is being rendered.
+ *
+ * @param preview Whether the preview should be rendered.
+ */
+void Renderer::setPreview(const bool preview) {
+    this->preview_ = preview;
+}
+
+/**
+ * Sets whether the image should be denoised when the frame is complete.
+ * <br>
+ * The albedo, normal and depth of the first intersection of the primary rays are accumulated alongside the color,
+ * and guide an edge-avoiding à-trous wavelet filter which runs on the float colors before they are converted to
+ * the bitmap. This lets a few samples per pixel give a clean image, but costs 13 floats per pixel and a pass of
+ * the filter over the whole image at the end of every frame. It should not be called while the scene is being
+ * rendered.
+ *
+ * @param denoise Whether the image should be denoised.
+ */
+void Renderer::setDenoise(const bool denoise) {
+    if (!denoise) {
+        this->denoiser_.reset();
+    } else if (!this->denoiser_) {
+        this->denoiser_ = ::std::make_unique<Denoiser> (this->width_, this->height_);
+    }
+}
+
+/**
+ * Gets the view of the camera, including a new view not yet used by the rendering process.
+ * It can be called while the scene is being rendered.
+ *
+ * @return The view of the camera.
+ */
+CameraView Renderer::getCameraView() const {
+    const ::std::lock_guard<::std::mutex> lock {this->cameraMutex_};
+    return this->viewChanged_ ? this->nextView_ : this->camera_->getView();
+}
+
+/**
+ * Checks whether a new view of the camera was set and the frame wasn't started again from it yet.
+ * It can be called while the scene is being rendered.
+ *
+ * @return Whether a new view of the camera is pending.
+ */
+bool Renderer::isRestartPending() const {
+    return this->restart_;
+}
+
+/**
+ * Moves the camera without touching the geometry of the scene nor the acceleration structures.
+ * <br>
+ * If the scene is being rendered, the tiles being rendered are finished, the samples accumulated so far are
+ * discarded and the rendering process starts again from the new view. Otherwise, the new view is used by the
+ * next frame.
+ *
+ * @param view The new view of the camera.
+ */
+void Renderer::setCameraView(const CameraView &view) {
+    {
+        const ::std::lock_guard<::std::mutex> lock {this->cameraMutex_};
+        this->nextView_ = view;
+        this->viewChanged_ = true;
+    }
+    this->restart_ = true;
+    this->running_ = false;
+}
+
+/**
+ * Sets the width and height, in pixels, of the tiles handed out to the rendering threads.
+ * <br>
+ * Smaller tiles balance the work better between the threads, while bigger ones have less overhead and keep
+ * the rays of each thread closer to each other. It should not be called while the scene is being rendered.
+ *
+ * @param tileSize The width and height of the tiles.
+ */
+void Renderer::setTileSize(const ::std::int32_t tileSize) {
+    this->scheduler_.setTileSize(tileSize);
+}
+
+/**
+ * Sets whether the scene should be rendered progressively, with one sample per pixel in the whole image at a
+ * time, or tile by tile. It should not be called while the scene is being rendered.
+ *
+ * @param progressive Whether the scene should be rendered progressively.
+ */
+void Renderer::setProgressive(const bool progressive) {
+    this->progressive_ = progressive;
+}
+
+/**
+ * Helper method which clears the samples accumulated and the statistics of the frame, so it can be rendered from
+ * the beginning.
+ */
+void Renderer::resetFrame() {
     this->sample_ = 0;
-    this->samplerPixel_->resetSampling();
-    this->shader_->resetSampling();
-    this->block_ = 0;
+    this->pass_ = this->preview_ ? -static_cast<::std::int32_t> (PreviewScales.size()) : 0;
+    this->passStarted_ = false;
+    this->passInterrupted_ = false;
+    this->frameDone_ = false;
+    this->tilesDone_ = 0;
+    this->raysTraced_ = 0;
+    // The tiles can be resolved meanwhile, so the whole image is marked as being rendered while it is cleared.
+    Tile image {};
+    image.end_ = ::glm::ivec2 {this->width_, this->height_};
+    startRenderingTile(image);
+    this->denoised_ = false;
+    if (this->denoiser_) {
+        this->denoiser_->reset();
+    }
+    ::std::fill(this->accumulation_.begin(), this->accumulation_.end(), ::glm::vec3 {});
+    ::std::fill(this->sampleCounts_.begin(), this->sampleCounts_.end(), 0);
+    finishRenderingTile(image);
+    ::std::fill(this->luminanceSquared_.begin(), this->luminanceSquared_.end(), 0.0F);
+    this->convergedTiles_.assign(static_cast<::std::uint32_t> (this->scheduler_.getNumTiles()), 0);
+    this->nextSamples_.assign(static_cast<::std::uint32_t> (this->scheduler_.getNumTiles()), 0);
+    this->tilesConverged_ = 0;
+    this->savedSamples_ = 0;
+    // The flags are checked after running_ is set, so a new view or a stop requested meanwhile isn't overwritten.
+    this->running_ = true;
+    if (this->restart_ || this->stopped_) {
+        this->running_ = false;
+    }
+    markAllTilesDirty();
+}
+
+/**
+ * Helper method which moves the camera to the view set by {@link Renderer#setCameraView}, if any.
+ * It must only be called while no thread is rendering the scene.
+ */
+void Renderer::applyCameraView() {
+    const ::std::lock_guard<::std::mutex> lock {this->cameraMutex_};
+    if (this->viewChanged_) {
+        this->camera_->setView(this->nextView_);
+        this->viewChanged_ = false;
+        LOG("CAMERA MOVED");
+    }
+}
+
+/**
+ * Helper method which a thread renders the tiles that the scheduler hands out to it.
+ *
+ * @param bitmap      The bitmap where the rendered tiles should be resolved or nullptr.
+ * @param tid         The thread id.
+ * @param firstSample The first sample per pixel to render in each tile.
+ * @param numSamples  The number of samples per pixel to render in each tile.
+ */
+void Renderer::renderTiles(::std::int32_t *const bitmap, const ::std::int32_t tid,
+                           const ::std::int32_t firstSample, const ::std::int32_t numSamples) {
+    ::std::int32_t tileIndex {};
+    while (this->running_ && !isPastDeadline() && this->scheduler_.next(tid, &tileIndex)) {
+        const auto &tile {this->scheduler_.getTile(tileIndex)};
+        auto rendered {false};
+        // A tile interrupted by the time budget is handed out again later and resumes from its next sample.
+        auto &nextSample {this->nextSamples_[static_cast<::std::uint32_t> (tileIndex)]};
+        for (auto sample {::std::max(firstSample, nextSample)}; sample < firstSample + numSamples; ++sample) {
+            if (isPastDeadline()) {
+                this->passInterrupted_ = true;
+                break;
+            }
+            // Past the number of samples per pixel, a tile only renders the samples saved by the converged ones.
+            if (!this->running_ || isRetired(tileIndex) ||
+                (sample >= this->samplesPixel_ && !takeSavedSample())) {
+                break;
+            }
+            startRenderingTile(tile);
+            renderTile(tile);
+            rendered = true;
+            if (this->targetError_ > 0.0F && hasConverged(tileIndex, sample)) {
+                LOG("Tile ", tileIndex, " converged after ", sample + 1, " samples");
+            }
+            finishRenderingTile(tile);
+            markTileDirty(tile);
+            nextSample = sample + 1;
+            this->tilesDone_.fetch_add(1, ::std::memory_order_relaxed);
+            this->raysTraced_.fetch_add(Shader::takeRaysTraced(), ::std::memory_order_relaxed);
+            if (this->progressListener_) {
+                this->progressListener_();
+            }
+        }
+        if (bitmap != nullptr && rendered) {
+            resolveTile(bitmap, tile);
+        }
+    }
+}
 
-    const auto numChildren {numThreads - 1};
-    ::std::vector<::std::thread> threads {};
-    threads.reserve(static_cast<::std::uint32_t> (numChildren));
+/**
+ * Helper method which renders the passes of the current frame until it is complete, the time budget runs out or
+ * the rendering process is interrupted.
+ * <br>
+ * The passes are numbered from the first preview pass, with a negative number, to the last sample per pixel.
+ * A pass is only over when the scheduler handed out all its tiles and none of them was interrupted, so an
+ * interrupted pass is resumed later from the tiles left. If a tile was interrupted between two of its samples,
+ * all the tiles of the pass are handed out again and the ones already done are skipped.
+ * <br>
+ * A new camera view set meanwhile restarts the frame, even if it was already complete.
+ *
+ * @param bitmap     The bitmap where the rendered scene should be put or nullptr.
+ * @param numThreads The number of threads to use during the rendering process.
+ * @return Whether the frame is complete or the rendering process was stopped, false if the time budget ran out or a
+ *     new camera view is pending.
+ */
+bool Renderer::renderPasses(::std::int32_t *const bitmap, const ::std::int32_t numThreads) {
+    if (this->stopped_) {
+        return true;
+    }
+    if (!this->frameStarted_ || this->restart_.exchange(false)) {
+        applyCameraView();
+        resetFrame();
+        this->frameStarted_ = true;
+    }
+    if (this->frameDone_) {
+        return !this->restart_;
+    }
 
-    for (::std::int32_t i {}; i < numChildren; ++i) {
-        threads.emplace_back(&Renderer::renderScene, this, bitmap, i);
+    const auto samples {getMaxSamples()};
+    const auto lastPass {this->progressive_ ? samples : 1};
+    while (this->pass_ < lastPass && !isFinished()) {
+        if (!this->passStarted_) {
+            this->scheduler_.reset(numThreads);
+            this->passStarted_ = true;
+        }
+        ThreadPool::getInstance().parallelFor(numThreads, [&](const ::std::int32_t tid) {
+            if (this->pass_ < 0) {
+                const auto scale {getPreviewScale(this->pass_)};
+                renderPreviewTiles(bitmap, tid, scale);
+            } else if (this->progressive_) {
+                renderTiles(bitmap, tid, this->pass_, 1);
+            } else {
+                renderTiles(bitmap, tid, 0, samples);
+            }
+        });
+        if (this->passInterrupted_.exchange(false)) {
+            this->passStarted_ = false;
+            return this->stopped_;
+        }
+        if (!this->scheduler_.isEmpty()) {
+            return this->stopped_;
+        }
+        finishPass();
     }
-    renderScene(bitmap, numChildren);
-    for (auto &thread : threads) {
-        thread.join();
+    if (this->stopped_ || !this->running_) {
+        return this->stopped_;
     }
-    threads.clear();
+    finishFrame(bitmap, numThreads);
+    return !this->restart_;
+}
 
-    LOG("FINISH");
+/**
+ * Helper method which finishes the current pass, after all its tiles were rendered, and moves to the next one.
+ * <br>
+ * The last preview pass clears the accumulation buffer without marking the tiles as changed, so the preview
+ * stays in the bitmap until the full resolution samples replace it and doesn't bias the final image.
+ */
+void Renderer::finishPass() {
+    if (this->pass_ < 0) {
+        LOG("Preview 1/", getPreviewScale(this->pass_));
+        if (this->pass_ == -1) {
+            Tile image {};
+            image.end_ = ::glm::ivec2 {this->width_, this->height_};
+            startRenderingTile(image);
+            ::std::fill(this->accumulation_.begin(), this->accumulation_.end(), ::glm::vec3 {});
+            ::std::fill(this->sampleCounts_.begin(), this->sampleCounts_.end(), 0);
+            finishRenderingTile(image);
+        }
+    } else {
+        this->sample_ = this->progressive_ ? this->pass_ + 1 : getMaxSamples();
+        LOG("Sample = ", this->sample_);
+    }
+    this->passStarted_ = false;
+    ++this->pass_;
 }
 
 /**
- * Stops the rendering process.
+ * Helper method which finishes the frame, after all its passes were rendered, and denoises it if the denoiser is
+ * enabled.
+ *
+ * @param bitmap     The bitmap where the denoised image should be put or nullptr.
+ * @param numThreads The number of threads to use to denoise the image.
  */
-void Renderer::stopRender() {
-    this->blockSizeX_ = 0;
-    this->blockSizeY_ = 0;
-    this->samplerPixel_->stopSampling();
+void Renderer::finishFrame(::std::int32_t *const bitmap, const ::std::int32_t numThreads) {
+    if (this->denoiser_) {
+        // The tiles can be resolved meanwhile, so the whole image is marked as being rendered while it is denoised.
+        Tile image {};
+        image.end_ = ::glm::ivec2 {this->width_, this->height_};
+        startRenderingTile(image);
+        this->denoiser_->denoise(this->accumulation_, this->sampleCounts_, numThreads);
+        this->denoised_ = true;
+        finishRenderingTile(image);
+        if (bitmap != nullptr) {
+            resolveTile(bitmap, image);
+        }
+        markAllTilesDirty();
+        LOG("DENOISED");
+    }
+    this->frameDone_ = true;
 }
 
 /**
- * Helper method which a thread renders the scene into the bitmap.
+ * Helper method which a thread renders the tiles of a pass of the preview that the scheduler hands out to it.
+ * <br>
+ * Each pass splats its colors into the accumulation buffer, replacing the previous pass, and marks the tiles as
+ * changed so they are shown. Like the samples, the tiles are marked as being rendered while they are written, so
+ * they aren't resolved meanwhile.
  *
- * @param bitmap The bitmap where the rendered scene should be put.
+ * @param bitmap The bitmap where the preview should be resolved or nullptr.
  * @param tid    The thread id.
+ * @param scale  The width and height, in pixels, of the blocks rendered with one ray.
+ */
+void Renderer::renderPreviewTiles(::std::int32_t *const bitmap, const ::std::int32_t tid,
+                                  const ::std::int32_t scale) {
+    ::std::int32_t tileIndex {};
+    while (this->running_ && !isPastDeadline() && this->scheduler_.next(tid, &tileIndex)) {
+        const auto &tile {this->scheduler_.getTile(tileIndex)};
+        startRenderingTile(tile);
+        renderPreviewTile(tile, scale);
+        finishRenderingTile(tile);
+        if (bitmap != nullptr) {
+            resolveTile(bitmap, tile);
+        }
+        markTileDirty(tile);
+        this->raysTraced_.fetch_add(Shader::takeRaysTraced(), ::std::memory_order_relaxed);
+        if (this->progressListener_) {
+            this->progressListener_();
+        }
+    }
+}
+
+/**
+ * Helper method which checks whether the time budget of the current call to {@link Renderer#renderFrame} ran out.
+ *
+ * @return Whether the time budget ran out.
+ */
+bool Renderer::isPastDeadline() const {
+    return ::std::chrono::steady_clock::now() >= this->deadline_;
+}
+
+/**
+ * Helper method which renders a tile of the preview, tracing one ray through the center of each block of
+ * scale x scale pixels and filling the whole block with its color.
+ * <br>
+ * The blocks are aligned to the tile, so each pixel is only written by the thread rendering its tile.
+ *
+ * @param tile  The tile to render.
+ * @param scale The width and height of the blocks, in pixels.
+ */
+void Renderer::renderPreviewTile(const Tile &tile, const ::std::int32_t scale) {
+    const auto invImgWidth {1.0F / this->width_};
+    const auto invImgHeight {1.0F / this->height_};
+    for (auto blockY {tile.start_[1]}; blockY < tile.end_[1]; blockY += scale) {
+        const auto endY {::std::min(blockY + scale, tile.end_[1])};
+        const auto v {((blockY + endY) / 2) * invImgHeight};
+        for (auto blockX {tile.start_[0]}; blockX < tile.end_[0]; blockX += scale) {
+            const auto endX {::std::min(blockX + scale, tile.end_[0])};
+            const auto u {((blockX + endX) / 2) * invImgWidth};
+            SampleKey key {};
+            key.pixel_ = static_cast<::std::uint32_t> (blockY * this->width_ + blockX);
+            Sampler::setKey(key);
+            const auto &ray {this->camera_->generateRay(u, v, 0.0F, 0.0F)};
+            ::glm::vec3 pixelRgb {};
+            this->shader_->rayTrace(&pixelRgb, ray);
+            for (auto y {blockY}; y < endY; ++y) {
+                for (auto x {blockX}; x < endX; ++x) {
+                    const auto pixelIndex {static_cast<::std::uint32_t> (y * this->width_ + x)};
+                    this->accumulation_[pixelIndex] = pixelRgb;
+                    this->sampleCounts_[pixelIndex] = 1;
+                }
+            }
+        }
+    }
+}
+
+/**
+ * Helper method which renders one sample per pixel of a tile into the accumulation buffer.
+ * <br>
+ * The primary rays of neighbouring pixels in a row go in almost the same direction, so they are traced in packets
+ * of PacketSize rays.
+ * <br>
+ * The random numbers of each path are keyed by its pixel and by the number of samples the pixel already has, so
+ * the image doesn't depend on the number of threads nor on which thread renders each tile.
+ *
+ * @param tile The tile to render.
  */
-void Renderer::renderScene(::std::int32_t *const bitmap, const ::std::int32_t tid) {
+void Renderer::renderTile(const Tile &tile) {
     const auto invImgWidth {1.0F / this->width_};
     const auto invImgHeight {1.0F / this->height_};
     const auto pixelWidth {0.5F / this->width_};
     const auto pixelHeight {0.5F / this->height_};
-    const auto samples {this->samplesPixel_};
-    ::glm::vec3 pixelRgb {};
-    LOG("renderScene");
-
-    for (::std::int32_t sample {}; sample < samples; ++sample) {
-        while (true) {
-            const auto tile {getTile(sample)};
-            if (tile >= 1.0F) {
-                break;
+    const auto adaptive {this->targetError_ > 0.0F};
+    ::std::vector<Ray> rays {};
+    rays.reserve(PacketSize);
+    ::std::array<::glm::vec3, PacketSize> pixelsRgb {};
+    ::std::array<Aov, PacketSize> aovs {};
+    ::std::array<SampleKey, PacketSize> keys {};
+    auto *const denoiser {this->denoiser_.get()};
+
+    for (auto y {tile.start_[1]}; y < tile.end_[1]; ++y) {
+        const auto v {y * invImgHeight};
+        const auto yWidth {y * this->width_};
+        for (auto startX {tile.start_[0]}; startX < tile.end_[0]; startX += PacketSize) {
+            const auto endX {::std::min(startX + PacketSize, tile.end_[0])};
+            rays.clear();
+            for (auto x {startX}; x < endX; ++x) {
+                const auto u {x * invImgWidth};
+                const auto pixelIndex {static_cast<::std::uint32_t> (yWidth + x)};
+                auto &key {keys[static_cast<::std::uint32_t> (x - startX)]};
+                key.pixel_ = pixelIndex;
+                key.sample_ = static_cast<::std::uint32_t> (this->sampleCounts_[pixelIndex]);
+                key.dimension_ = 0;
+                Sampler::setKey(key);
+                const auto r1 {this->samplerPixel_->getSample()};
+                const auto r2 {this->samplerPixel_->getSample()};
+                const auto deviationU {(r1 - 0.5F) * 2.0F * pixelWidth};
+                const auto deviationV {(r2 - 0.5F) * 2.0F * pixelHeight};
+                rays.emplace_back(this->camera_->generateRay(u, v, deviationU, deviationV));
+                key = Sampler::getKey();
             }
-            const auto roundBlock {static_cast<::std::int32_t> (::std::roundf(tile * this->domainSize_))};
-            const auto pixel {roundBlock * this->blockSizeX_ % this->resolution_};
-            const auto startY {((pixel / this->width_) * this->blockSizeY_) % this->height_};
-            const auto endY {startY + this->blockSizeY_};
-            for (auto y {startY}; y < endY; ++y) {
-                const auto v {y * invImgHeight};
-                const auto yWidth {y * this->width_};
-                const auto startX {(pixel + yWidth) % this->width_};
-                const auto endX {startX + this->blockSizeX_};
-                for (auto x {startX}; x < endX; ++x) {
-                    const auto u {x * invImgWidth};
-                    const auto r1 {this->samplerPixel_->getSample()};
-                    const auto r2 {this->samplerPixel_->getSample()};
-                    const auto deviationU {(r1 - 0.5F) * 2.0F * pixelWidth};
-                    const auto deviationV {(r2 - 0.5F) * 2.0F * pixelHeight};
-                    const auto &ray {this->camera_->generateRay(u, v, deviationU, deviationV)};
-                    pixelRgb = {};
-                    this->shader_->rayTrace(&pixelRgb, ray);
-                    const auto pixelIndex {yWidth + x};
-                    ::std::int32_t *bitmapPixel {&bitmap[pixelIndex]};
-                    const auto pixelColor {::MobileRT::incrementalAvg(pixelRgb, *bitmapPixel, sample + 1)};
-                    *bitmapPixel = pixelColor;
+            pixelsRgb.fill(::glm::vec3 {});
+            this->shader_->rayTrace(pixelsRgb.data(), RayPacket {rays}, keys.data(),
+                                    denoiser != nullptr ? aovs.data() : nullptr);
+            for (auto x {startX}; x < endX; ++x) {
+                const auto &pixelRgb {pixelsRgb[static_cast<::std::uint32_t> (x - startX)]};
+                const auto pixelIndex {static_cast<::std::uint32_t> (yWidth + x)};
+                this->accumulation_[pixelIndex] += pixelRgb;
+                ++this->sampleCounts_[pixelIndex];
+                if (adaptive) {
+                    const auto luminance {::glm::dot(pixelRgb, LuminanceWeights)};
+                    this->luminanceSquared_[pixelIndex] += luminance * luminance;
+                }
+                if (denoiser != nullptr) {
+                    denoiser->addSample(pixelIndex, aovs[static_cast<::std::uint32_t> (x - startX)]);
                 }
             }
         }
-        if (tid == 0) {
-            this->sample_ = sample + 1;
-            LOG("Sample = ", this->sample_);
-        }
     }
 }
 
+/**
+ * Helper method which checks whether there is nothing left to render, because the rendering process was stopped
+ * or, with adaptive sampling, because all the tiles converged or all the samples per pixel were rendered and no
+ * sample saved by the converged tiles is left.
+ *
+ * @return Whether the rendering process finished.
+ */
+bool Renderer::isFinished() const {
+    if (!this->running_) {
+        return true;
+    }
+    if (this->targetError_ <= 0.0F) {
+        return false;
+    }
+    const auto numTiles {this->scheduler_.getNumTiles()};
+    if (this->tilesConverged_ >= numTiles) {
+        return true;
+    }
+    return this->sample_ >= this->samplesPixel_ && this->savedSamples_.load(::std::memory_order_relaxed) <= 0;
+}
+
+/**
+ * Helper method which checks whether a tile should not get more samples, because it converged.
+ *
+ * @param tile The index of the tile.
+ * @return Whether the tile is retired.
+ */
+bool Renderer::isRetired(const ::std::int32_t tile) const {
+    if (this->targetError_ <= 0.0F) {
+        return false;
+    }
+    return this->convergedTiles_[static_cast<::std::uint32_t> (tile)] != 0;
+}
+
+/**
+ * Helper method which gets the maximum number of samples per pixel of a tile, which with adaptive sampling is more
+ * than the samples per pixel, so the tiles that don't converge can take the samples saved in the others.
+ *
+ * @return The maximum number of samples per pixel.
+ */
+::std::int32_t Renderer::getMaxSamples() const {
+    const auto adaptive {this->targetError_ > 0.0F};
+    return adaptive ? this->samplesPixel_ * AdaptiveMaxSamplesFactor : this->samplesPixel_;
+}
+
 /**
  * Gets the number of samples per pixel already rendered.
  *
@@ -141,19 +678,250 @@ void Renderer::renderScene(::std::int32_t *const bitmap, const ::std::int32_t ti
 }
 
 /**
- * Helper method which calculates a random value between 0 and 1.
+ * Gets the number of tiles already rendered, for all the samples per pixel.
+ *
+ * @return The number of tiles already rendered.
+ */
+::std::int32_t Renderer::getTilesDone() const {
+    return this->tilesDone_.load(::std::memory_order_relaxed);
+}
+
+/**
+ * Gets the number of rays (including shadow rays) traced in the tiles already rendered.
+ *
+ * @return The number of rays traced.
+ */
+::std::uint64_t Renderer::getRaysTraced() const {
+    return this->raysTraced_.load(::std::memory_order_relaxed);
+}
+
+/**
+ * Gets the number of tiles whose error already fell below the target error.
+ *
+ * @return The number of tiles that converged.
+ */
+::std::int32_t Renderer::getTilesConverged() const {
+    return this->tilesConverged_.load(::std::memory_order_relaxed);
+}
+
+/**
+ * Sets a function which is called by the rendering threads every time a tile is rendered.
+ * <br>
+ * It is called concurrently by all the rendering threads, so it should be thread safe and fast.
+ *
+ * @param progressListener The function to call.
+ */
+void Renderer::setProgressListener(::std::function<void()> progressListener) {
+    this->progressListener_ = ::std::move(progressListener);
+}
+
+/**
+ * Gets and clears the tiles that changed since the last call.
+ * <br>
+ * These are the tiles in which the image is split to be shown, which don't depend on the size of the tiles
+ * rendered. They are indexed in row-major order, with sqrt(NumberOfTiles) tiles per row, and each bit of the mask
+ * represents one tile.
+ *
+ * @param dirtyTiles The pointer to an array where the mask of the changed tiles should be put.
+ * @return The number of tiles that changed.
+ */
+::std::int32_t Renderer::takeDirtyTiles(::std::array<::std::uint32_t, NumberOfTiles / 32> *const dirtyTiles) {
+    ::std::int32_t numDirtyTiles {};
+    for (::std::uint32_t i {}; i < dirtyTiles->size(); ++i) {
+        const auto mask {this->dirtyTiles_[i].exchange(0, ::std::memory_order_acq_rel)};
+        (*dirtyTiles)[i] = mask;
+        numDirtyTiles += static_cast<::std::int32_t> (::std::bitset<32> {mask}.count());
+    }
+    return numDirtyTiles;
+}
+
+/**
+ * Helper method which marks as changed all the tiles shown which overlap a rendered tile.
+ * <br>
+ * It should only be called after the tile was finished, so the thread which takes the mask sees all its pixels.
+ *
+ * @param tile The rendered tile.
+ */
+void Renderer::markTileDirty(const Tile &tile) {
+    forEachDisplayTile(tile, [this](const ::std::uint32_t index) {
+        this->dirtyTiles_[index / 32].fetch_or(1U << (index % 32), ::std::memory_order_release);
+    });
+}
+
+/**
+ * Helper method which marks all the tiles shown which overlap a tile as being rendered, so they aren't resolved
+ * meanwhile.
+ * <br>
+ * The state of a tile shown is the number of threads rendering it, or -1 while it is being resolved. Several
+ * threads can render the same tile shown, but they wait while it is being resolved.
+ *
+ * @param tile The tile to render.
+ */
+void Renderer::startRenderingTile(const Tile &tile) {
+    forEachDisplayTile(tile, [this](const ::std::uint32_t index) {
+        auto &state {this->tileStates_[index]};
+        auto renderers {state.load(::std::memory_order_relaxed)};
+        do {
+            while (renderers < 0) {
+                ::std::this_thread::yield();
+                renderers = state.load(::std::memory_order_relaxed);
+            }
+        } while (!state.compare_exchange_weak(
+            renderers, renderers + 1, ::std::memory_order_acquire, ::std::memory_order_relaxed
+        ));
+    });
+}
+
+/**
+ * Helper method which marks that a thread finished rendering a tile.
+ * <br>
+ * The release publishes the pixels written to the thread which resolves the tiles shown next.
+ *
+ * @param tile The rendered tile.
+ */
+void Renderer::finishRenderingTile(const Tile &tile) {
+    forEachDisplayTile(tile, [this](const ::std::uint32_t index) {
+        this->tileStates_[index].fetch_sub(1, ::std::memory_order_release);
+    });
+}
+
+/**
+ * Helper method which calls a function with the index of every tile shown which overlaps a rendered tile.
+ *
+ * @param tile     The rendered tile.
+ * @param function The function to call.
+ */
+void Renderer::forEachDisplayTile(const Tile &tile, const ::std::function<void(::std::uint32_t)> &function) const {
+    const auto tilesPerRow {static_cast<::std::int32_t> (::std::sqrt(NumberOfTiles))};
+    const auto tileWidth {::std::max(this->width_ / tilesPerRow, 1)};
+    const auto tileHeight {::std::max(this->height_ / tilesPerRow, 1)};
+    const auto endX {::std::min((tile.end_[0] - 1) / tileWidth, tilesPerRow - 1)};
+    const auto endY {::std::min((tile.end_[1] - 1) / tileHeight, tilesPerRow - 1)};
+    for (auto y {tile.start_[1] / tileHeight}; y <= endY; ++y) {
+        for (auto x {tile.start_[0] / tileWidth}; x <= endX; ++x) {
+            function(static_cast<::std::uint32_t> (y * tilesPerRow + x));
+        }
+    }
+}
+
+/**
+ * Helper method which marks all the tiles shown as changed.
+ */
+void Renderer::markAllTilesDirty() {
+    for (auto &mask : this->dirtyTiles_) {
+        mask.store(~0U, ::std::memory_order_release);
+    }
+}
+
+/**
+ * Helper method which resolves the accumulated samples of a tile into a bitmap.
+ * <br>
+ * The colors are clamped to [0, 1] like the samples were before they were accumulated in float. Once the frame is
+ * denoised, the denoised colors are used instead.
+ *
+ * @param bitmap The bitmap where the tile should be put.
+ * @param tile   The tile.
+ */
+void Renderer::resolveTile(::std::int32_t *const bitmap, const Tile &tile) const {
+    for (auto y {tile.start_[1]}; y < tile.end_[1]; ++y) {
+        for (auto x {tile.start_[0]}; x < tile.end_[0]; ++x) {
+            const auto pixelIndex {static_cast<::std::uint32_t> (y * this->width_ + x)};
+            const auto numSamples {this->sampleCounts_[pixelIndex]};
+            if (numSamples == 0) {
+                continue;
+            }
+            const auto average {
+                this->denoised_ ? this->denoiser_->getColor(pixelIndex)
+                                : this->accumulation_[pixelIndex] / static_cast<float> (numSamples)
+            };
+            const auto color {::glm::clamp(average, 0.0F, 1.0F)};
+            const auto red {static_cast<::std::uint32_t> (color[0] * 255U)};
+            const auto green {static_cast<::std::uint32_t> (color[1] * 255U)};
+            const auto blue {static_cast<::std::uint32_t> (color[2] * 255U)};
+            bitmap[pixelIndex] = static_cast<::std::int32_t> (0xFF000000U | blue << 16U | green << 8U | red);
+        }
+    }
+}
+
+/**
+ * Helper method which gets the pixels of one of the tiles in which the image is split to be shown.
+ * <br>
+ * The tiles are indexed in row-major order, with sqrt(NumberOfTiles) tiles per row.
+ *
+ * @param tile The index of the tile.
+ * @return The tile.
+ */
+Tile Renderer::getDisplayTile(const ::std::int32_t tile) const {
+    const auto tilesPerRow {static_cast<::std::int32_t> (::std::sqrt(NumberOfTiles))};
+    const auto tileSize {::glm::ivec2 {this->width_ / tilesPerRow, this->height_ / tilesPerRow}};
+    Tile displayTile {};
+    displayTile.start_ = ::glm::ivec2 {tile % tilesPerRow, tile / tilesPerRow} * tileSize;
+    displayTile.end_ = displayTile.start_ + tileSize;
+    return displayTile;
+}
+
+/**
+ * Helper method which estimates the relative error of the luminance of a tile.
  * <br>
- * This method never repeats the calculated value for the same given sample.
+ * It is the sum of the standard errors of the mean luminance of every pixel divided by the sum of their mean
+ * luminances, so dark tiles don't need an impossibly low absolute error.
  *
+ * @param tile The tile.
+ * @return The relative error of the tile.
+ */
+float Renderer::getTileError(const Tile &tile) const {
+    auto sumErrors {0.0F};
+    auto sumMeans {0.0F};
+    for (auto y {tile.start_[1]}; y < tile.end_[1]; ++y) {
+        for (auto x {tile.start_[0]}; x < tile.end_[0]; ++x) {
+            const auto pixelIndex {static_cast<::std::uint32_t> (y * this->width_ + x)};
+            const auto numSamples {static_cast<float> (this->sampleCounts_[pixelIndex])};
+            const auto mean {::glm::dot(this->accumulation_[pixelIndex], LuminanceWeights) / numSamples};
+            const auto variance {::std::max(this->luminanceSquared_[pixelIndex] / numSamples - mean * mean, 0.0F)};
+            sumErrors += ::std::sqrt(variance / numSamples);
+            sumMeans += mean;
+        }
+    }
+    const auto numPixels {static_cast<float> ((tile.end_[0] - tile.start_[0]) * (tile.end_[1] - tile.start_[1]))};
+    return sumErrors / ::std::max(sumMeans, numPixels / 255.0F);
+}
+
+/**
+ * Helper method which checks if a tile just rendered converged and retires it if so.
+ * <br>
+ * The samples per pixel that a converged tile didn't render are saved for the tiles which didn't converge.
+ *
+ * @param tile   The index of the tile.
  * @param sample The current sample of samples per pixel.
- * @return A random value between 0 and 1.
+ * @return Whether the tile converged.
  */
-float Renderer::getTile(const ::std::int32_t sample) {
-    const auto current {this->block_.fetch_add(1, ::std::memory_order_relaxed) - NumberOfTiles * sample};
-    if (current >= NumberOfTiles) {
-        this->block_.fetch_sub(1, ::std::memory_order_relaxed);
-        return 1.0F;
+bool Renderer::hasConverged(const ::std::int32_t tile, const ::std::int32_t sample) {
+    if (sample + 1 < AdaptiveMinSamples || getTileError(this->scheduler_.getTile(tile)) > this->targetError_) {
+        return false;
+    }
+    this->convergedTiles_[static_cast<::std::uint32_t> (tile)] = 1;
+    this->tilesConverged_.fetch_add(1, ::std::memory_order_relaxed);
+    const auto saved {this->samplesPixel_ - (sample + 1)};
+    if (saved > 0) {
+        this->savedSamples_.fetch_add(saved, ::std::memory_order_relaxed);
+    }
+    return true;
+}
+
+/**
+ * Helper method which takes one of the samples saved by the tiles which converged, so a tile which didn't converge
+ * can render one more sample past the number of samples per pixel.
+ * <br>
+ * This way, the tiles never render more than the number of samples per pixel times the number of tiles in total.
+ *
+ * @return Whether a sample was taken.
+ */
+bool Renderer::takeSavedSample() {
+    auto saved {this->savedSamples_.load(::std::memory_order_relaxed)};
+    while (saved > 0) {
+        if (this->savedSamples_.compare_exchange_weak(saved, saved - 1, ::std::memory_order_relaxed)) {
+            return true;
+        }
     }
-    const auto it {values.begin() + current};
-    return *it;
+    return false;
 }
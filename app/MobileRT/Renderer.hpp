@@ -2,11 +2,18 @@
 #define MOBILERT_RENDERER_HPP
 
 #include "MobileRT/Camera.hpp"
+#include "MobileRT/Denoiser.hpp"
 #include "MobileRT/Sampler.hpp"
 #include "MobileRT/Shader.hpp"
+#include "MobileRT/TileScheduler.hpp"
 #include "MobileRT/Utils.hpp"
+#include <array>
+#include <chrono>
 #include <cmath>
+#include <functional>
+#include <mutex>
 #include <thread>
+#include <vector>
 
 namespace MobileRT {
     /**
@@ -20,19 +27,66 @@ namespace MobileRT {
 
     private:
         ::std::unique_ptr<Sampler> samplerPixel_ {};
-        ::std::int32_t blockSizeX_ {};
-        ::std::int32_t blockSizeY_ {};
         ::std::int32_t sample_ {};
         const ::std::int32_t width_ {};
         const ::std::int32_t height_ {};
-        const ::std::int32_t domainSize_ {};
-        const ::std::int32_t resolution_ {};
         const ::std::int32_t samplesPixel_ {};
-        ::std::atomic<::std::int32_t> block_ {};
+        const float targetError_ {};
+        bool progressive_ {true};
+        bool preview_ {};
+        TileScheduler scheduler_;
+        ::std::atomic<bool> running_ {};
+        ::std::atomic<::std::int32_t> tilesDone_ {};
+        ::std::vector<::glm::vec3> accumulation_ {};
+        ::std::vector<::std::int32_t> sampleCounts_ {};
+        ::std::vector<float> luminanceSquared_ {};
+        ::std::vector<::std::uint8_t> convergedTiles_ {};
+        ::std::vector<::std::int32_t> nextSamples_ {};
+        ::std::atomic<::std::int32_t> tilesConverged_ {};
+        ::std::atomic<::std::int32_t> savedSamples_ {};
+        ::std::array<::std::atomic<::std::uint32_t>, NumberOfTiles / 32> dirtyTiles_ {};
+        mutable ::std::array<::std::atomic<::std::int32_t>, NumberOfTiles> tileStates_ {};
+        ::std::atomic<::std::uint64_t> raysTraced_ {};
+        ::std::function<void()> progressListener_ {};
+        ::std::atomic<bool> stopped_ {};
+        ::std::atomic<bool> restart_ {};
+        mutable ::std::mutex cameraMutex_ {};
+        CameraView nextView_ {};
+        bool viewChanged_ {};
+        bool frameStarted_ {};
+        bool frameDone_ {};
+        ::std::int32_t pass_ {};
+        bool passStarted_ {};
+        ::std::atomic<bool> passInterrupted_ {};
+        ::std::chrono::steady_clock::time_point deadline_ {};
+        ::std::unique_ptr<Denoiser> denoiser_ {};
+        ::std::atomic<bool> denoised_ {};
 
     private:
-        void renderScene(::std::int32_t *bitmap, ::std::int32_t tid);
-        float getTile(::std::int32_t sample);
+        void resetFrame();
+        void applyCameraView();
+        void renderTiles(::std::int32_t *bitmap, ::std::int32_t tid, ::std::int32_t firstSample,
+                         ::std::int32_t numSamples);
+        void renderTile(const Tile &tile);
+        bool renderPasses(::std::int32_t *bitmap, ::std::int32_t numThreads);
+        void finishPass();
+        void finishFrame(::std::int32_t *bitmap, ::std::int32_t numThreads);
+        void renderPreviewTiles(::std::int32_t *bitmap, ::std::int32_t tid, ::std::int32_t scale);
+        bool isPastDeadline() const;
+        void renderPreviewTile(const Tile &tile, ::std::int32_t scale);
+        bool isFinished() const;
+        bool isRetired(::std::int32_t tile) const;
+        ::std::int32_t getMaxSamples() const;
+        void resolveTile(::std::int32_t *bitmap, const Tile &tile) const;
+        Tile getDisplayTile(::std::int32_t tile) const;
+        float getTileError(const Tile &tile) const;
+        bool hasConverged(::std::int32_t tile, ::std::int32_t sample);
+        bool takeSavedSample();
+        void markTileDirty(const Tile &tile);
+        void markAllTilesDirty();
+        void startRenderingTile(const Tile &tile);
+        void finishRenderingTile(const Tile &tile);
+        void forEachDisplayTile(const Tile &tile, const ::std::function<void(::std::uint32_t)> &function) const;
 
     public:
         explicit Renderer () = delete;
@@ -41,7 +95,7 @@ namespace MobileRT {
                           ::std::unique_ptr<Camera> camera,
                           ::std::unique_ptr<Sampler> samplerPixel,
                           ::std::int32_t width, ::std::int32_t height,
-                          ::std::int32_t samplesPixel);
+                          ::std::int32_t samplesPixel, float targetError);
 
         Renderer(const Renderer &renderer) = delete;
 
@@ -55,9 +109,37 @@ namespace MobileRT {
 
         void renderFrame(::std::int32_t *bitmap, ::std::int32_t numThreads);
 
+        bool renderFrame(::std::int32_t *bitmap, ::std::int32_t numThreads, ::std::chrono::milliseconds budget);
+
+        void resolve(::std::int32_t *bitmap, const ::std::array<::std::uint32_t, NumberOfTiles / 32> &tiles) const;
+
         void stopRender();
 
+        void setTileSize(::std::int32_t tileSize);
+
+        void setProgressive(bool progressive);
+
+        void setPreview(bool preview);
+
+        void setDenoise(bool denoise);
+
+        CameraView getCameraView() const;
+
+        void setCameraView(const CameraView &view);
+
+        bool isRestartPending() const;
+
         ::std::int32_t getSample() const;
+
+        ::std::int32_t getTilesDone() const;
+
+        ::std::uint64_t getRaysTraced() const;
+
+        ::std::int32_t getTilesConverged() const;
+
+        void setProgressListener(::std::function<void()> progressListener);
+
+        ::std::int32_t takeDirtyTiles(::std::array<::std::uint32_t, NumberOfTiles / 32> *dirtyTiles);
     };
 }//namespace MobileRT
 
@@ -1,18 +1,21 @@
 #include "MobileRT/Sampler.hpp"
 
 using ::MobileRT::Sampler;
+using ::MobileRT::SampleKey;
+
+namespace {
+    /**
+     * The key of the path being traced by the current thread.
+     */
+    thread_local SampleKey currentKey {};
+}//namespace
 
 /**
  * The constructor.
  *
- * @param width   The width of the rendered image.
- * @param height  The height of the rendered image.
  * @param samples The number of samples per pixel.
  */
-Sampler::Sampler(const ::std::uint32_t width, const ::std::uint32_t height,
-                 const ::std::uint32_t samples) :
-    domainSize_ {(width / (width / static_cast<::std::uint32_t>(::std::sqrt(NumberOfTiles)))) *
-                (height / (width / static_cast<::std::uint32_t>(::std::sqrt(NumberOfTiles))))},
+Sampler::Sampler(const ::std::uint32_t samples) :
     samples_ {samples} {
 }
 
@@ -24,24 +27,74 @@ Sampler::~Sampler() {
 }
 
 /**
- * Resets the sampling counter.
+ * Calculates the next random number of the path being traced by the current thread.
+ *
+ * @return A random value between 0 and 1.
  */
-void Sampler::resetSampling() {
-    this->sample_ = 0;
+float Sampler::getSample() {
+    return getSample(nextKey());
 }
 
 /**
- * Stops the sampling process.
+ * Sets the key of the path which the current thread starts tracing.
+ * <br>
+ * It must be called before the random numbers of a path are taken, with the dimension at 0 for a new path or
+ * with the key returned by {@link Sampler#getKey} to resume a path.
+ *
+ * @param key The key of the path.
  */
-void Sampler::stopSampling() {
-    this->samples_ = 0;
+void Sampler::setKey(const SampleKey &key) {
+    currentKey = key;
 }
 
 /**
- * Calculates a new sample.
+ * Gets the key of the next random number of the path being traced by the current thread.
  *
+ * @return The key of the next random number.
+ */
+SampleKey Sampler::getKey() {
+    return currentKey;
+}
+
+/**
+ * Gets the key of the next random number of the path being traced by the current thread and moves to the next
+ * dimension, so every random number of a path is different.
+ *
+ * @return The key of the random number.
+ */
+SampleKey Sampler::nextKey() {
+    const auto key {currentKey};
+    ++currentKey.dimension_;
+    return key;
+}
+
+/**
+ * Hashes a key into 32 random bits.
+ * <br>
+ * The fields are mixed one by one and the result goes through the finalizer of MurmurHash3, so keys which only
+ * differ in one bit give unrelated hashes.
+ *
+ * @param key The key.
+ * @return The hash of the key.
+ */
+::std::uint32_t Sampler::hash(const SampleKey &key) {
+    auto res {key.pixel_ * 0x9E3779B1U};
+    res ^= key.sample_ + 0x7F4A7C15U + (res << 6U) + (res >> 2U);
+    res ^= key.dimension_ * 0x85EBCA6BU + 0x165667B1U + (res << 6U) + (res >> 2U);
+    res ^= res >> 16U;
+    res *= 0x85EBCA6BU;
+    res ^= res >> 13U;
+    res *= 0xC2B2AE35U;
+    res ^= res >> 16U;
+    return res;
+}
+
+/**
+ * Converts 32 random bits into a float between 0 (inclusive) and 1 (exclusive).
+ *
+ * @param hash The random bits.
  * @return A random value between 0 and 1.
  */
-float Sampler::getSample() {
-    return getSample(0);
+float Sampler::toFloat(const ::std::uint32_t hash) {
+    return static_cast<float> (hash >> 8U) / 16777216.0F;
 }
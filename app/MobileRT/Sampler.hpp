@@ -2,24 +2,34 @@
 #define MOBILERT_SAMPLER_HPP
 
 #include "MobileRT/Utils.hpp"
-#include <atomic>
 #include <limits>
 
 namespace MobileRT {
+    /**
+     * The key of a random number: the pixel and the sample of the path being traced and the dimension, which is the
+     * number of random numbers already taken by the path.
+     */
+    struct SampleKey {
+        ::std::uint32_t pixel_ {};
+        ::std::uint32_t sample_ {};
+        ::std::uint32_t dimension_ {};
+    };
+
     /**
      * A class which abstracts a random number generator.
+     * <br>
+     * The random numbers are a function of their key, so they don't depend on which thread traces the path nor on
+     * the order of the paths. Each thread keeps the key of the path it is tracing, which is set by the
+     * {@link Sampler#setKey} method.
      */
     class Sampler {
     public:
-        ::std::atomic<::std::uint32_t> sample_ {};
-        const ::std::uint32_t domainSize_ {::std::numeric_limits<::std::uint32_t>::max()};
-        ::std::uint32_t samples_ {::std::numeric_limits<::std::uint32_t>::max()};
+        const ::std::uint32_t samples_ {::std::numeric_limits<::std::uint32_t>::max()};
 
     public:
         explicit Sampler() = default;
 
-        explicit Sampler(::std::uint32_t width, ::std::uint32_t height,
-                         ::std::uint32_t samples);
+        explicit Sampler(::std::uint32_t samples);
 
         Sampler(const Sampler &sampler) = delete;
 
@@ -31,19 +41,25 @@ namespace MobileRT {
 
         Sampler &operator=(Sampler &&sampler) noexcept = delete;
 
-        void resetSampling();
-
-        void stopSampling();
-
         /**
-         * Calculates a new sample.
+         * Calculates the random number of a key.
          *
-         * @param sample The index of the desired sample.
+         * @param key The key of the random number.
          * @return A random value between 0 and 1.
          */
-        virtual float getSample(::std::uint32_t sample) = 0;
+        virtual float getSample(const SampleKey &key) = 0;
 
         float getSample();
+
+        static void setKey(const SampleKey &key);
+
+        static SampleKey getKey();
+
+        static SampleKey nextKey();
+
+        static ::std::uint32_t hash(const SampleKey &key);
+
+        static float toFloat(::std::uint32_t hash);
     };
 }//namespace MobileRT
 
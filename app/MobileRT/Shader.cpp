@@ -6,13 +6,21 @@
 #include <random>
 #include <utility>
 
+using ::MobileRT::Aov;
 using ::MobileRT::BVH;
+using ::MobileRT::BVH4;
 using ::MobileRT::RegularGrid;
 using ::MobileRT::Naive;
 using ::MobileRT::Intersection;
 using ::MobileRT::Ray;
+using ::MobileRT::RayPacket;
+using ::MobileRT::PacketSize;
+using ::MobileRT::RayLengthMax;
+using ::MobileRT::Sampler;
+using ::MobileRT::SampleKey;
 using ::MobileRT::Shader;
 using ::MobileRT::Plane;
+using ::MobileRT::Primitive;
 using ::MobileRT::Sphere;
 using ::MobileRT::Triangle;
 using ::MobileRT::Light;
@@ -22,6 +30,7 @@ namespace {
     const ::std::uint32_t mask {0xFFFFF};
     const ::std::uint32_t size {mask + 1};
     ::std::array<float, size> values {};
+    thread_local ::std::uint64_t raysTraced {};
 }//namespace
 
 /**
@@ -30,21 +39,26 @@ namespace {
  * @param scene        The scene.
  * @param samplesLight The number of samples per light.
  * @param accelerator  The acceleration structure to use.
+ * @param isCancelled  A predicate which tells whether the loading of the scene was cancelled, so the construction of
+ *                     the acceleration structure stops early.
  */
-Shader::Shader(Scene scene, const ::std::int32_t samplesLight, const Accelerator accelerator) :
+Shader::Shader(Scene scene, const ::std::int32_t samplesLight, const Accelerator accelerator,
+               const ::std::function<bool()> &isCancelled) :
     materials_ {::std::move(scene.materials_)},
     accelerator_ {accelerator},
     samplesLight_ {samplesLight} {
     fillArray(&values);
-    initializeAccelerators(::std::move(scene));
+    initializeAccelerators(::std::move(scene), isCancelled);
 }
 
 /**
  * Puts all the primitives of the scene into an acceleration structure.
  *
- * @param scene The scene geometry.
+ * @param scene       The scene geometry.
+ * @param isCancelled A predicate which tells whether the construction of the BVHs was cancelled, so they are left
+ *                    empty.
  */
-void Shader::initializeAccelerators(Scene scene) {
+void Shader::initializeAccelerators(Scene scene, const ::std::function<bool()> &isCancelled) {
     LOG("initializeAccelerators");
     switch (this->accelerator_) {
         case Accelerator::ACC_NONE: {
@@ -67,9 +81,16 @@ void Shader::initializeAccelerators(Scene scene) {
         }
 
         case Accelerator::ACC_BVH: {
-            this->bvhPlanes_ = BVH<Plane> {::std::move(scene.planes_)};
-            this->bvhSpheres_ = BVH<Sphere> {::std::move(scene.spheres_)};
-            this->bvhTriangles_ = BVH<Triangle> {::std::move(scene.triangles_)};
+            this->naivePlanes_ = Naive<Plane> {::std::move(scene.planes_)};
+            this->bvh_ = BVH<Primitive> {takeBoundedPrimitives(&scene), isCancelled};
+            sortBoundedPrimitives(&this->bvh_.getPrimitives());
+            break;
+        }
+
+        case Accelerator::ACC_BVH4: {
+            this->naivePlanes_ = Naive<Plane> {::std::move(scene.planes_)};
+            this->bvh4_ = BVH4<Primitive> {takeBoundedPrimitives(&scene), isCancelled};
+            sortBoundedPrimitives(&this->bvh4_.getPrimitives());
             break;
         }
     }
@@ -78,16 +99,74 @@ void Shader::initializeAccelerators(Scene scene) {
     LOG("lights = ", this->lights_.size());
 }
 
+/**
+ * Helper method which takes the spheres and the triangles of the scene and creates a reference to each one, so all of
+ * them can be put into the same BVH.
+ *
+ * @param scene The scene geometry.
+ * @return The references to the spheres and the triangles.
+ */
+::std::vector<Primitive> Shader::takeBoundedPrimitives(Scene *const scene) {
+    this->spheres_ = ::std::move(scene->spheres_);
+    this->triangles_ = ::std::move(scene->triangles_);
+    ::std::vector<Primitive> primitives {};
+    primitives.reserve(this->spheres_.size() + this->triangles_.size());
+    for (const auto &sphere : this->spheres_) {
+        primitives.emplace_back(sphere);
+    }
+    for (const auto &triangle : this->triangles_) {
+        primitives.emplace_back(triangle);
+    }
+    return primitives;
+}
+
+/**
+ * Helper method which sorts the spheres and the triangles in the order of the leaves of the BVH that references them
+ * and points the references to their new place.
+ * <br>
+ * The primitives of a leaf, and of neighbouring leaves, are then next to each other in memory, like they were when
+ * the BVH kept a copy of them, so the traversal doesn't jump around the vectors of each type.
+ *
+ * @param primitives The references to the spheres and the triangles, in the order of the leaves.
+ */
+void Shader::sortBoundedPrimitives(::std::vector<Primitive> *const primitives) {
+    ::std::vector<Sphere> spheres {};
+    ::std::vector<Triangle> triangles {};
+    spheres.reserve(this->spheres_.size());
+    triangles.reserve(this->triangles_.size());
+    for (const auto &primitive : *primitives) {
+        const auto *const sphere {primitive.getSphere()};
+        if (sphere != nullptr) {
+            spheres.emplace_back(*sphere);
+        } else {
+            triangles.emplace_back(*primitive.getTriangle());
+        }
+    }
+    this->spheres_ = ::std::move(spheres);
+    this->triangles_ = ::std::move(triangles);
+
+    ::std::uint32_t sphereIndex {};
+    ::std::uint32_t triangleIndex {};
+    for (auto &primitive : *primitives) {
+        if (primitive.getSphere() != nullptr) {
+            primitive = Primitive {this->spheres_[sphereIndex++]};
+        } else {
+            primitive = Primitive {this->triangles_[triangleIndex++]};
+        }
+    }
+}
+
 /**
  * Determines if a casted ray intersects a light source in the scene or not.
  *
  * @param rgb A pointer where the color value of the pixel should be put.
  * @param ray The casted ray into the scene.
+ * @param aov A pointer where the AOVs of the first intersection should be put or nullptr.
  * @return Whether the casted ray intersects a light source in the scene or not.
  */
-bool Shader::rayTrace(::glm::vec3 *rgb, const Ray &ray) {
+bool Shader::rayTrace(::glm::vec3 *rgb, const Ray &ray, Aov *const aov) {
+    ++raysTraced;
     Intersection intersection {};
-    const auto lastDist {intersection.length_};
     switch (this->accelerator_) {
         case Accelerator::ACC_NONE: {
             break;
@@ -108,13 +187,76 @@ bool Shader::rayTrace(::glm::vec3 *rgb, const Ray &ray) {
         }
 
         case Accelerator::ACC_BVH: {
-            intersection = this->bvhPlanes_.trace(intersection, ray);
-            intersection = this->bvhSpheres_.trace(intersection, ray);
-            intersection = this->bvhTriangles_.trace(intersection, ray);
+            intersection = this->naivePlanes_.trace(intersection, ray);
+            intersection = this->bvh_.trace(intersection, ray);
+            break;
+        }
+
+        case Accelerator::ACC_BVH4: {
+            intersection = this->naivePlanes_.trace(intersection, ray);
+            intersection = this->bvh4_.trace(intersection, ray);
             break;
         }
     }
+    return shadeIntersection(rgb, ::std::move(intersection), ray, aov);
+}
+
+/**
+ * Casts a packet of rays into the scene and calculates the color of each one.
+ * <br>
+ * With the BVH, coherent packets are traced together through the acceleration structures, which is much faster
+ * than tracing each ray on its own. Otherwise, or if the rays in the packet go in different directions, each ray
+ * is traced on its own.
+ *
+ * <br>
+ * The random numbers of each ray are taken with its own key, so they don't depend on the other rays in the packet.
+ *
+ * @param rgb    A pointer to an array of PacketSize colors where the color of each ray should be put.
+ * @param packet The casted packet of rays.
+ * @param keys   A pointer to an array of PacketSize keys of the paths of the rays.
+ * @param aovs   A pointer to an array of PacketSize AOVs where the AOVs of each ray should be put or nullptr.
+ */
+void Shader::rayTrace(::glm::vec3 *const rgb, const RayPacket &packet, const SampleKey *const keys,
+                      Aov *const aovs) {
+    if (this->accelerator_ != Accelerator::ACC_BVH || !packet.isCoherent()) {
+        for (::std::int32_t lane {}; lane < packet.numRays_; ++lane) {
+            Sampler::setKey(keys[lane]);
+            rayTrace(rgb + lane, packet.getRay(lane), aovs != nullptr ? aovs + lane : nullptr);
+        }
+        return;
+    }
+    raysTraced += static_cast<::std::uint64_t> (packet.numRays_);
+    ::std::array<Intersection, PacketSize> intersections {};
+    this->naivePlanes_.trace(&intersections, packet);
+    this->bvh_.trace(&intersections, packet);
+    for (::std::int32_t lane {}; lane < packet.numRays_; ++lane) {
+        auto &intersection {intersections[static_cast<::std::uint32_t> (lane)]};
+        Sampler::setKey(keys[lane]);
+        shadeIntersection(rgb + lane, ::std::move(intersection), packet.getRay(lane),
+                          aovs != nullptr ? aovs + lane : nullptr);
+    }
+}
+
+/**
+ * Helper method which shades the intersection of a ray with the primitives in the scene.
+ * <br>
+ * It checks first if the ray intersects a light source before the primitive and sets the material of the
+ * intersection.
+ * <br>
+ * The AOVs are the albedo of the material, including the emission of the lights, the normal and the distance
+ * to the intersection, or zero if the ray didn't hit anything.
+ *
+ * @param rgb          A pointer where the color value of the pixel should be put.
+ * @param intersection The nearest intersection of the ray with the primitives in the scene, if any.
+ * @param ray          The casted ray.
+ * @param aov          A pointer where the AOVs of the intersection should be put or nullptr.
+ * @return Whether the casted ray intersects a light source in the scene or not.
+ */
+bool Shader::shadeIntersection(::glm::vec3 *const rgb, Intersection intersection, const Ray &ray,
+                               Aov *const aov) {
     intersection = traceLights(intersection, ray);
+    // The material is shared by all the threads, so the color of a texture goes into a copy of it for this hit.
+    Material texturedMaterial {};
     const auto matIndex {intersection.materialIndex_};
     if (matIndex >= 0) {
         auto &material {this->materials_[static_cast<::std::uint32_t> (matIndex)]};
@@ -122,10 +264,23 @@ bool Shader::rayTrace(::glm::vec3 *rgb, const Ray &ray) {
         const auto &texCoords {intersection.texCoords_};
         if (texCoords[0] >= 0 && texCoords[1] >= 0) {
             const auto &texture {material.texture_};
-            intersection.material_->Kd_ = texture.loadColor(texCoords);
+            const auto texel {texture.loadColor(texCoords)};
+            texturedMaterial = Material {
+                texel, material.Ks_, material.Kt_, material.refractiveIndice_, material.Le_
+            };
+            intersection.material_ = &texturedMaterial;
         }
     }
-    return intersection.length_ < lastDist && shade(rgb, intersection, ray);
+    const auto hit {intersection.length_ < RayLengthMax};
+    if (aov != nullptr && hit && intersection.material_ != nullptr) {
+        const auto &material {*intersection.material_};
+        aov->albedo_ = ::glm::clamp(material.Kd_ + material.Le_, 0.0F, 1.0F);
+        aov->normal_ = intersection.normal_;
+        aov->depth_ = intersection.length_;
+    } else if (aov != nullptr) {
+        *aov = Aov {};
+    }
+    return hit && shade(rgb, intersection, ray);
 }
 
 /**
@@ -136,6 +291,7 @@ bool Shader::rayTrace(::glm::vec3 *rgb, const Ray &ray) {
  * @return Whether the casted ray intersects a primitive in the scene or not.
  */
 bool Shader::shadowTrace(Intersection intersection, const Ray &ray) {
+    ++raysTraced;
     const auto lastDist {intersection.length_};
     switch (this->accelerator_) {
         case Accelerator::ACC_NONE: {
@@ -157,9 +313,14 @@ bool Shader::shadowTrace(Intersection intersection, const Ray &ray) {
         }
 
         case Accelerator::ACC_BVH: {
-            intersection = this->bvhPlanes_.shadowTrace(intersection, ray);
-            intersection = this->bvhSpheres_.shadowTrace(intersection, ray);
-            intersection = this->bvhTriangles_.shadowTrace(intersection, ray);
+            intersection = this->naivePlanes_.shadowTrace(intersection, ray);
+            intersection = this->bvh_.shadowTrace(intersection, ray);
+            break;
+        }
+
+        case Accelerator::ACC_BVH4: {
+            intersection = this->naivePlanes_.shadowTrace(intersection, ray);
+            intersection = this->bvh4_.shadowTrace(intersection, ray);
             break;
         }
     }
@@ -167,6 +328,43 @@ bool Shader::shadowTrace(Intersection intersection, const Ray &ray) {
     return res;
 }
 
+/**
+ * Determines which rays of a packet intersect a primitive in the scene between their origin and a light source.
+ * <br>
+ * With the BVH, coherent packets are traced together through the acceleration structures. Otherwise, each ray is
+ * traced on its own.
+ *
+ * @param intersections The intersections which contain the distance from the origin of each ray to the light.
+ * @param packet        The casted packet of rays.
+ * @return The mask of the lanes whose ray intersected a primitive.
+ */
+::std::uint32_t Shader::shadowTrace(::std::array<Intersection, PacketSize> *const intersections,
+                                    const RayPacket &packet) {
+    ::std::uint32_t occluded {};
+    if (this->accelerator_ != Accelerator::ACC_BVH || !packet.isCoherent()) {
+        for (::std::int32_t lane {}; lane < packet.numRays_; ++lane) {
+            const auto &intersection {(*intersections)[static_cast<::std::uint32_t> (lane)]};
+            if (shadowTrace(intersection, packet.getRay(lane))) {
+                occluded |= 1U << static_cast<::std::uint32_t> (lane);
+            }
+        }
+        return occluded;
+    }
+    raysTraced += static_cast<::std::uint64_t> (packet.numRays_);
+    ::std::array<float, PacketSize> lastDist {};
+    for (::std::uint32_t lane {}; lane < PacketSize; ++lane) {
+        lastDist[lane] = (*intersections)[lane].length_;
+    }
+    this->naivePlanes_.shadowTrace(intersections, packet);
+    this->bvh_.shadowTrace(intersections, packet);
+    for (::std::uint32_t lane {}; lane < PacketSize; ++lane) {
+        if ((*intersections)[lane].length_ < lastDist[lane]) {
+            occluded |= 1U << lane;
+        }
+    }
+    return occluded & packet.mask_;
+}
+
 /**
  * Helper method which calculates the nearest intersection point of a casted ray and the light sources.
  *
@@ -182,12 +380,16 @@ Intersection Shader::traceLights(Intersection intersection, const Ray &ray) cons
 }
 
 /**
- * Resets the sampling process of all the lights in the scene.
+ * Gets the number of rays traced by the current thread since the last call and resets it.
+ * <br>
+ * The counter is local to each thread, so counting the rays doesn't need any synchronization.
+ *
+ * @return The number of rays traced by the current thread.
  */
-void Shader::resetSampling() {
-    for (const auto &light : this->lights_) {
-        light->resetSampling();
-    }
+::std::uint64_t Shader::takeRaysTraced() {
+    const auto res {raysTraced};
+    raysTraced = 0;
+    return res;
 }
 
 /**
@@ -197,12 +399,8 @@ void Shader::resetSampling() {
  * @return A random direction in a hemisphere.
  */
 ::glm::vec3 Shader::getCosineSampleHemisphere(const ::glm::vec3 &normal) const {
-    static ::std::atomic<::std::uint32_t> sampler {};
-    const auto current1 {sampler.fetch_add(1, ::std::memory_order_relaxed)};
-    const auto current2 {sampler.fetch_add(1, ::std::memory_order_relaxed)};
-
-    const auto it1 {values.begin() + (current1 & mask)};
-    const auto it2 {values.begin() + (current2 & mask)};
+    const auto it1 {values.begin() + (Sampler::hash(Sampler::nextKey()) & mask)};
+    const auto it2 {values.begin() + (Sampler::hash(Sampler::nextKey()) & mask)};
 
     const auto uniformRandom1 {*it1};
     const auto uniformRandom2 {*it2};
@@ -232,10 +430,7 @@ void Shader::resetSampling() {
  * @return The index of a random chosen light.
  */
 ::std::uint32_t Shader::getLightIndex () {
-    static ::std::atomic<::std::uint32_t> sampler {};
-    const auto current {sampler.fetch_add(1, ::std::memory_order_relaxed)};
-
-    const auto it {values.begin() + (current & mask)};
+    const auto it {values.begin() + (Sampler::hash(Sampler::nextKey()) & mask)};
 
     const auto sizeLights {static_cast<::std::uint32_t> (this->lights_.size())};
     const auto randomNumber {*it};
@@ -263,7 +458,11 @@ const ::std::vector<Plane>& Shader::getPlanes() const {
         }
 
         case Accelerator::ACC_BVH: {
-            return this->bvhPlanes_.getPrimitives();
+            return this->naivePlanes_.getPrimitives();
+        }
+
+        case Accelerator::ACC_BVH4: {
+            return this->naivePlanes_.getPrimitives();
         }
     }
     return this->naivePlanes_.getPrimitives();
@@ -289,7 +488,11 @@ const ::std::vector<Sphere>& Shader::getSpheres() const {
         }
 
         case Accelerator::ACC_BVH: {
-            return this->bvhSpheres_.getPrimitives();
+            return this->spheres_;
+        }
+
+        case Accelerator::ACC_BVH4: {
+            return this->spheres_;
         }
     }
     return this->naiveSpheres_.getPrimitives();
@@ -315,7 +518,11 @@ const ::std::vector<Triangle>& Shader::getTriangles() const {
         }
 
         case Accelerator::ACC_BVH: {
-            return this->bvhTriangles_.getPrimitives();
+            return this->triangles_;
+        }
+
+        case Accelerator::ACC_BVH4: {
+            return this->triangles_;
         }
     }
     return this->naiveTriangles_.getPrimitives();
@@ -338,3 +545,33 @@ const ::std::vector<::std::unique_ptr<Light>>& Shader::getLights() const {
 const ::std::vector<Material>& Shader::getMaterials() const {
     return this->materials_;
 }
+
+/**
+ * Gets the size, in bytes, of the BVH with the spheres and the triangles of the scene.
+ *
+ * @return The size of the BVH or 0 if the accelerator is not a BVH.
+ */
+::std::int64_t Shader::getBvhSize() const {
+    switch (this->accelerator_) {
+        case Accelerator::ACC_NONE: {
+            return 0;
+        }
+
+        case Accelerator::ACC_NAIVE: {
+            return 0;
+        }
+
+        case Accelerator::ACC_REGULAR_GRID: {
+            return 0;
+        }
+
+        case Accelerator::ACC_BVH: {
+            return this->bvh_.getSize();
+        }
+
+        case Accelerator::ACC_BVH4: {
+            return this->bvh4_.getSize();
+        }
+    }
+    return 0;
+}
@@ -2,13 +2,18 @@
 #define MOBILERT_SHADER_HPP
 
 #include "MobileRT/Accelerators/BVH.hpp"
+#include "MobileRT/Accelerators/BVH4.hpp"
 #include "MobileRT/Accelerators/Naive.hpp"
 #include "MobileRT/Accelerators/RegularGrid.hpp"
 #include "MobileRT/Camera.hpp"
+#include "MobileRT/Denoiser.hpp"
 #include "MobileRT/Intersection.hpp"
 #include "MobileRT/Ray.hpp"
+#include "MobileRT/RayPacket.hpp"
 #include "MobileRT/Sampler.hpp"
 #include "MobileRT/Scene.hpp"
+#include "MobileRT/Shapes/Primitive.hpp"
+#include <functional>
 
 namespace MobileRT {
     /**
@@ -22,6 +27,7 @@ namespace MobileRT {
             ACC_NAIVE,
             ACC_REGULAR_GRID,
             ACC_BVH,
+            ACC_BVH4,
         };
 
     private:
@@ -33,9 +39,11 @@ namespace MobileRT {
         RegularGrid<Sphere> gridSpheres_ {};
         RegularGrid<Triangle> gridTriangles_ {};
 
-        BVH<Plane> bvhPlanes_ {};
-        BVH<Sphere> bvhSpheres_ {};
-        BVH<Triangle> bvhTriangles_ {};
+        // The BVHs contain the spheres and the triangles together and the unbounded planes are kept in naivePlanes_.
+        ::std::vector<Sphere> spheres_ {};
+        ::std::vector<Triangle> triangles_ {};
+        BVH<Primitive> bvh_ {};
+        BVH4<Primitive> bvh4_ {};
 
         ::std::vector<Material> materials_ {};
 
@@ -49,6 +57,12 @@ namespace MobileRT {
     private:
         Intersection traceLights(Intersection intersection, const Ray &ray) const;
 
+        bool shadeIntersection(::glm::vec3 *rgb, Intersection intersection, const Ray &ray, Aov *aov);
+
+        ::std::vector<Primitive> takeBoundedPrimitives(Scene *scene);
+
+        void sortBoundedPrimitives(::std::vector<Primitive> *primitives);
+
     protected:
         /**
          * Calculates the color of an intersection in the scene.
@@ -67,12 +81,13 @@ namespace MobileRT {
         ::std::uint32_t getLightIndex ();
 
     public:
-        void initializeAccelerators(Scene scene);
+        void initializeAccelerators(Scene scene, const ::std::function<bool()> &isCancelled = {});
 
     public:
         explicit Shader () = delete;
 
-        explicit Shader(Scene scene, ::std::int32_t samplesLight, Accelerator accelerator);
+        explicit Shader(Scene scene, ::std::int32_t samplesLight, Accelerator accelerator,
+                        const ::std::function<bool()> &isCancelled = {});
 
         Shader(const Shader &shader) = delete;
 
@@ -84,11 +99,15 @@ namespace MobileRT {
 
         Shader &operator=(Shader &&shader) noexcept = delete;
 
-        bool rayTrace(::glm::vec3 *rgb, const Ray &ray);
+        bool rayTrace(::glm::vec3 *rgb, const Ray &ray, Aov *aov = nullptr);
 
         bool shadowTrace(Intersection intersection, const Ray &ray);
 
-        virtual void resetSampling();
+        void rayTrace(::glm::vec3 *rgb, const RayPacket &packet, const SampleKey *keys, Aov *aovs = nullptr);
+
+        ::std::uint32_t shadowTrace(::std::array<Intersection, PacketSize> *intersections, const RayPacket &packet);
+
+        static ::std::uint64_t takeRaysTraced();
 
         const ::std::vector<Plane>& getPlanes() const;
 
@@ -99,6 +118,8 @@ namespace MobileRT {
         const ::std::vector<Material>& getMaterials() const;
 
         const ::std::vector<::std::unique_ptr<Light>>& getLights() const;
+
+        ::std::int64_t getBvhSize() const;
     };
 }//namespace MobileRT
 
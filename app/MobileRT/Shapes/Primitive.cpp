@@ -0,0 +1,107 @@
+#include "MobileRT/Shapes/Primitive.hpp"
+
+using ::MobileRT::AABB;
+using ::MobileRT::Intersection;
+using ::MobileRT::PacketSize;
+using ::MobileRT::Primitive;
+using ::MobileRT::RayPacket;
+using ::MobileRT::Sphere;
+using ::MobileRT::Triangle;
+
+/**
+ * The constructor of a reference to a triangle.
+ *
+ * @param triangle The triangle, which must outlive this reference.
+ */
+Primitive::Primitive(const Triangle &triangle) :
+    shape_ {&triangle},
+    type_ {PRIMITIVE_TRIANGLE} {
+}
+
+/**
+ * The constructor of a reference to a sphere.
+ *
+ * @param sphere The sphere, which must outlive this reference.
+ */
+Primitive::Primitive(const Sphere &sphere) :
+    shape_ {&sphere},
+    type_ {PRIMITIVE_SPHERE} {
+}
+
+/**
+ * Determines if a ray intersects the referenced primitive or not and calculates the intersection point.
+ *
+ * @param intersection The previous intersection of the ray in the scene.
+ * @param ray          The casted ray into the scene.
+ * @return The intersection point.
+ */
+Intersection Primitive::intersect(const Intersection &intersection, const Ray &ray) const {
+    switch (this->type_) {
+        case PRIMITIVE_TRIANGLE: {
+            return static_cast<const Triangle *> (this->shape_)->intersect(intersection, ray);
+        }
+
+        case PRIMITIVE_SPHERE: {
+            return static_cast<const Sphere *> (this->shape_)->intersect(intersection, ray);
+        }
+    }
+    return intersection;
+}
+
+/**
+ * Determines which rays of a packet intersect the referenced primitive and updates their intersections.
+ *
+ * @param intersections The previous intersections of the rays in the scene, updated with the new ones.
+ * @param packet        The casted packet of rays.
+ * @param mask          The mask of the lanes of the packet to test.
+ */
+void Primitive::intersect(::std::array<Intersection, PacketSize> *const intersections, const RayPacket &packet,
+                          const ::std::uint32_t mask) const {
+    switch (this->type_) {
+        case PRIMITIVE_TRIANGLE: {
+            static_cast<const Triangle *> (this->shape_)->intersect(intersections, packet, mask);
+            break;
+        }
+
+        case PRIMITIVE_SPHERE: {
+            static_cast<const Sphere *> (this->shape_)->intersect(intersections, packet, mask);
+            break;
+        }
+    }
+}
+
+/**
+ * Calculates the bounding box of the referenced primitive.
+ *
+ * @return The bounding box of the primitive.
+ */
+AABB Primitive::getAABB() const {
+    switch (this->type_) {
+        case PRIMITIVE_TRIANGLE: {
+            return static_cast<const Triangle *> (this->shape_)->getAABB();
+        }
+
+        case PRIMITIVE_SPHERE: {
+            return static_cast<const Sphere *> (this->shape_)->getAABB();
+        }
+    }
+    return AABB {};
+}
+
+/**
+ * Gets the referenced triangle.
+ *
+ * @return The triangle or nullptr if the primitive is not a triangle.
+ */
+const Triangle *Primitive::getTriangle() const {
+    return this->type_ == PRIMITIVE_TRIANGLE ? static_cast<const Triangle *> (this->shape_) : nullptr;
+}
+
+/**
+ * Gets the referenced sphere.
+ *
+ * @return The sphere or nullptr if the primitive is not a sphere.
+ */
+const Sphere *Primitive::getSphere() const {
+    return this->type_ == PRIMITIVE_SPHERE ? static_cast<const Sphere *> (this->shape_) : nullptr;
+}
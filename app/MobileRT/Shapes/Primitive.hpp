@@ -0,0 +1,60 @@
+#ifndef MOBILERT_SHAPES_PRIMITIVE_HPP
+#define MOBILERT_SHAPES_PRIMITIVE_HPP
+
+#include "MobileRT/Accelerators/AABB.hpp"
+#include "MobileRT/Intersection.hpp"
+#include "MobileRT/Ray.hpp"
+#include "MobileRT/RayPacket.hpp"
+#include "MobileRT/Shapes/Sphere.hpp"
+#include "MobileRT/Shapes/Triangle.hpp"
+#include <array>
+
+namespace MobileRT {
+    /**
+     * A class which references a bounded primitive of any type, so the triangles and the spheres of the scene can
+     * be stored in the same acceleration structure.
+     * <br>
+     * It only keeps a pointer to the primitive, which stays in the vector of its type, and a tag with its type.
+     */
+    class Primitive final {
+    public:
+        enum Type {
+            PRIMITIVE_TRIANGLE = 0,
+            PRIMITIVE_SPHERE,
+        };
+
+    private:
+        const void *shape_ {nullptr};
+        Type type_ {};
+
+    public:
+        explicit Primitive () = delete;
+
+        explicit Primitive(const Triangle &triangle);
+
+        explicit Primitive(const Sphere &sphere);
+
+        Primitive(const Primitive &primitive) = default;
+
+        Primitive(Primitive &&primitive) noexcept = default;
+
+        ~Primitive() = default;
+
+        Primitive &operator=(const Primitive &primitive) = default;
+
+        Primitive &operator=(Primitive &&primitive) noexcept = default;
+
+        Intersection intersect(const Intersection &intersection, const Ray &ray) const;
+
+        void intersect(::std::array<Intersection, PacketSize> *intersections, const RayPacket &packet,
+                       ::std::uint32_t mask) const;
+
+        AABB getAABB() const;
+
+        const Triangle *getTriangle() const;
+
+        const Sphere *getSphere() const;
+    };
+}//namespace MobileRT
+
+#endif //MOBILERT_SHAPES_PRIMITIVE_HPP
@@ -4,6 +4,8 @@
 using ::MobileRT::AABB;
 using ::MobileRT::Sphere;
 using ::MobileRT::Intersection;
+using ::MobileRT::RayPacket;
+using ::MobileRT::PacketSize;
 
 /**
  * The constructor.
@@ -62,6 +64,25 @@ Intersection Sphere::intersect(const Intersection &intersection, const Ray &ray)
     return res;
 }
 
+/**
+ * Determines which rays of a packet intersect this sphere and calculates their intersection points.
+ * <br>
+ * There are few spheres in a scene, so each ray is simply intersected on its own.
+ *
+ * @param intersections The previous intersections of the rays in the scene, updated with the new ones.
+ * @param packet        The packet of casted rays.
+ * @param mask          The mask of the lanes of the packet to test.
+ */
+void Sphere::intersect(::std::array<Intersection, PacketSize> *const intersections, const RayPacket &packet,
+                   const ::std::uint32_t mask) const {
+    for (::std::int32_t lane {}; lane < packet.numRays_; ++lane) {
+        if ((mask & (1U << static_cast<::std::uint32_t> (lane))) != 0) {
+            auto &intersection {(*intersections)[static_cast<::std::uint32_t> (lane)]};
+            intersection = intersect(intersection, packet.getRay(lane));
+        }
+    }
+}
+
 /**
  * Calculates the bounding box of the sphere.
  *
@@ -4,6 +4,8 @@
 #include "MobileRT/Accelerators/AABB.hpp"
 #include "MobileRT/Intersection.hpp"
 #include "MobileRT/Ray.hpp"
+#include "MobileRT/RayPacket.hpp"
+#include <array>
 #include <glm/glm.hpp>
 
 namespace MobileRT {
@@ -33,6 +35,9 @@ namespace MobileRT {
 
         Intersection intersect(const Intersection &intersection, const Ray &ray) const;
 
+        void intersect(::std::array<Intersection, PacketSize> *intersections, const RayPacket &packet,
+                       ::std::uint32_t mask) const;
+
         AABB getAABB() const;
 
         bool intersect(const AABB &box) const;
@@ -5,6 +5,8 @@
 using ::MobileRT::AABB;
 using ::MobileRT::Triangle;
 using ::MobileRT::Intersection;
+using ::MobileRT::RayPacket;
+using ::MobileRT::PacketSize;
 
 /**
  * The constructor.
@@ -54,40 +56,145 @@ Intersection Triangle::intersect(const Intersection &intersection, const Ray &ra
         return intersection;
     }
 
-    const auto &perpendicularVector {::glm::cross(ray.direction_, this->AC_)};
-    const auto normalizedProjection {::glm::dot(this->AB_, perpendicularVector)};
-    if (::std::abs(normalizedProjection) < Epsilon) {
+    ::glm::vec2 barycentric {};
+    const auto distanceToIntersection {intersect(this->pointA_, this->AB_, this->AC_, ray, &barycentric)};
+    if (distanceToIntersection >= intersection.length_) {
         return intersection;
     }
 
+    return getIntersection(ray, barycentric[0], barycentric[1], distanceToIntersection);
+}
+
+/**
+ * Determines if a ray intersects a triangle, given by its first vertex and the edges from it to the other two, with
+ * the Moller-Trumbore algorithm.
+ * <br>
+ * It only needs the vertices, so the accelerators can test the triangles without loading their normals and
+ * texture coordinates.
+ *
+ * @param pointA      The first vertex of the triangle.
+ * @param AB          The edge from the first to the second vertex.
+ * @param AC          The edge from the first to the third vertex.
+ * @param ray         The casted ray into the scene.
+ * @param barycentric The barycentric coordinates of the intersection point, only set if there is one.
+ * @return The distance to the intersection point or RayLengthMax if the ray doesn't intersect the triangle.
+ */
+float Triangle::intersect(const ::glm::vec3 &pointA, const ::glm::vec3 &AB, const ::glm::vec3 &AC, const Ray &ray,
+                          ::glm::vec2 *const barycentric) {
+    const auto &perpendicularVector {::glm::cross(ray.direction_, AC)};
+    const auto normalizedProjection {::glm::dot(AB, perpendicularVector)};
+    if (::std::abs(normalizedProjection) < Epsilon) {
+        return RayLengthMax;
+    }
+
     //u v = barycentric coordinates (uv-space are inside a unit triangle)
     const auto normalizedProjectionInv {1.0F / normalizedProjection};
-    const auto &vectorToCamera {ray.origin_ - this->pointA_};
+    const auto &vectorToCamera {ray.origin_ - pointA};
     const auto u {normalizedProjectionInv * ::glm::dot(vectorToCamera, perpendicularVector)};
     if (u < 0.0F || u > 1.0F) {
-        return intersection;
+        return RayLengthMax;
     }
 
-    const auto &upPerpendicularVector {::glm::cross(vectorToCamera, this->AB_)};
+    const auto &upPerpendicularVector {::glm::cross(vectorToCamera, AB)};
     const auto v {normalizedProjectionInv * ::glm::dot (ray.direction_, upPerpendicularVector)};
     if (v < 0.0F || (u + v) > 1.0F) {
-        return intersection;
+        return RayLengthMax;
     }
 
     // at this stage we can compute t to find out where
     // the intersection point is on the line
-    const auto distanceToIntersection {normalizedProjectionInv * ::glm::dot(AC_, upPerpendicularVector)};
+    const auto distanceToIntersection {normalizedProjectionInv * ::glm::dot(AC, upPerpendicularVector)};
 
-    if (distanceToIntersection < Epsilon || distanceToIntersection >= intersection.length_) {
-        return intersection;
+    if (distanceToIntersection < Epsilon || distanceToIntersection >= RayLengthMax) {
+        return RayLengthMax;
+    }
+
+    *barycentric = ::glm::vec2 {u, v};
+    return distanceToIntersection;
+}
+
+/**
+ * Determines which rays of a packet intersect this triangle and calculates their intersection points.
+ * <br>
+ * The Moller-Trumbore test is computed for all the lanes of the packet at once, with the vector operations
+ * written per axis so the compiler can use the SIMD units (NEON or SSE). Only the rays which hit the triangle
+ * nearer than their current intersection get a new one.
+ *
+ * @param intersections The previous intersections of the rays in the scene, updated with the new ones.
+ * @param packet        The packet of casted rays.
+ * @param mask          The mask of the lanes of the packet to test.
+ */
+void Triangle::intersect(::std::array<Intersection, PacketSize> *const intersections, const RayPacket &packet,
+                         const ::std::uint32_t mask) const {
+    const auto &origins {packet.origins_};
+    const auto &directions {packet.directions_};
+    ::std::array<float, PacketSize> projections {};
+    ::std::array<float, PacketSize> us {};
+    ::std::array<float, PacketSize> vs {};
+    ::std::array<float, PacketSize> distances {};
+
+    for (::std::uint32_t lane {}; lane < PacketSize; ++lane) {
+        const auto dirX {directions[0][lane]};
+        const auto dirY {directions[1][lane]};
+        const auto dirZ {directions[2][lane]};
+        const auto perpendicularX {dirY * this->AC_[2] - dirZ * this->AC_[1]};
+        const auto perpendicularY {dirZ * this->AC_[0] - dirX * this->AC_[2]};
+        const auto perpendicularZ {dirX * this->AC_[1] - dirY * this->AC_[0]};
+        const auto normalizedProjection {
+            this->AB_[0] * perpendicularX + this->AB_[1] * perpendicularY + this->AB_[2] * perpendicularZ
+        };
+        const auto normalizedProjectionInv {1.0F / normalizedProjection};
+
+        const auto toCameraX {origins[0][lane] - this->pointA_[0]};
+        const auto toCameraY {origins[1][lane] - this->pointA_[1]};
+        const auto toCameraZ {origins[2][lane] - this->pointA_[2]};
+        const auto upPerpendicularX {toCameraY * this->AB_[2] - toCameraZ * this->AB_[1]};
+        const auto upPerpendicularY {toCameraZ * this->AB_[0] - toCameraX * this->AB_[2]};
+        const auto upPerpendicularZ {toCameraX * this->AB_[1] - toCameraY * this->AB_[0]};
+
+        projections[lane] = normalizedProjection;
+        us[lane] = normalizedProjectionInv *
+                   (toCameraX * perpendicularX + toCameraY * perpendicularY + toCameraZ * perpendicularZ);
+        vs[lane] = normalizedProjectionInv *
+                   (dirX * upPerpendicularX + dirY * upPerpendicularY + dirZ * upPerpendicularZ);
+        distances[lane] = normalizedProjectionInv * (this->AC_[0] * upPerpendicularX +
+                                                     this->AC_[1] * upPerpendicularY +
+                                                     this->AC_[2] * upPerpendicularZ);
     }
 
+    for (::std::uint32_t lane {}; lane < PacketSize; ++lane) {
+        if ((mask & (1U << lane)) == 0) {
+            continue;
+        }
+        const auto &ray {packet.getRay(static_cast<::std::int32_t> (lane))};
+        auto &intersection {(*intersections)[lane]};
+        const auto u {us[lane]};
+        const auto v {vs[lane]};
+        const auto distance {distances[lane]};
+        if (ray.primitive_ == this || ::std::abs(projections[lane]) < Epsilon ||
+            u < 0.0F || u > 1.0F || v < 0.0F || (u + v) > 1.0F ||
+            distance < Epsilon || distance >= intersection.length_) {
+            continue;
+        }
+        intersection = getIntersection(ray, u, v, distance);
+    }
+}
+
+/**
+ * Helper method which builds the intersection of a ray with this triangle.
+ *
+ * @param ray      The casted ray.
+ * @param u        The barycentric coordinate of the intersection point along the AB edge.
+ * @param v        The barycentric coordinate of the intersection point along the AC edge.
+ * @param distance The distance from the origin of the ray to the intersection point.
+ * @return The intersection.
+ */
+Intersection Triangle::getIntersection(const Ray &ray, const float u, const float v, const float distance) const {
     const auto w {1.0F - u - v};
     const auto &intersectionNormal {::glm::normalize(this->normalA_ * w + this->normalB_ * u + this->normalC_ * v)};
     const auto &texCoords {this->texCoordA_ * w + this->texCoordB_ * u + this->texCoordC_ * v};
-    const auto &intersectionPoint {ray.origin_ + ray.direction_ * distanceToIntersection};
-    const Intersection res {intersectionPoint, distanceToIntersection, intersectionNormal, this,
-                            this->materialIndex_, texCoords};
+    const auto &intersectionPoint {ray.origin_ + ray.direction_ * distance};
+    const Intersection res {intersectionPoint, distance, intersectionNormal, this, this->materialIndex_, texCoords};
 
     return res;
 }
@@ -4,6 +4,8 @@
 #include "MobileRT/Accelerators/AABB.hpp"
 #include "MobileRT/Intersection.hpp"
 #include "MobileRT/Ray.hpp"
+#include "MobileRT/RayPacket.hpp"
+#include <array>
 #include <glm/glm.hpp>
 
 namespace MobileRT {
@@ -31,6 +33,8 @@ namespace MobileRT {
 
         void checkArguments();
 
+        Intersection getIntersection(const Ray &ray, float u, float v, float distance) const;
+
     public:
         explicit Triangle() = delete;
 
@@ -46,6 +50,12 @@ namespace MobileRT {
 
         Intersection intersect(const Intersection &intersection, const Ray &ray) const;
 
+        static float intersect(const ::glm::vec3 &pointA, const ::glm::vec3 &AB, const ::glm::vec3 &AC,
+                               const Ray &ray, ::glm::vec2 *barycentric);
+
+        void intersect(::std::array<Intersection, PacketSize> *intersections, const RayPacket &packet,
+                       ::std::uint32_t mask) const;
+
         AABB getAABB() const;
 
         bool intersect(const AABB &box) const;
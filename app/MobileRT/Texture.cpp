@@ -71,6 +71,22 @@ Texture Texture::createTexture(const char *const textureFilePath) {
     return texture;
 }
 
+/**
+ * Estimates the memory needed by a texture file after being loaded, without loading it.
+ *
+ * @param textureFilePath The path to the texture file.
+ * @return The number of bytes needed or 0 if the file is not a valid texture.
+ */
+::std::int64_t Texture::estimateSize(const char *const textureFilePath) {
+    ::std::int32_t width {};
+    ::std::int32_t height {};
+    ::std::int32_t channels {};
+    if (stbi_info(textureFilePath, &width, &height, &channels) == 0) {
+        return 0;
+    }
+    return static_cast<::std::int64_t> (width) * height * channels;
+}
+
 /**
  * The operator equals.
  *
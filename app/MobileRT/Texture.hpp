@@ -1,6 +1,7 @@
 #ifndef MOBILERT_TEXTURE_HPP
 #define MOBILERT_TEXTURE_HPP
 
+#include <cstdint>
 #include <glm/glm.hpp>
 #include <memory>
 #include <vector>
@@ -47,6 +48,8 @@ namespace MobileRT {
             bool operator==(const Texture &texture) const;
 
             static Texture createTexture(const char *textureFilePath);
+
+            static ::std::int64_t estimateSize(const char *textureFilePath);
     };
 }//namespace MobileRT
 
@@ -0,0 +1,173 @@
+#include "MobileRT/ThreadPool.hpp"
+#include <atomic>
+#include <memory>
+
+using ::MobileRT::ThreadPool;
+
+namespace {
+    /**
+     * The state shared by all the threads which execute the tasks of a ThreadPool::parallelFor call.
+     */
+    struct Batch {
+        ::std::atomic<::std::int32_t> next_ {};
+        ::std::atomic<::std::int32_t> done_ {};
+        ::std::mutex mutex_ {};
+        ::std::condition_variable finished_ {};
+    };
+}//namespace
+
+/**
+ * The constructor.
+ *
+ * @param numThreads The number of worker threads.
+ */
+ThreadPool::ThreadPool(const ::std::int32_t numThreads) {
+    resize(numThreads);
+}
+
+/**
+ * The destructor.
+ * <br>
+ * It waits for the tasks being executed to finish and joins all the worker threads.
+ */
+ThreadPool::~ThreadPool() {
+    const ::std::lock_guard<::std::mutex> resizeLock {this->resizeMutex_};
+    {
+        const ::std::lock_guard<::std::mutex> lock {this->mutex_};
+        this->numThreads_ = 0;
+    }
+    this->wakeUp_.notify_all();
+    for (auto &worker : this->workers_) {
+        worker.join();
+    }
+    this->workers_.clear();
+    LOG("THREAD POOL DESTROYED!!!");
+}
+
+/**
+ * Gets the pool of worker threads shared by the whole Ray Tracer engine.
+ * <br>
+ * It is created on first use with one worker thread per CPU core.
+ *
+ * @return The pool of worker threads of the Ray Tracer engine.
+ */
+ThreadPool &ThreadPool::getInstance() {
+    static ThreadPool threadPool {static_cast<::std::int32_t> (::std::max(1U, ::std::thread::hardware_concurrency()))};
+    return threadPool;
+}
+
+/**
+ * Changes the number of worker threads.
+ * <br>
+ * The worker threads that are no longer needed finish the task they are executing and are joined, so this method
+ * should not be called while rendering.
+ *
+ * @param numThreads The new number of worker threads.
+ */
+void ThreadPool::resize(const ::std::int32_t numThreads) {
+    const ::std::lock_guard<::std::mutex> resizeLock {this->resizeMutex_};
+    const auto newNumThreads {::std::max(numThreads, 1)};
+    ::std::vector<::std::thread> stoppedWorkers {};
+    {
+        const ::std::lock_guard<::std::mutex> lock {this->mutex_};
+        this->numThreads_ = newNumThreads;
+        const auto size {static_cast<::std::uint32_t> (newNumThreads)};
+        while (this->workers_.size() > size) {
+            stoppedWorkers.emplace_back(::std::move(this->workers_.back()));
+            this->workers_.pop_back();
+        }
+        while (this->workers_.size() < size) {
+            const auto index {static_cast<::std::int32_t> (this->workers_.size())};
+            this->workers_.emplace_back(&ThreadPool::work, this, index);
+        }
+    }
+    this->wakeUp_.notify_all();
+    for (auto &worker : stoppedWorkers) {
+        worker.join();
+    }
+    LOG("THREAD POOL SIZE = ", newNumThreads);
+}
+
+/**
+ * Gets the number of worker threads.
+ *
+ * @return The number of worker threads.
+ */
+::std::int32_t ThreadPool::getNumThreads() {
+    const ::std::lock_guard<::std::mutex> lock {this->mutex_};
+    return this->numThreads_;
+}
+
+/**
+ * Executes a task asynchronously in one of the worker threads.
+ *
+ * @param task The task to execute.
+ */
+void ThreadPool::submit(::std::function<void()> task) {
+    {
+        const ::std::lock_guard<::std::mutex> lock {this->mutex_};
+        this->tasks_.emplace_back(::std::move(task));
+    }
+    this->wakeUp_.notify_one();
+}
+
+/**
+ * Executes a task for every index between 0 and the number of tasks and waits for all of them to finish.
+ * <br>
+ * The calling thread also executes tasks, so this method can be called from a worker thread and it still
+ * progresses when all the worker threads are busy.
+ *
+ * @param numTasks The number of tasks to execute.
+ * @param task     The task to execute, which receives the index of the task.
+ */
+void ThreadPool::parallelFor(const ::std::int32_t numTasks, const ::std::function<void(::std::int32_t)> &task) {
+    if (numTasks <= 0) {
+        return;
+    }
+    const auto batch {::std::make_shared<Batch>()};
+    const auto run {
+        [batch, numTasks, &task]() -> void {
+            for (auto index {batch->next_.fetch_add(1)}; index < numTasks; index = batch->next_.fetch_add(1)) {
+                task(index);
+                if (batch->done_.fetch_add(1) + 1 == numTasks) {
+                    const ::std::lock_guard<::std::mutex> lock {batch->mutex_};
+                    batch->finished_.notify_all();
+                }
+            }
+        }
+    };
+
+    {
+        const ::std::lock_guard<::std::mutex> lock {this->mutex_};
+        const auto numHelpers {::std::min(numTasks - 1, this->numThreads_)};
+        for (::std::int32_t i {}; i < numHelpers; ++i) {
+            this->tasks_.emplace_back(run);
+        }
+    }
+    this->wakeUp_.notify_all();
+
+    run();
+    ::std::unique_lock<::std::mutex> lock {batch->mutex_};
+    batch->finished_.wait(lock, [&]() {return batch->done_ == numTasks;});
+}
+
+/**
+ * Helper method which a worker thread executes until the pool no longer needs it.
+ *
+ * @param index The index of the worker thread.
+ */
+void ThreadPool::work(const ::std::int32_t index) {
+    while (true) {
+        ::std::function<void()> task {};
+        {
+            ::std::unique_lock<::std::mutex> lock {this->mutex_};
+            this->wakeUp_.wait(lock, [&]() {return index >= this->numThreads_ || !this->tasks_.empty();});
+            if (index >= this->numThreads_) {
+                return;
+            }
+            task = ::std::move(this->tasks_.front());
+            this->tasks_.pop_front();
+        }
+        task();
+    }
+}
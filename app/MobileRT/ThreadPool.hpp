@@ -0,0 +1,57 @@
+#ifndef MOBILERT_THREADPOOL_HPP
+#define MOBILERT_THREADPOOL_HPP
+
+#include "MobileRT/Utils.hpp"
+#include <condition_variable>
+#include <deque>
+#include <functional>
+#include <mutex>
+#include <thread>
+#include <vector>
+
+namespace MobileRT {
+    /**
+     * A pool of long-lived worker threads owned by the Ray Tracer engine.
+     * <br>
+     * It is reused by every frame, so the threads are not created and joined on every render.
+     */
+    class ThreadPool final {
+    private:
+        ::std::vector<::std::thread> workers_ {};
+        ::std::deque<::std::function<void()>> tasks_ {};
+        ::std::int32_t numThreads_ {};
+        ::std::mutex mutex_ {};
+        ::std::mutex resizeMutex_ {};
+        ::std::condition_variable wakeUp_ {};
+
+    private:
+        void work(::std::int32_t index);
+
+    public:
+        explicit ThreadPool () = delete;
+
+        explicit ThreadPool(::std::int32_t numThreads);
+
+        ThreadPool(const ThreadPool &threadPool) = delete;
+
+        ThreadPool(ThreadPool &&threadPool) noexcept = delete;
+
+        ~ThreadPool();
+
+        ThreadPool &operator=(const ThreadPool &threadPool) = delete;
+
+        ThreadPool &operator=(ThreadPool &&threadPool) noexcept = delete;
+
+        static ThreadPool &getInstance();
+
+        void resize(::std::int32_t numThreads);
+
+        ::std::int32_t getNumThreads();
+
+        void submit(::std::function<void()> task);
+
+        void parallelFor(::std::int32_t numTasks, const ::std::function<void(::std::int32_t)> &task);
+    };
+}//namespace MobileRT
+
+#endif //MOBILERT_THREADPOOL_HPP
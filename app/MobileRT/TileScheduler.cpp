@@ -0,0 +1,204 @@
+#include "MobileRT/TileScheduler.hpp"
+#include <algorithm>
+#include <utility>
+
+using ::MobileRT::Tile;
+using ::MobileRT::TileScheduler;
+
+namespace {
+    /**
+     * Helper method which packs the range of tiles of a queue in a single word, so it can be updated atomically.
+     *
+     * @param begin The index of the first tile in the queue.
+     * @param end   The index after the last tile in the queue.
+     * @return The packed range.
+     */
+    ::std::uint64_t packRange(const ::std::uint32_t begin, const ::std::uint32_t end) {
+        return static_cast<::std::uint64_t> (begin) << 32U | end;
+    }
+}//namespace
+
+/**
+ * The constructor.
+ *
+ * @param width    The width of the image.
+ * @param height   The height of the image.
+ * @param tileSize The width and height of the tiles, in pixels.
+ */
+TileScheduler::TileScheduler(const ::std::int32_t width, const ::std::int32_t height,
+                             const ::std::int32_t tileSize) :
+        width_ {width},
+        height_ {height} {
+    setTileSize(tileSize);
+}
+
+/**
+ * Splits the image in square tiles and sorts them along a Morton curve.
+ * The tiles in the right and bottom borders are cropped to fit the image.
+ * <br>
+ * It should not be called while the tiles are being rendered.
+ *
+ * @param tileSize The width and height of the tiles, in pixels.
+ */
+void TileScheduler::setTileSize(const ::std::int32_t tileSize) {
+    const auto size {::std::max(tileSize, 1)};
+    const auto tilesX {(this->width_ + size - 1) / size};
+    const auto tilesY {(this->height_ + size - 1) / size};
+    ::std::vector<::std::pair<::std::uint32_t, Tile>> sortedTiles {};
+    sortedTiles.reserve(static_cast<::std::uint32_t> (tilesX * tilesY));
+    for (::std::int32_t tileY {}; tileY < tilesY; ++tileY) {
+        for (::std::int32_t tileX {}; tileX < tilesX; ++tileX) {
+            Tile tile {};
+            tile.start_ = ::glm::ivec2 {tileX * size, tileY * size};
+            tile.end_ = ::glm::min(tile.start_ + size, ::glm::ivec2 {this->width_, this->height_});
+            const auto code {mortonCode(static_cast<::std::uint32_t> (tileX), static_cast<::std::uint32_t> (tileY))};
+            sortedTiles.emplace_back(code, tile);
+        }
+    }
+    ::std::sort(sortedTiles.begin(), sortedTiles.end(),
+        [](const ::std::pair<::std::uint32_t, Tile> &a, const ::std::pair<::std::uint32_t, Tile> &b) {
+            return a.first < b.first;
+        }
+    );
+    this->tiles_.clear();
+    this->tiles_.reserve(sortedTiles.size());
+    for (const auto &sortedTile : sortedTiles) {
+        this->tiles_.emplace_back(sortedTile.second);
+    }
+    LOG("TILES = ", this->tiles_.size(), " (", size, "x", size, ")");
+}
+
+/**
+ * Splits all the tiles again in one contiguous range per queue, so they can be handed out once more.
+ * <br>
+ * It should not be called while the tiles are being rendered.
+ *
+ * @param numQueues The number of queues, which is the number of threads that will render the tiles.
+ */
+void TileScheduler::reset(const ::std::int32_t numQueues) {
+    if (numQueues != this->numQueues_) {
+        this->numQueues_ = ::std::max(numQueues, 1);
+        this->queues_.reset(new ::std::atomic<::std::uint64_t>[static_cast<::std::uint32_t> (this->numQueues_)]);
+    }
+    const auto numTiles {static_cast<::std::uint64_t> (this->tiles_.size())};
+    const auto queues {static_cast<::std::uint64_t> (this->numQueues_)};
+    for (::std::int32_t queue {}; queue < this->numQueues_; ++queue) {
+        const auto begin {static_cast<::std::uint32_t> (numTiles * static_cast<::std::uint64_t> (queue) / queues)};
+        const auto end {static_cast<::std::uint32_t> (numTiles * static_cast<::std::uint64_t> (queue + 1) / queues)};
+        this->queues_[static_cast<::std::uint32_t> (queue)].store(packRange(begin, end), ::std::memory_order_relaxed);
+    }
+    ::std::atomic_thread_fence(::std::memory_order_release);
+}
+
+/**
+ * Gets the next tile to render by a thread.
+ * <br>
+ * It takes the tiles from the start of the thread's own queue and, when it is empty, steals them from the end of
+ * the queues of the other threads.
+ *
+ * @param queue The index of the queue of the thread.
+ * @param tile  The pointer where the index of the tile should be put.
+ * @return Whether there was a tile left to render.
+ */
+bool TileScheduler::next(const ::std::int32_t queue, ::std::int32_t *const tile) {
+    auto &range {this->queues_[static_cast<::std::uint32_t> (queue % this->numQueues_)]};
+    auto current {range.load(::std::memory_order_acquire)};
+    while (true) {
+        const auto begin {static_cast<::std::uint32_t> (current >> 32U)};
+        const auto end {static_cast<::std::uint32_t> (current & 0xFFFFFFFFU)};
+        if (begin >= end) {
+            return steal(queue, tile);
+        }
+        if (range.compare_exchange_weak(current, packRange(begin + 1, end),
+                                        ::std::memory_order_acq_rel, ::std::memory_order_acquire)) {
+            *tile = static_cast<::std::int32_t> (begin);
+            return true;
+        }
+    }
+}
+
+/**
+ * Checks whether all the tiles were already handed out since the last {@link TileScheduler#reset}.
+ * <br>
+ * It should not be called while the tiles are being rendered.
+ *
+ * @return Whether there are no tiles left.
+ */
+bool TileScheduler::isEmpty() const {
+    for (::std::int32_t queue {}; queue < this->numQueues_; ++queue) {
+        const auto current {this->queues_[static_cast<::std::uint32_t> (queue)].load(::std::memory_order_acquire)};
+        if ((current >> 32U) < (current & 0xFFFFFFFFU)) {
+            return false;
+        }
+    }
+    return true;
+}
+
+/**
+ * Helper method which steals a tile from the end of the queue of another thread.
+ *
+ * @param queue The index of the queue of the thread which is stealing.
+ * @param tile  The pointer where the index of the tile should be put.
+ * @return Whether there was a tile left to steal.
+ */
+bool TileScheduler::steal(const ::std::int32_t queue, ::std::int32_t *const tile) {
+    for (::std::int32_t i {1}; i < this->numQueues_; ++i) {
+        const auto victim {static_cast<::std::uint32_t> ((queue + i) % this->numQueues_)};
+        auto &range {this->queues_[victim]};
+        auto current {range.load(::std::memory_order_acquire)};
+        while (true) {
+            const auto begin {static_cast<::std::uint32_t> (current >> 32U)};
+            const auto end {static_cast<::std::uint32_t> (current & 0xFFFFFFFFU)};
+            if (begin >= end) {
+                break;
+            }
+            if (range.compare_exchange_weak(current, packRange(begin, end - 1),
+                                            ::std::memory_order_acq_rel, ::std::memory_order_acquire)) {
+                *tile = static_cast<::std::int32_t> (end - 1);
+                return true;
+            }
+        }
+    }
+    return false;
+}
+
+/**
+ * Gets the pixels covered by a tile.
+ *
+ * @param tile The index of the tile.
+ * @return The tile.
+ */
+const Tile &TileScheduler::getTile(const ::std::int32_t tile) const {
+    return this->tiles_[static_cast<::std::uint32_t> (tile)];
+}
+
+/**
+ * Gets the number of tiles of the image.
+ *
+ * @return The number of tiles.
+ */
+::std::int32_t TileScheduler::getNumTiles() const {
+    return static_cast<::std::int32_t> (this->tiles_.size());
+}
+
+/**
+ * Helper method which calculates the position of a tile along the Morton (Z-order) curve, by interleaving the
+ * bits of its coordinates.
+ *
+ * @param x The column of the tile.
+ * @param y The row of the tile.
+ * @return The Morton code of the tile.
+ */
+::std::uint32_t TileScheduler::mortonCode(const ::std::uint32_t x, const ::std::uint32_t y) {
+    const auto spread {
+        [](::std::uint32_t value) -> ::std::uint32_t {
+            value &= 0x0000FFFFU;
+            value = (value | (value << 8U)) & 0x00FF00FFU;
+            value = (value | (value << 4U)) & 0x0F0F0F0FU;
+            value = (value | (value << 2U)) & 0x33333333U;
+            value = (value | (value << 1U)) & 0x55555555U;
+            return value;
+        }
+    };
+    return spread(x) | (spread(y) << 1U);
+}
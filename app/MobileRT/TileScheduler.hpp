@@ -0,0 +1,68 @@
+#ifndef MOBILERT_TILESCHEDULER_HPP
+#define MOBILERT_TILESCHEDULER_HPP
+
+#include "MobileRT/Utils.hpp"
+#include <atomic>
+#include <glm/glm.hpp>
+#include <memory>
+#include <vector>
+
+namespace MobileRT {
+    /**
+     * A rectangle of pixels of the image, from the start (inclusive) to the end (exclusive).
+     */
+    struct Tile {
+        ::glm::ivec2 start_ {};
+        ::glm::ivec2 end_ {};
+    };
+
+    /**
+     * A class which hands out the tiles of an image to the rendering threads.
+     * <br>
+     * The tiles are sorted along a Morton curve and split in one contiguous range per thread, so each thread
+     * renders a compact region of the image and reuses the same nodes of the acceleration structure and the same
+     * texels. When a thread finishes its range, it steals tiles from the end of the ranges of the other threads.
+     */
+    class TileScheduler final {
+    private:
+        const ::std::int32_t width_ {};
+        const ::std::int32_t height_ {};
+        ::std::vector<Tile> tiles_ {};
+        ::std::unique_ptr<::std::atomic<::std::uint64_t>[]> queues_ {};
+        ::std::int32_t numQueues_ {};
+
+    private:
+        static ::std::uint32_t mortonCode(::std::uint32_t x, ::std::uint32_t y);
+
+        bool steal(::std::int32_t queue, ::std::int32_t *tile);
+
+    public:
+        explicit TileScheduler () = delete;
+
+        explicit TileScheduler(::std::int32_t width, ::std::int32_t height, ::std::int32_t tileSize);
+
+        TileScheduler(const TileScheduler &tileScheduler) = delete;
+
+        TileScheduler(TileScheduler &&tileScheduler) noexcept = delete;
+
+        ~TileScheduler() = default;
+
+        TileScheduler &operator=(const TileScheduler &tileScheduler) = delete;
+
+        TileScheduler &operator=(TileScheduler &&tileScheduler) noexcept = delete;
+
+        void setTileSize(::std::int32_t tileSize);
+
+        void reset(::std::int32_t numQueues);
+
+        bool next(::std::int32_t queue, ::std::int32_t *tile);
+
+        bool isEmpty() const;
+
+        const Tile &getTile(::std::int32_t tile) const;
+
+        ::std::int32_t getNumTiles() const;
+    };
+}//namespace MobileRT
+
+#endif //MOBILERT_TILESCHEDULER_HPP
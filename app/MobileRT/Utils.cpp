@@ -36,42 +36,6 @@ namespace MobileRT {
         return nextValue;
     }
 
-    /**
-     * Calculates the new average as an integer with the new sample and the number of samples already done.
-     * <br>
-     * The average is calculated as: newAvg = ((size - 1) * oldAvg + newNum) / size;
-     *
-     * @param sample    The new sample for the average.
-     * @param avg       The old average.
-     * @param numSample The number of samples.
-     * @return The current average.
-     */
-    ::std::int32_t incrementalAvg(
-            const ::glm::vec3 &sample, const ::std::int32_t avg, const ::std::int32_t numSample) {
-        const auto avgUnsigned {static_cast<::std::uint32_t> (avg)};
-        const auto numSampleUnsigned {static_cast<::std::uint32_t> (numSample)};
-
-        const auto lastRed {avgUnsigned & 0xFFU};
-        const auto lastGreen {(avgUnsigned >> 8U) & 0xFFU};
-        const auto lastBlue {(avgUnsigned >> 16U) & 0xFFU};
-
-        const auto samplerRed {static_cast<::std::uint32_t> (sample[0] * 255U)};
-        const auto samplerGreen {static_cast<::std::uint32_t> (sample[1] * 255U)};
-        const auto samplerBlue {static_cast<::std::uint32_t> (sample[2] * 255U)};
-
-        const auto currentRed {((numSampleUnsigned - 1U) * lastRed + samplerRed) / numSampleUnsigned};
-        const auto currentGreen {((numSampleUnsigned - 1U) * lastGreen + samplerGreen) / numSampleUnsigned};
-        const auto currentBlue {((numSampleUnsigned - 1U) * lastBlue + samplerBlue) / numSampleUnsigned};
-
-        const auto retR {::std::min(currentRed, 255U)};
-        const auto retG {::std::min(currentGreen, 255U)};
-        const auto retB {::std::min(currentBlue, 255U)};
-
-        const auto res {static_cast<::std::int32_t> (0xFF000000 | retB << 16U | retG << 8U | retR)};
-
-        return res;
-    }
-
     /**
      * Converts a sequence of chars to a vec3.
      *
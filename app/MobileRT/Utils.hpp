@@ -31,14 +31,14 @@ namespace MobileRT {
     const ::std::int32_t RayDepthMin {1};
     const ::std::int32_t RayDepthMax {6};
     const ::std::int32_t NumberOfTiles {256};
+    const ::std::int32_t DefaultTileSize {32};
     const ::std::int32_t SizeOfStack {512};
+    const ::std::int32_t PacketSize {4};
 
     ::std::int32_t roundDownToMultipleOf(::std::int32_t value, ::std::int32_t multiple);
 
     float haltonSequence(::std::uint32_t index, ::std::uint32_t base);
 
-    ::std::int32_t incrementalAvg(const ::glm::vec3 &sample, ::std::int32_t avg, ::std::int32_t numSample);
-
     ::glm::vec3 toVec3(const char *values);
 
     ::glm::vec2 toVec2(const char *values);
@@ -97,8 +97,7 @@ namespace MobileRT {
             const auto index {static_cast<::std::uint32_t> (::std::distance(values->begin(), it))};
             *it = ::MobileRT::haltonSequence(index, 2);
         }
-        ::std::random_device randomDevice {};
-        ::std::mt19937 generator {randomDevice()};
+        ::std::mt19937 generator {};
         ::std::shuffle(values->begin(), values->end(), generator);
     }
 }//namespace MobileRT
@@ -10,6 +10,7 @@
 #include "Components/Samplers/Constant.hpp"
 #include "Components/Samplers/HaltonSeq.hpp"
 #include "Components/Samplers/MersenneTwister.hpp"
+#include "Components/Samplers/Sobol.hpp"
 #include "Components/Samplers/StaticHaltonSeq.hpp"
 #include "Components/Samplers/StaticMersenneTwister.hpp"
 #include "Components/Samplers/Stratified.hpp"
@@ -18,27 +19,112 @@
 #include "Components/Shaders/NoShadows.hpp"
 #include "Components/Shaders/PathTracer.hpp"
 #include "Components/Shaders/Whitted.hpp"
+#include "MobileRT/MemoryBudget.hpp"
 #include "MobileRT/Renderer.hpp"
 #include "MobileRT/Scene.hpp"
+#include "MobileRT/ThreadPool.hpp"
 #include "Scenes/Scenes.hpp"
 
 #include <android/bitmap.h>
 #include <glm/glm.hpp>
+#include <array>
+#include <cstring>
 #include <fstream>
 #include <mutex>
+#include <stdexcept>
 #include <string>
+#include <vector>
 #include <boost/assert.hpp>
 
 static float fps_ {};
 static ::std::atomic<::State> state_ {State::IDLE};
 static ::std::unique_ptr<::MobileRT::Renderer> renderer_ {};
 static ::std::unique_ptr<::JavaVM> javaVM_ {};
-static ::std::unique_ptr<::std::thread> thread_ {};
+static bool renderLaunched_ {};
+static ::std::int64_t sceneBytes_ {};
+static float bvhBytesPerTriangle_ {};
 static ::std::mutex mutex_ {};
+static ::std::mutex rendererMutex_ {};
 static ::std::int32_t numLights_ {};
 static ::std::int64_t timeRenderer_ {};
 static ::std::condition_variable rendered_ {};
+static ::std::condition_variable restarted_ {};
 static ::std::atomic<bool> finishedRendering_ {};
+static ::std::vector<::std::int32_t> framebuffer_ {};
+static ::std::int32_t framebufferWidth_ {};
+static ::std::int32_t framebufferHeight_ {};
+static Stats stats_ {};
+static ::std::atomic_flag publishingStats_ = ATOMIC_FLAG_INIT;
+static ::std::chrono::steady_clock::time_point renderStart_ {};
+static ::std::mutex progressMutex_ {};
+static ::std::condition_variable progressCondition_ {};
+static ::std::atomic<::std::int32_t> progressWaiters_ {};
+static ::std::atomic<::LoadPhase> loadPhase_ {LoadPhase::IDLE};
+static ::std::atomic<float> loadProgress_ {};
+
+static jclass lowMemoryException_ {};
+static jclass runtimeException_ {};
+
+/**
+ * The time budget of each slice of a frame rendered by the Ray Tracer engine, to keep about 30 frames per second.
+ */
+static const ::std::chrono::milliseconds FrameBudget {33};
+
+static_assert(sizeof(Stats) == 56, "The layout of the statistics shared with Java changed.");
+
+/**
+ * Helper method which creates the description of a native method to register in the JVM.
+ *
+ * @param name      The name of the method in Java.
+ * @param signature The JNI signature of the method.
+ * @param function  The native function which implements the method.
+ * @return The description of the native method.
+ */
+static JNINativeMethod nativeMethod(const char *const name, const char *const signature, void *const function) {
+    return JNINativeMethod {const_cast<char*> (name), const_cast<char*> (signature), function};
+}
+
+/**
+ * Helper method which registers the native methods of a Java class in the JVM, so they don't have to be looked up
+ * by their name.
+ *
+ * @tparam S         The number of native methods.
+ * @param env        The JNI environment.
+ * @param className  The fully qualified name of the Java class.
+ * @param methods    The native methods of the Java class.
+ * @return Whether all the native methods were registered or not.
+ */
+template<::std::size_t S>
+static bool registerNatives(JNIEnv *const env, const char *const className,
+                            const ::std::array<JNINativeMethod, S> &methods) {
+    const auto clazz {env->FindClass(className)};
+    if (clazz == nullptr) {
+        LOG("Couldn't find class: ", className);
+        return false;
+    }
+    const auto result {env->RegisterNatives(clazz, methods.data(), static_cast<jint> (methods.size()))};
+    env->DeleteLocalRef(clazz);
+    if (result != JNI_OK) {
+        LOG("Couldn't register the native methods of: ", className);
+        return false;
+    }
+    return true;
+}
+
+/**
+ * Helper method which gets a global reference to a Java class, so it can be used in any thread.
+ *
+ * @param env       The JNI environment.
+ * @param className The fully qualified name of the Java class.
+ * @return A global reference to the Java class.
+ */
+static jclass findGlobalClass(JNIEnv *const env, const char *const className) {
+    const auto localClass {env->FindClass(className)};
+    BOOST_ASSERT_MSG(localClass != nullptr, "Couldn't find a Java class.");
+    const auto globalClass {static_cast<jclass> (env->NewGlobalRef(localClass))};
+    env->DeleteLocalRef(localClass);
+    return globalClass;
+}
 
 extern "C"
 ::std::int32_t JNI_OnLoad(JavaVM *const jvm, void * /*reserved*/) {
@@ -52,6 +138,79 @@ extern "C"
         static_cast<void> (result);
     }
     BOOST_ASSERT_MSG(jniEnv != nullptr, "JNIEnv was not loaded properly.");
+
+    lowMemoryException_ = findGlobalClass(jniEnv, "puscas/mobilertapp/exceptions/LowMemoryException");
+    runtimeException_ = findGlobalClass(jniEnv, "java/lang/RuntimeException");
+
+    const ::std::array<JNINativeMethod, 14> mainRendererMethods {{
+        nativeMethod("rtFinishRender", "()V",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_MainRenderer_rtFinishRender)),
+        nativeMethod("rtInitialize", "(Ljava/nio/ByteBuffer;)I",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_MainRenderer_rtInitialize)),
+        nativeMethod("rtEstimateMemory", "(Ljava/nio/ByteBuffer;)J",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_MainRenderer_rtEstimateMemory)),
+        nativeMethod("rtGetAllocatedMemory", "()J",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_MainRenderer_rtGetAllocatedMemory)),
+        nativeMethod("rtRenderIntoBuffer", "(IZ)V",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_MainRenderer_rtRenderIntoBuffer)),
+        nativeMethod("rtSetWorkerThreads", "(I)V",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_MainRenderer_rtSetWorkerThreads)),
+        nativeMethod("rtGetWorkerThreads", "()I",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_MainRenderer_rtGetWorkerThreads)),
+        nativeMethod("rtGetFramebuffer", "()Ljava/nio/ByteBuffer;",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_MainRenderer_rtGetFramebuffer)),
+        nativeMethod("rtCopyFrameBuffer", "(Ljava/nio/ByteBuffer;II)V",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_MainRenderer_rtCopyFrameBuffer)),
+        nativeMethod("rtTakeDirtyTiles", "([I)I",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_MainRenderer_rtTakeDirtyTiles)),
+        nativeMethod("rtInitVerticesArray", "()Ljava/nio/ByteBuffer;",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_MainRenderer_rtInitVerticesArray)),
+        nativeMethod("rtInitColorsArray", "()Ljava/nio/ByteBuffer;",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_MainRenderer_rtInitColorsArray)),
+        nativeMethod("rtInitCameraArray", "()Ljava/nio/ByteBuffer;",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_MainRenderer_rtInitCameraArray)),
+        nativeMethod("rtFreeNativeBuffer", "(Ljava/nio/ByteBuffer;)Ljava/nio/ByteBuffer;",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_MainRenderer_rtFreeNativeBuffer)),
+    }};
+    const ::std::array<JNINativeMethod, 8> drawViewMethods {{
+        nativeMethod("rtStopRender", "()V",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_DrawView_rtStopRender)),
+        nativeMethod("rtStartRender", "()V",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_DrawView_rtStartRender)),
+        nativeMethod("rtGetNumberOfLights", "()I",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_DrawView_rtGetNumberOfLights)),
+        nativeMethod("rtGetLoadPhase", "()I",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_DrawView_rtGetLoadPhase)),
+        nativeMethod("rtGetLoadProgress", "()F",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_DrawView_rtGetLoadProgress)),
+        nativeMethod("rtCancelLoad", "()Z",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_DrawView_rtCancelLoad)),
+        nativeMethod("rtGetCamera", "([F[F[F)F",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_DrawView_rtGetCamera)),
+        nativeMethod("rtSetCamera", "([F[F[FF)Z",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_DrawView_rtSetCamera)),
+    }};
+    const ::std::array<JNINativeMethod, 2> renderTaskMethods {{
+        nativeMethod("rtGetStats", "()Ljava/nio/ByteBuffer;",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_RenderTask_rtGetStats)),
+        nativeMethod("rtWaitProgress", "(IJLjava/nio/ByteBuffer;)I",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_RenderTask_rtWaitProgress)),
+    }};
+    const ::std::array<JNINativeMethod, 1> mainActivityMethods {{
+        nativeMethod("rtResize", "(I)I",
+            reinterpret_cast<void*> (&Java_puscas_mobilertapp_MainActivity_rtResize)),
+    }};
+
+    const auto registered {
+        registerNatives(jniEnv, "puscas/mobilertapp/MainRenderer", mainRendererMethods) &&
+        registerNatives(jniEnv, "puscas/mobilertapp/DrawView", drawViewMethods) &&
+        registerNatives(jniEnv, "puscas/mobilertapp/RenderTask", renderTaskMethods) &&
+        registerNatives(jniEnv, "puscas/mobilertapp/MainActivity", mainActivityMethods)
+    };
+    if (!registered) {
+        return JNI_ERR;
+    }
+
     jniEnv->ExceptionClear();
     return JNI_VERSION_1_6;
 }
@@ -59,6 +218,13 @@ extern "C"
 extern "C"
 void JNI_OnUnload(JavaVM *const /*jvm*/, void * /*reserved*/) {
     LOG("JNI_OnUnload");
+    JNIEnv *jniEnv {};
+    if (javaVM_->GetEnv(reinterpret_cast<void**> (&jniEnv), JNI_VERSION_1_6) == JNI_OK) {
+        jniEnv->DeleteGlobalRef(lowMemoryException_);
+        jniEnv->DeleteGlobalRef(runtimeException_);
+    }
+    lowMemoryException_ = nullptr;
+    runtimeException_ = nullptr;
 }
 
 extern "C"
@@ -75,6 +241,7 @@ jobject Java_puscas_mobilertapp_MainRenderer_rtInitCameraArray(
                 const ::std::int64_t arraySize {20};
                 const auto arrayBytes {arraySize * sizeof(jfloat)};
                 float *const floatBuffer {new float[arraySize]};
+                ::MobileRT::MemoryBudget::allocate(static_cast<::std::int64_t> (arrayBytes));
 
                 if (floatBuffer != nullptr) {
                     directBuffer = env->NewDirectByteBuffer(floatBuffer, arrayBytes);
@@ -126,15 +293,15 @@ jobject Java_puscas_mobilertapp_MainRenderer_rtInitCameraArray(
         }
         return directBuffer;
     } catch (const ::std::bad_alloc &badAlloc) {
-        const auto lowMemClass {env->FindClass("puscas/mobilertapp/exceptions/LowMemoryException")};
+        const auto lowMemClass {lowMemoryException_};
         env->ThrowNew(lowMemClass, badAlloc.what());
         return nullptr;
     } catch (const ::std::exception &exception) {
-        const auto exceptionClass {env->FindClass("java/lang/RuntimeException")};
+        const auto exceptionClass {runtimeException_};
         env->ThrowNew(exceptionClass, exception.what());
         return nullptr;
     } catch (...) {
-        const auto exceptionClass {env->FindClass("java/lang/RuntimeException")};
+        const auto exceptionClass {runtimeException_};
         env->ThrowNew(exceptionClass, "Unknown error");
         return nullptr;
     }
@@ -155,6 +322,7 @@ jobject Java_puscas_mobilertapp_MainRenderer_rtInitVerticesArray(
                 const auto arrayBytes {arraySize * static_cast<jlong> (sizeof(jfloat))};
                 if (arraySize > 0) {
                     float *const floatBuffer {new float[arraySize]};
+                    ::MobileRT::MemoryBudget::allocate(arrayBytes);
                     if (floatBuffer != nullptr) {
                         directBuffer = env->NewDirectByteBuffer(floatBuffer, arrayBytes);
                         if (directBuffer != nullptr) {
@@ -193,15 +361,15 @@ jobject Java_puscas_mobilertapp_MainRenderer_rtInitVerticesArray(
         }
         return directBuffer;
     } catch (const ::std::bad_alloc &badAlloc) {
-        const auto lowMemClass {env->FindClass("puscas/mobilertapp/exceptions/LowMemoryException")};
+        const auto lowMemClass {lowMemoryException_};
         env->ThrowNew(lowMemClass, badAlloc.what());
         return nullptr;
     } catch (const ::std::exception &exception) {
-        const auto exceptionClass {env->FindClass("java/lang/RuntimeException")};
+        const auto exceptionClass {runtimeException_};
         env->ThrowNew(exceptionClass, exception.what());
         return nullptr;
     } catch (...) {
-        const auto exceptionClass {env->FindClass("java/lang/RuntimeException")};
+        const auto exceptionClass {runtimeException_};
         env->ThrowNew(exceptionClass, "Unknown error");
         return nullptr;
     }
@@ -222,6 +390,7 @@ jobject Java_puscas_mobilertapp_MainRenderer_rtInitColorsArray(
                 const auto arrayBytes {arraySize * static_cast<::std::int64_t> (sizeof(jfloat))};
                 if (arraySize > 0) {
                     float *const floatBuffer {new float[arraySize]};
+                    ::MobileRT::MemoryBudget::allocate(arrayBytes);
                     if (floatBuffer != nullptr) {
                         directBuffer = env->NewDirectByteBuffer(floatBuffer, arrayBytes);
                         if (directBuffer != nullptr) {
@@ -267,20 +436,66 @@ jobject Java_puscas_mobilertapp_MainRenderer_rtInitColorsArray(
         }
         return directBuffer;
     } catch (const ::std::bad_alloc &badAlloc) {
-        const auto lowMemClass {env->FindClass("puscas/mobilertapp/exceptions/LowMemoryException")};
+        const auto lowMemClass {lowMemoryException_};
         env->ThrowNew(lowMemClass, badAlloc.what());
         return nullptr;
     } catch (const ::std::exception &exception) {
-        const auto exceptionClass {env->FindClass("java/lang/RuntimeException")};
+        const auto exceptionClass {runtimeException_};
         env->ThrowNew(exceptionClass, exception.what());
         return nullptr;
     } catch (...) {
-        const auto exceptionClass {env->FindClass("java/lang/RuntimeException")};
+        const auto exceptionClass {runtimeException_};
         env->ThrowNew(exceptionClass, "Unknown error");
         return nullptr;
     }
 }
 
+/**
+ * Helper method which updates the statistics shared with Java.
+ * <br>
+ * If another thread is already updating them and it is not forced, it returns immediately, so the rendering
+ * threads never wait for each other.
+ *
+ * @param renderer The renderer to get the rendering progress from or nullptr to keep the last progress.
+ * @param force    Whether it should wait for another thread to finish updating the statistics.
+ */
+static void publishStats(const ::MobileRT::Renderer *const renderer, const bool force) {
+    while (publishingStats_.test_and_set(::std::memory_order_acquire)) {
+        if (!force) {
+            return;
+        }
+    }
+    stats_.sequence_.fetch_add(1, ::std::memory_order_relaxed);
+    ::std::atomic_thread_fence(::std::memory_order_release);
+
+    const auto state {state_.load()};
+    stats_.state_ = static_cast<::std::int32_t> (state);
+    stats_.fps_ = fps_;
+    stats_.timeRenderer_ = timeRenderer_;
+    stats_.bvhBytesPerTriangle_ = bvhBytesPerTriangle_;
+    if (state == State::BUSY) {
+        const auto timeNow {::std::chrono::steady_clock::now()};
+        stats_.renderTime_ =
+            ::std::chrono::duration_cast<::std::chrono::milliseconds> (timeNow - renderStart_).count();
+    }
+    if (renderer != nullptr) {
+        stats_.sample_ = renderer->getSample();
+        stats_.tilesDone_ = renderer->getTilesDone();
+        stats_.raysTraced_ = renderer->getRaysTraced();
+    }
+
+    ::std::atomic_thread_fence(::std::memory_order_release);
+    stats_.sequence_.fetch_add(1, ::std::memory_order_release);
+    publishingStats_.clear(::std::memory_order_release);
+
+    if (progressWaiters_.load(::std::memory_order_acquire) > 0) {
+        {
+            const ::std::lock_guard<::std::mutex> lock {progressMutex_};
+        }
+        progressCondition_.notify_all();
+    }
+}
+
 static void updateFps() {
     static ::std::int32_t frame {};
     static ::std::chrono::steady_clock::time_point timebase {};
@@ -292,6 +507,95 @@ static void updateFps() {
         timebase = timeNow;
         frame = 0;
     }
+    publishStats(nullptr, true);
+}
+
+/**
+ * Helper method which copies the pixels read from the OpenGL frame buffer into a framebuffer with another size.
+ * <br>
+ * It flips the rows, because the OpenGL frame buffer starts at the bottom, averages all the pixels that fall in
+ * each destination pixel and makes them opaque.
+ * <br>
+ * The box filter is separable, so the source rows of each destination row are first summed per channel in a loop
+ * without branches over consecutive pixels, which the compiler vectorizes, and only then each destination pixel
+ * sums the columns in its range, which are computed once per call. The averages are multiplied by the inverse
+ * of the number of pixels instead of divided. It is only called with the mutex_ locked, so the buffers of the
+ * sums are kept between calls.
+ *
+ * @param src       The pixels, in RGBA format, read from the OpenGL frame buffer.
+ * @param srcWidth  The width of the OpenGL frame buffer.
+ * @param srcHeight The height of the OpenGL frame buffer.
+ * @param dst       The framebuffer where the pixels should be put.
+ * @param dstWidth  The width of the framebuffer.
+ * @param dstHeight The height of the framebuffer.
+ */
+static void copyFrameBuffer(const ::std::uint32_t *const src,
+                            const ::std::int32_t srcWidth, const ::std::int32_t srcHeight,
+                            ::std::int32_t *const dst,
+                            const ::std::int32_t dstWidth, const ::std::int32_t dstHeight) {
+    static ::std::vector<::std::uint32_t> columnsStart {};
+    static ::std::vector<::std::uint32_t> columnsEnd {};
+    static ::std::vector<float> columnsWeight {};
+    static ::std::vector<::std::uint32_t> sumsRed {};
+    static ::std::vector<::std::uint32_t> sumsGreen {};
+    static ::std::vector<::std::uint32_t> sumsBlue {};
+
+    const auto dstColumns {static_cast<::std::uint32_t> (dstWidth)};
+    const auto srcColumns {static_cast<::std::uint32_t> (srcWidth)};
+    columnsStart.resize(dstColumns);
+    columnsEnd.resize(dstColumns);
+    columnsWeight.resize(dstColumns);
+    for (::std::int32_t x {}; x < dstWidth; ++x) {
+        const auto startX {x * srcWidth / dstWidth};
+        const auto endX {::std::max(startX + 1, (x + 1) * srcWidth / dstWidth)};
+        const auto index {static_cast<::std::uint32_t> (x)};
+        columnsStart[index] = static_cast<::std::uint32_t> (startX);
+        columnsEnd[index] = static_cast<::std::uint32_t> (endX);
+        columnsWeight[index] = 1.0F / static_cast<float> (endX - startX);
+    }
+    sumsRed.resize(srcColumns);
+    sumsGreen.resize(srcColumns);
+    sumsBlue.resize(srcColumns);
+    ::std::uint32_t *const red {sumsRed.data()};
+    ::std::uint32_t *const green {sumsGreen.data()};
+    ::std::uint32_t *const blue {sumsBlue.data()};
+
+    for (::std::int32_t y {}; y < dstHeight; ++y) {
+        const auto startY {y * srcHeight / dstHeight};
+        const auto endY {::std::max(startY + 1, (y + 1) * srcHeight / dstHeight)};
+        ::std::fill(sumsRed.begin(), sumsRed.end(), 0U);
+        ::std::fill(sumsGreen.begin(), sumsGreen.end(), 0U);
+        ::std::fill(sumsBlue.begin(), sumsBlue.end(), 0U);
+        for (auto srcY {startY}; srcY < endY; ++srcY) {
+            const ::std::uint32_t *const srcRow {&src[(srcHeight - 1 - srcY) * srcWidth]};
+            for (::std::uint32_t srcX {}; srcX < srcColumns; ++srcX) {
+                const auto pixel {srcRow[srcX]};
+                red[srcX] += pixel & 0xFFU;
+                green[srcX] += (pixel >> 8U) & 0xFFU;
+                blue[srcX] += (pixel >> 16U) & 0xFFU;
+            }
+        }
+
+        const auto rowWeight {1.0F / static_cast<float> (endY - startY)};
+        ::std::int32_t *const dstRow {&dst[y * dstWidth]};
+        for (::std::uint32_t x {}; x < dstColumns; ++x) {
+            ::std::uint32_t sumRed {};
+            ::std::uint32_t sumGreen {};
+            ::std::uint32_t sumBlue {};
+            for (auto srcX {columnsStart[x]}; srcX < columnsEnd[x]; ++srcX) {
+                sumRed += red[srcX];
+                sumGreen += green[srcX];
+                sumBlue += blue[srcX];
+            }
+            const auto weight {columnsWeight[x] * rowWeight};
+            const auto averageRed {static_cast<::std::uint32_t> (static_cast<float> (sumRed) * weight + 0.5F)};
+            const auto averageGreen {static_cast<::std::uint32_t> (static_cast<float> (sumGreen) * weight + 0.5F)};
+            const auto averageBlue {static_cast<::std::uint32_t> (static_cast<float> (sumBlue) * weight + 0.5F)};
+            dstRow[x] = static_cast<::std::int32_t> (
+                0xFF000000U | averageBlue << 16U | averageGreen << 8U | averageRed
+            );
+        }
+    }
 }
 
 extern "C"
@@ -302,6 +606,7 @@ void Java_puscas_mobilertapp_DrawView_rtStartRender(
     finishedRendering_ = false;
     state_ = State::BUSY;
     LOG("STATE = BUSY");
+    publishStats(nullptr, true);
     env->ExceptionClear();
 }
 
@@ -310,75 +615,236 @@ void Java_puscas_mobilertapp_DrawView_rtStopRender(
         JNIEnv *env,
         jobject /*thiz*/
 ) {
-    //TODO: Fix this race condition
-    while (!finishedRendering_ && renderer_ != nullptr) {
-        state_ = State::STOPPED;
-        LOG("STATE = STOPPED");
-        renderer_->stopRender();
-    }
     state_ = State::STOPPED;
     LOG("STATE = STOPPED");
     {
-        ::std::unique_lock<std::mutex> lock {mutex_};
-        while (!finishedRendering_) {
-            rendered_.wait(lock);
-            if (renderer_ != nullptr) {
-                renderer_->stopRender();
-            }
+        // The render loop checks the state before each slice, so a renderer loaded meanwhile never starts.
+        const ::std::lock_guard<::std::mutex> lock {rendererMutex_};
+        if (renderer_ != nullptr) {
+            renderer_->stopRender();
         }
     }
+    publishStats(nullptr, true);
+    {
+        ::std::unique_lock<::std::mutex> lock {mutex_};
+        restarted_.notify_all();
+        rendered_.wait(lock, []() {return finishedRendering_.load();});
+    }
     env->ExceptionClear();
     LOG("stopRender finished");
 }
 
-extern "C"
-jint Java_puscas_mobilertapp_MainRenderer_rtInitialize(
-        JNIEnv *env,
-        jobject /*thiz*/,
-        jobject localConfig
-) {
-    LOG("INITIALIZE");
-    try {
-        const auto configClass {env->GetObjectClass(localConfig)};
+/**
+ * The configuration of the Ray Tracer engine.
+ */
+struct RendererConfig {
+    ::std::int32_t sceneIndex_ {};
+    ::std::int32_t shaderIndex_ {};
+    ::std::int32_t acceleratorIndex_ {};
+    ::std::int32_t samplerIndex_ {};
+    ::std::int32_t width_ {};
+    ::std::int32_t height_ {};
+    ::std::int32_t samplesPixel_ {};
+    ::std::int32_t samplesLight_ {};
+    float targetError_ {};
+    bool denoise_ {};
+    ::std::int32_t tileSize_ {};
+    bool progressive_ {true};
+    bool preview_ {true};
+    ::std::string objFilePath_ {};
+    ::std::string matFilePath_ {};
+    ::std::string camFilePath_ {};
+};
+
+/**
+ * Helper method which reads the configuration of the Ray Tracer engine serialized by the Java Config class.
+ *
+ * @param env    The JNI environment.
+ * @param buffer The direct buffer with the serialized configuration.
+ * @return The configuration of the Ray Tracer engine.
+ */
+static RendererConfig readConfig(JNIEnv *const env, jobject buffer) {
+    const auto *const config {static_cast<const ::std::uint8_t*> (env->GetDirectBufferAddress(buffer))};
+    const auto configSize {static_cast<::std::size_t> (env->GetDirectBufferCapacity(buffer))};
+    ::std::size_t offset {};
+
+    const auto readInt {
+        [&]() -> ::std::int32_t {
+            if (config == nullptr || offset + sizeof(::std::int32_t) > configSize) {
+                throw ::std::runtime_error {"The configuration is not valid."};
+            }
+            ::std::int32_t value {};
+            ::std::memcpy(&value, config + offset, sizeof(value));
+            offset += sizeof(value);
+            return value;
+        }
+    };
+    const auto readFloat {
+        [&]() -> float {
+            const auto bits {readInt()};
+            float value {};
+            ::std::memcpy(&value, &bits, sizeof(value));
+            return value;
+        }
+    };
+    const auto readString {
+        [&]() -> ::std::string {
+            const auto length {readInt()};
+            if (length < 0 || static_cast<::std::size_t> (length) > configSize - offset) {
+                throw ::std::runtime_error {"The configuration is not valid."};
+            }
+            const ::std::string value {
+                reinterpret_cast<const char*> (config + offset), static_cast<::std::size_t> (length)
+            };
+            offset += static_cast<::std::size_t> (length);
+            return value;
+        }
+    };
 
-        const auto sceneMethodId {env->GetMethodID(configClass, "getScene", "()I")};
-        const auto sceneIndex {env->CallIntMethod(localConfig, sceneMethodId)};
+    const auto version {readInt()};
+    if (version != ConfigVersion) {
+        throw ::std::runtime_error {"The version of the configuration is not supported."};
+    }
+    RendererConfig rendererConfig {};
+    rendererConfig.sceneIndex_ = readInt();
+    rendererConfig.shaderIndex_ = readInt();
+    rendererConfig.acceleratorIndex_ = readInt();
+    rendererConfig.samplerIndex_ = readInt();
+    rendererConfig.width_ = readInt();
+    rendererConfig.height_ = readInt();
+    rendererConfig.samplesPixel_ = readInt();
+    rendererConfig.samplesLight_ = readInt();
+    rendererConfig.targetError_ = readFloat();
+    rendererConfig.denoise_ = readInt() != 0;
+    rendererConfig.tileSize_ = readInt();
+    rendererConfig.progressive_ = readInt() != 0;
+    rendererConfig.preview_ = readInt() != 0;
+    rendererConfig.objFilePath_ = readString();
+    rendererConfig.matFilePath_ = readString();
+    rendererConfig.camFilePath_ = readString();
+    return rendererConfig;
+}
 
-        const auto shaderMethodId {env->GetMethodID(configClass, "getShader", "()I")};
-        const auto shaderIndex {env->CallIntMethod(localConfig, shaderMethodId)};
+/**
+ * Helper method which checks whether a scene is loaded from an OBJ file or is one of the scenes built in the
+ * Ray Tracer engine.
+ *
+ * @param sceneIndex The index of the scene.
+ * @return Whether the scene is loaded from an OBJ file.
+ */
+static bool isObjScene(const ::std::int32_t sceneIndex) {
+    return sceneIndex < 0 || sceneIndex > 3;
+}
 
-        const auto acceleratorMethodId {env->GetMethodID(configClass, "getAccelerator", "()I")};
-        const auto acceleratorIndex {env->CallIntMethod(localConfig, acceleratorMethodId)};
+/**
+ * Helper method which creates the sampler of random numbers selected in the Java Sampler enum.
+ *
+ * @param samplerIndex The index of the sampler.
+ * @param samplesPixel The number of samples per pixel.
+ * @return A new sampler.
+ */
+static ::std::unique_ptr<::MobileRT::Sampler> createSampler(const ::std::int32_t samplerIndex,
+                                                          const ::std::int32_t samplesPixel) {
+    switch (samplerIndex) {
+        case 1: {
+            return ::std::make_unique<Components::Sobol> ();
+        }
 
-        const auto widthMethodId {env->GetMethodID(configClass, "getWidth", "()I")};
-        const auto width {env->CallIntMethod(localConfig, widthMethodId)};
+        case 2: {
+            return ::std::make_unique<Components::Stratified> (static_cast<::std::uint32_t> (samplesPixel));
+        }
 
-        const auto heightMethodId {env->GetMethodID(configClass, "getHeight", "()I")};
-        const auto height {env->CallIntMethod(localConfig, heightMethodId)};
+        case 3: {
+            return ::std::make_unique<Components::MersenneTwister> ();
+        }
 
-        const auto samplesPixelMethodId {env->GetMethodID(configClass, "getSamplesPixel", "()I")};
-        const auto samplesPixel {env->CallIntMethod(localConfig, samplesPixelMethodId)};
+        default: {
+            return ::std::make_unique<Components::StaticHaltonSeq> ();
+        }
+    }
+}
 
-        const auto samplesLightMethodId {env->GetMethodID(configClass, "getSamplesLight", "()I")};
-        const auto samplesLight {env->CallIntMethod(localConfig, samplesLightMethodId)};
+/**
+ * Helper method which frees the Ray Tracer renderer with the loaded scene.
+ * It should be called while holding the mutex_, so the renderer isn't rendering, and it also takes the
+ * rendererMutex_, so the renderer isn't freed while the other threads read it.
+ * The rendererMutex_ also guards the framebuffer_, which is resolved from the renderer.
+ */
+static void freeScene() {
+    {
+        const ::std::lock_guard<::std::mutex> lock {rendererMutex_};
+        renderer_ = nullptr;
+    }
+    ::MobileRT::MemoryBudget::free(sceneBytes_);
+    sceneBytes_ = 0;
+    bvhBytesPerTriangle_ = 0.0F;
+}
 
-        jboolean isCopy {JNI_FALSE};
-        const auto objMethodId {env->GetMethodID(configClass, "getObjFilePath", "()Ljava/lang/String;")};
-        const auto localObjFilePath {static_cast<jstring> (env->CallObjectMethod(localConfig, objMethodId))};
-        const auto *const objFilePath {env->GetStringUTFChars(localObjFilePath, &isCopy)};
+/**
+ * Helper method which publishes the progress of the current phase of loading a scene.
+ * It is also used as the progress listener of the OBJ loader.
+ *
+ * @param progress The progress of the current phase, between 0 and 1.
+ * @return Whether the loading should continue or not, because the user stopped the Ray Tracer engine.
+ */
+static bool reportLoadProgress(const float progress) {
+    loadProgress_ = progress;
+    return state_ != State::STOPPED;
+}
 
-        const auto mtlMethodId {env->GetMethodID(configClass, "getMatFilePath", "()Ljava/lang/String;")};
-        const auto localMatFilePath {static_cast<jstring> (env->CallObjectMethod(localConfig, mtlMethodId))};
-        const auto *const matFilePath {env->GetStringUTFChars(localMatFilePath, &isCopy)};
+/**
+ * Helper method which starts a new phase of loading a scene and logs how long the previous phase took.
+ *
+ * @param phase      The phase to start.
+ * @param phaseStart The instant when the previous phase started, which is reset to now.
+ * @return Whether the loading should continue or not, because the user stopped the Ray Tracer engine.
+ */
+static bool startLoadPhase(const LoadPhase phase, ::std::chrono::steady_clock::time_point *const phaseStart) {
+    const auto now {::std::chrono::steady_clock::now()};
+    const auto duration {::std::chrono::duration_cast<::std::chrono::milliseconds> (now - *phaseStart).count()};
+    LOG("LOAD PHASE ", static_cast<::std::int32_t> (loadPhase_.load()), " TOOK ", duration, "ms");
+    *phaseStart = now;
+    loadPhase_ = phase;
+    return reportLoadProgress(0.0F);
+}
 
-        const auto camMethodId {env->GetMethodID(configClass, "getCamFilePath", "()Ljava/lang/String;")};
-        const auto localCamFilePath {static_cast<jstring> (env->CallObjectMethod(localConfig, camMethodId))};
-        const auto *const camFilePath {env->GetStringUTFChars(localCamFilePath, &isCopy)};
+extern "C"
+jint Java_puscas_mobilertapp_MainRenderer_rtInitialize(
+        JNIEnv *env,
+        jobject /*thiz*/,
+        jobject localConfig
+) {
+    LOG("INITIALIZE");
+    try {
+        const auto config {readConfig(env, localConfig)};
+        const auto sceneIndex {config.sceneIndex_};
+        const auto shaderIndex {config.shaderIndex_};
+        const auto acceleratorIndex {config.acceleratorIndex_};
+        const auto samplerIndex {config.samplerIndex_};
+        const auto width {config.width_};
+        const auto height {config.height_};
+        const auto samplesPixel {config.samplesPixel_};
+        const auto samplesLight {config.samplesLight_};
+        const auto targetError {config.targetError_};
+        const auto denoise {config.denoise_};
+        const auto &objFilePath {config.objFilePath_};
+        const auto &matFilePath {config.matFilePath_};
+        const auto &camFilePath {config.camFilePath_};
+        auto phaseStart {::std::chrono::steady_clock::now()};
 
         const auto res {
             [&]() -> ::std::int32_t {
                 const ::std::lock_guard<::std::mutex> lock {mutex_};
-                renderer_ = nullptr;
+                freeScene();
+                {
+                    const ::std::lock_guard<::std::mutex> lockRenderer {rendererMutex_};
+                    framebuffer_.clear();
+                    ::MobileRT::MemoryBudget::free(
+                        ::MobileRT::MemoryBudget::estimateFramebuffers(framebufferWidth_, framebufferHeight_)
+                    );
+                    framebufferWidth_ = 0;
+                    framebufferHeight_ = 0;
+                }
                 const auto ratio {static_cast<float> (width) / height};
                 ::MobileRT::Scene scene {};
                 ::std::unique_ptr<::MobileRT::Sampler> samplerPixel {};
@@ -386,6 +852,10 @@ jint Java_puscas_mobilertapp_MainRenderer_rtInitialize(
                 ::std::unique_ptr<::MobileRT::Camera> camera {};
                 ::glm::vec3 maxDist {};
                 LOG("LOADING SCENE");
+                if (!startLoadPhase(LoadPhase::PARSING, &phaseStart)) {
+                    LOG("LOAD CANCELLED");
+                    return -1;
+                }
                 switch (sceneIndex) {
                     case 0: {
                         const auto fovX {45.0F * ratio};
@@ -444,21 +914,21 @@ jint Java_puscas_mobilertapp_MainRenderer_rtInitialize(
                         break;
 
                     default: {
-                        BOOST_ASSERT_MSG(objFilePath != nullptr, "OBJ file path not valid.");
-                        BOOST_ASSERT_MSG(matFilePath != nullptr, "MTL file path not valid.");
-                        BOOST_ASSERT_MSG(camFilePath != nullptr, "CAM file path not valid.");
+                        BOOST_ASSERT_MSG(!objFilePath.empty(), "OBJ file path not valid.");
+                        BOOST_ASSERT_MSG(!matFilePath.empty(), "MTL file path not valid.");
+                        BOOST_ASSERT_MSG(!camFilePath.empty(), "CAM file path not valid.");
 
                         const auto cameraFactory {::Components::CameraFactory()};
                         camera = cameraFactory.loadFromFile(camFilePath, ratio);
 
-                        ::Components::OBJLoader objLoader {objFilePath, matFilePath};
+                        ::Components::OBJLoader objLoader {objFilePath, matFilePath, reportLoadProgress};
                         LOG("OBJLOADER PROCESSED");
 
-                        if (!objLoader.isProcessed()) {
+                        if (!objLoader.isProcessed() || !startLoadPhase(LoadPhase::FILLING, &phaseStart)) {
                             return -1;
                         }
                         const auto sceneBuilt {objLoader.fillScene(
-                                &scene, []() {return ::std::make_unique<Components::StaticHaltonSeq> ();}
+                                &scene, [&]() {return createSampler(samplerIndex, samplesPixel);}
                         )};
                         if (!sceneBuilt) {
                             return -1;
@@ -470,43 +940,51 @@ jint Java_puscas_mobilertapp_MainRenderer_rtInitialize(
                 }
                 samplerPixel = samplesPixel <= 1
                     ? ::std::unique_ptr<::MobileRT::Sampler> (::std::make_unique<Components::Constant> (0.5F))
-                    : ::std::unique_ptr<::MobileRT::Sampler> (::std::make_unique<Components::StaticHaltonSeq> ());
+                    : createSampler(samplerIndex, samplesPixel);
                 LOG("LOADING SHADER");
+                if (!startLoadPhase(LoadPhase::BUILDING, &phaseStart)) {
+                    LOG("LOAD CANCELLED");
+                    return -1;
+                }
+                // The construction of the BVHs polls the state, so stopping the render doesn't wait for it.
+                const auto isCancelled {[]() {return state_ == State::STOPPED;}};
                 const auto start {::std::chrono::system_clock::now()};
                 switch (shaderIndex) {
                     case 1: {
                         shader = ::std::make_unique<Components::Whitted> (
                             ::std::move(scene),
                             samplesLight,
-                            ::MobileRT::Shader::Accelerator(acceleratorIndex)
+                            ::MobileRT::Shader::Accelerator(acceleratorIndex),
+                            isCancelled
                         );
                         break;
                     }
 
                     case 2: {
                         ::std::unique_ptr<MobileRT::Sampler> samplerRussianRoulette {
-                            ::std::make_unique<Components::StaticHaltonSeq> ()
+                            createSampler(samplerIndex, samplesPixel)
                         };
 
                         shader = ::std::make_unique<Components::PathTracer> (
                             ::std::move(scene),
                             ::std::move(samplerRussianRoulette),
                             samplesLight,
-                            ::MobileRT::Shader::Accelerator(acceleratorIndex)
+                            ::MobileRT::Shader::Accelerator(acceleratorIndex),
+                            isCancelled
                         );
                         break;
                     }
 
                     case 3: {
                         shader = ::std::make_unique<Components::DepthMap> (
-                            ::std::move(scene), maxDist, ::MobileRT::Shader::Accelerator(acceleratorIndex)
+                            ::std::move(scene), maxDist, ::MobileRT::Shader::Accelerator(acceleratorIndex), isCancelled
                         );
                         break;
                     }
 
                     case 4: {
                         shader = ::std::make_unique<Components::DiffuseMaterial> (
-                            ::std::move(scene), ::MobileRT::Shader::Accelerator(acceleratorIndex)
+                            ::std::move(scene), ::MobileRT::Shader::Accelerator(acceleratorIndex), isCancelled
                         );
                         break;
                     }
@@ -515,7 +993,8 @@ jint Java_puscas_mobilertapp_MainRenderer_rtInitialize(
                         shader = ::std::make_unique<Components::NoShadows> (
                             ::std::move(scene),
                             samplesLight,
-                            ::MobileRT::Shader::Accelerator(acceleratorIndex)
+                            ::MobileRT::Shader::Accelerator(acceleratorIndex),
+                            isCancelled
                         );
                         break;
                     }
@@ -523,16 +1002,47 @@ jint Java_puscas_mobilertapp_MainRenderer_rtInitialize(
                 const auto end {::std::chrono::system_clock::now()};
 
                 LOG("LOADING RENDERER");
+                if (!startLoadPhase(LoadPhase::ALLOCATING, &phaseStart)) {
+                    LOG("LOAD CANCELLED");
+                    return -1;
+                }
                 const auto planes {static_cast<::std::int32_t> (shader->getPlanes().size())};
                 const auto spheres {static_cast<::std::int32_t> (shader->getSpheres().size())};
                 const auto triangles {static_cast<::std::int32_t> (shader->getTriangles().size())};
                 const auto materials {static_cast<::std::int32_t> (shader->getMaterials().size())};
                 numLights_ = static_cast<::std::int32_t> (shader->getLights().size());
                 const auto nPrimitives {triangles + spheres + planes};
-                renderer_ = ::std::make_unique<::MobileRT::Renderer> (
+                ::MobileRT::SceneSize sceneSize {};
+                sceneSize.triangles_ = triangles;
+                sceneSize.spheres_ = spheres;
+                sceneSize.planes_ = planes;
+                sceneBytes_ = ::MobileRT::MemoryBudget::estimateScene(
+                    sceneSize, ::MobileRT::Shader::Accelerator(acceleratorIndex)
+                ) + ::MobileRT::MemoryBudget::estimateAccumulation(width, height) +
+                    (denoise ? ::MobileRT::MemoryBudget::estimateDenoiser(width, height) : 0);
+                ::MobileRT::MemoryBudget::allocate(sceneBytes_);
+                const auto bvhSize {shader->getBvhSize()};
+                bvhBytesPerTriangle_ = triangles > 0 ?
+                    static_cast<float> (bvhSize) / static_cast<float> (triangles) : 0.0F;
+                auto renderer {::std::make_unique<::MobileRT::Renderer> (
                     ::std::move(shader), ::std::move(camera), ::std::move(samplerPixel),
-                    width, height, samplesPixel
-                );
+                    width, height, samplesPixel, targetError
+                )};
+                if (config.tileSize_ > 0) {
+                    renderer->setTileSize(config.tileSize_);
+                }
+                renderer->setProgressive(config.progressive_);
+                renderer->setPreview(config.preview_);
+                {
+                    const ::std::lock_guard<::std::mutex> lockRenderer {rendererMutex_};
+                    renderer_ = ::std::move(renderer);
+                    framebuffer_.assign(
+                        static_cast<::std::uint32_t> (width * height), static_cast<::std::int32_t> (0xFF000000)
+                    );
+                    framebufferWidth_ = width;
+                    framebufferHeight_ = height;
+                }
+                ::MobileRT::MemoryBudget::allocate(::MobileRT::MemoryBudget::estimateFramebuffers(width, height));
                 timeRenderer_ = ::std::chrono::duration_cast<std::chrono::milliseconds> (end - start).count();
                 LOG("TIME CONSTRUCTION RENDERER = ", timeRenderer_, "ms");
                 LOG("PLANES = ", planes);
@@ -540,14 +1050,20 @@ jint Java_puscas_mobilertapp_MainRenderer_rtInitialize(
                 LOG("TRIANGLES = ", triangles);
                 LOG("LIGHTS = ", numLights_);
                 LOG("MATERIALS = ", materials);
+                LOG("BVH SIZE = ", bvhSize, " bytes (", bvhBytesPerTriangle_, " bytes per triangle)");
+                renderer_->setProgressListener([]() {publishStats(renderer_.get(), false);});
+                renderer_->setDenoise(denoise);
+                publishStats(renderer_.get(), true);
                 return nPrimitives;
             }()};
+        startLoadPhase(LoadPhase::IDLE, &phaseStart);
 
         env->ExceptionClear();
         LOG("PRIMITIVES = ", res);
         return res;
     } catch (const ::std::bad_alloc &badAlloc) {
-        const auto lowMemClass {env->FindClass("puscas/mobilertapp/exceptions/LowMemoryException")};
+        loadPhase_ = LoadPhase::IDLE;
+        const auto lowMemClass {lowMemoryException_};
         const auto res {env->ThrowNew(lowMemClass, badAlloc.what())};
         if (res != 0) {
             LOG("ERROR: ", res);
@@ -556,7 +1072,8 @@ jint Java_puscas_mobilertapp_MainRenderer_rtInitialize(
         }
         return -1;
     } catch (const ::std::exception &exception) {
-        const auto exceptionClass {env->FindClass("java/lang/RuntimeException")};
+        loadPhase_ = LoadPhase::IDLE;
+        const auto exceptionClass {runtimeException_};
         const auto res {env->ThrowNew(exceptionClass, exception.what())};
         if (res != 0) {
             LOG("ERROR: ", res);
@@ -565,7 +1082,8 @@ jint Java_puscas_mobilertapp_MainRenderer_rtInitialize(
         }
         return -2;
     } catch (...) {
-        const auto exceptionClass {env->FindClass("java/lang/RuntimeException")};
+        loadPhase_ = LoadPhase::IDLE;
+        const auto exceptionClass {runtimeException_};
         const auto res {env->ThrowNew(exceptionClass, "Unknown error")};
         if (res != 0) {
             LOG("ERROR: ", res);
@@ -576,6 +1094,49 @@ jint Java_puscas_mobilertapp_MainRenderer_rtInitialize(
     }
 }
 
+extern "C"
+jlong Java_puscas_mobilertapp_MainRenderer_rtEstimateMemory(
+        JNIEnv *env,
+        jobject /*thiz*/,
+        jobject localConfig
+) {
+    LOG("ESTIMATE MEMORY");
+    try {
+        const auto config {readConfig(env, localConfig)};
+        // The scenes built in the Ray Tracer engine only have a few primitives.
+        const auto sceneSize {
+            isObjScene(config.sceneIndex_)
+                ? ::Components::OBJLoader::estimateSize(config.objFilePath_, config.matFilePath_)
+                : ::MobileRT::SceneSize {}
+        };
+        const auto estimate {
+            ::MobileRT::MemoryBudget::estimate(
+                sceneSize, ::MobileRT::Shader::Accelerator(config.acceleratorIndex_), config.width_, config.height_,
+                config.denoise_
+            )
+        };
+        LOG("ESTIMATED MEMORY = ", estimate, " bytes");
+        env->ExceptionClear();
+        return estimate;
+    } catch (const ::std::bad_alloc &badAlloc) {
+        env->ThrowNew(lowMemoryException_, badAlloc.what());
+    } catch (const ::std::exception &exception) {
+        env->ThrowNew(runtimeException_, exception.what());
+    } catch (...) {
+        env->ThrowNew(runtimeException_, "Unknown error");
+    }
+    return -1;
+}
+
+extern "C"
+jlong Java_puscas_mobilertapp_MainRenderer_rtGetAllocatedMemory(
+        JNIEnv *env,
+        jobject /*thiz*/
+) {
+    env->ExceptionClear();
+    return ::MobileRT::MemoryBudget::getAllocated();
+}
+
 extern "C"
 void Java_puscas_mobilertapp_MainRenderer_rtFinishRender(
         JNIEnv *env,
@@ -588,170 +1149,230 @@ void Java_puscas_mobilertapp_MainRenderer_rtFinishRender(
         if (renderer_ != nullptr) {
             renderer_->stopRender();
         }
-        if (thread_ != nullptr) {
-            renderer_ = nullptr;
-            thread_ = nullptr;
+        if (renderLaunched_) {
+            freeScene();
+            renderLaunched_ = false;
             LOG("DELETED RENDERER");
         }
         state_ = State::IDLE;
         LOG("STATE = IDLE");
         fps_ = 0.0F;
         timeRenderer_ = 0;
+        publishStats(nullptr, true);
+        restarted_.notify_all();
         env->ExceptionClear();
     }
 }
 
 extern "C"
-void Java_puscas_mobilertapp_MainRenderer_rtRenderIntoBitmap(
+void Java_puscas_mobilertapp_MainRenderer_rtRenderIntoBuffer(
         JNIEnv *env,
         jobject /*thiz*/,
-        jobject localBitmap,
         jint nThreads,
         jboolean async
 ) {
     try {
-        auto globalBitmap {static_cast<jobject> (env->NewGlobalRef(localBitmap))};
-
         auto lambda {
             [=]() -> void {
-                BOOST_ASSERT_MSG(env != nullptr, "JNIEnv not valid.");
-                const auto jniError {
-                        javaVM_->GetEnv(reinterpret_cast<void **> (const_cast<JNIEnv **> (&env)), JNI_VERSION_1_6)
-                };
-
-                BOOST_ASSERT_MSG(jniError == JNI_OK || jniError == JNI_EDETACHED, "JNIEnv not valid.");
-                {
-                    const auto result {javaVM_->AttachCurrentThread(const_cast<JNIEnv **> (&env), nullptr)};
-                    BOOST_ASSERT_MSG(result == JNI_OK, "Couldn't attach current thread to JVM.");
-                    static_cast<void> (result);
-                }
-
-                ::std::int32_t *dstPixels {};
-                {
-                    const auto ret {
-                            AndroidBitmap_lockPixels(env, globalBitmap, reinterpret_cast<void **> (&dstPixels))
-                    };
-                    BOOST_ASSERT_MSG(ret == JNI_OK, "Couldn't lock the Android bitmap pixels.");
-                    LOG("ret = ", ret);
-                }
-
-                AndroidBitmapInfo info {};
-                {
-                    const auto ret {AndroidBitmap_getInfo(env, globalBitmap, &info)};
-                    BOOST_ASSERT_MSG(ret == JNI_OK, "Couldn't get the Android bitmap information structure.");
-                    LOG("ret = ", ret);
-                }
-
-                ::std::int32_t rep {1};
-                while (state_ == State::BUSY && rep > 0) {
+                renderStart_ = ::std::chrono::steady_clock::now();
+                while (state_ == State::BUSY) {
                     LOG("STARTING RENDERING");
                     LOG("nThreads = ", nThreads);
-                    {
+                    // The frame is rendered in slices, so the camera can move at a steady frame rate and the
+                    // mutex is released between them.
+                    auto frameDone {false};
+                    while (state_ == State::BUSY && !frameDone) {
                         const ::std::lock_guard<::std::mutex> lock {mutex_};
-                        rendered_.notify_all();
-                        if (renderer_ != nullptr) {
-                            renderer_->renderFrame(dstPixels, nThreads);
-                        }
+                        frameDone = renderer_ == nullptr || renderer_->renderFrame(nullptr, nThreads, FrameBudget);
                     }
                     LOG("FINISHED RENDERING");
                     updateFps();
-                    rep--;
-                }
-                finishedRendering_ = true;
-                rendered_.notify_all();
-                {
-                    const ::std::lock_guard<::std::mutex> lock {mutex_};
-                    if (state_ != State::STOPPED) {
-                        state_ = State::FINISHED;
-                        LOG("STATE = FINISHED");
-                    }
-                    {
-                        const auto result {AndroidBitmap_unlockPixels(env, globalBitmap)};
-                        BOOST_ASSERT_MSG(result == JNI_OK, "Couldn't unlock the Android bitmap pixels.");
-                        static_cast<void> (result);
+                    if (!async) {
+                        break;
                     }
 
-                    env->DeleteGlobalRef(globalBitmap);
-                    {
-                        const auto result {
-                                javaVM_->GetEnv(reinterpret_cast<void **> (const_cast<JNIEnv **> (&env)),
-                                                JNI_VERSION_1_6)
-                        };
-                        BOOST_ASSERT_MSG(result == JNI_OK || jniError == JNI_EDETACHED, "JNIEnv not valid.");
-                        static_cast<void> (result);
+                    // The renderer is kept after the frame is complete, so the camera can still move. The render
+                    // loop waits for a new view, which rtSetCamera signals by setting the state back to BUSY, or
+                    // for the rendering process to stop.
+                    ::std::unique_lock<::std::mutex> lock {mutex_};
+                    if (renderer_ == nullptr) {
+                        break;
+                    }
+                    if (renderer_->isRestartPending()) {
+                        continue;
+                    }
+                    auto busy {State::BUSY};
+                    if (state_.compare_exchange_strong(busy, State::FINISHED)) {
+                        LOG("STATE = FINISHED");
+                        publishStats(renderer_.get(), true);
+                    }
+                    // A view set right before the state changed to FINISHED didn't set it back to BUSY, so the
+                    // pending restart is also checked.
+                    restarted_.wait(lock, []() {
+                        return state_ != State::FINISHED || (renderer_ != nullptr && renderer_->isRestartPending());
+                    });
+                    auto finished {State::FINISHED};
+                    if (state_.compare_exchange_strong(finished, State::BUSY)) {
+                        LOG("STATE = BUSY");
                     }
-                    env->ExceptionClear();
-                    if (jniError == JNI_EDETACHED) {
-                        const auto result {javaVM_->DetachCurrentThread()};
-                        BOOST_ASSERT_MSG(result == JNI_OK, "Couldn't detach the current thread from JVM.");
-                        static_cast<void> (result);
+                    renderStart_ = ::std::chrono::steady_clock::now();
+                }
+                const ::std::lock_guard<::std::mutex> lock {mutex_};
+                auto busy {State::BUSY};
+                if (renderer_ == nullptr) {
+                    // Without a scene there is nothing to keep, so the rendering process ends right away.
+                    if (state_.compare_exchange_strong(busy, State::IDLE)) {
+                        LOG("STATE = IDLE");
                     }
+                } else if (state_.compare_exchange_strong(busy, State::FINISHED)) {
+                    LOG("STATE = FINISHED");
                 }
+                publishStats(renderer_.get(), true);
+                finishedRendering_ = true;
+                rendered_.notify_all();
             }
         };
 
         if (async) {
-            thread_ = ::std::make_unique<::std::thread>(lambda);
-            thread_->detach();
+            renderLaunched_ = true;
+            ::MobileRT::ThreadPool::getInstance().submit(lambda);
         } else {
             lambda();
         }
         env->ExceptionClear();
     } catch (const ::std::bad_alloc &badAlloc) {
-        const auto lowMemClass {env->FindClass("puscas/mobilertapp/exceptions/LowMemoryException")};
+        const auto lowMemClass {lowMemoryException_};
         env->ThrowNew(lowMemClass, badAlloc.what());
     } catch (const ::std::exception &exception) {
-        const auto exceptionClass {env->FindClass("java/lang/RuntimeException")};
+        const auto exceptionClass {runtimeException_};
         env->ThrowNew(exceptionClass, exception.what());
     } catch (...) {
-        const auto exceptionClass {env->FindClass("java/lang/RuntimeException")};
+        const auto exceptionClass {runtimeException_};
         env->ThrowNew(exceptionClass, "Unknown error");
     }
 }
 
 extern "C"
-::std::int32_t Java_puscas_mobilertapp_RenderTask_rtGetState(
+void Java_puscas_mobilertapp_MainRenderer_rtSetWorkerThreads(
         JNIEnv *env,
-        jobject /*thiz*/
+        jobject /*thiz*/,
+        jint numThreads
 ) {
-    const auto res {static_cast<::std::int32_t> (state_.load())};
+    ::MobileRT::ThreadPool::getInstance().resize(numThreads);
     env->ExceptionClear();
-    return res;
 }
 
 extern "C"
-float Java_puscas_mobilertapp_RenderTask_rtGetFps(
+jint Java_puscas_mobilertapp_MainRenderer_rtGetWorkerThreads(
         JNIEnv *env,
         jobject /*thiz*/
 ) {
+    const auto numThreads {::MobileRT::ThreadPool::getInstance().getNumThreads()};
     env->ExceptionClear();
-    return fps_;
+    return numThreads;
 }
 
 extern "C"
-jlong Java_puscas_mobilertapp_RenderTask_rtGetTimeRenderer(
+jobject Java_puscas_mobilertapp_MainRenderer_rtGetFramebuffer(
         JNIEnv *env,
         jobject /*thiz*/
 ) {
+    jobject directBuffer {};
+    {
+        const ::std::lock_guard<::std::mutex> lock {rendererMutex_};
+        if (!framebuffer_.empty()) {
+            const auto arrayBytes {static_cast<jlong> (framebuffer_.size() * sizeof(::std::int32_t))};
+            directBuffer = env->NewDirectByteBuffer(framebuffer_.data(), arrayBytes);
+        }
+    }
     env->ExceptionClear();
-    return timeRenderer_;
+    return directBuffer;
 }
 
 extern "C"
-::std::int32_t Java_puscas_mobilertapp_RenderTask_rtGetSample(
+void Java_puscas_mobilertapp_MainRenderer_rtCopyFrameBuffer(
         JNIEnv *env,
-        jobject /*thiz*/
+        jobject /*thiz*/,
+        jobject pixels,
+        jint width,
+        jint height
+) {
+    const auto *const srcPixels {static_cast<::std::uint32_t*> (env->GetDirectBufferAddress(pixels))};
+    if (srcPixels != nullptr && width > 0 && height > 0) {
+        const ::std::lock_guard<::std::mutex> lock {rendererMutex_};
+        if (!framebuffer_.empty()) {
+            copyFrameBuffer(srcPixels, width, height, framebuffer_.data(), framebufferWidth_, framebufferHeight_);
+        }
+    }
+    env->ExceptionClear();
+}
+
+extern "C"
+jint Java_puscas_mobilertapp_MainRenderer_rtTakeDirtyTiles(
+        JNIEnv *env,
+        jobject /*thiz*/,
+        jintArray dirtyTiles
 ) {
-    ::std::int32_t sample {};
+    ::std::int32_t numDirtyTiles {-1};
     {
-        //const ::std::lock_guard<::std::mutex> lock {mutex_};
-        //TODO: Fix this race condition
+        // The renderer keeps rendering meanwhile, as it only writes the tiles into its own buffers.
+        const ::std::lock_guard<::std::mutex> lock {rendererMutex_};
         if (renderer_ != nullptr) {
-            sample = renderer_->getSample();
+            ::std::array<::std::uint32_t, ::MobileRT::NumberOfTiles / 32> mask {};
+            numDirtyTiles = renderer_->takeDirtyTiles(&mask);
+            if (!framebuffer_.empty()) {
+                renderer_->resolve(framebuffer_.data(), mask);
+            }
+            env->SetIntArrayRegion(
+                dirtyTiles, 0, static_cast<jsize> (mask.size()), reinterpret_cast<const jint*> (mask.data())
+            );
         }
     }
     env->ExceptionClear();
-    return sample;
+    return numDirtyTiles;
+}
+
+extern "C"
+jobject Java_puscas_mobilertapp_RenderTask_rtGetStats(
+        JNIEnv *env,
+        jobject /*thiz*/
+) {
+    const auto directBuffer {env->NewDirectByteBuffer(&stats_, static_cast<jlong> (sizeof(Stats)))};
+    env->ExceptionClear();
+    return directBuffer;
+}
+
+extern "C"
+jint Java_puscas_mobilertapp_RenderTask_rtWaitProgress(
+        JNIEnv *env,
+        jobject /*thiz*/,
+        jint sequence,
+        jlong timeout,
+        jobject snapshot
+) {
+    progressWaiters_.fetch_add(1, ::std::memory_order_acq_rel);
+    {
+        ::std::unique_lock<::std::mutex> lock {progressMutex_};
+        progressCondition_.wait_for(lock, ::std::chrono::milliseconds {timeout}, [=]() {
+            return stats_.sequence_.load(::std::memory_order_acquire) != sequence;
+        });
+    }
+    progressWaiters_.fetch_sub(1, ::std::memory_order_acq_rel);
+    auto *const bytes {static_cast<::std::uint8_t*> (env->GetDirectBufferAddress(snapshot))};
+    if (bytes == nullptr || env->GetDirectBufferCapacity(snapshot) < static_cast<jlong> (sizeof(Stats))) {
+        env->ExceptionClear();
+        return stats_.sequence_.load(::std::memory_order_acquire);
+    }
+    // Seqlock reader: the acquire load pairs with the release of the last update and the acquire fence keeps the
+    // copy before the second load of the sequence, so a copy torn by a concurrent update is always retried.
+    ::std::int32_t copied {};
+    do {
+        copied = stats_.sequence_.load(::std::memory_order_acquire);
+        ::std::memcpy(bytes, &stats_, sizeof(Stats));
+        ::std::atomic_thread_fence(::std::memory_order_acquire);
+    } while ((copied & 1) != 0 || copied != stats_.sequence_.load(::std::memory_order_relaxed));
+    env->ExceptionClear();
+    return copied;
 }
 
 extern "C"
@@ -778,6 +1399,103 @@ extern "C"
     return numLights_;
 }
 
+extern "C"
+jint Java_puscas_mobilertapp_DrawView_rtGetLoadPhase(
+        JNIEnv *env,
+        jobject /*thiz*/
+) {
+    env->ExceptionClear();
+    return static_cast<jint> (loadPhase_.load());
+}
+
+extern "C"
+jfloat Java_puscas_mobilertapp_DrawView_rtGetLoadProgress(
+        JNIEnv *env,
+        jobject /*thiz*/
+) {
+    env->ExceptionClear();
+    return loadProgress_;
+}
+
+extern "C"
+jboolean Java_puscas_mobilertapp_DrawView_rtCancelLoad(
+        JNIEnv *env,
+        jobject /*thiz*/
+) {
+    // It doesn't take the mutex_, because it is held while the scene is being loaded.
+    const auto loading {loadPhase_ != LoadPhase::IDLE};
+    if (loading) {
+        state_ = State::STOPPED;
+        LOG("STATE = STOPPED");
+        publishStats(nullptr, true);
+    }
+    env->ExceptionClear();
+    return static_cast<jboolean> (loading);
+}
+
+extern "C"
+jfloat Java_puscas_mobilertapp_DrawView_rtGetCamera(
+        JNIEnv *env,
+        jobject /*thiz*/,
+        jfloatArray position,
+        jfloatArray direction,
+        jfloatArray up
+) {
+    jfloat fov {-1.0F};
+    {
+        // The renderer is kept after the frame is complete, until it is stopped or another scene is loaded.
+        const ::std::lock_guard<::std::mutex> lock {rendererMutex_};
+        const auto state {state_.load()};
+        if ((state == State::BUSY || state == State::FINISHED) && renderer_ != nullptr) {
+            const auto view {renderer_->getCameraView()};
+            env->SetFloatArrayRegion(position, 0, 3, &view.position_[0]);
+            env->SetFloatArrayRegion(direction, 0, 3, &view.direction_[0]);
+            env->SetFloatArrayRegion(up, 0, 3, &view.up_[0]);
+            fov = view.fieldOfView_;
+        }
+    }
+    env->ExceptionClear();
+    return fov;
+}
+
+extern "C"
+jboolean Java_puscas_mobilertapp_DrawView_rtSetCamera(
+        JNIEnv *env,
+        jobject /*thiz*/,
+        jfloatArray position,
+        jfloatArray direction,
+        jfloatArray up,
+        jfloat fov
+) {
+    auto moved {false};
+    {
+        // The renderer is kept after the frame is complete, until it is stopped or another scene is loaded.
+        const ::std::lock_guard<::std::mutex> lock {rendererMutex_};
+        const auto state {state_.load()};
+        if ((state == State::BUSY || state == State::FINISHED) && renderer_ != nullptr) {
+            ::MobileRT::CameraView view {};
+            env->GetFloatArrayRegion(position, 0, 3, &view.position_[0]);
+            env->GetFloatArrayRegion(direction, 0, 3, &view.direction_[0]);
+            env->GetFloatArrayRegion(up, 0, 3, &view.up_[0]);
+            view.fieldOfView_ = fov;
+            renderer_->setCameraView(view);
+            moved = true;
+        }
+    }
+    auto finished {State::FINISHED};
+    if (moved && state_.compare_exchange_strong(finished, State::BUSY)) {
+        LOG("STATE = BUSY");
+        {
+            // Locks the mutex, so the render loop is either waiting or checks the new view before it waits.
+            const ::std::lock_guard<::std::mutex> lock {mutex_};
+        }
+        restarted_.notify_all();
+        publishStats(nullptr, true);
+    }
+    env->ExceptionClear();
+    return static_cast<jboolean> (moved);
+}
+
 extern "C"
 jobject Java_puscas_mobilertapp_MainRenderer_rtFreeNativeBuffer(
         JNIEnv *env,
@@ -787,6 +1505,7 @@ jobject Java_puscas_mobilertapp_MainRenderer_rtFreeNativeBuffer(
     if (bufferRef != nullptr) {
         auto *buffer {env->GetDirectBufferAddress(bufferRef)};
         float *const floatBuffer {static_cast<float*> (buffer)};
+        ::MobileRT::MemoryBudget::free(static_cast<::std::int64_t> (env->GetDirectBufferCapacity(bufferRef)));
         delete[] floatBuffer;
     }
     return nullptr;
@@ -5,6 +5,8 @@
 #include <android/asset_manager_jni.h>
 #include <android/bitmap.h>
 #include <android/log.h>
+#include <atomic>
+#include <cstdint>
 #include <memory>
 #include <thread>
 
@@ -12,6 +14,38 @@ enum class State {
     IDLE = 0, BUSY = 1, FINISHED = 2, STOPPED = 3
 };
 
+/**
+ * The phases of loading a scene, which are shared with Java to show the loading progress.
+ */
+enum class LoadPhase {
+    IDLE = 0, PARSING = 1, FILLING = 2, BUILDING = 3, ALLOCATING = 4
+};
+
+/**
+ * The version of the layout of the configuration serialized by the Java Config class.
+ */
+const ::std::int32_t ConfigVersion {6};
+
+/**
+ * The statistics of the Ray Tracer engine which are shared with Java through a direct ByteBuffer.
+ * <br>
+ * The sequence is odd while the statistics are being updated, so they can be read all together without any lock
+ * by retrying while the sequence is odd or changes during the read, which Java does through rtWaitProgress.
+ * The version identifies the layout and must be incremented whenever the layout changes.
+ */
+struct Stats {
+    ::std::atomic<::std::int32_t> sequence_ {};
+    ::std::int32_t version_ {2};
+    ::std::int32_t state_ {};
+    float fps_ {};
+    ::std::int64_t timeRenderer_ {};
+    ::std::int64_t renderTime_ {};
+    ::std::uint64_t raysTraced_ {};
+    ::std::int32_t sample_ {};
+    ::std::int32_t tilesDone_ {};
+    float bvhBytesPerTriangle_ {};
+};
+
 
 // JNI
 extern "C"
@@ -40,32 +74,60 @@ jint Java_puscas_mobilertapp_DrawView_rtGetNumberOfLights(
         jobject thiz
 );
 
-
-// ViewText
 extern "C"
-jint Java_puscas_mobilertapp_RenderTask_rtGetState(
+jint Java_puscas_mobilertapp_DrawView_rtGetLoadPhase(
         JNIEnv *env,
         jobject thiz
 );
 
 extern "C"
-jfloat Java_puscas_mobilertapp_RenderTask_rtGetFps(
+jfloat Java_puscas_mobilertapp_DrawView_rtGetLoadProgress(
         JNIEnv *env,
-        jobject
+        jobject thiz
 );
 
 extern "C"
-jlong Java_puscas_mobilertapp_RenderTask_rtGetTimeRenderer(
+jboolean Java_puscas_mobilertapp_DrawView_rtCancelLoad(
         JNIEnv *env,
         jobject thiz
 );
 
 extern "C"
-jint Java_puscas_mobilertapp_RenderTask_rtGetSample(
+jfloat Java_puscas_mobilertapp_DrawView_rtGetCamera(
+        JNIEnv *env,
+        jobject thiz,
+        jfloatArray position,
+        jfloatArray direction,
+        jfloatArray up
+);
+
+extern "C"
+jboolean Java_puscas_mobilertapp_DrawView_rtSetCamera(
+        JNIEnv *env,
+        jobject thiz,
+        jfloatArray position,
+        jfloatArray direction,
+        jfloatArray up,
+        jfloat fov
+);
+
+
+// ViewText
+extern "C"
+jobject Java_puscas_mobilertapp_RenderTask_rtGetStats(
         JNIEnv *env,
         jobject thiz
 );
 
+extern "C"
+jint Java_puscas_mobilertapp_RenderTask_rtWaitProgress(
+        JNIEnv *env,
+        jobject thiz,
+        jint sequence,
+        jlong timeout,
+        jobject snapshot
+);
+
 
 // MainActivity
 extern "C"
@@ -84,14 +146,48 @@ void Java_puscas_mobilertapp_MainRenderer_rtFinishRender(
 );
 
 extern "C"
-void Java_puscas_mobilertapp_MainRenderer_rtRenderIntoBitmap(
+void Java_puscas_mobilertapp_MainRenderer_rtRenderIntoBuffer(
         JNIEnv *env,
         jobject thiz,
-        jobject dstBitmap,
         jint nThreads,
         jboolean async
 );
 
+extern "C"
+void Java_puscas_mobilertapp_MainRenderer_rtSetWorkerThreads(
+        JNIEnv *env,
+        jobject thiz,
+        jint numThreads
+);
+
+extern "C"
+jint Java_puscas_mobilertapp_MainRenderer_rtGetWorkerThreads(
+        JNIEnv *env,
+        jobject thiz
+);
+
+extern "C"
+jobject Java_puscas_mobilertapp_MainRenderer_rtGetFramebuffer(
+        JNIEnv *env,
+        jobject thiz
+);
+
+extern "C"
+void Java_puscas_mobilertapp_MainRenderer_rtCopyFrameBuffer(
+        JNIEnv *env,
+        jobject thiz,
+        jobject pixels,
+        jint width,
+        jint height
+);
+
+extern "C"
+jint Java_puscas_mobilertapp_MainRenderer_rtTakeDirtyTiles(
+        JNIEnv *env,
+        jobject thiz,
+        jintArray dirtyTiles
+);
+
 extern "C"
 jobject Java_puscas_mobilertapp_MainRenderer_rtInitVerticesArray(
         JNIEnv *env,
@@ -121,7 +217,20 @@ extern "C"
 jint Java_puscas_mobilertapp_MainRenderer_rtInitialize(
         JNIEnv *env,
         jobject thiz,
-        jobject localConfig
+        jobject config
+);
+
+extern "C"
+jlong Java_puscas_mobilertapp_MainRenderer_rtEstimateMemory(
+        JNIEnv *env,
+        jobject thiz,
+        jobject config
+);
+
+extern "C"
+jlong Java_puscas_mobilertapp_MainRenderer_rtGetAllocatedMemory(
+        JNIEnv *env,
+        jobject thiz
 );
 
 #endif //APP_DRAWVIEW_HPP
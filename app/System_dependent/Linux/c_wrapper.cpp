@@ -190,7 +190,7 @@ work_thread(
             LOG("Started creating Renderer");
             renderer_ = ::std::make_unique<::MobileRT::Renderer> (
                     ::std::move(shader_), ::std::move(camera), ::std::move(samplerPixel),
-                    width, height, samplesPixel
+                    width, height, samplesPixel, 0.0F
             );
 
             LOG("TRIANGLES = ", triangles);
@@ -0,0 +1,92 @@
+#include "MobileRT/Accelerators/AABB.hpp"
+#include "MobileRT/Ray.hpp"
+#include "MobileRT/RayPacket.hpp"
+#include "TestPacket.hpp"
+#include <gtest/gtest.h>
+#include <random>
+
+using ::MobileRT::AABB;
+using ::MobileRT::PacketSize;
+using ::MobileRT::Ray;
+using ::MobileRT::RayPacket;
+
+class TestAABB : public testing::Test {
+protected:
+	AABB *box {};
+
+	virtual void SetUp() {
+		box = new AABB {::glm::vec3 {-1, -1, -1}, ::glm::vec3 {1, 2, 3}};
+	}
+
+	virtual void TearDown() {
+		delete box;
+	}
+
+	~TestAABB();
+};
+
+TestAABB::~TestAABB() {
+    LOG("TESTAABB DESTROYED!!!");
+}
+
+TEST_F(TestAABB, EntryDistanceOutside) {
+	const ::glm::vec3 orig {3, 0, 0};
+	const ::glm::vec3 invDir {1.0F / ::glm::vec3 {-1, 0.000001F, 0.000001F}};
+	ASSERT_FLOAT_EQ(2.0F, box->getEntryDistance(orig, invDir, ::MobileRT::RayLengthMax));
+	ASSERT_EQ(::MobileRT::RayLengthMax, box->getEntryDistance(orig, invDir, 1.0F));
+}
+
+TEST_F(TestAABB, EntryDistanceInside) {
+	const ::glm::vec3 orig {0, 0, 0};
+	const ::glm::vec3 invDir {1.0F / ::glm::vec3 {0.000001F, 1, 0.000001F}};
+	ASSERT_EQ(0.0F, box->getEntryDistance(orig, invDir, ::MobileRT::RayLengthMax));
+}
+
+TEST_F(TestAABB, IntersectPacketSameAsRay) {
+	::std::mt19937 generator {1};
+	::std::uniform_real_distribution<float> position {-4.0F, 4.0F};
+	::std::uniform_real_distribution<float> distance {0.5F, 8.0F};
+	::std::vector<Ray> rays {};
+	::std::vector<float> maxDists {};
+	for (auto i {0}; i < 1000; ++i) {
+		const ::glm::vec3 orig {position(generator), position(generator), position(generator)};
+		const ::glm::vec3 dir {position(generator), position(generator), position(generator)};
+		rays.emplace_back(::glm::normalize(dir), orig, 1);
+		maxDists.emplace_back(distance(generator));
+	}
+
+	const auto numHits {expectPacketSameAsRay(rays,
+		[&](const RayPacket &packet, const ::std::int32_t first) {
+			PacketDistances maxDist {};
+			for (::std::uint32_t lane {}; lane < maxDist.size(); ++lane) {
+				maxDist[lane] = maxDists[static_cast<::std::uint32_t> (first) + lane];
+			}
+			const auto hits {box->intersect(packet, packet.mask_, maxDist)};
+			PacketDistances distances {};
+			for (::std::uint32_t lane {}; lane < distances.size(); ++lane) {
+				distances[lane] = (hits & (1U << lane)) != 0 ? 0.0F : ::MobileRT::RayLengthMax;
+			}
+			return distances;
+		},
+		[&](const Ray &ray, const ::std::int32_t index) {
+			const auto maxDist {maxDists[static_cast<::std::uint32_t> (index)]};
+			const auto entry {box->getEntryDistance(ray.origin_, 1.0F / ray.direction_, maxDist)};
+			return entry < ::MobileRT::RayLengthMax ? 0.0F : ::MobileRT::RayLengthMax;
+		}
+	)};
+	ASSERT_GT(numHits, 0);
+	ASSERT_LT(numHits, static_cast<::std::int32_t> (rays.size()));
+}
+
+TEST_F(TestAABB, IntersectPacketMask) {
+	const ::glm::vec3 orig {3, 0, 0};
+	const ::glm::vec3 dir {-1, 0.000001F, 0.000001F};
+	const ::std::vector<Ray> rays (static_cast<::std::uint32_t> (PacketSize), Ray {dir, orig, 1});
+	const RayPacket packet {rays};
+	::std::array<float, PacketSize> maxDist {};
+	maxDist.fill(::MobileRT::RayLengthMax);
+	ASSERT_EQ(0xFU, box->intersect(packet, 0xFU, maxDist));
+	ASSERT_EQ(0x6U, box->intersect(packet, 0x6U, maxDist));
+	maxDist[1] = 1.0F;
+	ASSERT_EQ(0x4U, box->intersect(packet, 0x6U, maxDist));
+}
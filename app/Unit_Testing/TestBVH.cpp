@@ -0,0 +1,247 @@
+#include "MobileRT/Accelerators/BVH.hpp"
+#include "MobileRT/Accelerators/BVH4.hpp"
+#include "MobileRT/Accelerators/Naive.hpp"
+#include "MobileRT/Intersection.hpp"
+#include "MobileRT/Ray.hpp"
+#include "MobileRT/RayPacket.hpp"
+#include "MobileRT/Shapes/Primitive.hpp"
+#include "MobileRT/Shapes/Sphere.hpp"
+#include "MobileRT/Shapes/Triangle.hpp"
+#include "MobileRT/Utils.hpp"
+#include "TestPacket.hpp"
+#include <atomic>
+#include <gtest/gtest.h>
+#include <random>
+
+using ::MobileRT::BVH;
+using ::MobileRT::BVH4;
+using ::MobileRT::Intersection;
+using ::MobileRT::Naive;
+using ::MobileRT::PacketSize;
+using ::MobileRT::Primitive;
+using ::MobileRT::Ray;
+using ::MobileRT::RayPacket;
+using ::MobileRT::Sphere;
+using ::MobileRT::Triangle;
+
+class TestBVH : public testing::Test {
+protected:
+	::std::mt19937 generator {};
+	::std::vector<Ray> rays {};
+
+	virtual void SetUp() {
+		generator.seed(1);
+		::std::uniform_real_distribution<float> position {-10.0F, 10.0F};
+		::std::uniform_real_distribution<float> direction {-1.0F, 1.0F};
+		for (auto i {0}; i < 2000; ++i) {
+			const ::glm::vec3 origin {position(generator), position(generator), position(generator)};
+			const ::glm::vec3 dir {direction(generator), direction(generator), direction(generator)};
+			rays.emplace_back(::glm::normalize(dir), origin, 1);
+		}
+	}
+
+	virtual void TearDown() {
+	}
+
+	/**
+	 * Generates random small triangles and, one in every three, a triangle lying on a plane perpendicular to an
+	 * axis, whose bounding box is flat and so the most sensitive to the quantization of the boxes of the nodes.
+	 */
+	::std::vector<Triangle> generateTriangles(const ::std::int32_t numTriangles) {
+		::std::uniform_real_distribution<float> position {-10.0F, 10.0F};
+		::std::uniform_real_distribution<float> edge {-1.0F, 1.0F};
+		::std::vector<Triangle> triangles {};
+		for (auto i {0}; i < numTriangles; ++i) {
+			const ::glm::vec3 pointA {position(generator), position(generator), position(generator)};
+			::glm::vec3 pointB {pointA + ::glm::vec3 {edge(generator), edge(generator), edge(generator)}};
+			::glm::vec3 pointC {pointA + ::glm::vec3 {edge(generator), edge(generator), edge(generator)}};
+			if (i % 3 == 0) {
+				const auto axis {i % 9 / 3};
+				pointB[axis] = pointA[axis];
+				pointC[axis] = pointA[axis];
+			}
+			triangles.emplace_back(Triangle::Builder(pointA, pointB, pointC).build());
+		}
+		return triangles;
+	}
+
+	::std::vector<Sphere> generateSpheres(const ::std::int32_t numSpheres) {
+		::std::uniform_real_distribution<float> position {-10.0F, 10.0F};
+		::std::uniform_real_distribution<float> radius {0.05F, 0.5F};
+		::std::vector<Sphere> spheres {};
+		for (auto i {0}; i < numSpheres; ++i) {
+			const ::glm::vec3 center {position(generator), position(generator), position(generator)};
+			spheres.emplace_back(center, radius(generator), -1);
+		}
+		return spheres;
+	}
+
+	~TestBVH();
+};
+
+TestBVH::~TestBVH() {
+    LOG("TESTBVH DESTROYED!!!");
+}
+
+TEST_F(TestBVH, TraceTrianglesSameAsNaive) {
+	const auto triangles {generateTriangles(3000)};
+	Naive<Triangle> naive {::std::vector<Triangle> {triangles}};
+	BVH<Triangle> bvh {::std::vector<Triangle> {triangles}};
+	BVH4<Triangle> bvh4 {::std::vector<Triangle> {triangles}};
+
+	auto numHits {0};
+	for (const auto &ray : rays) {
+		const auto expected {naive.trace(Intersection {::MobileRT::RayLengthMax}, ray)};
+		numHits += expected.length_ < ::MobileRT::RayLengthMax ? 1 : 0;
+		ASSERT_EQ(expected.length_, bvh.trace(Intersection {::MobileRT::RayLengthMax}, ray).length_);
+		ASSERT_EQ(expected.length_, bvh4.trace(Intersection {::MobileRT::RayLengthMax}, ray).length_);
+	}
+	ASSERT_GT(numHits, 0);
+}
+
+TEST_F(TestBVH, TraceManyTrianglesSameAsNaive) {
+	// More triangles than the threshold to build the children of the big nodes in parallel.
+	const auto triangles {generateTriangles(20000)};
+	Naive<Triangle> naive {::std::vector<Triangle> {triangles}};
+	BVH<Triangle> bvh {::std::vector<Triangle> {triangles}};
+	ASSERT_EQ(triangles.size(), bvh.getPrimitives().size());
+
+	auto numHits {0};
+	for (const auto &ray : rays) {
+		const auto expected {naive.trace(Intersection {::MobileRT::RayLengthMax}, ray)};
+		numHits += expected.length_ < ::MobileRT::RayLengthMax ? 1 : 0;
+		ASSERT_EQ(expected.length_, bvh.trace(Intersection {::MobileRT::RayLengthMax}, ray).length_);
+	}
+	ASSERT_GT(numHits, 0);
+}
+
+TEST_F(TestBVH, CancelledBuildIsEmpty) {
+	// The predicate is checked by all the threads building the nodes, and cancels the build after a few nodes.
+	::std::atomic<::std::int32_t> numChecks {};
+	BVH<Triangle> bvh {generateTriangles(20000), [&]() {
+		return numChecks.fetch_add(1, ::std::memory_order_relaxed) >= 100;
+	}};
+	ASSERT_GT(numChecks.load(), 100);
+	ASSERT_TRUE(bvh.getPrimitives().empty());
+
+	for (const auto &ray : rays) {
+		ASSERT_EQ(::MobileRT::RayLengthMax, bvh.trace(Intersection {::MobileRT::RayLengthMax}, ray).length_);
+	}
+}
+
+TEST_F(TestBVH, TraceSpheresSameAsNaive) {
+	const auto spheres {generateSpheres(1000)};
+	Naive<Sphere> naive {::std::vector<Sphere> {spheres}};
+	BVH<Sphere> bvh {::std::vector<Sphere> {spheres}};
+	BVH4<Sphere> bvh4 {::std::vector<Sphere> {spheres}};
+
+	auto numHits {0};
+	for (const auto &ray : rays) {
+		const auto expected {naive.trace(Intersection {::MobileRT::RayLengthMax}, ray)};
+		numHits += expected.length_ < ::MobileRT::RayLengthMax ? 1 : 0;
+		ASSERT_EQ(expected.length_, bvh.trace(Intersection {::MobileRT::RayLengthMax}, ray).length_);
+		ASSERT_EQ(expected.length_, bvh4.trace(Intersection {::MobileRT::RayLengthMax}, ray).length_);
+	}
+	ASSERT_GT(numHits, 0);
+}
+
+TEST_F(TestBVH, ShadowTraceSameAsNaive) {
+	const auto triangles {generateTriangles(3000)};
+	Naive<Triangle> naive {::std::vector<Triangle> {triangles}};
+	BVH<Triangle> bvh {::std::vector<Triangle> {triangles}};
+	BVH4<Triangle> bvh4 {::std::vector<Triangle> {triangles}};
+
+	const auto maxDist {5.0F};
+	auto numOccluded {0};
+	for (const auto &ray : rays) {
+		const auto occluded {naive.shadowTrace(Intersection {maxDist}, ray).length_ < maxDist};
+		numOccluded += occluded ? 1 : 0;
+		ASSERT_EQ(occluded, bvh.shadowTrace(Intersection {maxDist}, ray).length_ < maxDist);
+		ASSERT_EQ(occluded, bvh4.shadowTrace(Intersection {maxDist}, ray).length_ < maxDist);
+	}
+	ASSERT_GT(numOccluded, 0);
+}
+
+TEST_F(TestBVH, TracePrimitivesSameAsNaive) {
+	const auto triangles {generateTriangles(2000)};
+	const auto spheres {generateSpheres(500)};
+	Naive<Triangle> naiveTriangles {::std::vector<Triangle> {triangles}};
+	Naive<Sphere> naiveSpheres {::std::vector<Sphere> {spheres}};
+	::std::vector<Primitive> primitives {};
+	for (const auto &sphere : spheres) {
+		primitives.emplace_back(sphere);
+	}
+	for (const auto &triangle : triangles) {
+		primitives.emplace_back(triangle);
+	}
+	BVH<Primitive> bvh {::std::vector<Primitive> {primitives}};
+	BVH4<Primitive> bvh4 {::std::move(primitives)};
+
+	auto numSphereHits {0};
+	auto numHits {0};
+	for (const auto &ray : rays) {
+		const auto sphereHit {naiveSpheres.trace(Intersection {::MobileRT::RayLengthMax}, ray)};
+		const auto expected {naiveTriangles.trace(sphereHit, ray)};
+		numSphereHits += sphereHit.length_ < ::MobileRT::RayLengthMax ? 1 : 0;
+		numHits += expected.length_ < ::MobileRT::RayLengthMax ? 1 : 0;
+		ASSERT_EQ(expected.length_, bvh.trace(Intersection {::MobileRT::RayLengthMax}, ray).length_);
+		ASSERT_EQ(expected.length_, bvh4.trace(Intersection {::MobileRT::RayLengthMax}, ray).length_);
+	}
+	ASSERT_GT(numSphereHits, 0);
+	ASSERT_GT(numHits, numSphereHits);
+}
+
+TEST_F(TestBVH, TracePrimitivesSameIntersectionAsNaive) {
+	// The BVH4 only calculates the intersection point of the nearest triangle, after testing its packed vertices.
+	const auto triangles {generateTriangles(2000)};
+	const auto spheres {generateSpheres(500)};
+	Naive<Triangle> naiveTriangles {::std::vector<Triangle> {triangles}};
+	Naive<Sphere> naiveSpheres {::std::vector<Sphere> {spheres}};
+	::std::vector<Primitive> primitives {};
+	for (const auto &sphere : spheres) {
+		primitives.emplace_back(sphere);
+	}
+	for (const auto &triangle : triangles) {
+		primitives.emplace_back(triangle);
+	}
+	BVH4<Primitive> bvh4 {::std::move(primitives)};
+
+	const auto maxDist {5.0F};
+	for (const auto &ray : rays) {
+		const auto expected {naiveTriangles.trace(naiveSpheres.trace(Intersection {::MobileRT::RayLengthMax}, ray), ray)};
+		const auto intersection {bvh4.trace(Intersection {::MobileRT::RayLengthMax}, ray)};
+		ASSERT_EQ(expected.length_, intersection.length_);
+		ASSERT_TRUE(expected.point_ == intersection.point_);
+		ASSERT_TRUE(expected.normal_ == intersection.normal_);
+		ASSERT_TRUE(expected.texCoords_ == intersection.texCoords_);
+		ASSERT_EQ(expected.length_ < maxDist, bvh4.shadowTrace(Intersection {maxDist}, ray).length_ < maxDist);
+	}
+}
+
+TEST_F(TestBVH, TracePacketSameAsScalar) {
+	BVH<Triangle> bvh {generateTriangles(3000)};
+
+	// Mirror the directions to the octant of the first ray of each packet, so it is coherent and traced together.
+	::std::vector<Ray> coherentRays {};
+	for (::std::uint32_t i {}; i < rays.size(); ++i) {
+		const auto &firstRay {rays[i - i % static_cast<::std::uint32_t> (PacketSize)]};
+		auto dir {rays[i].direction_};
+		for (auto axis {0}; axis < 3; ++axis) {
+			dir[axis] = ::std::copysign(dir[axis], firstRay.direction_[axis]);
+		}
+		coherentRays.emplace_back(dir, rays[i].origin_, 1);
+	}
+
+	const auto numHits {expectPacketSameAsRay(coherentRays,
+		[&](const RayPacket &packet, ::std::int32_t /*first*/) {
+			EXPECT_TRUE(packet.isCoherent());
+			::std::array<Intersection, PacketSize> intersections {};
+			bvh.trace(&intersections, packet);
+			return getDistances(intersections);
+		},
+		[&](const Ray &ray, ::std::int32_t /*index*/) {
+			return bvh.trace(Intersection {::MobileRT::RayLengthMax}, ray).length_;
+		}
+	)};
+	ASSERT_GT(numHits, 0);
+}
@@ -0,0 +1,68 @@
+#ifndef UNIT_TESTING_TESTPACKET_HPP
+#define UNIT_TESTING_TESTPACKET_HPP
+
+#include "MobileRT/Intersection.hpp"
+#include "MobileRT/Ray.hpp"
+#include "MobileRT/RayPacket.hpp"
+#include "MobileRT/Utils.hpp"
+#include <array>
+#include <functional>
+#include <gtest/gtest.h>
+#include <vector>
+
+/**
+ * The distance of the hit of each ray of a packet or RayLengthMax if it missed.
+ */
+using PacketDistances = ::std::array<float, ::MobileRT::PacketSize>;
+
+/**
+ * Helper function which checks that tracing some rays in packets gives the same hits as tracing them one by one.
+ * <br>
+ * The rays are split in packets in order, and the functions also get the index of the (first) ray, so they can use
+ * other parameters given per ray.
+ *
+ * @param rays        The rays to trace, whose number should be a multiple of the size of a packet.
+ * @param tracePacket The function which traces a packet and gives the distance of the hit of each ray.
+ * @param traceRay    The function which traces one ray and gives the distance of its hit.
+ * @return The number of rays that hit something.
+ */
+inline ::std::int32_t expectPacketSameAsRay(
+        const ::std::vector<::MobileRT::Ray> &rays,
+        const ::std::function<PacketDistances(const ::MobileRT::RayPacket &packet, ::std::int32_t first)> &tracePacket,
+        const ::std::function<float(const ::MobileRT::Ray &ray, ::std::int32_t index)> &traceRay) {
+    ::std::int32_t numHits {};
+    const auto numRays {static_cast<::std::int32_t> (rays.size())};
+    for (::std::int32_t first {}; first + ::MobileRT::PacketSize <= numRays; first += ::MobileRT::PacketSize) {
+        const ::std::vector<::MobileRT::Ray> packetRays {
+            rays.begin() + first, rays.begin() + first + ::MobileRT::PacketSize
+        };
+        const ::MobileRT::RayPacket packet {packetRays};
+        const auto distances {tracePacket(packet, first)};
+        for (::std::int32_t lane {}; lane < ::MobileRT::PacketSize; ++lane) {
+            const auto index {static_cast<::std::uint32_t> (lane)};
+            const auto expected {traceRay(packetRays[index], first + lane)};
+            const auto intersected {expected < ::MobileRT::RayLengthMax};
+            numHits += intersected ? 1 : 0;
+            EXPECT_EQ(intersected, distances[index] < ::MobileRT::RayLengthMax);
+            EXPECT_FLOAT_EQ(expected, distances[index]);
+        }
+    }
+    return numHits;
+}
+
+/**
+ * Helper function which gets the distances of the hits of a packet of intersections.
+ *
+ * @param intersections The intersections of the rays of a packet.
+ * @return The distance of the hit of each ray.
+ */
+inline PacketDistances getDistances(
+        const ::std::array<::MobileRT::Intersection, ::MobileRT::PacketSize> &intersections) {
+    PacketDistances distances {};
+    for (::std::uint32_t lane {}; lane < distances.size(); ++lane) {
+        distances[lane] = intersections[lane].length_;
+    }
+    return distances;
+}
+
+#endif //UNIT_TESTING_TESTPACKET_HPP
@@ -1,8 +1,17 @@
+#include "MobileRT/Intersection.hpp"
+#include "MobileRT/Ray.hpp"
+#include "MobileRT/RayPacket.hpp"
 #include "MobileRT/Shapes/Plane.hpp"
+#include "TestPacket.hpp"
 #include <gtest/gtest.h>
+#include <random>
 
 using ::MobileRT::AABB;
+using ::MobileRT::Intersection;
+using ::MobileRT::PacketSize;
 using ::MobileRT::Plane;
+using ::MobileRT::Ray;
+using ::MobileRT::RayPacket;
 
 class TestPlane : public testing::Test {
 protected:
@@ -83,3 +92,26 @@ TEST_F(TestPlane, IntersectBoxBorderX) {
 	const bool intersected {plane->intersect(box)};
 	ASSERT_EQ(true, intersected);
 }
+
+TEST_F(TestPlane, IntersectPacketSameAsRay) {
+	::std::mt19937 generator {1};
+	::std::uniform_real_distribution<float> position {-3.0F, 3.0F};
+	::std::vector<Ray> rays {};
+	for (auto i {0}; i < 1000; ++i) {
+		const ::glm::vec3 orig {position(generator), position(generator), position(generator)};
+		const ::glm::vec3 dir {position(generator), position(generator), position(generator)};
+		rays.emplace_back(::glm::normalize(dir), orig, 1);
+	}
+
+	const auto numHits {expectPacketSameAsRay(rays,
+		[&](const RayPacket &packet, ::std::int32_t /*first*/) {
+			::std::array<Intersection, PacketSize> intersections {};
+			plane->intersect(&intersections, packet, packet.mask_);
+			return getDistances(intersections);
+		},
+		[&](const Ray &ray, ::std::int32_t /*index*/) {
+			return plane->intersect(Intersection {::MobileRT::RayLengthMax}, ray).length_;
+		}
+	)};
+	ASSERT_GT(numHits, 0);
+}
@@ -0,0 +1,79 @@
+#include "Components/Samplers/Sobol.hpp"
+#include <gtest/gtest.h>
+
+using ::Components::Sobol;
+using ::MobileRT::SampleKey;
+
+class TestSobol : public testing::Test {
+protected:
+	Sobol *sobol {};
+
+	virtual void SetUp() {
+		sobol = new Sobol {};
+	}
+
+	virtual void TearDown() {
+		delete sobol;
+	}
+
+	float getSample(const ::std::uint32_t pixel, const ::std::uint32_t sample, const ::std::uint32_t dimension) {
+		SampleKey key {};
+		key.pixel_ = pixel;
+		key.sample_ = sample;
+		key.dimension_ = dimension;
+		return sobol->getSample(key);
+	}
+
+	~TestSobol();
+};
+
+TestSobol::~TestSobol() {
+    LOG("TESTSOBOL DESTROYED!!!");
+}
+
+TEST_F(TestSobol, SamplesInRange) {
+	for (::std::uint32_t sample {}; sample < 1024; ++sample) {
+		for (::std::uint32_t dimension {}; dimension < 8; ++dimension) {
+			const auto value {getSample(7, sample, dimension)};
+			ASSERT_LE(0.0F, value);
+			ASSERT_GT(1.0F, value);
+		}
+	}
+}
+
+TEST_F(TestSobol, Stratification2D) {
+	// The first 2^k samples of each pair of dimensions must have exactly one point in every cell of all the
+	// 2^a x 2^(k-a) grids, which is what makes the shuffled and scrambled sequence converge faster than random.
+	for (::std::uint32_t pixel {}; pixel < 16; ++pixel) {
+		for (::std::uint32_t dimension {}; dimension < 6; dimension += 2) {
+			for (::std::uint32_t k {1}; k <= 8; ++k) {
+				const auto numSamples {1U << k};
+				for (::std::uint32_t a {}; a <= k; ++a) {
+					const auto cellsX {1U << a};
+					const auto cellsY {1U << (k - a)};
+					::std::vector<::std::int32_t> cells (numSamples);
+					for (::std::uint32_t sample {}; sample < numSamples; ++sample) {
+						const auto x {getSample(pixel, sample, dimension)};
+						const auto y {getSample(pixel, sample, dimension + 1)};
+						const auto cellX {static_cast<::std::uint32_t> (x * static_cast<float> (cellsX))};
+						const auto cellY {static_cast<::std::uint32_t> (y * static_cast<float> (cellsY))};
+						++cells[cellY * cellsX + cellX];
+					}
+					for (const auto cell : cells) {
+						ASSERT_EQ(1, cell);
+					}
+				}
+			}
+		}
+	}
+}
+
+TEST_F(TestSobol, PixelsDecorrelated) {
+	auto numEqual {0};
+	for (::std::uint32_t pixel {1}; pixel < 64; ++pixel) {
+		const auto first {getSample(0, 0, 0)};
+		const auto value {getSample(pixel, 0, 0)};
+		numEqual += first == value ? 1 : 0;
+	}
+	ASSERT_EQ(0, numEqual);
+}
@@ -0,0 +1,71 @@
+#include "MobileRT/Intersection.hpp"
+#include "MobileRT/Ray.hpp"
+#include "MobileRT/RayPacket.hpp"
+#include "MobileRT/Shapes/Sphere.hpp"
+#include "TestPacket.hpp"
+#include <gtest/gtest.h>
+#include <random>
+
+using ::MobileRT::Intersection;
+using ::MobileRT::PacketSize;
+using ::MobileRT::Ray;
+using ::MobileRT::RayPacket;
+using ::MobileRT::Sphere;
+
+class TestSphere : public testing::Test {
+protected:
+	Sphere *sphere {};
+
+	virtual void SetUp() {
+		sphere = new Sphere {::glm::vec3 {0, 0, 0}, 1.0F, -1};
+	}
+
+	virtual void TearDown() {
+		delete sphere;
+	}
+
+	~TestSphere();
+};
+
+TestSphere::~TestSphere() {
+    LOG("TESTSPHERE DESTROYED!!!");
+}
+
+TEST_F(TestSphere, IntersectRayOutside) {
+	const Ray ray {::glm::vec3 {-1, 0, 0}, ::glm::vec3 {3, 0, 0}, 1};
+	Intersection intersection {};
+	intersection = sphere->intersect(intersection, ray);
+	ASSERT_FLOAT_EQ(2.0F, intersection.length_);
+}
+
+TEST_F(TestSphere, IntersectRayMiss) {
+	const Ray ray {::glm::vec3 {-1, 0, 0}, ::glm::vec3 {3, 1.5F, 0}, 1};
+	Intersection intersection {};
+	const float lastDist {intersection.length_};
+	intersection = sphere->intersect(intersection, ray);
+	ASSERT_EQ(false, intersection.length_ < lastDist);
+}
+
+TEST_F(TestSphere, IntersectPacketSameAsRay) {
+	::std::mt19937 generator {1};
+	::std::uniform_real_distribution<float> position {-3.0F, 3.0F};
+	::std::uniform_real_distribution<float> target {-1.2F, 1.2F};
+	::std::vector<Ray> rays {};
+	for (auto i {0}; i < 1000; ++i) {
+		const ::glm::vec3 orig {position(generator), position(generator), position(generator)};
+		const ::glm::vec3 point {target(generator), target(generator), target(generator)};
+		rays.emplace_back(::glm::normalize(point - orig), orig, 1);
+	}
+
+	const auto numHits {expectPacketSameAsRay(rays,
+		[&](const RayPacket &packet, ::std::int32_t /*first*/) {
+			::std::array<Intersection, PacketSize> intersections {};
+			sphere->intersect(&intersections, packet, packet.mask_);
+			return getDistances(intersections);
+		},
+		[&](const Ray &ray, ::std::int32_t /*index*/) {
+			return sphere->intersect(Intersection {::MobileRT::RayLengthMax}, ray).length_;
+		}
+	)};
+	ASSERT_GT(numHits, 0);
+}
@@ -0,0 +1,90 @@
+#include "MobileRT/ThreadPool.hpp"
+#include <atomic>
+#include <gtest/gtest.h>
+
+using ::MobileRT::ThreadPool;
+
+class TestThreadPool : public testing::Test {
+protected:
+	ThreadPool *threadPool {};
+
+	virtual void SetUp() {
+		threadPool = new ThreadPool {4};
+	}
+
+	virtual void TearDown() {
+		delete threadPool;
+	}
+
+	~TestThreadPool();
+};
+
+TestThreadPool::~TestThreadPool() {
+    LOG("TESTTHREADPOOL DESTROYED!!!");
+}
+
+TEST_F(TestThreadPool, ParallelForEachIndexOnce) {
+	const auto numTasks {1000};
+	::std::vector<::std::atomic<::std::int32_t>> counts (static_cast<::std::uint32_t> (numTasks));
+	threadPool->parallelFor(numTasks, [&](const ::std::int32_t index) {
+		counts[static_cast<::std::uint32_t> (index)].fetch_add(1);
+	});
+	for (const auto &count : counts) {
+		ASSERT_EQ(1, count.load());
+	}
+}
+
+TEST_F(TestThreadPool, ParallelForNoTasks) {
+	::std::atomic<::std::int32_t> count {};
+	threadPool->parallelFor(0, [&](const ::std::int32_t) {
+		count.fetch_add(1);
+	});
+	ASSERT_EQ(0, count.load());
+}
+
+TEST_F(TestThreadPool, ParallelForNested) {
+	// The calling thread also executes tasks, so a parallel for inside a task must not dead lock.
+	const auto numTasks {16};
+	::std::vector<::std::atomic<::std::int32_t>> counts (static_cast<::std::uint32_t> (numTasks * numTasks));
+	threadPool->parallelFor(numTasks, [&](const ::std::int32_t outer) {
+		threadPool->parallelFor(numTasks, [&](const ::std::int32_t inner) {
+			counts[static_cast<::std::uint32_t> (outer * numTasks + inner)].fetch_add(1);
+		});
+	});
+	for (const auto &count : counts) {
+		ASSERT_EQ(1, count.load());
+	}
+}
+
+TEST_F(TestThreadPool, SubmitRunsTasks) {
+	const auto numTasks {100};
+	::std::mutex mutex {};
+	::std::condition_variable finished {};
+	::std::int32_t count {};
+	for (auto i {0}; i < numTasks; ++i) {
+		threadPool->submit([&]() {
+			const ::std::lock_guard<::std::mutex> lock {mutex};
+			++count;
+			finished.notify_all();
+		});
+	}
+	::std::unique_lock<::std::mutex> lock {mutex};
+	finished.wait(lock, [&]() {return count == numTasks;});
+	ASSERT_EQ(numTasks, count);
+}
+
+TEST_F(TestThreadPool, Resize) {
+	ASSERT_EQ(4, threadPool->getNumThreads());
+	threadPool->resize(2);
+	ASSERT_EQ(2, threadPool->getNumThreads());
+	threadPool->resize(0);
+	ASSERT_EQ(1, threadPool->getNumThreads());
+	threadPool->resize(6);
+	ASSERT_EQ(6, threadPool->getNumThreads());
+
+	::std::atomic<::std::int32_t> count {};
+	threadPool->parallelFor(100, [&](const ::std::int32_t) {
+		count.fetch_add(1);
+	});
+	ASSERT_EQ(100, count.load());
+}
@@ -0,0 +1,108 @@
+#include "MobileRT/TileScheduler.hpp"
+#include <gtest/gtest.h>
+#include <thread>
+
+using ::MobileRT::Tile;
+using ::MobileRT::TileScheduler;
+
+class TestTileScheduler : public testing::Test {
+protected:
+	TileScheduler *tileScheduler {};
+
+	virtual void SetUp() {
+		tileScheduler = new TileScheduler {100, 70, 16};
+	}
+
+	virtual void TearDown() {
+		delete tileScheduler;
+	}
+
+	~TestTileScheduler();
+};
+
+TestTileScheduler::~TestTileScheduler() {
+    LOG("TESTTILESCHEDULER DESTROYED!!!");
+}
+
+TEST_F(TestTileScheduler, TilesCoverImage) {
+	::std::vector<::std::int32_t> pixels (100 * 70);
+	for (::std::int32_t index {}; index < tileScheduler->getNumTiles(); ++index) {
+		const Tile &tile {tileScheduler->getTile(index)};
+		for (auto y {tile.start_[1]}; y < tile.end_[1]; ++y) {
+			for (auto x {tile.start_[0]}; x < tile.end_[0]; ++x) {
+				++pixels[static_cast<::std::uint32_t> (y * 100 + x)];
+			}
+		}
+	}
+	ASSERT_EQ(7 * 5, tileScheduler->getNumTiles());
+	for (const auto pixel : pixels) {
+		ASSERT_EQ(1, pixel);
+	}
+}
+
+TEST_F(TestTileScheduler, SingleQueueEachTileOnce) {
+	tileScheduler->reset(1);
+	::std::vector<::std::int32_t> tiles (static_cast<::std::uint32_t> (tileScheduler->getNumTiles()));
+	::std::int32_t tile {};
+	while (tileScheduler->next(0, &tile)) {
+		++tiles[static_cast<::std::uint32_t> (tile)];
+	}
+	ASSERT_TRUE(tileScheduler->isEmpty());
+	for (const auto count : tiles) {
+		ASSERT_EQ(1, count);
+	}
+}
+
+TEST_F(TestTileScheduler, StealEachTileOnce) {
+	// Only one of the queues is consumed by its owner, so all the other tiles must be stolen.
+	tileScheduler->reset(4);
+	::std::vector<::std::int32_t> tiles (static_cast<::std::uint32_t> (tileScheduler->getNumTiles()));
+	::std::int32_t tile {};
+	while (tileScheduler->next(2, &tile)) {
+		++tiles[static_cast<::std::uint32_t> (tile)];
+	}
+	ASSERT_TRUE(tileScheduler->isEmpty());
+	for (const auto count : tiles) {
+		ASSERT_EQ(1, count);
+	}
+}
+
+TEST_F(TestTileScheduler, ConcurrentEachTileOnce) {
+	tileScheduler->setTileSize(4);
+	const auto numTiles {tileScheduler->getNumTiles()};
+	const auto numThreads {8};
+	for (auto frame {0}; frame < 50; ++frame) {
+		// More queues than threads, so the last queues are only emptied by stealing.
+		tileScheduler->reset(numThreads + 3);
+		::std::vector<::std::vector<::std::int32_t>> tilesPerThread (static_cast<::std::uint32_t> (numThreads));
+		::std::vector<::std::thread> threads {};
+		for (auto tid {0}; tid < numThreads; ++tid) {
+			threads.emplace_back([&, tid]() {
+				auto &tiles {tilesPerThread[static_cast<::std::uint32_t> (tid)]};
+				::std::int32_t tile {};
+				while (tileScheduler->next(tid, &tile)) {
+					tiles.emplace_back(tile);
+					if (tid == 0) {
+						::std::this_thread::yield();
+					}
+				}
+			});
+		}
+		for (auto &thread : threads) {
+			thread.join();
+		}
+
+		ASSERT_TRUE(tileScheduler->isEmpty());
+		::std::vector<::std::int32_t> tiles (static_cast<::std::uint32_t> (numTiles));
+		for (const auto &threadTiles : tilesPerThread) {
+			for (const auto tile : threadTiles) {
+				ASSERT_LE(0, tile);
+				ASSERT_GT(numTiles, tile);
+				++tiles[static_cast<::std::uint32_t> (tile)];
+			}
+		}
+		for (const auto count : tiles) {
+			ASSERT_EQ(1, count);
+		}
+	}
+}
@@ -1,12 +1,17 @@
 #include "MobileRT/Intersection.hpp"
 #include "MobileRT/Ray.hpp"
+#include "MobileRT/RayPacket.hpp"
 #include "MobileRT/Shapes/Triangle.hpp"
 #include "MobileRT/Utils.hpp"
+#include "TestPacket.hpp"
 #include <gtest/gtest.h>
+#include <random>
 
 using ::MobileRT::AABB;
 using ::MobileRT::Intersection;
+using ::MobileRT::PacketSize;
 using ::MobileRT::Ray;
+using ::MobileRT::RayPacket;
 using ::MobileRT::Triangle;
 
 class TestTriangle : public testing::Test {
@@ -315,3 +320,39 @@ TEST_F(TestTriangle, intersectRayOutside06) {
 	intersection = triangle->intersect(intersection, ray);
 	ASSERT_EQ(false, intersection.length_ < lastDist);
 }
+
+TEST_F(TestTriangle, IntersectPacketSameAsRay) {
+	::std::mt19937 generator {1};
+	::std::uniform_real_distribution<float> position {-1.0F, 2.0F};
+	::std::vector<Ray> rays {};
+	for (auto i {0}; i < 1000; ++i) {
+		const ::glm::vec3 orig {position(generator), position(generator), position(generator)};
+		const ::glm::vec3 target {0.0F, position(generator), position(generator)};
+		rays.emplace_back(::glm::normalize(target - orig), orig, 1);
+	}
+
+	const auto numHits {expectPacketSameAsRay(rays,
+		[&](const RayPacket &packet, ::std::int32_t /*first*/) {
+			::std::array<Intersection, PacketSize> intersections {};
+			triangle->intersect(&intersections, packet, packet.mask_);
+			return getDistances(intersections);
+		},
+		[&](const Ray &ray, ::std::int32_t /*index*/) {
+			return triangle->intersect(Intersection {::MobileRT::RayLengthMax}, ray).length_;
+		}
+	)};
+	ASSERT_GT(numHits, 0);
+}
+
+TEST_F(TestTriangle, IntersectPacketMask) {
+	const ::glm::vec3 orig {2, 0.25F, 0.25F};
+	const ::glm::vec3 dir {-1, 0, 0};
+	const ::std::vector<Ray> rays (static_cast<::std::uint32_t> (PacketSize), Ray {dir, orig, 1});
+	const RayPacket packet {rays};
+	::std::array<Intersection, PacketSize> intersections {};
+	triangle->intersect(&intersections, packet, 0x5U);
+	ASSERT_FLOAT_EQ(2.0F, intersections[0].length_);
+	ASSERT_EQ(::MobileRT::RayLengthMax, intersections[1].length_);
+	ASSERT_FLOAT_EQ(2.0F, intersections[2].length_);
+	ASSERT_EQ(::MobileRT::RayLengthMax, intersections[3].length_);
+}
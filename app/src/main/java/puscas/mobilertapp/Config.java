@@ -2,9 +2,14 @@ package puscas.mobilertapp;
 
 import androidx.annotation.NonNull;
 
+import com.google.common.base.Strings;
+
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
 import java.util.logging.Logger;
 
 /**
@@ -12,6 +17,23 @@ import java.util.logging.Logger;
  */
 public final class Config {
 
+    /**
+     * The version of the layout of {@link Config#toByteBuffer()}.
+     * It must match the version expected by the Ray Tracer engine and be incremented whenever the layout changes.
+     */
+    static final int LAYOUT_VERSION = 6;
+
+    /**
+     * The number of {@code int} and {@code float} fields at the start of the {@link Config#toByteBuffer()} layout,
+     * including the version.
+     */
+    private static final int LAYOUT_INTS = 14;
+
+    /**
+     * The {@link Charset} used to write the file paths in {@link Config#toByteBuffer()}.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     /**
      * @see Config#getScene()
      */
@@ -27,6 +49,11 @@ public final class Config {
      */
     private final int accelerator;
 
+    /**
+     * @see Config#getSampler()
+     */
+    private final int sampler;
+
     /**
      * @see Config#getWidth()
      */
@@ -47,6 +74,31 @@ public final class Config {
      */
     private final int samplesLight;
 
+    /**
+     * @see Config#getTargetError()
+     */
+    private final float targetError;
+
+    /**
+     * @see Config#isDenoise()
+     */
+    private final boolean denoise;
+
+    /**
+     * @see Config#getTileSize()
+     */
+    private final int tileSize;
+
+    /**
+     * @see Config#isProgressive()
+     */
+    private final boolean progressive;
+
+    /**
+     * @see Config#isPreview()
+     */
+    private final boolean preview;
+
     /**
      * @see Config#getObjFilePath()
      */
@@ -71,10 +123,16 @@ public final class Config {
         this.scene = builder.getScene();
         this.shader = builder.getShader();
         this.accelerator = builder.getAccelerator();
+        this.sampler = builder.getSampler();
         this.width = builder.getWidth();
         this.height = builder.getHeight();
         this.samplesPixel = builder.getSamplesPixel();
         this.samplesLight = builder.getSamplesLight();
+        this.targetError = builder.getTargetError();
+        this.denoise = builder.isDenoise();
+        this.tileSize = builder.getTileSize();
+        this.progressive = builder.isProgressive();
+        this.preview = builder.isPreview();
         this.objFilePath = builder.getObjFilePath();
         this.matFilePath = builder.getMatFilePath();
         this.camFilePath = builder.getCamFilePath();
@@ -105,6 +163,14 @@ public final class Config {
         return this.accelerator;
     }
 
+    /**
+     * Gets the index of the sampler of random numbers.
+     */
+    @Contract(pure = true)
+    public int getSampler() {
+        return this.sampler;
+    }
+
     /**
      * Gets the width of the image.
      */
@@ -137,6 +203,50 @@ public final class Config {
         return this.samplesLight;
     }
 
+    /**
+     * Gets the relative error below which a tile stops being sampled or {@code 0} to render all the samples per
+     * pixel in every tile.
+     */
+    @Contract(pure = true)
+    public float getTargetError() {
+        return this.targetError;
+    }
+
+    /**
+     * Gets whether the rendered image is denoised when all the samples per pixel are rendered.
+     */
+    @Contract(pure = true)
+    public boolean isDenoise() {
+        return this.denoise;
+    }
+
+    /**
+     * Gets the width and height, in pixels, of the tiles rendered by each thread or {@code 0} to use the default
+     * size of the Ray Tracer engine.
+     */
+    @Contract(pure = true)
+    public int getTileSize() {
+        return this.tileSize;
+    }
+
+    /**
+     * Gets whether the image is rendered progressively, one sample per pixel in the whole image at a time, or tile
+     * by tile, with all the samples per pixel of each tile at once.
+     */
+    @Contract(pure = true)
+    public boolean isProgressive() {
+        return this.progressive;
+    }
+
+    /**
+     * Gets whether a coarse preview of the image is rendered, with blocks of pixels sharing one ray, before the
+     * first sample per pixel.
+     */
+    @Contract(pure = true)
+    public boolean isPreview() {
+        return this.preview;
+    }
+
 
     /**
      * Gets the path to the OBJ file containing the geometry of the scene.
@@ -162,6 +272,48 @@ public final class Config {
         return this.camFilePath;
     }
 
+    /**
+     * Serializes this configuration into a packed direct {@link ByteBuffer} in native byte order, so the Ray Tracer
+     * engine can read it in one go.
+     * <br>
+     * The layout is: version, scene, shader, accelerator, sampler, width, height, samples per pixel and samples per
+     * light as {@code int}s, the target error as a {@code float}, whether to denoise, the size of the tiles, whether
+     * to render progressively and whether to render a preview as {@code int}s, followed by the OBJ, MTL and CAM file
+     * paths, each one as an {@code int} with its length in bytes and its UTF-8 bytes.
+     *
+     * @return A new direct {@link ByteBuffer} with this configuration.
+     */
+    @NonNull
+    ByteBuffer toByteBuffer() {
+        final byte[] obj = Strings.nullToEmpty(this.objFilePath).getBytes(UTF_8);
+        final byte[] mat = Strings.nullToEmpty(this.matFilePath).getBytes(UTF_8);
+        final byte[] cam = Strings.nullToEmpty(this.camFilePath).getBytes(UTF_8);
+        final int intSize = Integer.SIZE / Byte.SIZE;
+        final int size = (LAYOUT_INTS + 3) * intSize + obj.length + mat.length + cam.length;
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        buffer.order(ByteOrder.nativeOrder());
+        buffer.putInt(LAYOUT_VERSION);
+        buffer.putInt(this.scene);
+        buffer.putInt(this.shader);
+        buffer.putInt(this.accelerator);
+        buffer.putInt(this.sampler);
+        buffer.putInt(this.width);
+        buffer.putInt(this.height);
+        buffer.putInt(this.samplesPixel);
+        buffer.putInt(this.samplesLight);
+        buffer.putFloat(this.targetError);
+        buffer.putInt(this.denoise ? 1 : 0);
+        buffer.putInt(this.tileSize);
+        buffer.putInt(this.progressive ? 1 : 0);
+        buffer.putInt(this.preview ? 1 : 0);
+        buffer.putInt(obj.length).put(obj);
+        buffer.putInt(mat.length).put(mat);
+        buffer.putInt(cam.length).put(cam);
+        buffer.position(0);
+        return buffer;
+    }
+
     /**
      * The builder for this class.
      */
@@ -187,6 +339,11 @@ public final class Config {
          */
         private int accelerator = 0;
 
+        /**
+         * @see Config.Builder#withSampler(int)
+         */
+        private int sampler = 0;
+
         /**
          * @see Config.Builder#withWidth(int)
          */
@@ -207,6 +364,31 @@ public final class Config {
          */
         private int samplesLight = 0;
 
+        /**
+         * @see Config.Builder#withTargetError(float)
+         */
+        private float targetError = 0.0F;
+
+        /**
+         * @see Config.Builder#withDenoise(boolean)
+         */
+        private boolean denoise = false;
+
+        /**
+         * @see Config.Builder#withTileSize(int)
+         */
+        private int tileSize = 0;
+
+        /**
+         * @see Config.Builder#withProgressive(boolean)
+         */
+        private boolean progressive = true;
+
+        /**
+         * @see Config.Builder#withPreview(boolean)
+         */
+        private boolean preview = true;
+
         /**
          * The path to the OBJ file.
          */
@@ -267,6 +449,21 @@ public final class Config {
             return this;
         }
 
+        /**
+         * Sets the sampler of random numbers of {@link Config}.
+         *
+         * @param sampler The new value for the {@link Config#sampler} field.
+         * @return The builder with {@link Config.Builder#sampler} already set.
+         */
+        @Contract("_ -> this")
+        @NonNull
+        final Config.Builder withSampler(final int sampler) {
+            LOGGER_BUILDER.info("withSampler");
+
+            this.sampler = sampler;
+            return this;
+        }
+
         /**
          * Sets the width of {@link Config}.
          *
@@ -327,6 +524,81 @@ public final class Config {
             return this;
         }
 
+        /**
+         * Sets the target error of {@link Config}.
+         *
+         * @param targetError The new value for the {@link Config#targetError} field.
+         * @return The builder with {@link Config.Builder#targetError} already set.
+         */
+        @Contract("_ -> this")
+        @NonNull
+        final Config.Builder withTargetError(final float targetError) {
+            LOGGER_BUILDER.info("withTargetError");
+
+            this.targetError = targetError;
+            return this;
+        }
+
+        /**
+         * Sets whether to denoise the rendered image of {@link Config}.
+         *
+         * @param denoise The new value for the {@link Config#denoise} field.
+         * @return The builder with {@link Config.Builder#denoise} already set.
+         */
+        @Contract("_ -> this")
+        @NonNull
+        final Config.Builder withDenoise(final boolean denoise) {
+            LOGGER_BUILDER.info("withDenoise");
+
+            this.denoise = denoise;
+            return this;
+        }
+
+        /**
+         * Sets the size of the tiles of {@link Config}.
+         *
+         * @param tileSize The new value for the {@link Config#tileSize} field.
+         * @return The builder with {@link Config.Builder#tileSize} already set.
+         */
+        @Contract("_ -> this")
+        @NonNull
+        final Config.Builder withTileSize(final int tileSize) {
+            LOGGER_BUILDER.info("withTileSize");
+
+            this.tileSize = tileSize;
+            return this;
+        }
+
+        /**
+         * Sets whether to render progressively of {@link Config}.
+         *
+         * @param progressive The new value for the {@link Config#progressive} field.
+         * @return The builder with {@link Config.Builder#progressive} already set.
+         */
+        @Contract("_ -> this")
+        @NonNull
+        final Config.Builder withProgressive(final boolean progressive) {
+            LOGGER_BUILDER.info("withProgressive");
+
+            this.progressive = progressive;
+            return this;
+        }
+
+        /**
+         * Sets whether to render a preview of {@link Config}.
+         *
+         * @param preview The new value for the {@link Config#preview} field.
+         * @return The builder with {@link Config.Builder#preview} already set.
+         */
+        @Contract("_ -> this")
+        @NonNull
+        final Config.Builder withPreview(final boolean preview) {
+            LOGGER_BUILDER.info("withPreview");
+
+            this.preview = preview;
+            return this;
+        }
+
         /**
          * Sets the path to the OBJ file of {@link Config}.
          *
@@ -411,6 +683,14 @@ public final class Config {
             return this.accelerator;
         }
 
+        /**
+         * @see Config.Builder#withSampler(int)
+         */
+        @Contract(pure = true)
+        public int getSampler() {
+            return this.sampler;
+        }
+
         /**
          * @see Config.Builder#withWidth(int)
          */
@@ -443,6 +723,46 @@ public final class Config {
             return this.samplesLight;
         }
 
+        /**
+         * @see Config.Builder#withTargetError(float)
+         */
+        @Contract(pure = true)
+        public float getTargetError() {
+            return this.targetError;
+        }
+
+        /**
+         * @see Config.Builder#withDenoise(boolean)
+         */
+        @Contract(pure = true)
+        public boolean isDenoise() {
+            return this.denoise;
+        }
+
+        /**
+         * @see Config.Builder#withTileSize(int)
+         */
+        @Contract(pure = true)
+        public int getTileSize() {
+            return this.tileSize;
+        }
+
+        /**
+         * @see Config.Builder#withProgressive(boolean)
+         */
+        @Contract(pure = true)
+        public boolean isProgressive() {
+            return this.progressive;
+        }
+
+        /**
+         * @see Config.Builder#withPreview(boolean)
+         */
+        @Contract(pure = true)
+        public boolean isPreview() {
+            return this.preview;
+        }
+
 
         /**
          * @see Config.Builder#withOBJ(String)
@@ -6,6 +6,8 @@ import android.content.Context;
 import android.content.ContextWrapper;
 import android.opengl.GLSurfaceView;
 import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -20,12 +22,12 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
+import java8.util.Objects;
 import puscas.mobilertapp.exceptions.LowMemoryException;
 import puscas.mobilertapp.utils.ConstantsRenderer;
+import puscas.mobilertapp.utils.LoadPhase;
 import puscas.mobilertapp.utils.State;
 
 import static puscas.mobilertapp.MyEGLContextFactory.EGL_CONTEXT_CLIENT_VERSION;
@@ -46,21 +48,111 @@ public final class DrawView extends GLSurfaceView {
      */
     private static final Logger LOGGER = Logger.getLogger(DrawView.class.getName());
 
+    /**
+     * The interval, in milliseconds, between each update of the progress of loading a scene.
+     */
+    private static final long LOAD_PROGRESS_INTERVAL = 100L;
+
+    /**
+     * The angle, in degrees, that the camera turns when a finger is dragged along the whole width of this view.
+     */
+    private static final float TURN_ANGLE = 180.0F;
+
+    /**
+     * The minimum horizontal field of view, in degrees, when zooming the camera in.
+     */
+    private static final float MIN_FIELD_OF_VIEW = 5.0F;
+
+    /**
+     * The maximum horizontal field of view, in degrees, when zooming the camera out.
+     */
+    private static final float MAX_FIELD_OF_VIEW = 120.0F;
+
     /**
      * The {@link GLSurfaceView.Renderer}.
      */
     private final MainRenderer renderer = new MainRenderer();
 
+    /**
+     * The {@link ExecutorService} which holds {@link ConstantsRenderer#NUMBER_THREADS} number of threads that will
+     * create Ray Tracer engine renderer.
+     * It lives as long as this view, so its threads are reused by every scene load.
+     */
+    private final ExecutorService executorService = Executors.newFixedThreadPool(NUMBER_THREADS);
+
+    /**
+     * A {@link Runnable} which shows the progress of loading a scene while the {@link DrawView#lastTask} is running.
+     */
+    private final Runnable loadProgress = new Runnable() {
+        @Override
+        public void run() {
+            final Future<Boolean> task = DrawView.this.lastTask;
+            if (Objects.nonNull(task) && !task.isDone()) {
+                final LoadPhase phase = LoadPhase.values()[rtGetLoadPhase()];
+                if (phase != LoadPhase.IDLE) {
+                    DrawView.this.renderer.printLoadProgress(phase, rtGetLoadProgress());
+                }
+                postDelayed(this, LOAD_PROGRESS_INTERVAL);
+            }
+        }
+    };
+
+    /**
+     * The position of the camera being moved by the touch gestures.
+     */
+    private final float[] cameraPosition = new float[3];
+
+    /**
+     * The direction of the camera being moved by the touch gestures.
+     */
+    private final float[] cameraDirection = new float[3];
+
+    /**
+     * The up vector of the camera being moved by the touch gestures.
+     */
+    private final float[] cameraUp = new float[3];
+
+    /**
+     * The {@link ScaleGestureDetector} which zooms the camera when pinching this view.
+     */
+    private final ScaleGestureDetector scaleDetector = new ScaleGestureDetector(getContext(),
+            new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+                @Override
+                public boolean onScale(@NonNull final ScaleGestureDetector detector) {
+                    if (DrawView.this.cameraFov > 0.0F) {
+                        final float fov = DrawView.this.cameraFov / detector.getScaleFactor();
+                        DrawView.this.cameraFov = Math.max(MIN_FIELD_OF_VIEW, Math.min(fov, MAX_FIELD_OF_VIEW));
+                        moveCamera();
+                    }
+                    return true;
+                }
+            });
+
+    /**
+     * The horizontal field of view, in degrees, of the camera being moved by the touch gestures.
+     * It is {@code 0} if the camera doesn't have one and negative if there is no scene being rendered.
+     */
+    private float cameraFov = -1.0F;
+
+    /**
+     * The horizontal position of the finger dragging the camera in the last touch event.
+     */
+    private float touchX = 0.0F;
+
+    /**
+     * The vertical position of the finger dragging the camera in the last touch event.
+     */
+    private float touchY = 0.0F;
+
     /**
      * @see Activity#isChangingConfigurations()
      */
     private boolean changingConfigs = false;
 
     /**
-     * The {@link ExecutorService} which holds {@link ConstantsRenderer#NUMBER_THREADS} number of threads that will
-     * create Ray Tracer engine renderer.
+     * The last task submitted to the {@link DrawView#executorService}.
      */
-    private ExecutorService executorService = Executors.newFixedThreadPool(NUMBER_THREADS);
+    private Future<Boolean> lastTask = null;
 
     /**
      * The constructor for this class.
@@ -114,6 +206,45 @@ public final class DrawView extends GLSurfaceView {
      */
     private native int rtGetNumberOfLights();
 
+    /**
+     * Gets the current phase of loading a scene.
+     *
+     * @return The identifier of the current {@link LoadPhase}.
+     */
+    private native int rtGetLoadPhase();
+
+    /**
+     * Gets the progress of the current phase of loading a scene.
+     *
+     * @return The progress of the current {@link LoadPhase}, between 0 and 1.
+     */
+    private native float rtGetLoadProgress();
+
+    /**
+     * Cancels the loading of a scene, without waiting for it to stop.
+     *
+     * @return Whether a scene was being loaded or not.
+     */
+    private native boolean rtCancelLoad();
+
+
+    /**
+     * Moves the camera of the scene being rendered, without loading the scene again.
+     * The samples rendered so far are discarded and the Ray Tracer engine starts rendering from the new view.
+     *
+     * @param position  The new position of the camera.
+     * @param direction The new direction of the camera.
+     * @param up        The new up vector of the camera.
+     * @param fov       The new horizontal field of view of the camera, in degrees.
+     * @return Whether the camera was moved, which only happens while a scene is being rendered.
+     */
+    private native boolean rtSetCamera(
+            final float[] position,
+            final float[] direction,
+            final float[] up,
+            final float fov
+    );
+
     /**
      * Helper method which gets the instance of the {@link Activity}.
      *
@@ -150,6 +281,9 @@ public final class DrawView extends GLSurfaceView {
 
         this.renderer.updateButton(R.string.render);
         setOnTouchListener(null);
+        if (cancelLoading()) {
+            LOGGER.info("Loading cancelled");
+        }
         rtStopRender();
 
         waitForLastTask();
@@ -157,22 +291,32 @@ public final class DrawView extends GLSurfaceView {
         this.renderer.rtFinishRender();
     }
 
+    /**
+     * Cancels the loading of a scene, if a scene is being loaded.
+     * The Ray Tracer engine stops loading at the next check of any of the loading phases and the scene isn't
+     * rendered. It doesn't wait for the loading to stop.
+     *
+     * @return Whether a scene was being loaded or not.
+     */
+    boolean cancelLoading() {
+        return rtCancelLoad();
+    }
+
     /**
      * Waits for the Ray Tracer engine to stop rendering.
      */
     private void waitForLastTask() {
         this.renderer.waitForLastTask();
-        this.executorService.shutdown();
-        boolean running = true;
-        do {
+        if (Objects.nonNull(this.lastTask)) {
             try {
-                running = !this.executorService.awaitTermination(1L, TimeUnit.DAYS);
+                this.lastTask.get();
+            } catch (final ExecutionException ex) {
+                LOGGER.warning(Strings.nullToEmpty(ex.getMessage()));
             } catch (final InterruptedException ex) {
                 LOGGER.warning(ex.getMessage());
                 Thread.currentThread().interrupt();
             }
-        } while (running);
-        this.executorService = Executors.newFixedThreadPool(NUMBER_THREADS);
+        }
     }
 
     /**
@@ -190,6 +334,8 @@ public final class DrawView extends GLSurfaceView {
 
         rtStartRender();
         this.renderer.updateButton(R.string.stop);
+        this.cameraFov = -1.0F;
+        setOnTouchListener(this::onCameraGesture);
 
         final Future<Boolean> result = this.executorService.submit(() -> {
             LOGGER.info(RENDER_SCENE);
@@ -200,19 +346,12 @@ public final class DrawView extends GLSurfaceView {
             this.renderer.freeArrays();
             this.renderer.setRasterize(rasterize);
             requestRender();
+            LOGGER.info("Renderer launched");
             return Boolean.TRUE;
         });
-        try {
-            final Boolean done = result.get(1L, TimeUnit.SECONDS);
-            final String msg = "Renderer launched: " + done;
-            LOGGER.info(msg);
-        } catch (final ExecutionException | TimeoutException ex) {
-            LOGGER.warning(Strings.nullToEmpty(ex.getMessage()));
-        } catch (final InterruptedException ex) {
-            LOGGER.warning(ex.getMessage());
-            Thread.currentThread().interrupt();
-        }
-
+        // It does not wait for the scene to load, so the user can still cancel it while it is loading.
+        this.lastTask = result;
+        post(this.loadProgress);
     }
 
     /**
@@ -227,9 +366,10 @@ public final class DrawView extends GLSurfaceView {
         LOGGER.info("createScene");
 
         this.renderer.freeArrays();
+        this.renderer.setWorkerThreads(numThreads);
 
         try {
-            final int numPrimitives = this.renderer.rtInitialize(config);
+            final int numPrimitives = this.renderer.initialize(config);
             this.renderer.resetStats(
                     numThreads, config.getSamplesPixel(), config.getSamplesLight(), numPrimitives, rtGetNumberOfLights()
             );
@@ -248,6 +388,112 @@ public final class DrawView extends GLSurfaceView {
         }
     }
 
+    /**
+     * Moves the camera of the scene being rendered with touch gestures.
+     * Dragging a finger turns the camera and pinching zooms it, by changing its field of view.
+     *
+     * @param view  The view touched.
+     * @param event The touch event.
+     * @return Always {@code true}, because all the touch events are consumed.
+     */
+    private boolean onCameraGesture(final View view, final MotionEvent event) {
+        this.scaleDetector.onTouchEvent(event);
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                this.cameraFov = rtGetCamera(this.cameraPosition, this.cameraDirection, this.cameraUp);
+                this.touchX = event.getX();
+                this.touchY = event.getY();
+                break;
+
+            case MotionEvent.ACTION_POINTER_UP:
+                final int pointerIndex = event.getActionIndex() == 0 ? 1 : 0;
+                this.touchX = event.getX(pointerIndex);
+                this.touchY = event.getY(pointerIndex);
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                if (this.cameraFov >= 0.0F && event.getPointerCount() == 1 && !this.scaleDetector.isInProgress()) {
+                    final float angleX = (event.getX() - this.touchX) / getWidth() * TURN_ANGLE;
+                    final float angleY = (event.getY() - this.touchY) / getWidth() * TURN_ANGLE;
+                    turnCamera(-angleX, -angleY);
+                }
+                this.touchX = event.getX();
+                this.touchY = event.getY();
+                break;
+
+            case MotionEvent.ACTION_UP:
+                view.performClick();
+                break;
+
+            default:
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Helper method which turns the camera around its up and right vectors and moves it.
+     *
+     * @param yaw   The angle, in degrees, to turn the camera around its up vector.
+     * @param pitch The angle, in degrees, to turn the camera around its right vector.
+     */
+    private void turnCamera(final float yaw, final float pitch) {
+        final float[] right = {
+                this.cameraUp[1] * this.cameraDirection[2] - this.cameraUp[2] * this.cameraDirection[1],
+                this.cameraUp[2] * this.cameraDirection[0] - this.cameraUp[0] * this.cameraDirection[2],
+                this.cameraUp[0] * this.cameraDirection[1] - this.cameraUp[1] * this.cameraDirection[0]
+        };
+        rotate(this.cameraDirection, this.cameraUp, yaw);
+        rotate(this.cameraDirection, right, pitch);
+        rotate(this.cameraUp, right, pitch);
+        moveCamera();
+    }
+
+    /**
+     * Helper method which moves the camera of the scene being rendered to the view of the touch gestures.
+     * It also moves the camera of the raster preview, so it is drawn again from the new view.
+     * If the scene isn't being rendered anymore, the touch gestures stop moving the camera.
+     */
+    private void moveCamera() {
+        if (!rtSetCamera(this.cameraPosition, this.cameraDirection, this.cameraUp, this.cameraFov)) {
+            this.cameraFov = -1.0F;
+            return;
+        }
+        final float[] position = this.cameraPosition.clone();
+        final float[] direction = this.cameraDirection.clone();
+        final float[] up = this.cameraUp.clone();
+        final float fov = this.cameraFov;
+        queueEvent(() -> this.renderer.moveRasterCamera(position, direction, up, fov));
+        requestRender();
+    }
+
+    /**
+     * Helper method which rotates a vector around an axis, with the Rodrigues' rotation formula.
+     *
+     * @param vector The vector to rotate, which is updated with the rotated vector.
+     * @param axis   The axis of the rotation.
+     * @param angle  The angle of the rotation, in degrees.
+     */
+    private static void rotate(final float[] vector, final float[] axis, final float angle) {
+        final float length = (float) Math.sqrt(axis[0] * axis[0] + axis[1] * axis[1] + axis[2] * axis[2]);
+        if (length == 0.0F) {
+            return;
+        }
+        final float axisX = axis[0] / length;
+        final float axisY = axis[1] / length;
+        final float axisZ = axis[2] / length;
+        final float radians = (float) Math.toRadians(angle);
+        final float cos = (float) Math.cos(radians);
+        final float sin = (float) Math.sin(radians);
+        final float dot = axisX * vector[0] + axisY * vector[1] + axisZ * vector[2];
+        final float crossX = axisY * vector[2] - axisZ * vector[1];
+        final float crossY = axisZ * vector[0] - axisX * vector[2];
+        final float crossZ = axisX * vector[1] - axisY * vector[0];
+        vector[0] = vector[0] * cos + crossX * sin + axisX * dot * (1.0F - cos);
+        vector[1] = vector[1] * cos + crossY * sin + axisY * dot * (1.0F - cos);
+        vector[2] = vector[2] * cos + crossZ * sin + axisZ * dot * (1.0F - cos);
+    }
+
     /**
      * Gets the {@link MainRenderer}.
      *
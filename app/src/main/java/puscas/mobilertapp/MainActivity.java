@@ -30,6 +30,7 @@ import androidx.core.content.ContextCompat;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.primitives.Floats;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -37,6 +38,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.text.DecimalFormat;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
@@ -50,6 +52,7 @@ import java8.util.stream.IntStreams;
 import java8.util.stream.StreamSupport;
 import puscas.mobilertapp.exceptions.FailureException;
 import puscas.mobilertapp.utils.Accelerator;
+import puscas.mobilertapp.utils.Sampler;
 import puscas.mobilertapp.utils.Scene;
 import puscas.mobilertapp.utils.Shader;
 import puscas.mobilertapp.utils.State;
@@ -59,16 +62,19 @@ import static puscas.mobilertapp.utils.ConstantsMethods.ON_DETACHED_FROM_WINDOW;
 import static puscas.mobilertapp.utils.ConstantsMethods.START_RENDER;
 import static puscas.mobilertapp.utils.ConstantsRenderer.REQUIRED_OPENGL_VERSION;
 import static puscas.mobilertapp.utils.ConstantsToast.PLEASE_INSTALL_FILE_MANAGER;
+import static puscas.mobilertapp.utils.ConstantsUI.CHECK_BOX_DENOISE;
 import static puscas.mobilertapp.utils.ConstantsUI.CHECK_BOX_RASTERIZE;
 import static puscas.mobilertapp.utils.ConstantsUI.FILE_SEPARATOR;
 import static puscas.mobilertapp.utils.ConstantsUI.LINE_SEPARATOR;
 import static puscas.mobilertapp.utils.ConstantsUI.PATH_SEPARATOR;
 import static puscas.mobilertapp.utils.ConstantsUI.PICKER_ACCELERATOR;
+import static puscas.mobilertapp.utils.ConstantsUI.PICKER_SAMPLER;
 import static puscas.mobilertapp.utils.ConstantsUI.PICKER_SAMPLES_LIGHT;
 import static puscas.mobilertapp.utils.ConstantsUI.PICKER_SAMPLES_PIXEL;
 import static puscas.mobilertapp.utils.ConstantsUI.PICKER_SCENE;
 import static puscas.mobilertapp.utils.ConstantsUI.PICKER_SHADER;
 import static puscas.mobilertapp.utils.ConstantsUI.PICKER_SIZES;
+import static puscas.mobilertapp.utils.ConstantsUI.PICKER_TARGET_ERROR;
 import static puscas.mobilertapp.utils.ConstantsUI.PICKER_THREADS;
 
 /**
@@ -86,6 +92,12 @@ public final class MainActivity extends Activity {
      */
     private static final int OLD_API_GET_CORES = 17;
 
+    /**
+     * The target errors, in percentage, that can be selected for the adaptive sampling.
+     * The first one turns it off, so all the samples per pixel are rendered in every tile.
+     */
+    private static final float[] TARGET_ERRORS = {0.0F, 10.0F, 5.0F, 2.0F, 1.0F, 0.5F};
+
     static {
         try {
             System.loadLibrary("MobileRT");
@@ -126,6 +138,11 @@ public final class MainActivity extends Activity {
      */
     private NumberPicker pickerAccelerator = null;
 
+    /**
+     * The {@link NumberPicker} to select the sampler of random numbers.
+     */
+    private NumberPicker pickerSampler = null;
+
     /**
      * The {@link NumberPicker} to select the number of samples per pixel.
      */
@@ -136,6 +153,11 @@ public final class MainActivity extends Activity {
      */
     private NumberPicker pickerSamplesLight = null;
 
+    /**
+     * The {@link NumberPicker} to select the target error of the adaptive sampling.
+     */
+    private NumberPicker pickerTargetError = null;
+
     /**
      * The {@link NumberPicker} to select the desired resolution for the rendered image.
      */
@@ -146,6 +168,11 @@ public final class MainActivity extends Activity {
      */
     private CheckBox checkBoxRasterize = null;
 
+    /**
+     * The {@link CheckBox} to select whether the rendered image should be denoised or not.
+     */
+    private CheckBox checkBoxDenoise = null;
+
     /**
      * The path to a directory containing the OBJ and MTL files of a scene.
      */
@@ -190,10 +217,13 @@ public final class MainActivity extends Activity {
         final int scene = this.pickerScene.getValue();
         final int shader = this.pickerShader.getValue();
         final int accelerator = this.pickerAccelerator.getValue();
+        final int sampler = this.pickerSampler.getValue();
         final int samplesPixel = Integer.parseInt(this.pickerSamplesPixel.getDisplayedValues()
                 [this.pickerSamplesPixel.getValue() - 1]);
         final int samplesLight = Integer.parseInt(this.pickerSamplesLight.getDisplayedValues()
                 [this.pickerSamplesLight.getValue() - 1]);
+        final float targetError = TARGET_ERRORS[this.pickerTargetError.getValue()] / 100.0F;
+        final boolean denoise = this.checkBoxDenoise.isChecked();
         final String strResolution = this.pickerResolutions.getDisplayedValues()[this.pickerResolutions.getValue() - 1];
         final int width = Integer.parseInt(strResolution.substring(0, strResolution.indexOf('x')));
         final int height = Integer.parseInt(strResolution.substring(strResolution.indexOf('x') + 1));
@@ -208,8 +238,11 @@ public final class MainActivity extends Activity {
                 .withScene(scene)
                 .withShader(shader)
                 .withAccelerator(accelerator)
+                .withSampler(sampler)
                 .withSamplesPixel(samplesPixel)
                 .withSamplesLight(samplesLight)
+                .withTargetError(targetError)
+                .withDenoise(denoise)
                 .withWidth(width)
                 .withHeight(height)
                 .withOBJ(objFilePath)
@@ -322,6 +355,10 @@ public final class MainActivity extends Activity {
         if (state == State.BUSY) {
             this.drawView.stopDrawing();
         } else {
+            if (state == State.END) {
+                // The scene of the finished render is kept, so the camera can still move, until another one starts.
+                this.drawView.stopDrawing();
+            }
             switch (scene) {
                 case OBJ:
                     showFileChooser();
@@ -369,19 +406,25 @@ public final class MainActivity extends Activity {
         int defaultPickerShader = 0;
         int defaultPickerThreads = 1;
         int defaultPickerAccelerator = 1;
+        int defaultPickerSampler = 0;
         int defaultPickerSamplesPixel = 1;
         int defaultPickerSamplesLight = 1;
+        int defaultPickerTargetError = 0;
         int defaultPickerSizes = 4;
         boolean defaultCheckBoxRasterize = true;
+        boolean defaultCheckBoxDenoise = false;
         if (savedInstanceState != null) {
             defaultPickerScene = savedInstanceState.getInt(PICKER_SCENE);
             defaultPickerShader = savedInstanceState.getInt(PICKER_SHADER);
             defaultPickerThreads = savedInstanceState.getInt(PICKER_THREADS);
             defaultPickerAccelerator = savedInstanceState.getInt(PICKER_ACCELERATOR);
+            defaultPickerSampler = savedInstanceState.getInt(PICKER_SAMPLER);
             defaultPickerSamplesPixel = savedInstanceState.getInt(PICKER_SAMPLES_PIXEL);
             defaultPickerSamplesLight = savedInstanceState.getInt(PICKER_SAMPLES_LIGHT);
+            defaultPickerTargetError = savedInstanceState.getInt(PICKER_TARGET_ERROR);
             defaultPickerSizes = savedInstanceState.getInt(PICKER_SIZES);
             defaultCheckBoxRasterize = savedInstanceState.getBoolean(CHECK_BOX_RASTERIZE);
+            defaultCheckBoxDenoise = savedInstanceState.getBoolean(CHECK_BOX_DENOISE);
         }
 
         try {
@@ -395,7 +438,9 @@ public final class MainActivity extends Activity {
         this.pickerShader = findViewById(R.id.pickerShader);
         this.pickerSamplesPixel = findViewById(R.id.pickerSamplesPixel);
         this.pickerSamplesLight = findViewById(R.id.pickerSamplesLight);
+        this.pickerTargetError = findViewById(R.id.pickerTargetError);
         this.pickerAccelerator = findViewById(R.id.pickerAccelerator);
+        this.pickerSampler = findViewById(R.id.pickerSampler);
         this.pickerThreads = findViewById(R.id.pickerThreads);
         this.pickerResolutions = findViewById(R.id.pickerSize);
         final TextView textView = findViewById(R.id.timeText);
@@ -405,7 +450,9 @@ public final class MainActivity extends Activity {
         Preconditions.checkNotNull(this.pickerResolutions);
         Preconditions.checkNotNull(this.pickerThreads);
         Preconditions.checkNotNull(this.pickerAccelerator);
+        Preconditions.checkNotNull(this.pickerSampler);
         Preconditions.checkNotNull(this.pickerSamplesLight);
+        Preconditions.checkNotNull(this.pickerTargetError);
         Preconditions.checkNotNull(this.pickerSamplesPixel);
         Preconditions.checkNotNull(this.pickerShader);
         Preconditions.checkNotNull(this.pickerScene);
@@ -493,6 +540,17 @@ public final class MainActivity extends Activity {
         this.pickerSamplesLight.setValue(defaultPickerSamplesLight);
         this.pickerSamplesLight.setDisplayedValues(samplesLight);
 
+        final DecimalFormat percentage = new DecimalFormat("0.#'%'");
+        final String[] targetErrors = StreamSupport.stream(Floats.asList(TARGET_ERRORS))
+                .map(value -> value > 0.0F ? percentage.format(value) : "Off")
+                .toArray(String[]::new);
+        this.pickerTargetError.setMinValue(0);
+        this.pickerTargetError.setMaxValue(targetErrors.length - 1);
+        this.pickerTargetError.setWrapSelectorWheel(true);
+        this.pickerTargetError.setDescendantFocusability(ViewGroup.FOCUS_BLOCK_DESCENDANTS);
+        this.pickerTargetError.setValue(defaultPickerTargetError);
+        this.pickerTargetError.setDisplayedValues(targetErrors);
+
         final String[] accelerators = Accelerator.getNames();
         this.pickerAccelerator.setMinValue(0);
         this.pickerAccelerator.setMaxValue(accelerators.length - 1);
@@ -501,6 +559,14 @@ public final class MainActivity extends Activity {
         this.pickerAccelerator.setValue(defaultPickerAccelerator);
         this.pickerAccelerator.setDisplayedValues(accelerators);
 
+        final String[] samplers = Sampler.getNames();
+        this.pickerSampler.setMinValue(0);
+        this.pickerSampler.setMaxValue(samplers.length - 1);
+        this.pickerSampler.setWrapSelectorWheel(true);
+        this.pickerSampler.setDescendantFocusability(ViewGroup.FOCUS_BLOCK_DESCENDANTS);
+        this.pickerSampler.setValue(defaultPickerSampler);
+        this.pickerSampler.setDisplayedValues(samplers);
+
         final int maxCores = getNumOfCores();
         this.pickerThreads.setMinValue(1);
         this.pickerThreads.setMaxValue(maxCores);
@@ -525,6 +591,15 @@ public final class MainActivity extends Activity {
             this.checkBoxRasterize.getPaddingBottom()
         );
 
+        this.checkBoxDenoise = this.findViewById(R.id.denoise);
+        this.checkBoxDenoise.setChecked(defaultCheckBoxDenoise);
+        this.checkBoxDenoise.setPadding(
+            this.checkBoxDenoise.getPaddingLeft() - (5 * scale),
+            this.checkBoxDenoise.getPaddingTop(),
+            this.checkBoxDenoise.getPaddingRight(),
+            this.checkBoxDenoise.getPaddingBottom()
+        );
+
         final ViewTreeObserver vto = this.drawView.getViewTreeObserver();
         vto.addOnGlobalLayoutListener(() -> {
             final double widthView = (double) this.drawView.getWidth();
@@ -587,19 +662,25 @@ public final class MainActivity extends Activity {
         final int shader = savedInstanceState.getInt(PICKER_SHADER);
         final int threads = savedInstanceState.getInt(PICKER_THREADS);
         final int accelerator = savedInstanceState.getInt(PICKER_ACCELERATOR);
+        final int sampler = savedInstanceState.getInt(PICKER_SAMPLER);
         final int samplesPixel = savedInstanceState.getInt(PICKER_SAMPLES_PIXEL);
         final int samplesLight = savedInstanceState.getInt(PICKER_SAMPLES_LIGHT);
+        final int targetError = savedInstanceState.getInt(PICKER_TARGET_ERROR);
         final int sizes = savedInstanceState.getInt(PICKER_SIZES);
         final boolean rasterize = savedInstanceState.getBoolean(CHECK_BOX_RASTERIZE);
+        final boolean denoise = savedInstanceState.getBoolean(CHECK_BOX_DENOISE);
 
         this.pickerScene.setValue(scene);
         this.pickerShader.setValue(shader);
         this.pickerThreads.setValue(threads);
         this.pickerAccelerator.setValue(accelerator);
+        this.pickerSampler.setValue(sampler);
         this.pickerSamplesPixel.setValue(samplesPixel);
         this.pickerSamplesLight.setValue(samplesLight);
+        this.pickerTargetError.setValue(targetError);
         this.pickerResolutions.setValue(sizes);
         this.checkBoxRasterize.setChecked(rasterize);
+        this.checkBoxDenoise.setChecked(denoise);
     }
 
     @Override
@@ -611,19 +692,25 @@ public final class MainActivity extends Activity {
         final int shader = this.pickerShader.getValue();
         final int threads = this.pickerThreads.getValue();
         final int accelerator = this.pickerAccelerator.getValue();
+        final int sampler = this.pickerSampler.getValue();
         final int samplesPixel = this.pickerSamplesPixel.getValue();
         final int samplesLight = this.pickerSamplesLight.getValue();
+        final int targetError = this.pickerTargetError.getValue();
         final int sizes = this.pickerResolutions.getValue();
         final boolean rasterize = this.checkBoxRasterize.isChecked();
+        final boolean denoise = this.checkBoxDenoise.isChecked();
 
         outState.putInt(PICKER_SCENE, scene);
         outState.putInt(PICKER_SHADER, shader);
         outState.putInt(PICKER_THREADS, threads);
         outState.putInt(PICKER_ACCELERATOR, accelerator);
+        outState.putInt(PICKER_SAMPLER, sampler);
         outState.putInt(PICKER_SAMPLES_PIXEL, samplesPixel);
         outState.putInt(PICKER_SAMPLES_LIGHT, samplesLight);
+        outState.putInt(PICKER_TARGET_ERROR, targetError);
         outState.putInt(PICKER_SIZES, sizes);
         outState.putBoolean(CHECK_BOX_RASTERIZE, rasterize);
+        outState.putBoolean(CHECK_BOX_DENOISE, denoise);
 
         final MainRenderer renderer = this.drawView.getRenderer();
         renderer.rtFinishRender();
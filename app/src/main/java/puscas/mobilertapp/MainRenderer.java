@@ -15,16 +15,15 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 
 import com.google.common.base.Preconditions;
-
-import org.jetbrains.annotations.Contract;
+import com.google.common.base.Strings;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
@@ -37,8 +36,10 @@ import java8.util.function.Supplier;
 import puscas.mobilertapp.exceptions.FailureException;
 import puscas.mobilertapp.exceptions.LowMemoryException;
 import puscas.mobilertapp.utils.ConstantsRenderer;
+import puscas.mobilertapp.utils.LoadPhase;
 import puscas.mobilertapp.utils.State;
 
+import static puscas.mobilertapp.utils.ConstantsRenderer.NUMBER_OF_TILES;
 import static puscas.mobilertapp.utils.ConstantsRenderer.NUMBER_THREADS;
 import static puscas.mobilertapp.utils.ConstantsRenderer.VERTEX_COLOR;
 import static puscas.mobilertapp.utils.ConstantsRenderer.VERTEX_POSITION;
@@ -54,11 +55,6 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
      */
     private static final Logger LOGGER = Logger.getLogger(MainRenderer.class.getName());
 
-    /**
-     * The default update interval in milliseconds of {@link RenderTask}.
-     */
-    private static final long DEFAULT_UPDATE_INTERVAL = 250L;
-
     /**
      * The vertices coordinates for the texture where the Ray Tracer {@link Bitmap} will be applied.
      */
@@ -90,6 +86,24 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
      */
     private final Lock lockExecutorService = new ReentrantLock();
 
+    /**
+     * A thread pool containing {@link ConstantsRenderer#NUMBER_THREADS} threads with the purpose of executing the
+     * {@link MainRenderer#renderTask}.
+     * It lives as long as this object, so its threads are reused by every render.
+     */
+    private final ExecutorService executorService = Executors.newFixedThreadPool(NUMBER_THREADS);
+
+    /**
+     * The mask of the tiles that changed in the front framebuffer since the last upload to the OpenGL texture.
+     */
+    private final int[] dirtyTiles = new int[NUMBER_OF_TILES / Integer.SIZE];
+
+    /**
+     * The OpenGL buffer objects with the primitives' vertices (at index 0) and colors (at index 1) used to
+     * rasterize the scene (preview).
+     */
+    private final int[] rasterBuffers = new int[2];
+
     /**
      * The vertex shader code.
      */
@@ -152,6 +166,12 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
      */
     private FloatBuffer floatBufferTexture = null;
 
+    /**
+     * The native framebuffer where the Ray Tracer engine resolves the rendered scene.
+     * It is owned by the Ray Tracer engine and uploaded directly to the OpenGL texture.
+     */
+    private ByteBuffer framebuffer = null;
+
     /**
      * The vertices positions in the scene.
      */
@@ -167,6 +187,12 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
      */
     private ByteBuffer arrayCamera = null;
 
+    /**
+     * The pixels read from the OpenGL frame buffer after rasterizing the scene (preview).
+     * It is reused while the size of the {@link DrawView} doesn't change.
+     */
+    private ByteBuffer readPixels = null;
+
     /**
      * A reference to the {@link DrawView#requestRender()} method.
      */
@@ -202,6 +228,11 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
      */
     private int shaderProgramRaster = 0;
 
+    /**
+     * The number of vertices in the {@link MainRenderer#rasterBuffers}.
+     */
+    private int rasterVertexCount = 0;
+
     /**
      * Determine if it is the first frame to render.
      * It is important because it should only call the Ray Tracer engine at the first frame and the others just
@@ -209,6 +240,17 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
      */
     private boolean firstFrame = false;
 
+    /**
+     * Whether the whole OpenGL texture must be specified again in the next frame.
+     * Otherwise, only the tiles that changed in the front framebuffer are uploaded.
+     */
+    private boolean textureOutdated = true;
+
+    /**
+     * Whether the raster preview must be drawn again in the next frame, because the camera moved.
+     */
+    private boolean rasterOutdated = false;
+
     /**
      * The {@link TextView} which will output the debug information about the Ray Tracer engine.
      */
@@ -236,12 +278,6 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
      */
     private RenderTask renderTask = null;
 
-    /**
-     * A thread pool containing {@link ConstantsRenderer#NUMBER_THREADS} threads with the purpose of executing the
-     * {@link MainRenderer#renderTask}.
-     */
-    private ExecutorService executorService = Executors.newFixedThreadPool(NUMBER_THREADS);
-
     /**
      * Helper method which checks and prints errors in the OpenGL framework.
      */
@@ -326,6 +362,19 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
         this.buttonRender.setText(state);
     }
 
+    /**
+     * Shows the progress of loading a scene in the {@link MainRenderer#textView}.
+     *
+     * @param phase    The current {@link LoadPhase}.
+     * @param progress The progress of the current phase, between 0 and 1.
+     */
+    void printLoadProgress(final LoadPhase phase, final float progress) {
+        if (Objects.nonNull(this.textView)) {
+            final int percentage = Math.round(progress * 100.0F);
+            this.textView.setText("Loading: " + phase.name() + ' ' + percentage + '%');
+        }
+    }
+
     /**
      * Sets the {@link MainRenderer#buttonRender}.
      *
@@ -341,7 +390,7 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
      * @return The current Ray Tracer engine {@link State}.
      */
     State getState() {
-        return State.values()[this.renderTask.rtGetState()];
+        return this.renderTask.getState();
     }
 
     /**
@@ -374,26 +423,135 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
     /**
      * Loads the scene and constructs the Ray Tracer renderer.
      *
+     * @param config The ray tracer configuration, serialized with {@link Config#toByteBuffer()}.
+     * @return The number of primitives or a negative value if an error occurs.
+     */
+    private native int rtInitialize(final ByteBuffer config) throws LowMemoryException;
+
+    /**
+     * Estimates the peak of native memory needed to load and render a scene, without loading it.
+     * It includes the primitives, the acceleration structure, the textures, the framebuffers and the arrays used
+     * to rasterize a preview of the scene.
+     *
+     * @param config The ray tracer configuration, serialized with {@link Config#toByteBuffer()}.
+     * @return The number of bytes needed or a negative value if an error occurs.
+     */
+    private native long rtEstimateMemory(final ByteBuffer config) throws LowMemoryException;
+
+    /**
+     * Gets the estimated number of bytes of the biggest native allocations of the Ray Tracer engine that are still
+     * alive, like the scene, the framebuffers and the arrays used to rasterize a preview of the scene.
+     * The scene and the framebuffers are accounted with the same estimates used before loading them, so this is
+     * not the exact memory used by the Ray Tracer engine.
+     *
+     * @return The estimated number of bytes allocated.
+     */
+    private native long rtGetAllocatedMemory();
+
+    /**
+     * Gets the estimated number of bytes of the biggest native allocations of the Ray Tracer engine that are still
+     * alive.
+     *
+     * @return The estimated number of bytes allocated.
+     */
+    long getAllocatedMemory() {
+        return rtGetAllocatedMemory();
+    }
+
+    /**
+     * Loads the scene and constructs the Ray Tracer renderer.
+     * Before loading anything, it estimates the memory needed and refuses to load the scene if the Android device
+     * doesn't have enough free memory, instead of failing halfway through the load.
+     *
      * @param config The ray tracer configuration.
      * @return The number of primitives or a negative value if an error occurs.
+     * @throws LowMemoryException This {@link Exception} is thrown if the Android device has low free memory.
      */
-    native int rtInitialize(final Config config) throws LowMemoryException;
+    int initialize(@NonNull final Config config) throws LowMemoryException {
+        final ByteBuffer configBuffer = config.toByteBuffer();
+        final long estimate = rtEstimateMemory(configBuffer);
+        // The memory of the current scene is freed before loading the new one.
+        final long needed = Math.max(estimate - getAllocatedMemory(), 0L);
+        final int neededMb = (int) (1L + needed / 1048576L);
+        LOGGER.info("Estimated memory: " + estimate + " bytes");
+        if (isLowMemory(neededMb)) {
+            throw new LowMemoryException("The scene needs about " + neededMb + "MB of free memory.");
+        }
+        return rtInitialize(configBuffer);
+    }
+
+    /**
+     * Sets the number of worker threads in the thread pool of the Ray Tracer engine.
+     * The thread pool is reused by all the renders, so its threads are only created or destroyed when this number
+     * changes.
+     *
+     * @param numThreads The number of worker threads.
+     */
+    private native void rtSetWorkerThreads(final int numThreads);
 
     /**
-     * Let Ray Tracer engine start to render the scene.
+     * Gets the number of worker threads in the thread pool of the Ray Tracer engine.
+     *
+     * @return The number of worker threads.
+     */
+    private native int rtGetWorkerThreads();
+
+    /**
+     * Sets the number of worker threads in the thread pool of the Ray Tracer engine, if it is different from the
+     * current one.
+     * It should only be called while the Ray Tracer engine is not rendering.
+     *
+     * @param numThreads The number of worker threads.
+     */
+    void setWorkerThreads(final int numThreads) {
+        if (rtGetWorkerThreads() != numThreads) {
+            rtSetWorkerThreads(numThreads);
+        }
+    }
+
+    /**
+     * Let Ray Tracer engine start to render the scene into its accumulation buffer.
      * It can render synchronously or asynchronously controlled by the {@code async} argument.
      *
-     * @param image      The {@link Bitmap} where the Ray Tracer will render the scene into.
      * @param numThreads The number of threads to be used by the Ray Tracer engine.
      * @param async      If {@code true} let the Ray Tracer engine render the scene asynchronously or otherwise
      *                   synchronously.
      */
-    private native void rtRenderIntoBitmap(
-            final Bitmap image,
+    private native void rtRenderIntoBuffer(
             final int numThreads,
             final boolean async
     ) throws LowMemoryException;
 
+    /**
+     * Gets the native framebuffer where the Ray Tracer engine resolves the rendered scene.
+     * The memory is owned by the Ray Tracer engine, so it must not be freed with
+     * {@link MainRenderer#rtFreeNativeBuffer(ByteBuffer)}.
+     *
+     * @return A direct {@link ByteBuffer} with the pixels in RGBA format or {@code null} if there is no scene.
+     */
+    private native ByteBuffer rtGetFramebuffer();
+
+    /**
+     * Copies the pixels read from the OpenGL frame buffer into the native framebuffer.
+     * The pixels are flipped vertically, made opaque and scaled to the resolution of the rendered image.
+     *
+     * @param pixels The pixels, in RGBA format, read from the OpenGL frame buffer.
+     * @param width  The width of the OpenGL frame buffer.
+     * @param height The height of the OpenGL frame buffer.
+     */
+    private native void rtCopyFrameBuffer(final ByteBuffer pixels, final int width, final int height);
+
+    /**
+     * Gets and clears the mask of the tiles that changed since the last call and resolves them into the native
+     * framebuffer.
+     * Each bit represents one tile, in row-major order.
+     *
+     * @param dirtyTiles The array where the mask should be put.
+     * @return The number of tiles that changed or a negative value if it is unknown (e.g.: no scene is being
+     *     rendered).
+     */
+    private native int rtTakeDirtyTiles(final int[] dirtyTiles);
+
     /**
      * Creates a native array with all the positions of triangles in the scene.
      *
@@ -429,35 +587,95 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
     /**
      * Free the memory of {@link MainRenderer#arrayVertices}, {@link MainRenderer#arrayColors} and
      * {@link MainRenderer#arrayCamera} native arrays.
+     * It also invalidates the primitives in the {@link MainRenderer#rasterBuffers}.
      */
     void freeArrays() {
         this.arrayVertices = rtFreeNativeBuffer(this.arrayVertices);
         this.arrayColors = rtFreeNativeBuffer(this.arrayColors);
         this.arrayCamera = rtFreeNativeBuffer(this.arrayCamera);
+        this.rasterVertexCount = 0;
     }
 
     /**
      * Helper method which initializes the {@link MainRenderer#arrayVertices}, {@link MainRenderer#arrayColors} and
      * {@link MainRenderer#arrayCamera} native arrays.
+     * Their memory was already considered by {@link MainRenderer#initialize(Config)} before loading the scene.
+     *
+     * @throws LowMemoryException This {@link Exception} is thrown if the Ray Tracer engine fails to allocate them.
      */
     private void initArrays() throws LowMemoryException {
         this.arrayVertices = rtInitVerticesArray();
+        this.arrayColors = rtInitColorsArray();
+        this.arrayCamera = rtInitCameraArray();
+    }
 
-        if (isLowMemory(1)) {
-            freeArrays();
+    /**
+     * Helper method which gets the {@link MainRenderer#framebuffer} from the Ray Tracer engine.
+     * It should be called after every {@link MainRenderer#initialize(Config)} because the native framebuffer
+     * is reallocated with the new resolution.
+     */
+    private void initFramebuffer() {
+        this.framebuffer = rtGetFramebuffer();
+        if (Objects.nonNull(this.framebuffer)) {
+            this.framebuffer.order(ByteOrder.nativeOrder());
         }
+    }
 
-        this.arrayColors = rtInitColorsArray();
-
-        if (isLowMemory(1)) {
-            freeArrays();
+    /**
+     * Helper method which uploads the native framebuffer to the OpenGL texture.
+     * The tiles that changed since the last upload are resolved first and only their rows are sent, as OpenGL ES 2
+     * can't upload a rectangle narrower than the framebuffer, and nothing is sent if no tile changed.
+     *
+     * @param framebuffer The native framebuffer.
+     */
+    private void uploadFramebuffer(@NonNull final ByteBuffer framebuffer) {
+        final int numDirtyTiles = rtTakeDirtyTiles(this.dirtyTiles);
+        if (this.textureOutdated || numDirtyTiles < 0) {
+            this.textureOutdated = false;
+            framebuffer.position(0);
+            GLES20.glTexImage2D(
+                    GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, this.width, this.height, 0,
+                    GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, framebuffer
+            );
+            checksGLError();
+            return;
         }
 
-        this.arrayCamera = rtInitCameraArray();
+        final int tilesPerRow = (int) Math.sqrt(NUMBER_OF_TILES);
+        final int tileHeight = this.height / tilesPerRow;
+        final int bytesPerRow = this.width * (Integer.SIZE / Byte.SIZE);
+        int firstDirtyRow = -1;
+        for (int row = 0; row <= tilesPerRow && numDirtyTiles > 0; ++row) {
+            final boolean dirty = row < tilesPerRow && isTileRowDirty(row, tilesPerRow);
+            if (dirty && firstDirtyRow < 0) {
+                firstDirtyRow = row;
+            } else if (!dirty && firstDirtyRow >= 0) {
+                final int offsetY = firstDirtyRow * tileHeight;
+                framebuffer.position(offsetY * bytesPerRow);
+                GLES20.glTexSubImage2D(
+                        GLES20.GL_TEXTURE_2D, 0, 0, offsetY, this.width, (row - firstDirtyRow) * tileHeight,
+                        GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, framebuffer
+                );
+                checksGLError();
+                firstDirtyRow = -1;
+            }
+        }
+    }
 
-        if (isLowMemory(1)) {
-            freeArrays();
+    /**
+     * Helper method which checks if any tile in a row of tiles changed.
+     *
+     * @param row         The index of the row of tiles.
+     * @param tilesPerRow The number of tiles per row.
+     * @return {@code True} if any tile in the row changed, otherwise {@code false}.
+     */
+    private boolean isTileRowDirty(final int row, final int tilesPerRow) {
+        for (int tile = row * tilesPerRow; tile < (row + 1) * tilesPerRow; ++tile) {
+            if ((this.dirtyTiles[tile / Integer.SIZE] & (1 << (tile % Integer.SIZE))) != 0) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
@@ -505,83 +723,46 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
         this.viewWidth = widthView;
         this.viewHeight = heightView;
         this.firstFrame = true;
+        this.textureOutdated = true;
+        this.rasterOutdated = false;
     }
 
     /**
-     * Converts a pixel from OpenGL format to a pixel of Android format.
-     *
-     * @param pixel A pixel from OpenGL format.
-     * @return A pixel from Android format.
-     */
-    @Contract(pure = true)
-    private static int convertPixelOpenGLToAndroid(final int pixel) {
-        final int red = pixel & 0xff;
-        final int green = (pixel >> (1 * 8)) & 0xff;
-        final int blue = (pixel >> (2 * 8)) & 0xff;
-        final int alpha = (pixel >> (3 * 8)) & 0xff;
-        final int newPixel = (red << (2 * 8)) | (green << (1 * 8)) | blue;
-        return alpha << (3 * 8) | newPixel;
-    }
-
-    /**
-     * Converts an index of a pixel from OpenGL format to an index of a pixel of Android format.
-     *
-     * @param index An index of a pixel from OpenGL format.
-     * @return An index of a pixel from Android format.
-     */
-    @Contract(pure = true)
-    private int convertIndexOpenGLToAndroid(final int index) {
-        final int column = index % this.viewWidth;
-        final int line = index / this.viewWidth;
-        return (this.viewHeight - line - 1) * this.viewWidth + column;
-    }
-
-    /**
-     * Helper method that reads and copies the pixels in the OpenGL frame buffer to a new {@link Bitmap}.
-     *
-     * @return A new {@link Bitmap} with the colors of the pixels in the OpenGL frame buffer.
+     * Helper method that reads the pixels in the OpenGL frame buffer and copies them into the front native
+     * framebuffer, which is where the Ray Tracer engine will render the scene.
+     * The {@link MainRenderer#readPixels} buffer is reused between calls and the vertical flip and the scale to the
+     * resolution of the rendered image are done by the Ray Tracer engine in a single pass.
      */
-    private Bitmap copyFrameBuffer() {
-        final int sizePixels = this.viewWidth * this.viewHeight;
-        final int[] arrayBytesPixels = new int[sizePixels];
-        final int[] arrayBytesNewBitmap = new int[sizePixels];
-        final IntBuffer intBuffer = IntBuffer.wrap(arrayBytesPixels);
-        intBuffer.position(0);
+    private void copyFrameBuffer() {
+        final int sizeBytes = this.viewWidth * this.viewHeight * (Integer.SIZE / Byte.SIZE);
+        if (Objects.isNull(this.readPixels) || this.readPixels.capacity() != sizeBytes) {
+            this.readPixels = ByteBuffer.allocateDirect(sizeBytes);
+            this.readPixels.order(ByteOrder.nativeOrder());
+        }
+        this.readPixels.position(0);
 
         GLES20.glReadPixels(
-                0, 0, this.viewWidth, this.viewHeight, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, intBuffer
+                0, 0, this.viewWidth, this.viewHeight, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, this.readPixels
         );
         checksGLError();
 
-        int index = 0;
-        for (final int pixel : arrayBytesPixels) {
-            final int newIndex = convertIndexOpenGLToAndroid(index);
-            ++index;
-            arrayBytesNewBitmap[newIndex] = convertPixelOpenGLToAndroid(pixel);
-        }
-
-        final Bitmap bitmapAux = Bitmap.createBitmap(
-                arrayBytesNewBitmap, this.viewWidth, this.viewHeight, Bitmap.Config.ARGB_8888
-        );
-        return Bitmap.createScaledBitmap(bitmapAux, this.width, this.height, true);
+        rtCopyFrameBuffer(this.readPixels, this.viewWidth, this.viewHeight);
     }
 
     /**
-     * Shuts down and waits for the {@link MainRenderer#executorService} to terminate.
-     * In the end, resets {@link MainRenderer#executorService} to a new thread pool with
-     * {@link ConstantsRenderer#NUMBER_THREADS} threads.
+     * Waits for the last {@link MainRenderer#renderTask} executed in the {@link MainRenderer#executorService} to
+     * finish.
      */
     void waitForLastTask() {
         LOGGER.info("WAITING");
 
         this.lockExecutorService.lock();
         try {
-            this.executorService.shutdown();
-            boolean running = true;
-            do {
-                running = !this.executorService.awaitTermination(1L, TimeUnit.DAYS);
-            } while (running);
-            this.executorService = Executors.newFixedThreadPool(NUMBER_THREADS);
+            if (Objects.nonNull(this.renderTask) && this.renderTask.getStatus() != AsyncTask.Status.PENDING) {
+                this.renderTask.get();
+            }
+        } catch (final ExecutionException | CancellationException ex) {
+            LOGGER.warning(Strings.nullToEmpty(ex.getMessage()));
         } catch (final InterruptedException ex) {
             LOGGER.warning(ex.getMessage());
             Thread.currentThread().interrupt();
@@ -593,23 +774,93 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
     }
 
     /**
-     * Helper method which rasterizes a frame by using the camera and the primitives received by parameters in the
-     * OpenGL pipeline.
+     * Helper method which creates the OpenGL program used to rasterize the scene (preview).
+     * The shaders are only compiled and linked once per OpenGL context.
+     */
+    private void initRasterProgram() {
+        if (this.shaderProgramRaster != 0) {
+            return;
+        }
+
+        // Create Program
+        final int program = GLES20.glCreateProgram();
+        checksGLError();
+
+        if (program == 0) {
+            LOGGER.severe("Could not create program rasterizer: ");
+            LOGGER.severe(GLES20.glGetProgramInfoLog(0));
+            throw new FailureException(GLES20.glGetProgramInfoLog(0));
+        }
+
+        // Bind Attributes
+        final int positionAttrib = 0;
+        GLES20.glBindAttribLocation(program, positionAttrib, VERTEX_POSITION);
+        checksGLError();
+
+        final int colorAttrib = 1;
+        GLES20.glBindAttribLocation(program, colorAttrib, VERTEX_COLOR);
+        checksGLError();
+
+        // Load shaders
+        final int vertexShaderRaster = loadShader(GLES20.GL_VERTEX_SHADER, this.vertexShaderCodeRaster);
+        final int fragmentShaderRaster = loadShader(GLES20.GL_FRAGMENT_SHADER, this.fragmentShaderCodeRaster);
+
+        // Attach and link shaders to program
+        GLES20.glAttachShader(program, vertexShaderRaster);
+        checksGLError();
+
+        GLES20.glAttachShader(program, fragmentShaderRaster);
+        checksGLError();
+
+        GLES20.glLinkProgram(program);
+        checksGLError();
+
+        // The shaders are only deleted when the program is deleted
+        GLES20.glDeleteShader(vertexShaderRaster);
+        checksGLError();
+        GLES20.glDeleteShader(fragmentShaderRaster);
+        checksGLError();
+
+        final int[] attachedShadersRaster = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_ATTACHED_SHADERS, attachedShadersRaster, 0);
+        checksGLError();
+
+        final int[] linkStatusRaster = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatusRaster, 0);
+        checksGLError();
+
+        if (linkStatusRaster[0] != GLES20.GL_TRUE) {
+            final String strError = GLES20.glGetProgramInfoLog(program);
+            final String msg = "attachedShadersRaster = " + attachedShadersRaster[0];
+            final String msg2 = "Could not link program rasterizer: " + strError;
+            LOGGER.severe(msg);
+            LOGGER.severe(msg2);
+            checksGLError();
+            GLES20.glDeleteProgram(program);
+            checksGLError();
+            throw new FailureException(strError);
+        }
+
+        this.shaderProgramRaster = program;
+    }
+
+    /**
+     * Helper method which uploads the primitives' vertices and colors received by parameters into the
+     * {@link MainRenderer#rasterBuffers} OpenGL buffer objects.
+     * It only needs to be called once per scene, because the preview can then be rasterized with any camera without
+     * copying the primitives again.
      *
      * @param bbVertices    The primitives' vertices in the scene.
      * @param bbColors      The primitives' colors in the scene.
-     * @param bbCamera      The camera's position and vectors in the scene.
      * @param numPrimitives The number of primitives in the scene.
      * @throws LowMemoryException This {@link Exception} is thrown if the Android device has low free memory.
      */
-    private void copyFrame(
+    private void uploadRasterBuffers(
             final ByteBuffer bbVertices,
             final ByteBuffer bbColors,
-            final ByteBuffer bbCamera,
             final int numPrimitives
     ) throws LowMemoryException {
-        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT | GLES20.GL_STENCIL_BUFFER_BIT);
-        checksGLError();
+        this.rasterVertexCount = 0;
 
         final int floatSize = Float.SIZE / Byte.SIZE;
         final int triangleMembers = floatSize * 9;
@@ -621,8 +872,17 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
             throw new LowMemoryException();
         }
 
+        if (this.rasterBuffers[0] == 0) {
+            GLES20.glGenBuffers(this.rasterBuffers.length, this.rasterBuffers, 0);
+            checksGLError();
+        }
+
         bbVertices.order(ByteOrder.nativeOrder());
         bbVertices.position(0);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, this.rasterBuffers[0]);
+        checksGLError();
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, bbVertices.capacity(), bbVertices, GLES20.GL_STATIC_DRAW);
+        checksGLError();
 
         if (isLowMemory(1)) {
             throw new LowMemoryException();
@@ -630,81 +890,33 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
 
         bbColors.order(ByteOrder.nativeOrder());
         bbColors.position(0);
-
-        if (isLowMemory(1)) {
-            throw new LowMemoryException();
-        }
-
-        bbCamera.order(ByteOrder.nativeOrder());
-        bbCamera.position(0);
-
-        if (isLowMemory(1)) {
-            throw new LowMemoryException();
-        }
-
-        // Create Program
-        if (this.shaderProgramRaster != 0) {
-            GLES20.glDeleteProgram(this.shaderProgramRaster);
-            checksGLError();
-            this.shaderProgramRaster = 0;
-        }
-        this.shaderProgramRaster = GLES20.glCreateProgram();
-        checksGLError();
-
-        final int positionAttrib2 = 0;
-        GLES20.glBindAttribLocation(this.shaderProgramRaster, positionAttrib2, VERTEX_POSITION);
-        checksGLError();
-        GLES20.glVertexAttribPointer(positionAttrib2, 4, GLES20.GL_FLOAT, false, 0, bbVertices);
-        checksGLError();
-        GLES20.glEnableVertexAttribArray(positionAttrib2);
-        checksGLError();
-
-        final int colorAttrib2 = 1;
-        GLES20.glBindAttribLocation(this.shaderProgramRaster, colorAttrib2, VERTEX_COLOR);
-        checksGLError();
-        GLES20.glVertexAttribPointer(colorAttrib2, 4, GLES20.GL_FLOAT, false, 0, bbColors);
-        checksGLError();
-        GLES20.glEnableVertexAttribArray(colorAttrib2);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, this.rasterBuffers[1]);
         checksGLError();
-
-        // Load shaders
-        final int vertexShaderRaster = loadShader(GLES20.GL_VERTEX_SHADER, this.vertexShaderCodeRaster);
-        final int fragmentShaderRaster = loadShader(GLES20.GL_FRAGMENT_SHADER, this.fragmentShaderCodeRaster);
-
-        // Attach and link shaders to program
-        GLES20.glAttachShader(this.shaderProgramRaster, vertexShaderRaster);
-        checksGLError();
-
-        GLES20.glAttachShader(this.shaderProgramRaster, fragmentShaderRaster);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, bbColors.capacity(), bbColors, GLES20.GL_STATIC_DRAW);
         checksGLError();
 
-        GLES20.glLinkProgram(this.shaderProgramRaster);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
         checksGLError();
 
-        final int[] attachedShadersRaster = new int[1];
-        GLES20.glGetProgramiv(this.shaderProgramRaster, GLES20.GL_ATTACHED_SHADERS, attachedShadersRaster, 0);
-        checksGLError();
+        this.rasterVertexCount = bbVertices.capacity() / (floatSize << 2);
+    }
 
-        final int[] linkStatusRaster = new int[1];
-        GLES20.glGetProgramiv(this.shaderProgramRaster, GLES20.GL_LINK_STATUS, linkStatusRaster, 0);
+    /**
+     * Helper method which rasterizes a frame by using the camera received by parameter and the primitives in the
+     * {@link MainRenderer#rasterBuffers} in the OpenGL pipeline.
+     *
+     * @param bbCamera The camera's position and vectors in the scene.
+     */
+    private void copyFrame(final ByteBuffer bbCamera) {
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT | GLES20.GL_STENCIL_BUFFER_BIT);
         checksGLError();
 
-        if (isLowMemory(1)) {
-            throw new LowMemoryException();
-        }
+        final int floatSize = Float.SIZE / Byte.SIZE;
 
-        if (linkStatusRaster[0] != GLES20.GL_TRUE) {
-            final String strError = GLES20.glGetProgramInfoLog(this.shaderProgramRaster);
-            final String msg = "attachedShadersRaster = " + attachedShadersRaster[0];
-            final String msg2 = "Could not link program rasterizer: " + strError;
-            LOGGER.severe(msg);
-            LOGGER.severe(msg2);
-            checksGLError();
-            GLES20.glDeleteProgram(this.shaderProgramRaster);
-            checksGLError();
-            throw new FailureException(strError);
-        }
+        bbCamera.order(ByteOrder.nativeOrder());
+        bbCamera.position(0);
 
+        initRasterProgram();
 
         GLES20.glUseProgram(this.shaderProgramRaster);
         checksGLError();
@@ -773,44 +985,30 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
         GLES20.glUniformMatrix4fv(handleProjection, 1, false, projectionMatrix, 0);
         checksGLError();
 
-        if (isLowMemory(1)) {
-            throw new LowMemoryException();
-        }
-
         final int positionAttrib = GLES20.glGetAttribLocation(this.shaderProgramRaster, VERTEX_POSITION);
         checksGLError();
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, positionAttrib);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, this.rasterBuffers[0]);
         checksGLError();
         GLES20.glEnableVertexAttribArray(positionAttrib);
         checksGLError();
-        GLES20.glVertexAttribPointer(positionAttrib, 4, GLES20.GL_FLOAT, false, 0, bbVertices);
+        GLES20.glVertexAttribPointer(positionAttrib, 4, GLES20.GL_FLOAT, false, 0, 0);
         checksGLError();
 
-        if (isLowMemory(1)) {
-            throw new LowMemoryException();
-        }
-
         final int colorAttrib = GLES20.glGetAttribLocation(this.shaderProgramRaster, VERTEX_COLOR);
         checksGLError();
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, this.rasterBuffers[1]);
+        checksGLError();
         GLES20.glEnableVertexAttribArray(colorAttrib);
         checksGLError();
-        GLES20.glVertexAttribPointer(colorAttrib, 4, GLES20.GL_FLOAT, false, 0, bbColors);
+        GLES20.glVertexAttribPointer(colorAttrib, 4, GLES20.GL_FLOAT, false, 0, 0);
         checksGLError();
 
-        if (isLowMemory(1)) {
-            throw new LowMemoryException();
-        }
-
         GLES20.glEnable(GLES20.GL_DEPTH_TEST);
         checksGLError();
 
-        final int vertexCount = bbVertices.capacity() / (floatSize << 2);
-
-        if (!isLowMemory(1)) {
-            GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, vertexCount);
-            checksGLError();
-            LOGGER.info("glDrawArrays Complete");
-        }
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, this.rasterVertexCount);
+        checksGLError();
+        LOGGER.info("glDrawArrays Complete");
 
         GLES20.glDisable(GLES20.GL_DEPTH_TEST);
         checksGLError();
@@ -822,7 +1020,7 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
         GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
         checksGLError();
 
-        this.bitmap = copyFrameBuffer();
+        copyFrameBuffer();
     }
 
     /**
@@ -888,6 +1086,38 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
         this.rasterize = rasterize;
     }
 
+    /**
+     * Moves the camera of the raster preview to a new view and draws it again in the next frame, from the
+     * primitives already in the OpenGL buffer objects, so the scene shows up from the new view while the Ray Tracer
+     * engine renders it.
+     * It must be called in the OpenGL thread.
+     *
+     * @param position  The position of the camera.
+     * @param direction The direction of the camera.
+     * @param up        The up vector of the camera.
+     * @param fov       The horizontal field of view of the camera, in degrees.
+     */
+    void moveRasterCamera(final float[] position, final float[] direction, final float[] up, final float fov) {
+        if (this.rasterVertexCount <= 0 || Objects.isNull(this.arrayCamera)) {
+            return;
+        }
+        final int floatSize = Float.SIZE / Byte.SIZE;
+        this.arrayCamera.order(ByteOrder.nativeOrder());
+        for (int axis = 0; axis < 3; ++axis) {
+            this.arrayCamera.putFloat(axis * floatSize, position[axis]);
+            this.arrayCamera.putFloat((4 + axis) * floatSize, direction[axis]);
+            this.arrayCamera.putFloat((8 + axis) * floatSize, up[axis]);
+        }
+        final float fovX = this.arrayCamera.getFloat(16 * floatSize);
+        if (fovX > 0.0F && fov > 0.0F) {
+            // Keeps the ratio between both fields of view, like the Ray Tracer engine does.
+            final float fovY = this.arrayCamera.getFloat(17 * floatSize);
+            this.arrayCamera.putFloat(16 * floatSize, fov);
+            this.arrayCamera.putFloat(17 * floatSize, fovY * fov / fovX);
+        }
+        this.rasterOutdated = true;
+    }
+
     @Override
     public void onDrawFrame(@NonNull final GL10 gl) {
         if (this.firstFrame) {
@@ -898,23 +1128,25 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
                 this.rasterize = false;
                 try {
                     initArrays();
+                    if (Objects.nonNull(this.arrayVertices) && Objects.nonNull(this.arrayColors)) {
+                        uploadRasterBuffers(this.arrayVertices, this.arrayColors, this.numPrimitives);
+                    }
                 } catch (final Exception ex) {
                     LOGGER.warning(ex.getMessage());
                 }
+                // The primitives are already in the OpenGL buffer objects
+                this.arrayVertices = rtFreeNativeBuffer(this.arrayVertices);
+                this.arrayColors = rtFreeNativeBuffer(this.arrayColors);
             }
             waitForLastTask();
-            if (Objects.nonNull(this.arrayVertices) &&
-                Objects.nonNull(this.arrayColors) &&
-                Objects.nonNull(this.arrayCamera)) {
-                try {
-                    copyFrame(this.arrayVertices, this.arrayColors, this.arrayCamera, this.numPrimitives);
-                } catch (final LowMemoryException ex) {
-                    LOGGER.warning("Low memory to rasterize a frame!!!");
-                }
+            initFramebuffer();
+            if (this.rasterVertexCount > 0 && Objects.nonNull(this.arrayCamera)) {
+                copyFrame(this.arrayCamera);
+                this.textureOutdated = true;
             }
 
             try {
-                rtRenderIntoBitmap(this.bitmap, this.numThreads, true);
+                rtRenderIntoBuffer(this.numThreads, true);
             } catch (final Exception ex) {
                 LOGGER.warning(ex.getMessage());
             }
@@ -924,7 +1156,6 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
             );
 
             this.renderTask = renderTaskBuilder
-                    .withUpdateInterval(DEFAULT_UPDATE_INTERVAL)
                     .withWidth(this.width)
                     .withHeight(this.height)
                     .withNumThreads(this.numThreads)
@@ -940,15 +1171,31 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
             } finally {
                 this.lockExecutorService.unlock();
             }
+        } else if (this.rasterOutdated) {
+            this.rasterOutdated = false;
+            try {
+                copyFrame(this.arrayCamera);
+                this.textureOutdated = true;
+            } catch (final LowMemoryException ex) {
+                LOGGER.warning("Low memory to rasterize a frame!!!");
+            }
         }
 
         GLES20.glUseProgram(this.shaderProgram);
         checksGLError();
 
+        if (Objects.nonNull(this.framebuffer)) {
+            uploadFramebuffer(this.framebuffer);
+        } else {
+            GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, this.bitmap, GLES20.GL_UNSIGNED_BYTE, 0);
+            checksGLError();
+            this.textureOutdated = true;
+        }
+
 
         final int positionAttrib = GLES20.glGetAttribLocation(this.shaderProgram, VERTEX_POSITION);
         checksGLError();
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, positionAttrib);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
         checksGLError();
         GLES20.glEnableVertexAttribArray(positionAttrib);
         checksGLError();
@@ -971,9 +1218,6 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
         GLES20.glDrawArrays(GLES20.GL_TRIANGLE_FAN, positionAttrib, vertexCount);
         checksGLError();
 
-        GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, this.bitmap, GLES20.GL_UNSIGNED_BYTE, 0);
-        checksGLError();
-
         GLES20.glDisableVertexAttribArray(positionAttrib);
         checksGLError();
         GLES20.glDisableVertexAttribArray(texCoordAttrib);
@@ -991,6 +1235,7 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
 
         GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, this.bitmap, 0);
         checksGLError();
+        this.textureOutdated = true;
     }
 
     @Override
@@ -1028,6 +1273,12 @@ public final class MainRenderer implements GLSurfaceView.Renderer {
         GLES20.glClearColor(0.0F, 0.0F, 0.0F, 0.0F);
         checksGLError();
 
+        // The OpenGL objects of a previous context are not valid anymore
+        this.shaderProgramRaster = 0;
+        this.rasterBuffers[0] = 0;
+        this.rasterBuffers[1] = 0;
+        this.rasterVertexCount = 0;
+
         // Create geometry and texCoords buffers
         final int byteBufferVerticesSize = this.verticesTexture.length * (Float.SIZE / Byte.SIZE);
         final ByteBuffer bbVertices = ByteBuffer.allocateDirect(byteBufferVerticesSize);
@@ -3,7 +3,10 @@ package puscas.mobilertapp;
 import android.graphics.Bitmap;
 import android.os.AsyncTask;
 import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.SystemClock;
+import android.view.Choreographer;
 import android.widget.Button;
 import android.widget.TextView;
 
@@ -13,22 +16,23 @@ import androidx.annotation.Nullable;
 import org.jetbrains.annotations.Contract;
 
 import java.lang.ref.WeakReference;
-import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+import java8.util.Objects;
 import java8.util.Optional;
 import puscas.mobilertapp.utils.State;
 
 import static puscas.mobilertapp.utils.ConstantsMethods.ON_CANCELLED;
-import static puscas.mobilertapp.utils.ConstantsRenderer.NUMBER_THREADS;
 import static puscas.mobilertapp.utils.ConstantsUI.LINE_SEPARATOR;
 
 /**
  * An asynchronous task to render a frame and update the {@link TextView} text.
+ * It only refreshes the {@link DrawView} when the Ray Tracer engine signals progress, at most once per display
+ * vsync, and backs off while the Ray Tracer engine doesn't progress.
  * At the end of the task, it sets the render {@link Button} to "Render".
  */
 public final class RenderTask extends AsyncTask<Void, Void, Void> {
@@ -49,37 +53,122 @@ public final class RenderTask extends AsyncTask<Void, Void, Void> {
     private static final long MB_IN_BYTES = 1048576L;
 
     /**
-     * An {@link ExecutorService} which schedules every {@link RenderTask#updateInterval}
-     * {@code TimeUnit.MILLISECONDS} the {@link RenderTask#timer} {@link Runnable}.
+     * The number of rays in a mega ray.
      */
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(NUMBER_THREADS);
+    private static final float MEGA_RAYS = 1000000.0F;
 
     /**
-     * A {@link Runnable} to the {@link DrawView#requestRender} method which is called in the {@link RenderTask#timer}.
+     * All the {@link State}s, cached because {@link State#values()} creates a new array in every call.
      */
-    private final Runnable requestRender;
+    private static final State[] STATES = State.values();
 
     /**
-     * A {@link Runnable} which updates the text to print in the {@link TextView}.
+     * The minimum interval, in milliseconds, between refreshes of the debug information while the Ray Tracer
+     * engine doesn't progress.
      */
-    private final Runnable timer;
+    private static final long IDLE_INTERVAL_MIN = 250L;
 
     /**
-     * A {@link Runnable} to the {@link MainRenderer#rtFinishRender} method which stops the Ray Tracer engine and sets
-     * the {@link RenderTask#stateT} to {@link State#IDLE}.
+     * The maximum interval, in milliseconds, between refreshes of the debug information while the Ray Tracer
+     * engine doesn't progress.
      */
-    private final Runnable finishRender;
+    private static final long IDLE_INTERVAL_MAX = 2000L;
+
+    /**
+     * The version of the layout of the statistics shared by the Ray Tracer engine.
+     */
+    private static final int STATS_VERSION = 2;
+
+    /**
+     * The offset, in bytes, of the sequence in the statistics.
+     * It is odd while the Ray Tracer engine is updating the statistics.
+     */
+    private static final int STATS_SEQUENCE = 0;
+
+    /**
+     * The offset, in bytes, of the version of the layout in the statistics.
+     */
+    private static final int STATS_LAYOUT = 4;
+
+    /**
+     * The offset, in bytes, of the {@link State} in the statistics.
+     */
+    private static final int STATS_STATE = 8;
+
+    /**
+     * The offset, in bytes, of the frames per second in the statistics.
+     */
+    private static final int STATS_FPS = 12;
+
+    /**
+     * The offset, in bytes, of the time spent constructing the Ray Tracer renderer in the statistics.
+     */
+    private static final int STATS_TIME_RENDERER = 16;
+
+    /**
+     * The offset, in bytes, of the time spent rendering the scene in the statistics.
+     */
+    private static final int STATS_RENDER_TIME = 24;
+
+    /**
+     * The offset, in bytes, of the number of rays traced in the statistics.
+     */
+    private static final int STATS_RAYS_TRACED = 32;
+
+    /**
+     * The offset, in bytes, of the current sample in the statistics.
+     */
+    private static final int STATS_SAMPLE = 40;
+
+    /**
+     * The offset, in bytes, of the number of tiles rendered in the statistics.
+     */
+    private static final int STATS_TILES_DONE = 44;
+
+    /**
+     * The offset, in bytes, of the size of the BVH per triangle in the statistics.
+     */
+    private static final int STATS_BVH_BYTES_PER_TRIANGLE = 48;
+
+    /**
+     * The size, in bytes, of the statistics.
+     */
+    private static final int STATS_SIZE = 56;
+
+    /**
+     * A {@link Handler} of the main thread, where the {@link Choreographer} delivers the vsync callbacks.
+     */
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * A {@link Semaphore} released at the end of every {@link RenderTask#frameCallback}, so only one refresh is
+     * pending at a time.
+     */
+    private final Semaphore frameDone = new Semaphore(0);
+
+    /**
+     * A {@link Runnable} to the {@link DrawView#requestRender} method which is called in the
+     * {@link RenderTask#frameCallback}.
+     */
+    private final Runnable requestRender;
+
+    /**
+     * A {@link Choreographer.FrameCallback} which refreshes the {@link DrawView} and the text to print in the
+     * {@link TextView} in the next display vsync.
+     */
+    private final Choreographer.FrameCallback frameCallback;
 
     /**
-     * The interval in {@code TimeUnit.MILLISECONDS} between each call to the {@link RenderTask#timer}
-     * {@link Runnable}.
+     * A {@link Runnable} which posts the {@link RenderTask#frameCallback} in the {@link Choreographer} of the main
+     * thread.
      */
-    private final long updateInterval;
+    private final Runnable postFrame;
 
     /**
-     * The timestamp of the start rendering process.
+     * A {@link Runnable} to the {@link MainRenderer#rtFinishRender} method which stops the Ray Tracer engine and sets
+     * the {@link RenderTask#state} to {@link State#IDLE}.
      */
-    private final long startTimeStamp;
+    private final Runnable finishRender;
 
     /**
      * The selected number of samples per pixel.
@@ -119,7 +208,42 @@ public final class RenderTask extends AsyncTask<Void, Void, Void> {
     private final String resolutionT;
 
     /**
-     * The number of times that the {@link RenderTask#timer} is called.
+     * The statistics of the Ray Tracer engine, shared through native memory.
+     */
+    private final ByteBuffer stats;
+
+    /**
+     * A consistent copy of the statistics of the Ray Tracer engine, made by {@link RenderTask#rtWaitProgress}.
+     */
+    private final ByteBuffer statsSnapshot = ByteBuffer.allocateDirect(STATS_SIZE).order(ByteOrder.nativeOrder());
+
+    /**
+     * The text to print in the {@link TextView}, reused to avoid allocations while rendering.
+     */
+    private final StringBuilder text = new StringBuilder(128);
+
+    /**
+     * A buffer used to convert numbers to text without allocations.
+     */
+    private final char[] digits = new char[20];
+
+    /**
+     * The characters of the {@link RenderTask#text} passed to the {@link TextView}.
+     */
+    private char[] textChars = new char[128];
+
+    /**
+     * Whether the pending {@link RenderTask#frameCallback} should also refresh the {@link DrawView}.
+     */
+    private volatile boolean redraw = false;
+
+    /**
+     * Whether the {@link RenderTask#frameCallback} was posted and didn't run yet, so it isn't posted again.
+     */
+    private volatile boolean framePending = false;
+
+    /**
+     * The number of times that the {@link DrawView} was refreshed.
      */
     private int frame = 0;
 
@@ -129,44 +253,60 @@ public final class RenderTask extends AsyncTask<Void, Void, Void> {
     private float timebase = 0.0F;
 
     /**
-     * The number of times that the {@link RenderTask#timer} was called in a second.
+     * The number of times that the {@link DrawView} was refreshed in a second.
      */
     private float fps = 0.0F;
 
     /**
      * The current Ray Tracer engine {@link State}.
      */
-    private String stateT = null;
+    private volatile State state = State.IDLE;
+
+    /**
+     * The {@link State} shown in the {@link RenderTask#buttonRenderRef}, which starts as {@link State#BUSY} because
+     * the button is set to stop the Ray Tracer engine when it starts rendering.
+     */
+    private State buttonState = State.BUSY;
 
     /**
      * The frames per second of the Ray Tracer engine.
      */
-    private String fpsT = null;
+    private volatile float fpsRender = 0.0F;
 
     /**
-     * The time, in seconds, spent constructing the Ray Tracer renderer.
+     * The time, in milliseconds, spent constructing the Ray Tracer renderer.
      */
-    private String timeFrameT = null;
+    private volatile long timeRenderer = 0L;
 
     /**
-     * The current time, in seconds, that the Ray Tracer engine spent rendering a scene.
+     * The current time, in milliseconds, that the Ray Tracer engine spent rendering a scene.
      */
-    private String timeT = null;
+    private volatile long renderTime = 0L;
 
     /**
-     * A {@link String} containing the {@link RenderTask#fps} in order to print it in the {@link RenderTask#textViewRef}.
+     * The number of rays traced by the Ray Tracer engine.
      */
-    private String fpsRenderT = null;
+    private volatile long raysTraced = 0L;
 
     /**
      * The amount of allocated memory in the native heap (in MegaBytes).
      */
-    private String allocatedT = null;
+    private volatile long allocated = 0L;
 
     /**
      * The current sample for all the pixels.
      */
-    private String sampleT = null;
+    private volatile int sample = 0;
+
+    /**
+     * The number of tiles rendered by the Ray Tracer engine, for all the samples.
+     */
+    private volatile int tilesDone = 0;
+
+    /**
+     * The size, in bytes, of the BVH per triangle, or 0 if the accelerator is not a BVH or there are no triangles.
+     */
+    private volatile float bvhBytesPerTriangle = 0.0F;
 
     /**
      * A private constructor of this class to force using the {@link RenderTask.Builder}.
@@ -179,7 +319,6 @@ public final class RenderTask extends AsyncTask<Void, Void, Void> {
 
         this.requestRender = builder.getRequestRender();
         this.finishRender = builder.getFinishRender();
-        this.updateInterval = builder.getUpdateInterval();
         this.primitivesT = ",p=" + builder.getNumPrimitives() + ",l=" + builder.getNumLights();
         this.resolutionT = ",r:" + builder.getWidth() + 'x' + builder.getHeight();
         this.threadsT = ",t:" + builder.getNumThreads();
@@ -188,67 +327,74 @@ public final class RenderTask extends AsyncTask<Void, Void, Void> {
         this.buttonRenderRef = new WeakReference<>(builder.getButtonRender());
         this.textViewRef = new WeakReference<>(builder.getTextView());
 
-        this.startTimeStamp = SystemClock.elapsedRealtime();
-        this.fpsT = String.format(Locale.US, "fps:%.2f", 0.0F);
-        this.fpsRenderT = String.format(Locale.US, "[%.2f]", 0.0F);
-        this.timeFrameT = String.format(Locale.US, ",t:%.2fs", 0.0F);
-        this.timeT = String.format(Locale.US, "[%.2fs]", 0.0F);
-        this.stateT = " " + State.IDLE.getId();
-        this.allocatedT = ",m:" + Debug.getNativeHeapAllocatedSize() / MB_IN_BYTES + "mb";
-        this.sampleT = ",0";
-
-        this.timer = () -> {
-            updateFps();
-
-            this.fpsT = String.format(Locale.US, "fps:%.1f", rtGetFps());
-            this.fpsRenderT = String.format(Locale.US, "[%.1f]", this.fps);
-            final long timeRenderer = rtGetTimeRenderer();
-            this.timeFrameT = String.format(Locale.US, ",t:%.2fs", (float) timeRenderer / SECOND_IN_MS);
-            final long currentTime = SystemClock.elapsedRealtime();
-            this.timeT = String.format(Locale.US, "[%.2fs]",(float) (currentTime - this.startTimeStamp) / SECOND_IN_MS);
-            this.allocatedT = ",m:" + Debug.getNativeHeapAllocatedSize() / MB_IN_BYTES + "mb";
-            this.sampleT = "," + rtGetSample();
-
-            final State currentState = State.values()[rtGetState()];
-            this.stateT = currentState.toString();
-            this.requestRender.run();
-            publishProgress();
-            if (currentState != State.BUSY) {
-                this.scheduler.shutdown();
+        this.allocated = Debug.getNativeHeapAllocatedSize() / MB_IN_BYTES;
+        this.stats = rtGetStats();
+        this.stats.order(ByteOrder.nativeOrder());
+        if (this.stats.getInt(STATS_LAYOUT) != STATS_VERSION) {
+            LOGGER.severe("Unexpected version of the statistics: " + this.stats.getInt(STATS_LAYOUT));
+        }
+
+        this.frameCallback = frameTimeNanos -> {
+            if (this.redraw) {
+                this.redraw = false;
+                updateFps();
+                this.requestRender.run();
             }
+            printText();
+            updateButton();
+            this.framePending = false;
+            this.frameDone.release();
         };
+        this.postFrame = () -> Choreographer.getInstance().postFrameCallback(this.frameCallback);
     }
 
     /**
-     * Gets the number of frames per second which the Ray Tracer engine could render the scene.
+     * Gets the statistics of the Ray Tracer engine.
+     * The returned direct {@link ByteBuffer} points to native memory which is updated by the Ray Tracer engine, so
+     * it only needs to be called once.
      *
-     * @return The number of frames per second.
+     * @return The statistics of the Ray Tracer engine.
      */
-    native float rtGetFps();
+    native ByteBuffer rtGetStats();
 
     /**
-     * Gets the time, in milliseconds, spent constructing the Ray Tracer renderer.
+     * Waits until the Ray Tracer engine publishes new statistics, which happens whenever it renders a tile or
+     * changes its {@link State}, and then copies all of them into a direct {@link ByteBuffer}, with the same layout.
+     * The copy is consistent, because it is retried while the Ray Tracer engine is updating the statistics.
      *
-     * @return The time spent constructing the Ray Tracer renderer.
+     * @param sequence The sequence of the statistics already read.
+     * @param timeout  The maximum time to wait, in milliseconds.
+     * @param snapshot The direct {@link ByteBuffer} where the statistics are copied into.
+     * @return The sequence of the copied statistics.
      */
-    native long rtGetTimeRenderer();
+    native int rtWaitProgress(int sequence, long timeout, ByteBuffer snapshot);
 
     /**
-     * Gets the current sample for all the pixels.
+     * Gets the current Ray Tracer engine {@link State}.
      *
-     * @return The current sample for all the pixels.
+     * @return The current Ray Tracer engine {@link State}.
      */
-    native int rtGetSample();
+    State getState() {
+        return STATES[this.stats.getInt(STATS_STATE)];
+    }
 
     /**
-     * Gets an {@code int} which represents the current Ray Tracer engine {@link State}.
-     *
-     * @return The current Ray Tracer engine {@link State}.
+     * Auxiliary method which reads all the statistics of the Ray Tracer engine from the last consistent copy made by
+     * {@link RenderTask#rtWaitProgress}, as plain reads of the shared native memory aren't ordered.
      */
-    native int rtGetState();
+    private void readStats() {
+        this.state = STATES[this.statsSnapshot.getInt(STATS_STATE)];
+        this.fpsRender = this.statsSnapshot.getFloat(STATS_FPS);
+        this.timeRenderer = this.statsSnapshot.getLong(STATS_TIME_RENDERER);
+        this.renderTime = this.statsSnapshot.getLong(STATS_RENDER_TIME);
+        this.raysTraced = this.statsSnapshot.getLong(STATS_RAYS_TRACED);
+        this.sample = this.statsSnapshot.getInt(STATS_SAMPLE);
+        this.tilesDone = this.statsSnapshot.getInt(STATS_TILES_DONE);
+        this.bvhBytesPerTriangle = this.statsSnapshot.getFloat(STATS_BVH_BYTES_PER_TRIANGLE);
+    }
 
     /**
-     * Auxiliary method which calculates the number of times {@link RenderTask#timer} was called and in each second.
+     * Auxiliary method which calculates the number of times the {@link DrawView} was refreshed in each second.
      */
     private void updateFps() {
         this.frame++;
@@ -261,14 +407,104 @@ public final class RenderTask extends AsyncTask<Void, Void, Void> {
         }
     }
 
+    /**
+     * Auxiliary method which appends a non negative integer to the {@link RenderTask#text} without allocations.
+     *
+     * @param value The value to append.
+     */
+    private void appendInteger(final long value) {
+        long remaining = value;
+        int index = this.digits.length;
+        do {
+            --index;
+            this.digits[index] = (char) ('0' + (int) (remaining % 10L));
+            remaining /= 10L;
+        } while (remaining > 0L && index > 0);
+        this.text.append(this.digits, index, this.digits.length - index);
+    }
+
+    /**
+     * Auxiliary method which appends a non negative number with a fixed number of decimal places to the
+     * {@link RenderTask#text} without allocations.
+     *
+     * @param value    The value to append.
+     * @param decimals The number of decimal places.
+     */
+    private void appendDecimal(final float value, final int decimals) {
+        long scale = 1L;
+        for (int i = 0; i < decimals; ++i) {
+            scale *= 10L;
+        }
+        final long scaled = Math.round((double) Math.max(value, 0.0F) * (double) scale);
+        appendInteger(scaled / scale);
+        this.text.append('.');
+        long fraction = scaled % scale;
+        for (long digit = scale / 10L; digit > 0L; digit /= 10L) {
+            this.text.append((char) ('0' + (int) (fraction / digit)));
+            fraction %= digit;
+        }
+    }
+
+    /**
+     * Auxiliary method which sets the text of the {@link RenderTask#buttonRenderRef} whenever the {@link State}
+     * changes, so it stops the Ray Tracer engine while it is rendering and starts a new render after the frame is
+     * complete.
+     */
+    private void updateButton() {
+        final State currentState = this.state;
+        if (currentState == this.buttonState) {
+            return;
+        }
+        this.buttonState = currentState;
+        final int text = currentState == State.BUSY ? R.string.stop : R.string.render;
+        Optional.ofNullable(this.buttonRenderRef.get()).ifPresent(button -> button.setText(text));
+    }
+
     /**
      * Auxiliary method which sets the current debug information in the {@link RenderTask#textViewRef}.
+     * It reuses the same buffers in every call, so it doesn't allocate memory while rendering.
      */
     private void printText() {
-        final String aux = this.fpsT + this.fpsRenderT + this.resolutionT + this.threadsT + this.samplesPixelT +
-                this.samplesLightT + this.sampleT + LINE_SEPARATOR +
-                this.stateT + this.allocatedT + this.timeFrameT + this.timeT + this.primitivesT;
-        Optional.ofNullable(this.textViewRef.get()).ifPresent(textView -> textView.setText(aux));
+        this.text.setLength(0);
+        this.text.append("fps:");
+        appendDecimal(this.fpsRender, 1);
+        this.text.append('[');
+        appendDecimal(this.fps, 1);
+        this.text.append(']');
+        this.text.append(this.resolutionT).append(this.threadsT).append(this.samplesPixelT).append(this.samplesLightT);
+        this.text.append(',');
+        appendInteger(this.sample);
+        this.text.append('[');
+        appendInteger(this.tilesDone);
+        this.text.append(']');
+        this.text.append(LINE_SEPARATOR);
+        this.text.append(this.state.name());
+        this.text.append(",m:");
+        appendInteger(this.allocated);
+        this.text.append("mb,t:");
+        appendDecimal((float) this.timeRenderer / SECOND_IN_MS, 2);
+        this.text.append("s[");
+        appendDecimal((float) this.renderTime / SECOND_IN_MS, 2);
+        this.text.append("s]");
+        this.text.append(this.primitivesT);
+        if (this.bvhBytesPerTriangle > 0.0F) {
+            this.text.append(",bvh:");
+            appendDecimal(this.bvhBytesPerTriangle, 1);
+            this.text.append("B/tri");
+        }
+        this.text.append(",rays:");
+        appendDecimal((float) this.raysTraced / MEGA_RAYS, 1);
+        this.text.append('M');
+
+        final int length = this.text.length();
+        if (this.textChars.length < length) {
+            this.textChars = new char[length << 1];
+        }
+        this.text.getChars(0, length, this.textChars, 0);
+        final TextView textView = this.textViewRef.get();
+        if (Objects.nonNull(textView)) {
+            textView.setText(this.textChars, 0, length);
+        }
     }
 
     @Override
@@ -281,24 +517,42 @@ public final class RenderTask extends AsyncTask<Void, Void, Void> {
     protected final Void doInBackground(@NonNull final Void... params) {
         LOGGER.info("doInBackground");
 
-        this.scheduler.scheduleAtFixedRate(this.timer, 0L, this.updateInterval, TimeUnit.MILLISECONDS);
-        boolean running = true;
+        int sequence = this.stats.getInt(STATS_SEQUENCE);
+        long idleInterval = IDLE_INTERVAL_MIN;
         do {
+            final int newSequence = rtWaitProgress(sequence, idleInterval, this.statsSnapshot);
+            final boolean progress = newSequence != sequence;
+            sequence = newSequence;
+            idleInterval = progress ? IDLE_INTERVAL_MIN : Math.min(idleInterval << 1, IDLE_INTERVAL_MAX);
+
+            readStats();
+            this.allocated = Debug.getNativeHeapAllocatedSize() / MB_IN_BYTES;
+            // The scene is kept after the frame is complete, so the camera can still move and render it again.
+            if (this.state == State.STOP || this.state == State.IDLE) {
+                break;
+            }
+
+            if (progress) {
+                this.redraw = true;
+            }
+            // Only one refresh is pending at a time, even if the last one is late, so they don't pile up.
+            if (!this.framePending) {
+                this.framePending = true;
+                this.frameDone.drainPermits();
+                this.mainHandler.post(this.postFrame);
+            }
             try {
-                running = !this.scheduler.awaitTermination(1L, TimeUnit.DAYS);
+                // Coalesces all the progress until the next vsync into a single refresh.
+                this.frameDone.tryAcquire(IDLE_INTERVAL_MIN, TimeUnit.MILLISECONDS);
             } catch (final InterruptedException ex) {
                 LOGGER.severe(ex.getMessage());
                 Thread.currentThread().interrupt();
+                break;
             }
-        } while (running);
+        } while (!isCancelled());
         return null;
     }
 
-    @Override
-    protected final void onProgressUpdate(@NonNull final Void... values) {
-        printText();
-    }
-
     @Override
     protected final void onPostExecute(@NonNull final Void result) {
         printText();
@@ -350,11 +604,6 @@ public final class RenderTask extends AsyncTask<Void, Void, Void> {
          */
         private final Button buttonRender;
 
-        /**
-         * @see RenderTask.Builder#withUpdateInterval(long)
-         */
-        private long updateInterval = 0L;
-
         /**
          * @see RenderTask.Builder#withWidth(int)
          */
@@ -409,19 +658,6 @@ public final class RenderTask extends AsyncTask<Void, Void, Void> {
             this.buttonRender = buttonRender;
         }
 
-        /**
-         * Sets the {@link RenderTask#updateInterval} field.
-         *
-         * @param updateInterval The new value for {@link RenderTask#updateInterval} field.
-         * @return The builder with {@link RenderTask.Builder#updateInterval} already set.
-         */
-        @NonNull final RenderTask.Builder withUpdateInterval(final long updateInterval) {
-            LOGGER_BUILDER.info("withUpdateInterval");
-
-            this.updateInterval = updateInterval;
-            return this;
-        }
-
         /**
          * Sets width of {@link RenderTask#resolutionT}.
          *
@@ -541,14 +777,6 @@ public final class RenderTask extends AsyncTask<Void, Void, Void> {
             return this.finishRender;
         }
 
-        /**
-         * @see RenderTask.Builder#withUpdateInterval(long)
-         */
-        @Contract(pure = true)
-        long getUpdateInterval() {
-            return this.updateInterval;
-        }
-
         /**
          * @see RenderTask.Builder#withNumPrimitives(int)
          */
@@ -33,7 +33,12 @@ public enum Accelerator {
     /**
      * The bounding volume hierarchy accelerator.
      */
-    BVH("BVH");
+    BVH("BVH"),
+
+    /**
+     * The bounding volume hierarchy accelerator with 4 children per node.
+     */
+    BVH4("BVH4");
 
     /**
      * The {@link Logger} for this class.
@@ -8,7 +8,6 @@ import java.util.logging.Logger;
 
 import puscas.mobilertapp.DrawView;
 import puscas.mobilertapp.MainRenderer;
-import puscas.mobilertapp.RenderTask;
 
 /**
  * Utility class with the constants for the {@link GLSurfaceView.Renderer}.
@@ -36,11 +35,18 @@ public final class ConstantsRenderer {
     public static final String VERTEX_COLOR = "vertexColor";
 
     /**
-     * The number of threads to be used by the {@link DrawView}, {@link MainRenderer} and {@link RenderTask}
+     * The number of threads to be used by the {@link DrawView} and {@link MainRenderer}
      * {@link ExecutorService}.
      */
     public static final int NUMBER_THREADS = 1;
 
+    /**
+     * The number of tiles in which the Ray Tracer engine splits the image to show the tiles that changed.
+     * It doesn't depend on the size of the tiles rendered by the threads.
+     * It must match the {@code MobileRT::NumberOfTiles} constant of the Ray Tracer engine.
+     */
+    public static final int NUMBER_OF_TILES = 256;
+
     /**
      * The OpenGL ES version required to run this application.
      */
@@ -34,6 +34,11 @@ public final class ConstantsUI {
      */
     public static final String PICKER_ACCELERATOR = "pickerAccelerator";
 
+    /**
+     * The key for the UI's {@link Bundle} of {@link android.widget.NumberPicker} for selecting the sampler.
+     */
+    public static final String PICKER_SAMPLER = "pickerSampler";
+
     /**
      * The key for the UI's {@link Bundle} of {@link android.widget.NumberPicker} for selecting the number of samples
      * per pixel.
@@ -46,6 +51,12 @@ public final class ConstantsUI {
      */
     public static final String PICKER_SAMPLES_LIGHT = "pickerSamplesLight";
 
+    /**
+     * The key for the UI's {@link Bundle} of {@link android.widget.NumberPicker} for selecting the target error of
+     * the adaptive sampling.
+     */
+    public static final String PICKER_TARGET_ERROR = "pickerTargetError";
+
     /**
      * The key for the UI's {@link Bundle} of {@link android.widget.NumberPicker} for selecting the resolution of the
      * image.
@@ -57,6 +68,11 @@ public final class ConstantsUI {
      */
     public static final String CHECK_BOX_RASTERIZE = "checkBoxRasterize";
 
+    /**
+     * The key for the UI's {@link Bundle} of {@link android.widget.CheckBox} to turn on/off the denoiser.
+     */
+    public static final String CHECK_BOX_DENOISE = "checkBoxDenoise";
+
     /**
      * The color for the UI's {@link android.widget.NumberPicker}.
      */
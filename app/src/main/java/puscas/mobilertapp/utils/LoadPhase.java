@@ -0,0 +1,55 @@
+package puscas.mobilertapp.utils;
+
+import org.jetbrains.annotations.Contract;
+
+/**
+ * The phases of loading a scene in the Ray Tracer engine.
+ */
+public enum LoadPhase {
+
+    /**
+     * The {@link LoadPhase} when no scene is being loaded.
+     */
+    IDLE(0),
+
+    /**
+     * The {@link LoadPhase} when the files of the scene are being parsed.
+     */
+    PARSING(1),
+
+    /**
+     * The {@link LoadPhase} when the primitives are being added to the scene.
+     */
+    FILLING(2),
+
+    /**
+     * The {@link LoadPhase} when the acceleration structure is being built.
+     */
+    BUILDING(3),
+
+    /**
+     * The {@link LoadPhase} when the renderer and its framebuffers are being allocated.
+     */
+    ALLOCATING(4);
+
+    /**
+     * @see LoadPhase#getId()
+     */
+    private final int id;
+
+    /**
+     * The constructor for this {@link Enum}.
+     *
+     * @param id The identifier of the phase in the Ray Tracer engine.
+     */
+    LoadPhase(final int id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the identifier of the phase in the Ray Tracer engine.
+     */
+    @Contract(pure = true) public int getId() {
+        return this.id;
+    }
+}
@@ -0,0 +1,78 @@
+package puscas.mobilertapp.utils;
+
+import androidx.annotation.NonNull;
+
+import org.jetbrains.annotations.Contract;
+
+import java.util.logging.Logger;
+
+import java8.util.J8Arrays;
+
+import static puscas.mobilertapp.utils.ConstantsMethods.GET_NAMES;
+
+/**
+ * The available samplers of random numbers for the Ray Tracer engine.
+ */
+public enum Sampler {
+
+    /**
+     * The Halton sequence, shuffled in a table.
+     */
+    HALTON("Halton"),
+
+    /**
+     * The Sobol sequence with Owen scrambling, which is the best stratified in 2D.
+     */
+    SOBOL("Sobol"),
+
+    /**
+     * One random number in each of the strata of the samples per pixel.
+     */
+    STRATIFIED("Stratified"),
+
+    /**
+     * The Mersenne Twister pseudo random number generator.
+     */
+    RANDOM("Random");
+
+    /**
+     * The {@link Logger} for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Sampler.class.getName());
+
+    /**
+     * @see Sampler#getName()
+     */
+    private final String name;
+
+    /**
+     * The constructor for this {@link Enum}.
+     *
+     * @param name The name of the sampler for the Ray Tracer engine.
+     */
+    Sampler(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the name of the sampler for the Ray Tracer engine.
+     */
+    @NonNull
+    @Contract(pure = true)
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Gets the names of all available samplers.
+     */
+    @NonNull
+    @Contract(pure = true)
+    public static String[] getNames() {
+        LOGGER.info(GET_NAMES);
+
+        return J8Arrays.stream(values())
+                .map(Sampler::getName)
+                .toArray(String[]::new);
+    }
+}
@@ -43,7 +43,8 @@ public final class AcceleratorTest {
                 Accelerator.NONE.getName(),
                 Accelerator.NAIVE.getName(),
                 Accelerator.REG_GRID.getName(),
-                Accelerator.BVH.getName()
+                Accelerator.BVH.getName(),
+                Accelerator.BVH4.getName()
         );
     }
 }